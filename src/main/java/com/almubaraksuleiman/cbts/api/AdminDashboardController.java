@@ -0,0 +1,29 @@
+package com.almubaraksuleiman.cbts.api;
+
+import com.almubaraksuleiman.cbts.examiner.service.impl.DashboardRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ * */
+
+@RestController
+@RequestMapping("/api/admin/dashboard")
+@RequiredArgsConstructor
+public class AdminDashboardController {
+
+    private final DashboardRollupService dashboardRollupService;
+
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> rebuildRollups() {
+        dashboardRollupService.rebuild();
+        return ResponseEntity.ok("Dashboard rollups rebuilt through " + dashboardRollupService.rolledUpThrough());
+    }
+
+}
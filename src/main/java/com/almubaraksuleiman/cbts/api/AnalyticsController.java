@@ -5,17 +5,27 @@ import com.almubaraksuleiman.cbts.examiner.model.AnalyticsData;
 import com.almubaraksuleiman.cbts.examiner.model.AnalyticsFilters;
 import com.almubaraksuleiman.cbts.examiner.model.QuestionAnalysis;
 import com.almubaraksuleiman.cbts.examiner.model.StudentPerformance;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.AnalyticsExportJobService;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsReportService;
 import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsService;
+import com.almubaraksuleiman.cbts.resource.FileStorageException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -23,7 +33,15 @@ import org.springframework.web.bind.annotation.*;
 
 public class AnalyticsController {
 
+    // Tomcat sendfile request attributes
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final AnalyticsService analyticsService;
+    private final AnalyticsReportService analyticsReportService;
+    private final AnalyticsExportJobService exportJobService;
 
     @GetMapping("/tests/{testId}")
     public ResponseEntity<AnalyticsData> getTestAnalytics(
@@ -116,7 +134,7 @@ public class AnalyticsController {
 
 
     @GetMapping("/tests/{testId}/export/pdf")
-    public ResponseEntity<ByteArrayResource> exportPdfReport(
+    public ResponseEntity<StreamingResponseBody> exportPdfReport(
             @PathVariable Long testId,
             @RequestParam(required = false) String dateRange) {
 
@@ -124,21 +142,19 @@ public class AnalyticsController {
                 .dateRange(dateRange)
                 .build();
 
+        // Analytics are read on the request thread; student rows are streamed while writing
         AnalyticsData analytics = analyticsService.getTestAnalytics(testId, filters);
-        byte[] pdfBytes = analyticsService.generatePdfReport(analytics);
-
-        ByteArrayResource resource = new ByteArrayResource(pdfBytes);
+        StreamingResponseBody body = out -> analyticsReportService.writePdfReport(analytics, filters, out);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=analytics-report-test-" + testId + ".pdf")
                 .contentType(MediaType.APPLICATION_PDF)
-                .contentLength(pdfBytes.length)
-                .body(resource);
+                .body(body);
     }
 
     @GetMapping("/tests/{testId}/export/excel")
-    public ResponseEntity<ByteArrayResource> exportExcelReport(
+    public ResponseEntity<StreamingResponseBody> exportExcelReport(
             @PathVariable Long testId,
             @RequestParam(required = false) String dateRange) {
 
@@ -146,22 +162,20 @@ public class AnalyticsController {
                 .dateRange(dateRange)
                 .build();
 
+        // Analytics are read on the request thread; student rows are streamed while writing
         AnalyticsData analytics = analyticsService.getTestAnalytics(testId, filters);
-        byte[] excelBytes = analyticsService.generateExcelReport(analytics);
-
-        ByteArrayResource resource = new ByteArrayResource(excelBytes);
+        StreamingResponseBody body = out -> analyticsReportService.writeExcelReport(analytics, filters, out);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=analytics-report-test-" + testId + ".xlsx")
                 .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .contentLength(excelBytes.length)
-                .body(resource);
+                .body(body);
     }
 
 
     @GetMapping("/tests/{testId}/export/csv")
-    public ResponseEntity<ByteArrayResource> exportCsvReport(
+    public ResponseEntity<StreamingResponseBody> exportCsvReport(
             @PathVariable Long testId,
             @RequestParam(required = false) String dateRange) {
 
@@ -169,18 +183,80 @@ public class AnalyticsController {
                 .dateRange(dateRange)
                 .build();
 
+        // Analytics are read on the request thread; student rows are streamed while writing
         AnalyticsData analytics = analyticsService.getTestAnalytics(testId, filters);
-        byte[] csvBytes = analyticsService.generateCsvReport(analytics);
-
-        ByteArrayResource resource = new ByteArrayResource(csvBytes);
+        StreamingResponseBody body = out -> analyticsReportService.writeCsvReport(analytics, filters, out);
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=analytics-report-test-" + testId + ".csv")
                 .contentType(MediaType.TEXT_PLAIN)
-                .contentLength(csvBytes.length)
-                .body(resource);
+                .body(body);
     }
 
-}
 
+    /**
+     * Queues a background export of the test's analytics as pdf, excel or csv. The job is
+     * completed at once when the report of the test's current analytics is already stored.
+     */
+    @PostMapping("/tests/{testId}/export/jobs")
+    public ResponseEntity<AnalyticsExportJobService.ExportJob> submitExportJob(
+            @PathVariable Long testId,
+            @RequestParam String format,
+            @RequestParam(required = false) String dateRange) {
+
+        try {
+            AnalyticsExportJobService.ExportJob job = exportJobService.submit(
+                    testId, AnalyticsExportJobService.Format.of(format), dateRange);
+            return ResponseEntity.status(job.isCompleted() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/export/jobs/{jobId}")
+    public ResponseEntity<AnalyticsExportJobService.ExportJob> getExportJob(@PathVariable String jobId) {
+        AnalyticsExportJobService.ExportJob job = exportJobService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Downloads the report of a completed export job. Local files are handed to the
+     * container's sendfile support when it has one, so the file is copied to the socket by
+     * the kernel rather than through the heap. A report no longer in storage answers 410 Gone.
+     */
+    @GetMapping("/export/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable String jobId,
+                                                      HttpServletRequest request) throws IOException {
+        AnalyticsExportJobService.ExportJob job = exportJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!job.isCompleted()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        AnalyticsExportJobService.Format format = AnalyticsExportJobService.Format.of(job.format());
+        Resource artifact;
+        try {
+            artifact = exportJobService.getArtifact(jobId);
+        } catch (FileStorageException e) {
+            // The report is gone from storage; a new export renders it again
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=analytics-report-test-" + job.testId() + "." + format.getExtension())
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .contentLength(artifact.contentLength());
+
+        if (artifact.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            File file = artifact.getFile();
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, file.length());
+            return response.build();
+        }
+        return response.body(artifact);
+    }
+}
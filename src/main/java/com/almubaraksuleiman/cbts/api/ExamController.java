@@ -4,9 +4,12 @@ import com.almubaraksuleiman.cbts.dto.ExamSessionDto;
 import com.almubaraksuleiman.cbts.dto.QuestionDto;
 import com.almubaraksuleiman.cbts.dto.StudentAnswerDto;
 import com.almubaraksuleiman.cbts.dto.StudentProfileDto;
+import com.almubaraksuleiman.cbts.dto.TimerSyncMessage;
 import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
 import com.almubaraksuleiman.cbts.examiner.service.TestInstructionsService;
 import com.almubaraksuleiman.cbts.examiner.service.UnifiedWebSocketService;
+import com.almubaraksuleiman.cbts.examiner.service.grading.GradingQueue;
+import com.almubaraksuleiman.cbts.security.authentication.service.StudentIdResolver;
 import com.almubaraksuleiman.cbts.student.model.Student;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
@@ -43,6 +46,8 @@ public class ExamController {
     private final StudentRepository studentRepository;
     private final TestInstructionsService instructionsService;
     private final StudentExamRepository studentExamRepository;
+    private final StudentIdResolver studentIdResolver;
+    private final GradingQueue gradingQueue;
 
     /**
      * Starts an exam session for a student
@@ -57,7 +62,7 @@ public class ExamController {
             Authentication authentication) {
 
         String username = authentication.getName();
-        Long studentId = getStudentId(username);
+        Long studentId = studentIdResolver.resolve(authentication);
 
         log.info("Starting exam for student: {}, test: {}", username, testId);
 
@@ -135,8 +140,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             Page<QuestionDto> questions = examService.getQuestions(studentId, testId, page, size);
             return ResponseEntity.ok(questions);
@@ -159,8 +163,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             List<Long> questionIds = examService.getQuestionIds(studentId, testId);
             return ResponseEntity.ok(questionIds);
@@ -185,8 +188,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             examService.saveAnswers(studentId, testId, answers);
             return ResponseEntity.ok().build();
@@ -210,8 +212,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             examService.completeExam(studentId, testId);
             return ResponseEntity.ok().build();
@@ -222,6 +223,17 @@ public class ExamController {
         }
     }
 
+    /**
+     * Grading queue depth and lag, so clients waiting on "/topic/exam-completed/{sessionId}"
+     * can show how long results may take
+     *
+     * @return Current GradingQueueStats
+     */
+    @GetMapping("/grading-queue")
+    public ResponseEntity<GradingQueue.GradingQueueStats> getGradingQueueStats() {
+        return ResponseEntity.ok(gradingQueue.getStats());
+    }
+
     /**
      * Gets remaining time for the exam
      *
@@ -235,8 +247,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             int timeLeft = unifiedWebSocketService.getTimeLeft(studentId, testId);
             return ResponseEntity.ok(timeLeft);
@@ -246,6 +257,32 @@ public class ExamController {
         }
     }
 
+    /**
+     * Gets the absolute timer deadline and server time so the client can count down locally
+     *
+     * @param testId The test ID
+     * @param authentication Spring Security authentication
+     * @return Timer sync state for the student's session
+     */
+    @GetMapping("/timer-sync")
+    public ResponseEntity<TimerSyncMessage> getTimerSync(
+            @RequestParam Long testId,
+            Authentication authentication) {
+
+        try {
+            Long studentId = studentIdResolver.resolve(authentication);
+
+            Long sessionId = studentExamQuestionRepository.findSessionIdByStudentIdAndTestId(studentId, testId);
+            if (sessionId == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            return ResponseEntity.ok(unifiedWebSocketService.getTimerSync(sessionId));
+        } catch (Exception e) {
+            log.error("Error getting timer sync: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     /**
      * Gets questions filtered by type
      *
@@ -265,8 +302,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             Page<QuestionDto> questions = examService.getQuestionsByType(studentId, testId, type, page, size);
             return ResponseEntity.ok(questions);
@@ -289,11 +325,9 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
-            List<Map<String, Object>> flatList = studentExamQuestionRepository
-                    .findQuestionIdsAnsweredAndType(studentId, testId);
+            List<Map<String, Object>> flatList = examService.getQuestionMap(studentId, testId);
 
             // Group by type and add numbering
             Map<String, List<Map<String, Object>>> grouped = flatList.stream()
@@ -326,8 +360,7 @@ public class ExamController {
             Authentication authentication) {
 
         try {
-            String username = authentication.getName();
-            Long studentId = getStudentId(username);
+            Long studentId = studentIdResolver.resolve(authentication);
 
             Long sessionId = studentExamQuestionRepository.findSessionIdByStudentIdAndTestId(studentId, testId);
             return ResponseEntity.ok(sessionId);
@@ -336,13 +369,4 @@ public class ExamController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
-
-    /**
-     * Helper method to extract student ID from authentication
-     */
-    private Long getStudentId(String username) {
-        return studentRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found for username: " + username))
-                .getId();
-    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.almubaraksuleiman.cbts.examiner.dto.ManualGradingRequest;
 import com.almubaraksuleiman.cbts.examiner.dto.StudentEssayAnswerDto;
 import com.almubaraksuleiman.cbts.examiner.dto.StudentEssayGroupDto;
 import com.almubaraksuleiman.cbts.examiner.service.ManualGradingService;
+import com.almubaraksuleiman.cbts.examiner.service.grading.TestRegradeService;
 import com.almubaraksuleiman.cbts.examiner.service.impl.ExamGradingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +29,7 @@ public class ManualGradingController {
 
     private final ManualGradingService manualGradingService;
     private final ExamGradingService examGradingService;
+    private final TestRegradeService testRegradeService;
 
     @PostMapping("/essay")
     public ResponseEntity<EssayGradingResponse> gradeEssay(@RequestBody ManualGradingRequest request) {
@@ -122,6 +124,20 @@ public class ManualGradingController {
         }
     }
 
+    /**
+     * Regrades every graded session of a test against the current answer keys in the background
+     */
+    @PostMapping("/tests/{testId}/regrade")
+    public ResponseEntity<TestRegradeService.RegradeProgress> regradeTest(@PathVariable Long testId) {
+        log.info("Received regrade request for test: {}", testId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(testRegradeService.start(testId));
+    }
+
+    @GetMapping("/tests/{testId}/regrade")
+    public ResponseEntity<TestRegradeService.RegradeProgress> getRegradeProgress(@PathVariable Long testId) {
+        return ResponseEntity.ok(testRegradeService.getProgress(testId));
+    }
+
     // Helper class for stats response
     private static class EssayGradingStatsResponse {
         public Long gradedEssays;
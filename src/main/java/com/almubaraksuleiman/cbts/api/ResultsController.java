@@ -2,6 +2,8 @@ package com.almubaraksuleiman.cbts.api;
 
 import com.almubaraksuleiman.cbts.examiner.dto.*;
 
+import com.almubaraksuleiman.cbts.examiner.SecurityUtils;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsReportService;
 import com.almubaraksuleiman.cbts.examiner.service.impl.ExamGradingService;
 import com.almubaraksuleiman.cbts.examiner.service.impl.ResultsService;
 import com.almubaraksuleiman.cbts.student.model.StudentExam;
@@ -12,9 +14,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +33,8 @@ import java.util.Optional;
 public class ResultsController {
 
     private final ResultsService resultsService;
+    private final AnalyticsReportService analyticsReportService;
+    private final SecurityUtils securityUtils;
     private final ExamGradingService examGradingService;
     private final StudentExamRepository studentExamRepository;
 
@@ -81,6 +88,49 @@ public class ResultsController {
         return ResponseEntity.ok(results);
     }
 
+    /**
+     * Keyset-paginated student results in session order; pass the previous page's
+     * nextAfterSessionId as afterSessionId to get the next one.
+     */
+    @GetMapping("/tests/{testId}/students/seek")
+    public ResponseEntity<StudentExamResultWindow> getStudentResultsAfter(
+            @PathVariable Long testId,
+            @RequestParam(defaultValue = "0") Long afterSessionId,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean graded) {
+
+        StudentResultsFilter filter = new StudentResultsFilter();
+        filter.setSearchTerm(search);
+        filter.setMinScore(minScore);
+        filter.setMaxScore(maxScore);
+        filter.setStatus(status);
+        filter.setGraded(graded);
+
+        StudentExamResultWindow results = resultsService.getStudentExamResultsAfter(
+                testId, filter, afterSessionId, Math.max(1, Math.min(size, 500)));
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Every student result of the test as CSV, streamed from the database as it is written.
+     */
+    @GetMapping("/tests/{testId}/export/csv")
+    public ResponseEntity<StreamingResponseBody> exportStudentResultsCsv(@PathVariable Long testId) {
+        // Access is checked on the request thread, before the body is written asynchronously
+        securityUtils.validateTestAccess(testId);
+
+        StreamingResponseBody body = out -> analyticsReportService.writeStudentResultsCsv(testId, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=results-test-" + testId + ".csv")
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(body);
+    }
+
     @GetMapping("/students/{sessionId}")
     public ResponseEntity<StudentDetailedResult> getStudentDetailedResult(@PathVariable Long sessionId) {
         StudentDetailedResult result = resultsService.getStudentDetailedResult(sessionId);
@@ -1,7 +1,7 @@
 package com.almubaraksuleiman.cbts.api;
 
 import com.almubaraksuleiman.cbts.dto.TestDto;
-import com.almubaraksuleiman.cbts.student.repository.StudentRepository;
+import com.almubaraksuleiman.cbts.security.authentication.service.StudentIdResolver;
 import com.almubaraksuleiman.cbts.student.service.impl.StudentEnrolledTestsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -20,15 +20,12 @@ import java.util.List;
 public class StudentEnrolledTestsController {
 
     private final StudentEnrolledTestsService enrolledTestsService;
-    private final StudentRepository studentRepository;
+    private final StudentIdResolver studentIdResolver;
 
     @GetMapping("/enrolled-tests")
     public ResponseEntity<List<TestDto>> getEnrolledTests(Authentication authentication) {
 
-        String username = authentication.getName();
-        Long studentId = studentRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found for username: " + username))
-                .getId();
+        Long studentId = studentIdResolver.resolve(authentication);
         try {
             List<TestDto> tests = enrolledTestsService.getEnrolledTests(studentId);
             return ResponseEntity.ok(tests);
@@ -42,10 +39,7 @@ public class StudentEnrolledTestsController {
     @GetMapping("/enrolled-tests/{testId}/check")
     public ResponseEntity<Boolean> isStudentEnrolled(
             @PathVariable Long testId, Authentication authentication) {
-        String username = authentication.getName();
-        Long studentId = studentRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found for username: " + username))
-                .getId();
+        Long studentId = studentIdResolver.resolve(authentication);
         try {
             boolean isEnrolled = enrolledTestsService.isStudentEnrolled(studentId, testId);
             return ResponseEntity.ok(isEnrolled);
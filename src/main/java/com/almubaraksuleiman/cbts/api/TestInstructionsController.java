@@ -2,7 +2,7 @@ package com.almubaraksuleiman.cbts.api;
 
 import com.almubaraksuleiman.cbts.dto.TestInstructions;
 import com.almubaraksuleiman.cbts.examiner.service.TestInstructionsService;
-import com.almubaraksuleiman.cbts.student.repository.StudentRepository;
+import com.almubaraksuleiman.cbts.security.authentication.service.StudentIdResolver;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -24,7 +24,7 @@ import java.util.Map;
 public class TestInstructionsController {
 
     private final TestInstructionsService instructionsService;
-    private final StudentRepository studentRepository;
+    private final StudentIdResolver studentIdResolver;
 
     @GetMapping("/{examId}")
     public ResponseEntity<TestInstructions> getInstructions(@PathVariable String examId) {
@@ -54,11 +54,7 @@ public class TestInstructionsController {
     @GetMapping("/{examId}/status")
     public ResponseEntity<Map<String, Boolean>> hasUserReadInstructions(
             @PathVariable Long examId, Authentication authentication) {
-        String username = authentication.getName();
-
-        Long studentId = studentRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found for username: " + username))
-                .getId();
+        Long studentId = studentIdResolver.resolve(authentication);
         boolean hasRead = instructionsService.hasUserReadInstructions(studentId, examId);
         return ResponseEntity.ok(Map.of("hasRead", hasRead));
     }
@@ -66,11 +62,7 @@ public class TestInstructionsController {
     @PostMapping("/{examId}/acknowledge")
     public ResponseEntity<Void> acknowledgeInstructions(
             @PathVariable Long examId, Authentication authentication) {
-        String username = authentication.getName();
-
-        Long studentId = studentRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalArgumentException("Student not found for username: " + username))
-                .getId();
+        Long studentId = studentIdResolver.resolve(authentication);
 
         instructionsService.markInstructionsAsRead(studentId, examId);
         return ResponseEntity.ok().build();
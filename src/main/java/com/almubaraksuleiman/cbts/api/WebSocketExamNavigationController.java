@@ -0,0 +1,69 @@
+package com.almubaraksuleiman.cbts.api;
+
+import com.almubaraksuleiman.cbts.dto.QuestionNavigationEvent;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.QuestionTimeTracker;
+import com.almubaraksuleiman.cbts.security.authentication.service.StudentIdResolver;
+import com.almubaraksuleiman.cbts.student.service.StudentExamService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+/**
+ * Question navigation events from exam pages, over the exam's existing STOMP connection.
+ *
+ * Events are only buffered for the student who owns the session, and only for questions of
+ * that session; the check is served from the session read cache, so it adds no write and,
+ * once the session has been seen, no query. Events are stamped with the time they were
+ * received: a client clock could otherwise stretch or shrink the visits it reports.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Controller
+@Slf4j
+@RequiredArgsConstructor
+public class WebSocketExamNavigationController {
+
+    private final QuestionTimeTracker questionTimeTracker;
+    private final StudentExamService studentExamService;
+    private final StudentIdResolver studentIdResolver;
+
+    // Fire and forget: nothing is sent back, the event is only buffered for the next batch
+    @MessageMapping("/exam/{sessionId}/navigation")
+    public void recordNavigation(@DestinationVariable Long sessionId, @Payload QuestionNavigationEvent event,
+                                 Principal principal) {
+        if (event.getQuestionId() == null || event.getType() == null) return;
+
+        if (!isOwnQuestion(principal, sessionId, event.getQuestionId())) {
+            log.debug("Dropped navigation event for session {}, question {} from {}",
+                    sessionId, event.getQuestionId(), principal != null ? principal.getName() : "anonymous");
+            return;
+        }
+
+        questionTimeTracker.record(sessionId, event.getQuestionId(),
+                event.getType() == QuestionNavigationEvent.Type.ENTER,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * The STOMP principal is the authentication of the WebSocket handshake request.
+     */
+    private boolean isOwnQuestion(Principal principal, Long sessionId, Long questionId) {
+        if (!(principal instanceof Authentication authentication)) return false;
+
+        try {
+            Long studentId = studentIdResolver.resolve(authentication);
+            return studentExamService.isSessionQuestion(studentId, sessionId, questionId);
+        } catch (IllegalArgumentException e) {
+            // Not a student
+            return false;
+        }
+    }
+}
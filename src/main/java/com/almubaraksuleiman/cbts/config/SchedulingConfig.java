@@ -0,0 +1,26 @@
+package com.almubaraksuleiman.cbts.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Scheduler for the application's @Scheduled tasks, sized by spring.task.scheduling.*.
+ *
+ * The STOMP broker registers its own TaskScheduler, which makes Spring Boot back off from
+ * auto-configuring one; @Scheduled would then run on the broker's heartbeat scheduler. A bean
+ * named "taskScheduler" is the one @Scheduled picks when several schedulers exist.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Configuration
+public class SchedulingConfig {
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -54,6 +54,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+
+        // Handle each client's messages in the order sent, e.g. question navigation events
+        registry.setPreserveReceiveOrder(true);
     }
 
     @Override
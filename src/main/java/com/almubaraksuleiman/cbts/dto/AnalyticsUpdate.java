@@ -0,0 +1,50 @@
+package com.almubaraksuleiman.cbts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Versioned analytics push on "/topic/analytics/{testId}/updates".
+ *
+ * A SNAPSHOT carries every section of the test's AnalyticsData; a DELTA only the sections
+ * that changed since the previous version. A client applies a DELTA only if its
+ * baseVersion equals the version it holds, and otherwise requests a snapshot by sending to
+ * "/app/analytics/{testId}/snapshot".
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalyticsUpdate {
+
+    private Long testId;
+    private UpdateType type;
+
+    /** Version this update brings the client to */
+    private long version;
+
+    /** Version a DELTA applies on top of, null for a SNAPSHOT */
+    private Long baseVersion;
+
+    /**
+     * AnalyticsData sections by property name: test, summary, scoreDistribution,
+     * questionAnalysis, timeAnalysis, studentPerformance
+     */
+    private Map<String, Object> sections;
+
+    /** Server clock in epoch millis when the update was built */
+    private long serverTime;
+
+    public enum UpdateType {
+        SNAPSHOT,
+        DELTA
+    }
+}
@@ -0,0 +1,41 @@
+package com.almubaraksuleiman.cbts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Grading result pushed on "/topic/exam-completed/{sessionId}" once the background grading
+ * worker has graded a submitted exam.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExamGradedMessage {
+
+    private Long sessionId;
+    private EventType type;
+
+    private Integer score;
+    private Double percentage;
+
+    /** StudentExam status after grading, e.g. FULLY_GRADED or PARTIALLY_GRADED */
+    private String status;
+
+    /** Time between submission and the grading commit in millis */
+    private Long gradingLagMs;
+
+    /** Server clock in epoch millis when the message was built */
+    private long serverTime;
+
+    public enum EventType {
+        GRADED,
+        GRADING_FAILED
+    }
+}
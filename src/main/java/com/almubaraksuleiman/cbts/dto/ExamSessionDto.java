@@ -28,5 +28,8 @@ public class ExamSessionDto {
     private String status;
     private Integer currentQuestionIndex;
 
+    /** Absolute timer deadline in epoch millis; clients count down against it locally */
+    private Long deadline;
+
 
 }
\ No newline at end of file
@@ -61,6 +61,7 @@ package com.almubaraksuleiman.cbts.dto;
 // Import statements - required dependencies
 import com.almubaraksuleiman.cbts.examiner.model.DifficultyLevel;
 import com.almubaraksuleiman.cbts.examiner.model.MediaType;
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
 import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
@@ -91,7 +92,7 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class QuestionDto {
 
     /**
@@ -199,6 +200,12 @@ public class QuestionDto {
      */
     private Boolean allowPartialCredit;
 
+    /**
+     * Partial credit policy (proportional, negative marking or all-or-nothing).
+     * Used only when partial credit is allowed.
+     */
+    private PartialCreditPolicy partialCreditPolicy;
+
     /**
      * File data for media upload (transient).
      * Used during file upload operations.
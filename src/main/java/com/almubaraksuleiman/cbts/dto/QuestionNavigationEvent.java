@@ -0,0 +1,31 @@
+package com.almubaraksuleiman.cbts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Question navigation event sent by the exam page on "/app/exam/{sessionId}/navigation"
+ * when the student opens (ENTER) or leaves (LEAVE) a question. Consecutive ENTER and LEAVE
+ * events of the same question make one visit, whose duration, measured between the times
+ * the server received the events, feeds the per-question time analytics.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuestionNavigationEvent {
+
+    private Long questionId;
+    private Type type;
+
+    public enum Type {
+        ENTER,
+        LEAVE
+    }
+}
@@ -0,0 +1,46 @@
+package com.almubaraksuleiman.cbts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Timer-sync payload pushed on "/topic/timer/{sessionId}".
+ *
+ * Clients count down locally against {@code deadline}; {@code serverTime} lets them correct
+ * for clock skew. The server only pushes on state changes plus a periodic drift-correction
+ * heartbeat, instead of one message per session per second.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimerSyncMessage {
+
+    private Long sessionId;
+    private EventType type;
+
+    /** Absolute deadline in epoch millis, null while the timer is paused or stopped */
+    private Long deadline;
+
+    /** Server clock in epoch millis when the message was built */
+    private long serverTime;
+
+    private int remainingSeconds;
+
+    public enum EventType {
+        START,
+        HEARTBEAT,
+        PAUSED,
+        RESUMED,
+        EXTRA_TIME,
+        STOPPED,
+        EXPIRED,
+        AUTO_SUBMIT_FAILED
+    }
+}
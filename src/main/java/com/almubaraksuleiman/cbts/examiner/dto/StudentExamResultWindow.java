@@ -0,0 +1,23 @@
+package com.almubaraksuleiman.cbts.examiner.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Keyset page of a test's student results in session ID order. The next page is requested
+ * with afterSessionId set to nextAfterSessionId.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Data
+@Builder
+public class StudentExamResultWindow {
+    private List<StudentExamResult> results;
+    private int size;
+    private boolean hasMore;
+    private Long nextAfterSessionId; // null on the last page
+}
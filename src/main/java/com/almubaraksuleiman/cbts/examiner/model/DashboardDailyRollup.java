@@ -0,0 +1,65 @@
+package com.almubaraksuleiman.cbts.examiner.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Dashboard facts of one test on one past day: its exams by end date and its enrollments by
+ * enrollment date. Maintained by DashboardRollupService; the dashboard adds the days after
+ * the last rolled-up one from the live tables.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Entity
+@Table(name = "dashboard_daily_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_dashboard_daily_rollup_day_test", columnNames = {"day", "test_id"})
+}, indexes = {
+        @Index(name = "idx_dashboard_daily_rollup_examiner_day", columnList = "examiner_id, day")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "test_id", nullable = false)
+    private Long testId;
+
+    /** Creator of the test, so examiner dashboards need no join */
+    @Column(name = "examiner_id")
+    private Long examinerId;
+
+    @Column(nullable = false)
+    private long completed;
+
+    /** Completed exams with a percentage */
+    @Column(nullable = false)
+    private long scored;
+
+    /** Sum of the percentages of the scored exams */
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    @Column(nullable = false)
+    private long passed;
+
+    @Column(name = "pending_grading", nullable = false)
+    private long pendingGrading;
+
+    @Column(nullable = false)
+    private long enrollments;
+}
@@ -0,0 +1,34 @@
+package com.almubaraksuleiman.cbts.examiner.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A rolled-up day to recompute on the next refresh because of a change the exam watermark
+ * cannot see: a test's passing score or examiner, or a deleted enrollment. Rows are appended
+ * in the changing transaction and removed by the refresh that recomputes the day.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Entity
+@Table(name = "dashboard_rollup_stale_day")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardRollupStaleDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+}
@@ -0,0 +1,38 @@
+package com.almubaraksuleiman.cbts.examiner.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the dashboard rollups; a single row, locked by each refresh.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Entity
+@Table(name = "dashboard_rollup_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardRollupState {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    /** Last day whose rollups are complete, null before the first build */
+    @Column(name = "rolled_up_through")
+    private LocalDate rolledUpThrough;
+
+    /** Start of the last refresh; rows updated since then are rolled up by the next one */
+    @Column(name = "watermark")
+    private LocalDateTime watermark;
+}
@@ -0,0 +1,53 @@
+package com.almubaraksuleiman.cbts.examiner.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Number of scored exams of one test on one past day per score range and decile, the two
+ * histograms of the dashboard. Maintained by DashboardRollupService.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Entity
+@Table(name = "dashboard_score_rollup", indexes = {
+        @Index(name = "idx_dashboard_score_rollup_day", columnList = "day"),
+        @Index(name = "idx_dashboard_score_rollup_examiner_day", columnList = "examiner_id, day")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardScoreRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "test_id", nullable = false)
+    private Long testId;
+
+    @Column(name = "examiner_id")
+    private Long examinerId;
+
+    /** Index of the range bounded by DashboardQueryRepository.SCORE_RANGE_LIMITS */
+    @Column(name = "score_range", nullable = false)
+    private int scoreRange;
+
+    /** 10-point bucket, null for percentages outside 0 to 100 */
+    @Column
+    private Integer decile;
+
+    @Column(name = "exam_count", nullable = false)
+    private long examCount;
+}
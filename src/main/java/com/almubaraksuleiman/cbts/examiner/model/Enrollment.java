@@ -14,6 +14,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "enrollments", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"test_id", "student_id"})
+}, indexes = {
+    @Index(name = "idx_enrollments_enrolled_at", columnList = "enrolled_at")
 })
 @Data
 @NoArgsConstructor
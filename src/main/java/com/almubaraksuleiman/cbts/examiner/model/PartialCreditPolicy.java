@@ -0,0 +1,72 @@
+// Package declaration - organizes classes within the model package
+package com.almubaraksuleiman.cbts.examiner.model;
+
+/**
+ * How a question that allows partial credit turns a partially correct response into marks.
+
+ * A response is reduced to three counts by the question's compiled answer key:
+ * - hits: key items the response got right (selected options, correctly paired items)
+ * - misses: items the response got wrong (selected distractors, wrongly paired items)
+ * - keySize: number of items in the key
+ * The policy maps them to a share of the question's max marks. Unanswered items count as
+ * neither hits nor misses.
+
+ * Stored as a string on the Question entity; null means {@link #PROPORTIONAL}. Questions that
+ * do not allow partial credit are always graded {@link #ALL_OR_NOTHING}.
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public enum PartialCreditPolicy {
+
+    /**
+     * Full marks for an exact response, nothing otherwise.
+     */
+    ALL_OR_NOTHING {
+        @Override
+        public double credit(int hits, int misses, int keySize) {
+            return keySize > 0 && hits == keySize && misses == 0 ? 1.0 : 0.0;
+        }
+    },
+
+    /**
+     * Share of the key answered correctly, each wrong item cancelling a correct one, never
+     * below zero. Selecting every option therefore does not earn credit.
+     */
+    PROPORTIONAL {
+        @Override
+        public double credit(int hits, int misses, int keySize) {
+            return keySize > 0 ? Math.max(0, hits - misses) / (double) keySize : 0.0;
+        }
+    },
+
+    /**
+     * Like PROPORTIONAL, but wrong items may take the question below zero, down to minus its
+     * max marks.
+     */
+    NEGATIVE_MARKING {
+        @Override
+        public double credit(int hits, int misses, int keySize) {
+            return keySize > 0 ? Math.max(-1.0, (hits - misses) / (double) keySize) : 0.0;
+        }
+    };
+
+    /**
+     * @param hits key items answered correctly
+     * @param misses items answered wrongly
+     * @param keySize number of items in the key
+     * @return share of the question's max marks to award, between -1 and 1
+     */
+    public abstract double credit(int hits, int misses, int keySize);
+
+    /**
+     * Policy a question is graded with.
+     *
+     * @param allowPartialCredit the question's flag, null meaning false
+     * @param policy the question's configured policy, may be null
+     */
+    public static PartialCreditPolicy effective(Boolean allowPartialCredit, PartialCreditPolicy policy) {
+        if (!Boolean.TRUE.equals(allowPartialCredit)) return ALL_OR_NOTHING;
+        return policy != null ? policy : PROPORTIONAL;
+    }
+}
@@ -387,6 +387,13 @@ public class Question {
      */
     private Boolean allowPartialCredit = false;
 
+    /**
+     * How partial credit is computed when allowPartialCredit is set.
+     * Applies to multiple select and matching questions; null means proportional.
+     */
+    @Enumerated(EnumType.STRING)
+    private PartialCreditPolicy partialCreditPolicy;
+
     /**
      * Timestamp indicating when the question was created.
      * Automatically set when the question is first persisted.
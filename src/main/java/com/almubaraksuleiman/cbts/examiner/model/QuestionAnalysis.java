@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -14,6 +16,7 @@ public class QuestionAnalysis {
     private String text;
     private int correctAnswers;
     private int incorrectAnswers;
-    private double averageTime;
+    private double averageTime; // seconds per student, 0 without navigation data
+    private List<Long> timeHistogram; // visits per duration bucket, see QuestionTimeStatsRepository
     private String difficulty; // "easy", "medium", "hard"
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.almubaraksuleiman.cbts.examiner.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time students spent on one question, summed from question navigation events. Maintained
+ * in batches by QuestionTimeTracker; the histogram counts visits by duration.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Entity
+@Table(name = "question_time_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuestionTimeStats {
+
+    @Id
+    @Column(name = "question_id")
+    private Long questionId;
+
+    /** Time spent on the question over all visits, in milliseconds */
+    @Column(name = "total_ms", nullable = false)
+    private long totalMs;
+
+    @Column(name = "visits", nullable = false)
+    private long visits;
+
+    /** Exam sessions that visited the question */
+    @Column(name = "students", nullable = false)
+    private long students;
+
+    @Column(name = "under_15s", nullable = false)
+    private long under15s;
+
+    @Column(name = "under_30s", nullable = false)
+    private long under30s;
+
+    @Column(name = "under_1m", nullable = false)
+    private long under1m;
+
+    @Column(name = "under_2m", nullable = false)
+    private long under2m;
+
+    @Column(name = "under_5m", nullable = false)
+    private long under5m;
+
+    @Column(name = "over_5m", nullable = false)
+    private long over5m;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
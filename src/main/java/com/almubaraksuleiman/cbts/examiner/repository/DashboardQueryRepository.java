@@ -0,0 +1,352 @@
+package com.almubaraksuleiman.cbts.examiner.repository;
+
+import com.almubaraksuleiman.cbts.examiner.model.StudentPerformance;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grouped aggregates behind the dashboards. Every query returns one row per group (status,
+ * score bucket, day, test) rather than one per exam, so the amount of data read into the
+ * application does not grow with the exam, enrollment or question tables.
+ *
+ * Queries are scoped by {@link Scope}: the examiner whose tests are counted (null for all
+ * tests) and the range of exam end times. As before, exams without an end time are counted
+ * in every range.
+ *
+ * Days up to the scope's rolledUpThrough are read from the daily rollups maintained by
+ * DashboardRollupService, and only later days (and exams without an end time) from the
+ * live tables, so the cost of a query follows the number of tests and days in range rather
+ * than the number of exams ever taken.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class DashboardQueryRepository {
+
+    /** Upper bounds of the five score ranges of the performance chart: 0-20%, ..., 81-100% */
+    public static final int[] SCORE_RANGE_LIMITS = {20, 40, 60, 80};
+
+    /** Score histogram buckets of 10 percentage points: 0, 10, ..., 100 */
+    public static final int SCORE_DECILES = 11;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param examinerId creator of the counted tests, null for all tests
+     * @param from first day of exam end times, null for all time
+     * @param to last day of exam end times, inclusive; ignored without from
+     * @param rolledUpThrough last day covered by the rollups, null to read only live tables
+     */
+    public record Scope(Long examinerId, LocalDate from, LocalDate to, LocalDate rolledUpThrough) {
+    }
+
+    /**
+     * @param averageScore average percentage of completed exams that have one
+     * @param passed completed exams at or above their test's passing score
+     * @param pendingGrading completed exams not graded yet
+     */
+    public record ExamTotals(long completed, long scored, double averageScore, long passed, long pendingGrading) {
+    }
+
+    /**
+     * @param archived tests created more than six months ago
+     */
+    public record TestTotals(long total, long published, long archived) {
+    }
+
+    /**
+     * @param ranges counts per range bounded by {@link #SCORE_RANGE_LIMITS}
+     * @param deciles counts per {@link #SCORE_DECILES} bucket
+     */
+    public record ScoreHistograms(long[] ranges, long[] deciles) {
+    }
+
+    public record TestAverage(Long testId, String title, double averageScore) {
+    }
+
+    // ==================== COUNTS ====================
+
+    /**
+     * Exam counters of the scope: rolled-up days plus one conditional aggregate over the
+     * live rows.
+     */
+    public ExamTotals examTotals(Scope scope) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COALESCE(SUM(completed), 0), COALESCE(SUM(scored), 0), " +
+                "COALESCE(SUM(score_sum), 0), COALESCE(SUM(passed), 0), COALESCE(SUM(pending_grading), 0) FROM (" +
+                "SELECT " +
+                "SUM(CASE WHEN se.completed = TRUE THEN 1 ELSE 0 END) AS completed, " +
+                "SUM(CASE WHEN se.completed = TRUE AND se.percentage IS NOT NULL THEN 1 ELSE 0 END) AS scored, " +
+                "SUM(CASE WHEN se.completed = TRUE THEN se.percentage END) AS score_sum, " +
+                "SUM(CASE WHEN se.completed = TRUE AND se.percentage >= t.passing_score THEN 1 ELSE 0 END) AS passed, " +
+                "SUM(CASE WHEN se.completed = TRUE AND (se.graded IS NULL OR se.graded = FALSE) THEN 1 ELSE 0 END) AS pending_grading " +
+                "FROM student_exam se JOIN tests t ON t.id = se.test_id");
+        sql.append(examWhere(scope, params));
+        if (scope.rolledUpThrough() != null) {
+            sql.append(" UNION ALL SELECT r.completed, r.scored, r.score_sum, r.passed, r.pending_grading " +
+                    "FROM dashboard_daily_rollup r").append(rollupWhere(scope, params));
+        }
+        sql.append(") totals");
+
+        return jdbcTemplate.queryForObject(sql.toString(),
+                (rs, rowNum) -> {
+                    long scored = rs.getLong(2);
+                    return new ExamTotals(rs.getLong(1), scored, scored > 0 ? rs.getDouble(3) / scored : 0.0,
+                            rs.getLong(4), rs.getLong(5));
+                },
+                params.toArray());
+    }
+
+    /**
+     * @param examinerId creator of the counted tests, null for all tests
+     */
+    public TestTotals testTotals(Long examinerId) {
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.valueOf(LocalDateTime.now().minusMonths(6)));
+        String where = "";
+        if (examinerId != null) {
+            where = " WHERE t.created_by = ?";
+            params.add(examinerId);
+        }
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*), " +
+                        "COALESCE(SUM(CASE WHEN t.published = TRUE THEN 1 ELSE 0 END), 0), " +
+                        "COALESCE(SUM(CASE WHEN t.created_at < ? THEN 1 ELSE 0 END), 0) " +
+                        "FROM tests t" + where,
+                (rs, rowNum) -> new TestTotals(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+                params.toArray());
+    }
+
+    /**
+     * @param examinerId creator of the counted tests, null for all tests
+     * @return question count by QuestionType name
+     */
+    public Map<String, Long> questionCountsByType(Long examinerId) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT q.type, COUNT(*) FROM questions q";
+        if (examinerId != null) {
+            sql += " JOIN tests t ON t.id = q.test_id WHERE t.created_by = ?";
+            params.add(examinerId);
+        }
+
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql + " GROUP BY q.type",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                },
+                params.toArray());
+        return counts;
+    }
+
+    // ==================== DISTRIBUTIONS ====================
+
+    /**
+     * Both score histograms of the scope, from one scan of the live rows grouped by range and
+     * decile plus the rolled-up groups.
+     */
+    public ScoreHistograms scoreHistograms(Scope scope) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + SCORE_RANGE_SQL + " AS score_range, " + DECILE_SQL +
+                " AS decile, COUNT(*) FROM student_exam se JOIN tests t ON t.id = se.test_id");
+        sql.append(examWhere(scope, params)).append(" AND se.percentage IS NOT NULL GROUP BY score_range, decile");
+        if (scope.rolledUpThrough() != null) {
+            sql.append(" UNION ALL SELECT r.score_range, r.decile, r.exam_count FROM dashboard_score_rollup r")
+                    .append(rollupWhere(scope, params));
+        }
+
+        long[] ranges = new long[SCORE_RANGE_LIMITS.length + 1];
+        long[] deciles = new long[SCORE_DECILES];
+        jdbcTemplate.query(sql.toString(),
+                rs -> {
+                    long count = rs.getLong(3);
+                    ranges[rs.getInt(1)] += count;
+                    int decile = rs.getInt(2);
+                    if (!rs.wasNull()) {
+                        deciles[decile] += count;
+                    }
+                },
+                params.toArray());
+        return new ScoreHistograms(ranges, deciles);
+    }
+
+    /**
+     * @param examinerId creator of the tests enrolled in, null for all tests
+     * @param rolledUpThrough last day covered by the rollups, null to read only live tables
+     * @return enrollments per day from the first to the last day inclusive, days without any
+     *         left out
+     */
+    public Map<LocalDate, Long> enrollmentsByDay(Long examinerId, LocalDate from, LocalDate to,
+                                                 LocalDate rolledUpThrough) {
+        LocalDate liveFrom = from;
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        if (rolledUpThrough != null && !from.isAfter(rolledUpThrough)) {
+            sql.append("SELECT r.day, r.enrollments FROM dashboard_daily_rollup r " +
+                    "WHERE r.day >= ? AND r.day <= ? AND r.enrollments > 0");
+            params.add(Date.valueOf(from));
+            params.add(Date.valueOf(to.isBefore(rolledUpThrough) ? to : rolledUpThrough));
+            if (examinerId != null) {
+                sql.append(" AND r.examiner_id = ?");
+                params.add(examinerId);
+            }
+            sql.append(" UNION ALL ");
+            liveFrom = rolledUpThrough.plusDays(1);
+        }
+
+        sql.append("SELECT DATE(e.enrolled_at) AS day, COUNT(*) FROM enrollments e");
+        if (examinerId != null) {
+            sql.append(" JOIN tests t ON t.id = e.test_id");
+        }
+        sql.append(" WHERE e.enrolled_at >= ? AND e.enrolled_at < ?");
+        params.add(Timestamp.valueOf(liveFrom.atStartOfDay()));
+        params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        if (examinerId != null) {
+            sql.append(" AND t.created_by = ?");
+            params.add(examinerId);
+        }
+        sql.append(" GROUP BY day");
+
+        Map<LocalDate, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql.toString(),
+                rs -> {
+                    counts.merge(rs.getDate(1).toLocalDate(), rs.getLong(2), Long::sum);
+                },
+                params.toArray());
+        return counts;
+    }
+
+    // ==================== RANKINGS ====================
+
+    /**
+     * Average percentage of the first tests of the scope, 0 for tests without scored exams.
+     */
+    public List<TestAverage> averageScoreByTest(Scope scope, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder scores = new StringBuilder("SELECT se.test_id, SUM(se.percentage) AS score_sum, " +
+                "COUNT(*) AS scored FROM student_exam se JOIN tests t ON t.id = se.test_id");
+        scores.append(examWhere(scope, params))
+                .append(" AND se.completed = TRUE AND se.percentage IS NOT NULL GROUP BY se.test_id");
+        if (scope.rolledUpThrough() != null) {
+            scores.append(" UNION ALL SELECT r.test_id, r.score_sum, r.scored FROM dashboard_daily_rollup r")
+                    .append(rollupWhere(scope, params));
+        }
+
+        String where = "";
+        if (scope.examinerId() != null) {
+            where = " WHERE t.created_by = ?";
+            params.add(scope.examinerId());
+        }
+        params.add(limit);
+
+        return jdbcTemplate.query(
+                "SELECT t.id, t.title, COALESCE(SUM(x.score_sum) / NULLIF(SUM(x.scored), 0), 0) " +
+                        "FROM tests t LEFT JOIN (" + scores + ") x ON x.test_id = t.id" + where +
+                        " GROUP BY t.id, t.title ORDER BY t.id LIMIT ?",
+                (rs, rowNum) -> new TestAverage(rs.getLong(1), rs.getString(2), rs.getDouble(3)),
+                params.toArray());
+    }
+
+    /**
+     * Highest scoring exams of the scope, read from the live table through the percentage
+     * index whatever the rollups cover.
+     */
+    public List<StudentPerformance> topPerformers(Scope scope, int limit) {
+        List<Object> params = new ArrayList<>();
+        Scope live = new Scope(scope.examinerId(), scope.from(), scope.to(), null);
+        String where = examWhere(live, params) + " AND se.percentage IS NOT NULL";
+        params.add(limit);
+
+        return jdbcTemplate.query(
+                "SELECT se.student_id, se.percentage, se.end_time, " +
+                        "COALESCE(TIMESTAMPDIFF(MINUTE, se.start_time, se.end_time), 0) " +
+                        "FROM student_exam se JOIN tests t ON t.id = se.test_id" + where +
+                        " ORDER BY se.percentage DESC, se.session_id LIMIT ?",
+                (rs, rowNum) -> {
+                    Timestamp endTime = rs.getTimestamp(3);
+                    return StudentPerformance.builder()
+                            .studentId(String.valueOf(rs.getLong(1)))
+                            .name("Student " + rs.getLong(1))
+                            .score(rs.getDouble(2))
+                            .timeSpent(rs.getLong(4))
+                            .status("completed")
+                            .submittedAt(endTime != null ? endTime.toLocalDateTime() : null)
+                            .build();
+                },
+                params.toArray());
+    }
+
+    // ==================== SCOPE ====================
+
+    /**
+     * Score range index of "se.percentage" by {@link #SCORE_RANGE_LIMITS}, shared with the
+     * rollup job.
+     */
+    static final String SCORE_RANGE_SQL = scoreRangeSql();
+
+    /** 10-point bucket of "se.percentage", null outside 0 to 100 */
+    static final String DECILE_SQL =
+            "CASE WHEN se.percentage >= 0 AND se.percentage < 110 THEN FLOOR(se.percentage / 10) END";
+
+    /**
+     * Conditions on live exams "se" of tests "t": the scope's examiner and end-time range,
+     * and only end times after the rolled-up days.
+     */
+    private static String examWhere(Scope scope, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (scope.examinerId() != null) {
+            where.append(" AND t.created_by = ?");
+            params.add(scope.examinerId());
+        }
+        if (scope.from() != null) {
+            where.append(" AND (se.end_time IS NULL OR (se.end_time >= ? AND se.end_time < ?))");
+            params.add(Timestamp.valueOf(scope.from().atStartOfDay()));
+            params.add(Timestamp.valueOf(scope.to().plusDays(1).atStartOfDay()));
+        }
+        if (scope.rolledUpThrough() != null) {
+            where.append(" AND (se.end_time IS NULL OR se.end_time >= ?)");
+            params.add(Timestamp.valueOf(scope.rolledUpThrough().plusDays(1).atStartOfDay()));
+        }
+        return where.toString();
+    }
+
+    /**
+     * Conditions on rollup rows "r": the scope's examiner and the rolled-up days of its range.
+     */
+    private static String rollupWhere(Scope scope, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE r.day <= ?");
+        LocalDate through = scope.rolledUpThrough();
+        if (scope.from() != null) {
+            where.append(" AND r.day >= ?");
+            params.add(Date.valueOf(scope.to().isBefore(through) ? scope.to() : through));
+            params.add(Date.valueOf(scope.from()));
+        } else {
+            params.add(Date.valueOf(through));
+        }
+        if (scope.examinerId() != null) {
+            where.append(" AND r.examiner_id = ?");
+            params.add(scope.examinerId());
+        }
+        return where.toString();
+    }
+
+    private static String scoreRangeSql() {
+        StringBuilder sql = new StringBuilder("CASE");
+        for (int i = 0; i < SCORE_RANGE_LIMITS.length; i++) {
+            sql.append(" WHEN se.percentage <= ").append(SCORE_RANGE_LIMITS[i]).append(" THEN ").append(i);
+        }
+        return sql.append(" ELSE ").append(SCORE_RANGE_LIMITS.length).append(" END").toString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.almubaraksuleiman.cbts.examiner.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the dashboard rollup tables from the live exam and enrollment tables. A range of
+ * days is always recomputed as a whole (delete, then INSERT ... SELECT grouped by day and
+ * test), so recomputing a day twice gives the same rows.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class DashboardRollupRepository {
+
+    private static final String STATE_NAME = "dashboard";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param rolledUpThrough last day whose rollups are complete, null before the first build
+     * @param watermark start of the last refresh, null before the first build
+     */
+    public record State(LocalDate rolledUpThrough, LocalDateTime watermark) {
+    }
+
+    // ==================== STATE ====================
+
+    public State state() {
+        List<State> states = jdbcTemplate.query(
+                "SELECT rolled_up_through, watermark FROM dashboard_rollup_state WHERE name = ?",
+                (rs, rowNum) -> toState(rs.getDate(1), rs.getTimestamp(2)),
+                STATE_NAME);
+        return states.isEmpty() ? new State(null, null) : states.get(0);
+    }
+
+    /**
+     * Reads the state and locks its row until the current transaction ends, so that only one
+     * node refreshes the rollups at a time. Must be called in a transaction.
+     */
+    public State lockState() {
+        jdbcTemplate.update("INSERT IGNORE INTO dashboard_rollup_state (name) VALUES (?)", STATE_NAME);
+        return jdbcTemplate.queryForObject(
+                "SELECT rolled_up_through, watermark FROM dashboard_rollup_state WHERE name = ? FOR UPDATE",
+                (rs, rowNum) -> toState(rs.getDate(1), rs.getTimestamp(2)),
+                STATE_NAME);
+    }
+
+    public void saveState(LocalDate rolledUpThrough, LocalDateTime watermark) {
+        jdbcTemplate.update("UPDATE dashboard_rollup_state SET rolled_up_through = ?, watermark = ? WHERE name = ?",
+                rolledUpThrough != null ? Date.valueOf(rolledUpThrough) : null,
+                Timestamp.valueOf(watermark),
+                STATE_NAME);
+    }
+
+    private static State toState(Date rolledUpThrough, Timestamp watermark) {
+        return new State(rolledUpThrough != null ? rolledUpThrough.toLocalDate() : null,
+                watermark != null ? watermark.toLocalDateTime() : null);
+    }
+
+    // ==================== CHANGES ====================
+
+    /**
+     * Rolled-up days whose facts may have changed: end days of exams updated since the
+     * watermark and days of enrollments made since it.
+     */
+    public List<LocalDate> changedDays(LocalDateTime since, LocalDate through) {
+        Timestamp sinceTime = Timestamp.valueOf(since);
+        Timestamp until = Timestamp.valueOf(through.plusDays(1).atStartOfDay());
+        return jdbcTemplate.query(
+                "SELECT DATE(se.end_time) AS day FROM student_exam se " +
+                        "WHERE se.updated_at >= ? AND se.end_time IS NOT NULL AND se.end_time < ? " +
+                        "UNION SELECT DATE(e.enrolled_at) FROM enrollments e WHERE e.enrolled_at >= ? AND e.enrolled_at < ?",
+                (rs, rowNum) -> rs.getDate(1).toLocalDate(),
+                sinceTime, until, sinceTime, until);
+    }
+
+    /**
+     * Marks every day with an ended exam or an enrollment of the test stale, e.g. before its
+     * passing score, examiner or existence changes. Runs in the caller's transaction.
+     */
+    public void markTestDaysStale(Long testId) {
+        jdbcTemplate.update(
+                "INSERT INTO dashboard_rollup_stale_day (day) " +
+                        "SELECT DATE(se.end_time) FROM student_exam se WHERE se.test_id = ? AND se.end_time IS NOT NULL " +
+                        "UNION SELECT DATE(e.enrolled_at) FROM enrollments e WHERE e.test_id = ? AND e.enrolled_at IS NOT NULL",
+                testId, testId);
+    }
+
+    /**
+     * Marks the enrollment days of a test's enrollments stale before they are deleted.
+     *
+     * @param studentId the one student whose enrollment is deleted, null for all
+     */
+    public void markEnrollmentDaysStale(Long testId, Long studentId) {
+        String sql = "INSERT INTO dashboard_rollup_stale_day (day) " +
+                "SELECT DISTINCT DATE(e.enrolled_at) FROM enrollments e WHERE e.test_id = ? AND e.enrolled_at IS NOT NULL";
+        if (studentId == null) {
+            jdbcTemplate.update(sql, testId);
+        } else {
+            jdbcTemplate.update(sql + " AND e.student_id = ?", testId, studentId);
+        }
+    }
+
+    /**
+     * Removes the stale days marked so far and returns them. Must be called in the refresh's
+     * transaction, so that a failed refresh leaves them in place; days marked by transactions
+     * that commit later are left for the next refresh.
+     */
+    public List<LocalDate> takeStaleDays() {
+        List<Long> ids = new ArrayList<>();
+        List<LocalDate> days = jdbcTemplate.query("SELECT id, day FROM dashboard_rollup_stale_day",
+                (rs, rowNum) -> {
+                    ids.add(rs.getLong(1));
+                    return rs.getDate(2).toLocalDate();
+                });
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM dashboard_rollup_stale_day WHERE id = ?",
+                    ids.stream().map(id -> new Object[]{id}).toList());
+        }
+        return days;
+    }
+
+    /**
+     * @return first day with an ended exam or an enrollment, null if there is none
+     */
+    public LocalDate firstDay() {
+        Date first = jdbcTemplate.queryForObject(
+                "SELECT LEAST(COALESCE((SELECT DATE(MIN(end_time)) FROM student_exam), '9999-12-31'), " +
+                        "COALESCE((SELECT DATE(MIN(enrolled_at)) FROM enrollments), '9999-12-31'))",
+                Date.class);
+        return first == null || first.toLocalDate().getYear() == 9999 ? null : first.toLocalDate();
+    }
+
+    // ==================== ROLLUP ====================
+
+    /**
+     * Recomputes the rollups of the days from first to last inclusive.
+     */
+    public void rollUp(LocalDate first, LocalDate last) {
+        Date from = Date.valueOf(first);
+        Date to = Date.valueOf(last);
+        Timestamp fromTime = Timestamp.valueOf(first.atStartOfDay());
+        Timestamp untilTime = Timestamp.valueOf(last.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM dashboard_daily_rollup WHERE day >= ? AND day <= ?", from, to);
+        jdbcTemplate.update("DELETE FROM dashboard_score_rollup WHERE day >= ? AND day <= ?", from, to);
+
+        jdbcTemplate.update(
+                "INSERT INTO dashboard_daily_rollup " +
+                        "(day, test_id, examiner_id, completed, scored, score_sum, passed, pending_grading, enrollments) " +
+                        "SELECT DATE(se.end_time), se.test_id, t.created_by, " +
+                        "SUM(CASE WHEN se.completed = TRUE THEN 1 ELSE 0 END), " +
+                        "SUM(CASE WHEN se.completed = TRUE AND se.percentage IS NOT NULL THEN 1 ELSE 0 END), " +
+                        "COALESCE(SUM(CASE WHEN se.completed = TRUE THEN se.percentage END), 0), " +
+                        "SUM(CASE WHEN se.completed = TRUE AND se.percentage >= t.passing_score THEN 1 ELSE 0 END), " +
+                        "SUM(CASE WHEN se.completed = TRUE AND (se.graded IS NULL OR se.graded = FALSE) THEN 1 ELSE 0 END), " +
+                        "0 FROM student_exam se JOIN tests t ON t.id = se.test_id " +
+                        "WHERE se.end_time >= ? AND se.end_time < ? " +
+                        "GROUP BY DATE(se.end_time), se.test_id, t.created_by",
+                fromTime, untilTime);
+
+        jdbcTemplate.update(
+                "INSERT INTO dashboard_daily_rollup " +
+                        "(day, test_id, examiner_id, completed, scored, score_sum, passed, pending_grading, enrollments) " +
+                        "SELECT DATE(e.enrolled_at), e.test_id, t.created_by, 0, 0, 0, 0, 0, COUNT(*) " +
+                        "FROM enrollments e JOIN tests t ON t.id = e.test_id " +
+                        "WHERE e.enrolled_at >= ? AND e.enrolled_at < ? " +
+                        "GROUP BY DATE(e.enrolled_at), e.test_id, t.created_by " +
+                        "ON DUPLICATE KEY UPDATE enrollments = VALUES(enrollments)",
+                fromTime, untilTime);
+
+        jdbcTemplate.update(
+                "INSERT INTO dashboard_score_rollup (day, test_id, examiner_id, score_range, decile, exam_count) " +
+                        "SELECT DATE(se.end_time) AS day, se.test_id, t.created_by, " +
+                        DashboardQueryRepository.SCORE_RANGE_SQL + " AS score_range, " +
+                        DashboardQueryRepository.DECILE_SQL + " AS decile, COUNT(*) " +
+                        "FROM student_exam se JOIN tests t ON t.id = se.test_id " +
+                        "WHERE se.end_time >= ? AND se.end_time < ? AND se.percentage IS NOT NULL " +
+                        "GROUP BY day, se.test_id, t.created_by, score_range, decile",
+                fromTime, untilTime);
+    }
+
+    /**
+     * Drops all rollups, and the stale days a full build makes redundant.
+     */
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM dashboard_daily_rollup");
+        jdbcTemplate.update("DELETE FROM dashboard_score_rollup");
+        jdbcTemplate.update("DELETE FROM dashboard_rollup_stale_day");
+    }
+}
@@ -44,6 +44,22 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
      */
     List<Question> findByTestId(Long testId);
 
+    /**
+     * Narrow projection of a test's question bank for building exam papers.
+     * Skips text, explanation and media columns.
+     *
+     * @param testId The ID of the test
+     * @return Rows of [id, type, maxMarks, choices] ordered by question ID
+     */
+    @Query("SELECT q.id, q.type, q.maxMarks, q.choices FROM Question q WHERE q.test.id = :testId ORDER BY q.id")
+    List<Object[]> findPaperRowsByTestId(@Param("testId") Long testId);
+
+    /**
+     * Test ID of a question, without loading the question
+     */
+    @Query("SELECT q.test.id FROM Question q WHERE q.id = :id")
+    Long findTestIdById(@Param("id") Long id);
+
     /**
      * Finds paginated questions belonging to a specific test.
      * Supports pagination and sorting for large datasets.
@@ -0,0 +1,134 @@
+package com.almubaraksuleiman.cbts.examiner.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and adds to the per-question time sums of question_time_stats. Additions are
+ * upserts that increment the counters, so batches from several nodes add up.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class QuestionTimeStatsRepository {
+
+    /** Upper bounds in seconds of the visit duration buckets; the last bucket is open */
+    public static final int[] HISTOGRAM_LIMITS_SECONDS = {15, 30, 60, 120, 300};
+
+    private static final String[] HISTOGRAM_COLUMNS = {"under_15s", "under_30s", "under_1m", "under_2m", "under_5m", "over_5m"};
+
+    private static final String UPSERT_SQL = upsertSql();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Time spent on a question.
+     *
+     * @param histogram visits per duration bucket bounded by {@link #HISTOGRAM_LIMITS_SECONDS}
+     */
+    public record QuestionTime(long totalMs, long visits, long students, long[] histogram) {
+
+        /**
+         * @return average time a student spent on the question over all their visits, 0 without data
+         */
+        public double averageSeconds() {
+            return students > 0 ? totalMs / 1000.0 / students : 0.0;
+        }
+    }
+
+    /**
+     * Counters to add to one question's sums.
+     */
+    public static final class Delta {
+        private final long questionId;
+        private long totalMs;
+        private long visits;
+        private long students;
+        private final long[] histogram = new long[HISTOGRAM_COLUMNS.length];
+
+        public Delta(long questionId) {
+            this.questionId = questionId;
+        }
+
+        public void visit(long durationMs, boolean firstVisitOfSession) {
+            totalMs += durationMs;
+            visits++;
+            if (firstVisitOfSession) {
+                students++;
+            }
+            histogram[bucket(durationMs)]++;
+        }
+
+        private static int bucket(long durationMs) {
+            for (int i = 0; i < HISTOGRAM_LIMITS_SECONDS.length; i++) {
+                if (durationMs < HISTOGRAM_LIMITS_SECONDS[i] * 1000L) return i;
+            }
+            return HISTOGRAM_LIMITS_SECONDS.length;
+        }
+    }
+
+    public void add(Collection<Delta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        for (Delta delta : deltas) {
+            Object[] row = new Object[4 + HISTOGRAM_COLUMNS.length];
+            row[0] = delta.questionId;
+            row[1] = delta.totalMs;
+            row[2] = delta.visits;
+            row[3] = delta.students;
+            for (int i = 0; i < HISTOGRAM_COLUMNS.length; i++) {
+                row[4 + i] = delta.histogram[i];
+            }
+            rows.add(row);
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    /**
+     * @return questionId -> time spent, absent for questions without recorded visits
+     */
+    public Map<Long, QuestionTime> findByQuestionIds(Collection<Long> questionIds) {
+        Map<Long, QuestionTime> times = new HashMap<>();
+        if (questionIds.isEmpty()) {
+            return times;
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(questionIds.size(), "?"));
+        jdbcTemplate.query(
+                "SELECT question_id, total_ms, visits, students, " + String.join(", ", HISTOGRAM_COLUMNS) +
+                        " FROM question_time_stats WHERE question_id IN (" + placeholders + ")",
+                rs -> {
+                    long[] histogram = new long[HISTOGRAM_COLUMNS.length];
+                    for (int i = 0; i < histogram.length; i++) {
+                        histogram[i] = rs.getLong(5 + i);
+                    }
+                    times.put(rs.getLong(1), new QuestionTime(rs.getLong(2), rs.getLong(3), rs.getLong(4), histogram));
+                },
+                questionIds.toArray());
+        return times;
+    }
+
+    private static String upsertSql() {
+        StringBuilder columns = new StringBuilder("question_id, total_ms, visits, students");
+        StringBuilder increments = new StringBuilder(
+                "total_ms = total_ms + VALUES(total_ms), visits = visits + VALUES(visits), " +
+                        "students = students + VALUES(students)");
+        for (String column : HISTOGRAM_COLUMNS) {
+            columns.append(", ").append(column);
+            increments.append(", ").append(column).append(" = ").append(column).append(" + VALUES(").append(column).append(")");
+        }
+        return "INSERT INTO question_time_stats (" + columns + ", updated_at) VALUES (" +
+                String.join(", ", Collections.nCopies(4 + HISTOGRAM_COLUMNS.length, "?")) + ", NOW()) " +
+                "ON DUPLICATE KEY UPDATE " + increments + ", updated_at = VALUES(updated_at)";
+    }
+}
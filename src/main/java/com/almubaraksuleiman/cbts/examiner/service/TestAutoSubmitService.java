@@ -52,7 +52,8 @@ package com.almubaraksuleiman.cbts.examiner.service;
 
 import com.almubaraksuleiman.cbts.student.model.StudentExam;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
-import com.almubaraksuleiman.cbts.examiner.service.impl.ExamGradingService;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
+import com.almubaraksuleiman.cbts.examiner.service.grading.GradingQueue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -74,7 +75,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class TestAutoSubmitService {
 
     private final StudentExamRepository studentExamRepository;
-    private final ExamGradingService examGradingService;
+    private final GradingQueue gradingQueue;
+    private final TestAnalyticsAccumulator analyticsAccumulator;
 
     // Track sessions being processed to prevent duplicate submissions
     private final ConcurrentHashMap<Long, Boolean> processingSessions = new ConcurrentHashMap<>();
@@ -103,19 +105,20 @@ public class TestAutoSubmitService {
                 // Update exam state
                 exam.setCompleted(true);
                 exam.setEndTime(LocalDateTime.now());
+                exam.setStatus(StudentExam.ExamStatus.SUBMITTED);
 
-                // Grade the exam
+                studentExamRepository.save(exam);
+                analyticsAccumulator.record(exam);
+
+                // Grading runs on the grading workers, off the timer thread; journalled
+                // autosaves are drained there before the exam is graded
                 try {
-                    examGradingService.gradeExam(sessionId);
-                    exam.setGraded(true);
-                    log.info("Successfully graded auto-submitted exam for session: {}", sessionId);
+                    gradingQueue.submit(exam);
                 } catch (Exception gradingException) {
-                    log.error("Failed to grade auto-submitted exam for session {}: {}",
+                    log.error("Failed to queue auto-submitted exam for grading, session {}: {}",
                             sessionId, gradingException.getMessage());
-                    // Continue with submission even if grading fails
+                    // Continue with submission; the grading queue's recovery sweep picks it up
                 }
-
-                studentExamRepository.save(exam);
                 log.info("Successfully auto-submitted exam for session: {}", sessionId);
             } else {
                 log.warn("Session {} not found for auto-submit", sessionId);
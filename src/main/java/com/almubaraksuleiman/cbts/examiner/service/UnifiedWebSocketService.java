@@ -1,24 +1,28 @@
 package com.almubaraksuleiman.cbts.examiner.service;
 
 
+import com.almubaraksuleiman.cbts.dto.TimerSyncMessage;
 import com.almubaraksuleiman.cbts.examiner.model.AnalyticsData;
 import com.almubaraksuleiman.cbts.examiner.service.TestAutoSubmitService;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.AnalyticsPushService;
 import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsService;
+import com.almubaraksuleiman.cbts.examiner.service.timer.ExamDeadlineScheduler;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Unified WebSocket service handling both exam timers and analytics
@@ -36,19 +40,25 @@ public class UnifiedWebSocketService {
     
     // Analytics dependencies
     private final AnalyticsService analyticsService;
+    private final AnalyticsPushService analyticsPushService;
     private final SimpMessagingTemplate messagingTemplate;
     
-    // Track active subscriptions
-    private final Map<Long, Integer> activeAnalyticsSubscriptions = new ConcurrentHashMap<>();
+    // Deadline index shared by all nodes
+    private final ExamDeadlineScheduler deadlineScheduler;
+
+    @Value("${exam.timer.auto-submit-retry-ms:10000}")
+    private long autoSubmitRetryMs;
 
     // ==================== TIMER FUNCTIONALITY ====================
     
     /**
-     * Starts a countdown timer for an exam session
+     * Starts a countdown timer for an exam session by registering its absolute deadline.
+     * Clients receive the deadline once and count down locally from then on.
      */
-    public void startTimer(Long sessionId, int durationInSeconds) {        String key = "exam:" + sessionId + ":timeLeft";
-        redisTemplate.opsForValue().set(key, String.valueOf(durationInSeconds));
-        messagingTemplate.convertAndSend("/topic/timer/" + sessionId, durationInSeconds);
+    public void startTimer(Long sessionId, int durationInSeconds) {
+        long deadline = System.currentTimeMillis() + durationInSeconds * 1000L;
+        deadlineScheduler.schedule(sessionId, deadline);
+        pushTimerState(sessionId, TimerSyncMessage.EventType.START, deadline);
     }
 
 
@@ -56,16 +66,14 @@ public class UnifiedWebSocketService {
      * Stops and clears the timer for an exam session
      */
     public void stopTimer(Long sessionId) {
-        String key = "exam:" + sessionId + ":timeLeft";
-
-        // Delete the timer from Redis
-        Boolean deleted = redisTemplate.delete(key);
+        boolean stopped = deadlineScheduler.cancel(sessionId);
+        redisTemplate.delete(pausedKey(sessionId));
 
-        if (Boolean.TRUE.equals(deleted)) {
+        if (stopped) {
             log.info("Stopped timer for session: {}", sessionId);
 
             // Notify clients that timer has been stopped
-            messagingTemplate.convertAndSend("/topic/timer/" + sessionId, "stopped");
+            pushTimerState(sessionId, TimerSyncMessage.EventType.STOPPED, null);
             messagingTemplate.convertAndSend("/topic/exam-completed/" + sessionId, "timer_stopped");
         } else {
             log.warn("Timer not found for session: {}", sessionId);
@@ -76,16 +84,19 @@ public class UnifiedWebSocketService {
      * Pauses the timer for an exam session (optional - useful for breaks)
      */
     public void pauseTimer(Long sessionId) {
-        String key = "exam:" + sessionId + ":timeLeft";
-        String timeLeft = redisTemplate.opsForValue().get(key);
+        int timeLeft = deadlineScheduler.getRemainingSeconds(sessionId);
 
-        if (timeLeft != null) {
-            // You could store the paused time in a separate key for resuming
-            String pausedKey = "exam:" + sessionId + ":pausedTime";
-            redisTemplate.opsForValue().set(pausedKey, timeLeft);
+        if (timeLeft > 0 && deadlineScheduler.cancel(sessionId)) {
+            // Remaining time is frozen until the timer is resumed
+            redisTemplate.opsForValue().set(pausedKey(sessionId), String.valueOf(timeLeft));
 
             log.info("Paused timer for session: {} with {} seconds remaining", sessionId, timeLeft);
-            messagingTemplate.convertAndSend("/topic/timer/" + sessionId, "paused");
+            messagingTemplate.convertAndSend("/topic/timer/" + sessionId, TimerSyncMessage.builder()
+                    .sessionId(sessionId)
+                    .type(TimerSyncMessage.EventType.PAUSED)
+                    .serverTime(System.currentTimeMillis())
+                    .remainingSeconds(timeLeft)
+                    .build());
         }
     }
 
@@ -93,27 +104,52 @@ public class UnifiedWebSocketService {
      * Resumes a paused timer (optional)
      */
     public void resumeTimer(Long sessionId) {
-        String pausedKey = "exam:" + sessionId + ":pausedTime";
-        String timeLeft = redisTemplate.opsForValue().get(pausedKey);
+        String timeLeft = redisTemplate.opsForValue().get(pausedKey(sessionId));
 
         if (timeLeft != null) {
-            String timerKey = "exam:" + sessionId + ":timeLeft";
-            redisTemplate.opsForValue().set(timerKey, timeLeft);
-            redisTemplate.delete(pausedKey);
+            long deadline = System.currentTimeMillis() + Integer.parseInt(timeLeft) * 1000L;
+            deadlineScheduler.schedule(sessionId, deadline);
+            redisTemplate.delete(pausedKey(sessionId));
 
             log.info("Resumed timer for session: {} with {} seconds remaining", sessionId, timeLeft);
-            messagingTemplate.convertAndSend("/topic/timer/" + sessionId, timeLeft);
+            pushTimerState(sessionId, TimerSyncMessage.EventType.RESUMED, deadline);
         }
     }
 
+    /**
+     * Grants extra time to a running session by moving its deadline
+     *
+     * @return true if the session had a running timer
+     */
+    public boolean addExtraTime(Long sessionId, int additionalSeconds) {
+        Long deadline = deadlineScheduler.getDeadline(sessionId);
+        if (deadline == null) {
+            log.warn("Cannot add extra time, timer not found for session: {}", sessionId);
+            return false;
+        }
+
+        long newDeadline = deadline + additionalSeconds * 1000L;
+        deadlineScheduler.schedule(sessionId, newDeadline);
+
+        log.info("Added {} seconds to session {}", additionalSeconds, sessionId);
+        pushTimerState(sessionId, TimerSyncMessage.EventType.EXTRA_TIME, newDeadline);
+        return true;
+    }
+
+    /**
+     * Returns the current timer state of a session so a (re)connecting client can sync its clock
+     */
+    public TimerSyncMessage getTimerSync(Long sessionId) {
+        Long deadline = deadlineScheduler.getDeadline(sessionId);
+        return timerMessage(sessionId, TimerSyncMessage.EventType.HEARTBEAT, deadline, System.currentTimeMillis());
+    }
+
 
     /**
      * Checks if a timer is active for the given session
      */
     public boolean isTimerActive(Long sessionId) {
-        String key = "exam:" + sessionId + ":timeLeft";
-        String timeLeft = redisTemplate.opsForValue().get(key);
-        return timeLeft != null && Integer.parseInt(timeLeft) > 0;
+        return deadlineScheduler.getRemainingSeconds(sessionId) > 0;
     }
 
 
@@ -128,9 +164,7 @@ public class UnifiedWebSocketService {
             return 0;
         }
 
-        String key = "exam:" + sessionId + ":timeLeft";
-        String value = redisTemplate.opsForValue().get(key);
-        return value != null ? Integer.parseInt(value) : 0;
+        return deadlineScheduler.getRemainingSeconds(sessionId);
     }
 
     /**
@@ -145,109 +179,100 @@ public class UnifiedWebSocketService {
 
     /**
      * Get all active timer sessions (compatibility method)
+     * Keys keep the legacy "exam:{sessionId}:timeLeft" shape, values are remaining seconds.
      */
     public Map<String, String> getActiveTimers() {
-        Set<String> keys = redisTemplate.keys("exam:*:timeLeft");
+        long now = System.currentTimeMillis();
         Map<String, String> activeTimers = new HashMap<>();
 
-        if (keys != null) {
-            for (String key : keys) {
-                String timeLeft = redisTemplate.opsForValue().get(key);
-                activeTimers.put(key, timeLeft);
-            }
-        }
+        deadlineScheduler.getAllDeadlines().forEach((sessionId, deadline) ->
+                activeTimers.put("exam:" + sessionId + ":timeLeft",
+                        String.valueOf(ExamDeadlineScheduler.remainingSeconds(deadline, now))));
 
         return activeTimers;
     }
 
 
     /**
-     * Scheduled timer updates - runs every second
+     * Scheduled expiry check - runs every second.
+     * Only sessions whose deadline has passed are touched; running sessions cost nothing here.
      */
-//    @Scheduled(fixedRate = 1000)
-//    public void updateTimers() {
-//        Set<String> keys = redisTemplate.keys("exam:*:timeLeft");
-//        if (keys == null) return;
-//
-//        for (String key : keys) {
-//            int time = Integer.parseInt(redisTemplate.opsForValue().get(key));
-//            Long sessionId = Long.parseLong(key.split(":")[1]);
-//
-//            if (time > 0) {
-//                redisTemplate.opsForValue().set(key, String.valueOf(time - 1));
-//                messagingTemplate.convertAndSend("/topic/timer/" + sessionId, time - 1);
-//            } else {
-//                // Time expired - auto submit
-//                autoSubmitService.completeExam(sessionId);
-//                redisTemplate.delete(key);
-//                messagingTemplate.convertAndSend("/topic/timer/" + sessionId, "0");
-//                messagingTemplate.convertAndSend("/topic/exam-completed/" + sessionId, "completed");
-//            }
-//        }
-//    }
+    @Scheduled(fixedRate = 1000)
+    public void updateTimers() {
+        for (Long sessionId : deadlineScheduler.pollExpired()) {
+            handleExpiredTimer(sessionId);
+        }
+    }
 
+    /**
+     * Drift-correction heartbeat for every running session.
+     * Clients count down locally, so this only re-anchors them against the server clock.
+     * All deadlines are read in one Redis round trip and stamped with a single server time.
+     */
+    @Scheduled(fixedRateString = "${exam.timer.heartbeat-interval-ms:30000}")
+    public void broadcastTimerHeartbeats() {
+        try {
+            Map<Long, Long> deadlines = deadlineScheduler.getAllDeadlines();
+            if (deadlines.isEmpty()) return;
 
+            long now = System.currentTimeMillis();
+            deadlines.forEach((sessionId, deadline) ->
+                    messagingTemplate.convertAndSend("/topic/timer/" + sessionId,
+                            timerMessage(sessionId, TimerSyncMessage.EventType.HEARTBEAT, deadline, now)));
+
+            log.debug("Sent timer heartbeats for {} sessions", deadlines.size());
+        } catch (Exception e) {
+            log.error("Error broadcasting timer heartbeats: {}", e.getMessage());
+        }
+    }
 
     /**
-     * Scheduled timer updates - runs every second with improved error handling
+     * Immediate push for a timer state change (start, pause, resume, extra time, stop, expiry)
      */
-    @Scheduled(fixedRate = 1000)
-    public void updateTimers() {
-        Set<String> keys = redisTemplate.keys("exam:*:timeLeft");
-        if (keys == null || keys.isEmpty()) return;
+    private void pushTimerState(Long sessionId, TimerSyncMessage.EventType type, Long deadline) {
+        messagingTemplate.convertAndSend("/topic/timer/" + sessionId,
+                timerMessage(sessionId, type, deadline, System.currentTimeMillis()));
+    }
 
-        for (String key : keys) {
-            try {
-                String timeValue = redisTemplate.opsForValue().get(key);
-                if (timeValue == null) continue;
-
-                int time = Integer.parseInt(timeValue);
-                Long sessionId = Long.parseLong(key.split(":")[1]);
-
-                if (time > 0) {
-                    // Use atomic decrement to prevent race conditions
-                    Long newTime = redisTemplate.opsForValue().decrement(key);
-                    if (newTime != null) {
-                        messagingTemplate.convertAndSend("/topic/timer/" + sessionId, newTime.intValue());
-                    }
-                } else {
-                    // Time expired - auto submit
-                    handleExpiredTimer(sessionId, key);
-                }
-            } catch (NumberFormatException e) {
-                log.error("Invalid time value for key {}: {}", key, redisTemplate.opsForValue().get(key));
-                // Clean up invalid timer
-                redisTemplate.delete(key);
-            } catch (Exception e) {
-                log.error("Error processing timer for key {}: {}", key, e.getMessage());
-            }
-        }
+    private TimerSyncMessage timerMessage(Long sessionId, TimerSyncMessage.EventType type, Long deadline, long now) {
+        return TimerSyncMessage.builder()
+                .sessionId(sessionId)
+                .type(type)
+                .deadline(deadline)
+                .serverTime(now)
+                .remainingSeconds(deadline != null ? ExamDeadlineScheduler.remainingSeconds(deadline, now) : 0)
+                .build();
     }
 
     /**
      * Handle expired timer with proper cleanup
      */
-    private void handleExpiredTimer(Long sessionId, String key) {
+    private void handleExpiredTimer(Long sessionId) {
         try {
             log.info("Timer expired for session {}, initiating auto-submit", sessionId);
 
             // Auto submit the exam
             autoSubmitService.completeExam(sessionId);
 
-            // Clean up Redis keys
-            redisTemplate.delete(key);
+            // Clean up Redis keys (the deadline itself was removed when the session was claimed)
+            redisTemplate.delete(pausedKey(sessionId));
 
             // Send completion notifications
-            messagingTemplate.convertAndSend("/topic/timer/" + sessionId, "0");
+            pushTimerState(sessionId, TimerSyncMessage.EventType.EXPIRED, null);
             messagingTemplate.convertAndSend("/topic/exam-completed/" + sessionId, "completed");
 
             log.info("Successfully processed auto-submit for session {}", sessionId);
 
         } catch (Exception e) {
-            log.error("Failed to auto-submit exam for session {}: {}", sessionId, e.getMessage());
+            log.error("Failed to auto-submit exam for session {}, retrying in {} ms: {}",
+                    sessionId, autoSubmitRetryMs, e.getMessage());
+
+            // The deadline was removed when the session was claimed; put it back so the
+            // session is retried instead of staying IN_PROGRESS past its deadline
+            deadlineScheduler.schedule(sessionId, System.currentTimeMillis() + autoSubmitRetryMs);
 
             // Still send notifications but indicate error
-            messagingTemplate.convertAndSend("/topic/timer/" + sessionId, "error");
+            pushTimerState(sessionId, TimerSyncMessage.EventType.AUTO_SUBMIT_FAILED, null);
             messagingTemplate.convertAndSend("/topic/exam-completed/" + sessionId, "auto_submit_failed");
         }
     }
@@ -261,12 +286,13 @@ public class UnifiedWebSocketService {
 
     @MessageMapping("/analytics/{testId}")
     @SendTo("/topic/analytics/{testId}")
-    public AnalyticsData streamAnalytics(@DestinationVariable Long testId) {
+    public AnalyticsData streamAnalytics(@DestinationVariable Long testId,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String stompSessionId) {
         log.info("WebSocket analytics request received for test ID: {}", testId);
         log.info("Message mapping: /app/analytics/{} -> /topic/analytics/{}", testId, testId);
 
-        activeAnalyticsSubscriptions.put(testId, activeAnalyticsSubscriptions.getOrDefault(testId, 0) + 1);
-        log.info("👥 Active subscribers for test {}: {}", testId, activeAnalyticsSubscriptions.get(testId));
+        int subscribers = analyticsPushService.subscribe(testId, stompSessionId);
+        log.info("👥 Active subscribers for test {}: {}", testId, subscribers);
 
         try {
             AnalyticsData analytics = analyticsService.getTestAnalytics(testId, null);
@@ -288,59 +314,31 @@ public class UnifiedWebSocketService {
 
     @MessageMapping("/analytics/{testId}/subscribe")
     @SendTo("/topic/analytics/{testId}")
-    public String handleAnalyticsSubscription(@DestinationVariable Long testId) {
-        activeAnalyticsSubscriptions.put(testId, activeAnalyticsSubscriptions.getOrDefault(testId, 0) + 1);
-        log.info("New analytics subscription for test {}. Total subscribers: {}", 
-                testId, activeAnalyticsSubscriptions.get(testId));
+    public String handleAnalyticsSubscription(@DestinationVariable Long testId,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String stompSessionId) {
+        int subscribers = analyticsPushService.subscribe(testId, stompSessionId);
+        log.info("New analytics subscription for test {}. Total subscribers: {}", testId, subscribers);
         return "ANALYTICS_SUBSCRIBED_" + testId;
     }
 
     @MessageMapping("/analytics/{testId}/unsubscribe")
     @SendTo("/topic/analytics/{testId}")
-    public String handleAnalyticsUnsubscription(@DestinationVariable Long testId) {
-        int currentSubscribers = activeAnalyticsSubscriptions.getOrDefault(testId, 0);
-        if (currentSubscribers > 0) {
-            activeAnalyticsSubscriptions.put(testId, currentSubscribers - 1);
-        }
-        log.info("Analytics unsubscription for test {}. Remaining subscribers: {}", 
-                testId, activeAnalyticsSubscriptions.get(testId));
+    public String handleAnalyticsUnsubscription(@DestinationVariable Long testId,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String stompSessionId) {
+        int subscribers = analyticsPushService.unsubscribe(testId, stompSessionId);
+        log.info("Analytics unsubscription for test {}. Remaining subscribers: {}", testId, subscribers);
         return "ANALYTICS_UNSUBSCRIBED_" + testId;
     }
 
-    /**
-     * Auto-refresh analytics every 30 seconds for active subscribers
-     */
-    @Scheduled(fixedRate = 30000)
-    public void broadcastAnalyticsUpdates() {
-        log.debug("Checking for analytics updates...");
-        
-        for (Map.Entry<Long, Integer> entry : activeAnalyticsSubscriptions.entrySet()) {
-            Long testId = entry.getKey();
-            int subscriberCount = entry.getValue();
-            
-            if (subscriberCount > 0) {
-                try {
-                    log.debug("Auto-refreshing analytics for test {} ({} subscribers)", testId, subscriberCount);
-                    AnalyticsData updatedAnalytics = analyticsService.getTestAnalytics(testId, null);
-                    messagingTemplate.convertAndSend("/topic/analytics/" + testId, updatedAnalytics);
-                    log.debug("Sent analytics update for test {} to {} subscribers", testId, subscriberCount);
-                } catch (Exception e) {
-                    log.warn("Failed to auto-refresh analytics for test {}: {}", testId, e.getMessage());
-                }
-            }
-        }
-    }
-
     // ==================== UTILITY METHODS ====================
 
     /**
      * Manual trigger to refresh analytics for a specific test
      */
     public void refreshAnalytics(Long testId) {
-        if (activeAnalyticsSubscriptions.getOrDefault(testId, 0) > 0) {
+        if (analyticsPushService.getSubscribers(testId) > 0) {
             try {
-                AnalyticsData updatedAnalytics = analyticsService.getTestAnalytics(testId, null);
-                messagingTemplate.convertAndSend("/topic/analytics/" + testId, updatedAnalytics);
+                analyticsPushService.broadcastSnapshot(testId);
                 log.info("Manually refreshed analytics for test {}", testId);
             } catch (Exception e) {
                 log.error("Error manually refreshing analytics for test {}: {}", testId, e.getMessage());
@@ -349,7 +347,11 @@ public class UnifiedWebSocketService {
     }
 
     public int getActiveAnalyticsSubscribers(Long testId) {
-        return activeAnalyticsSubscriptions.getOrDefault(testId, 0);
+        return analyticsPushService.getSubscribers(testId);
+    }
+
+    private String pausedKey(Long sessionId) {
+        return "exam:" + sessionId + ":pausedTime";
     }
 
     /**
@@ -0,0 +1,362 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.examiner.model.AnalyticsData;
+import com.almubaraksuleiman.cbts.examiner.model.AnalyticsFilters;
+import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsReportService;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsService;
+import com.almubaraksuleiman.cbts.resource.FileStorageService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders analytics reports (PDF, Excel, CSV) in the background, so exports at the end of a
+ * sitting do not hold request threads while analytics are computed and written.
+ *
+ * A submitted job is rendered by a fixed pool of workers with a bounded queue; when the
+ * queue is full, submit fails rather than piling up work. The report is written through
+ * {@link FileStorageService} under a path keyed by test, format, date range and the test's
+ * analytics revision from {@link TestAnalyticsAccumulator}. While the revision has not moved,
+ * a new export is served from that artifact without rendering, and concurrent exports of the
+ * same artifact share one job. Without a known revision every job renders its own artifact.
+ * The artifact a new one supersedes is deleted once every job that may reference it has
+ * expired, i.e. job-ttl-hours after it was superseded.
+ *
+ * Jobs live in the Redis hash "exam:report:job:{jobId}" for job-ttl-hours, so any node can
+ * report their status and serve their artifact.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class AnalyticsExportJobService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String ARTIFACT_ROOT = "reports/analytics/";
+
+    /** Superseded artifact paths, scored by the epoch millis they may be deleted at */
+    private static final String SUPERSEDED_KEY = "exam:report:superseded";
+
+    public enum Format {
+        PDF("pdf", "application/pdf"),
+        EXCEL("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+        CSV("csv", "text/plain");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Unsupported report format: " + format);
+            }
+        }
+    }
+
+    /**
+     * @param status QUEUED, RUNNING, COMPLETED or FAILED
+     * @param cached whether the job was served from an existing artifact without rendering
+     * @param revision analytics revision the report was rendered at, null if unknown
+     */
+    public record ExportJob(String jobId, Long testId, String format, String dateRange, String status,
+                            boolean cached, Long revision, Long submittedAt, Long completedAt, String error) {
+
+        public boolean isCompleted() {
+            return STATUS_COMPLETED.equals(status);
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final AnalyticsService analyticsService;
+    private final AnalyticsReportService reportService;
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+    private final FileStorageService fileStorageService;
+    private final TestRepository testRepository;
+    private final ThreadPoolExecutor workers;
+
+    @Value("${exam.reports.jobs.job-ttl-hours:24}")
+    private long jobTtlHours;
+
+    @Value("${exam.reports.jobs.render-timeout-ms:600000}")
+    private long renderTimeoutMs;
+
+    public AnalyticsExportJobService(StringRedisTemplate redisTemplate,
+                                     AnalyticsService analyticsService,
+                                     AnalyticsReportService reportService,
+                                     TestAnalyticsAccumulator analyticsAccumulator,
+                                     FileStorageService fileStorageService,
+                                     TestRepository testRepository,
+                                     @Value("${exam.reports.jobs.workers:2}") int workerCount,
+                                     @Value("${exam.reports.jobs.queue-capacity:20}") int queueCapacity) {
+        this.redisTemplate = redisTemplate;
+        this.analyticsService = analyticsService;
+        this.reportService = reportService;
+        this.analyticsAccumulator = analyticsAccumulator;
+        this.fileStorageService = fileStorageService;
+        this.testRepository = testRepository;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ==================== JOBS ====================
+
+    /**
+     * Submits an export of the test's analytics. Returns a completed job right away when the
+     * artifact of the test's current revision exists, or the job already rendering it.
+     *
+     * @param dateRange analytics date range ("today", "week", "month"), null for all time
+     * @throws RejectedExecutionException if the render queue is full
+     */
+    public ExportJob submit(Long testId, Format format, String dateRange) {
+        if (!testRepository.existsById(testId)) {
+            throw new RuntimeException("Test not found with ID: " + testId);
+        }
+
+        Long revision = currentRevision(testId);
+        String jobId = UUID.randomUUID().toString();
+        String artifactPath = revision != null
+                ? artifactPath(testId, format, dateRange, "r" + revision)
+                : artifactPath(testId, format, dateRange, "job-" + jobId);
+
+        Map<String, String> job = new HashMap<>();
+        job.put("testId", testId.toString());
+        job.put("format", format.name());
+        if (dateRange != null) job.put("dateRange", dateRange);
+        if (revision != null) job.put("revision", revision.toString());
+        job.put("artifactPath", artifactPath);
+        job.put("submittedAt", String.valueOf(System.currentTimeMillis()));
+
+        if (revision != null && fileStorageService.isValidFile(artifactPath)) {
+            job.put("status", STATUS_COMPLETED);
+            job.put("cached", "true");
+            job.put("completedAt", job.get("submittedAt"));
+            saveJob(jobId, job);
+            log.info("Export of test {} as {} served from cached artifact {}", testId, format, artifactPath);
+            return getJob(jobId);
+        }
+
+        // One job renders a given artifact; later submits follow it
+        String renderingKey = renderingKey(artifactPath);
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(renderingKey, jobId, Duration.ofMillis(renderTimeoutMs)))) {
+            String renderingJobId = redisTemplate.opsForValue().get(renderingKey);
+            ExportJob rendering = renderingJobId != null ? getJob(renderingJobId) : null;
+            if (rendering != null) {
+                return rendering;
+            }
+            redisTemplate.opsForValue().set(renderingKey, jobId, Duration.ofMillis(renderTimeoutMs));
+        }
+
+        job.put("status", STATUS_QUEUED);
+        saveJob(jobId, job);
+        try {
+            workers.execute(() -> render(jobId, testId, format, dateRange, artifactPath));
+        } catch (RejectedExecutionException e) {
+            redisTemplate.delete(List.of(jobKey(jobId), renderingKey));
+            log.warn("Rejected export of test {} as {}: render queue is full", testId, format);
+            throw e;
+        }
+
+        log.info("Queued export job {} of test {} as {}", jobId, testId, format);
+        return getJob(jobId);
+    }
+
+    /**
+     * @return the job, null if it is unknown or expired
+     */
+    public ExportJob getJob(String jobId) {
+        Map<Object, Object> job = redisTemplate.opsForHash().entries(jobKey(jobId));
+        if (job.isEmpty()) {
+            return null;
+        }
+        return new ExportJob(
+                jobId,
+                Long.valueOf((String) job.get("testId")),
+                (String) job.get("format"),
+                (String) job.get("dateRange"),
+                (String) job.get("status"),
+                "true".equals(job.get("cached")),
+                longField(job, "revision"),
+                longField(job, "submittedAt"),
+                longField(job, "completedAt"),
+                (String) job.get("error"));
+    }
+
+    /**
+     * The stored report of a completed job.
+     *
+     * @throws IllegalStateException if the job is not completed
+     * @throws com.almubaraksuleiman.cbts.resource.FileStorageException if the artifact is
+     *         missing from storage
+     */
+    public Resource getArtifact(String jobId) {
+        ExportJob job = getJob(jobId);
+        if (job == null || !job.isCompleted()) {
+            throw new IllegalStateException("Export job " + jobId + " has no report yet");
+        }
+        return fileStorageService.loadFileAsResource(
+                (String) redisTemplate.opsForHash().get(jobKey(jobId), "artifactPath"));
+    }
+
+    /**
+     * Deletes superseded artifacts that no unexpired job can reference any more.
+     */
+    @Scheduled(fixedDelayString = "${exam.reports.jobs.purge-interval-ms:3600000}")
+    public void purgeSupersededArtifacts() {
+        try {
+            purgeSupersededArtifacts(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge superseded reports: {}", e.getMessage());
+        }
+    }
+
+    void purgeSupersededArtifacts(long now) {
+        Set<String> due = redisTemplate.opsForZSet().rangeByScore(SUPERSEDED_KEY, 0, now);
+        if (due == null) return;
+
+        for (String artifactPath : due) {
+            // Whichever node removes the entry deletes the file
+            Long removed = redisTemplate.opsForZSet().remove(SUPERSEDED_KEY, artifactPath);
+            if (!Long.valueOf(1).equals(removed)) continue;
+            try {
+                fileStorageService.deleteFile(artifactPath);
+            } catch (RuntimeException e) {
+                log.warn("Failed to delete superseded report {}: {}", artifactPath, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void render(String jobId, Long testId, Format format, String dateRange, String artifactPath) {
+        String key = jobKey(jobId);
+        long started = System.currentTimeMillis();
+        try {
+            redisTemplate.opsForHash().put(key, "status", STATUS_RUNNING);
+
+            AnalyticsFilters filters = AnalyticsFilters.builder().dateRange(dateRange).build();
+            AnalyticsData analytics = analyticsService.getTestAnalytics(testId, filters);
+            fileStorageService.storeFile(artifactPath, out -> {
+                switch (format) {
+                    case PDF -> reportService.writePdfReport(analytics, filters, out);
+                    case EXCEL -> reportService.writeExcelReport(analytics, filters, out);
+                    case CSV -> reportService.writeCsvReport(analytics, filters, out);
+                }
+            });
+
+            redisTemplate.opsForHash().put(key, "completedAt", String.valueOf(System.currentTimeMillis()));
+            redisTemplate.opsForHash().put(key, "status", STATUS_COMPLETED);
+            supersedeArtifact(testId, format, dateRange, artifactPath);
+            log.info("Export job {} of test {} as {} completed in {} ms",
+                    jobId, testId, format, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Export job {} of test {} as {} failed: {}", jobId, testId, format, e.getMessage());
+            redisTemplate.opsForHash().put(key, "status", STATUS_FAILED);
+            redisTemplate.opsForHash().put(key, "error", String.valueOf(e.getMessage()));
+        } finally {
+            redisTemplate.delete(renderingKey(artifactPath));
+        }
+    }
+
+    /**
+     * Records the artifact as the latest of its test, format and date range, and schedules
+     * the one it replaces for deletion after the last job that may reference it has expired.
+     * Jobs are only created for the latest artifact, so none is created for it from now on.
+     */
+    private void supersedeArtifact(Long testId, Format format, String dateRange, String artifactPath) {
+        String previous = redisTemplate.opsForValue()
+                .getAndSet(latestKey(testId, format, dateRange), artifactPath);
+        if (previous != null && !previous.equals(artifactPath)) {
+            long deleteAt = System.currentTimeMillis() + Duration.ofHours(jobTtlHours).toMillis();
+            redisTemplate.opsForZSet().add(SUPERSEDED_KEY, previous, deleteAt);
+        }
+    }
+
+    private Long currentRevision(Long testId) {
+        try {
+            return analyticsAccumulator.revisions(List.of(testId)).get(testId);
+        } catch (RuntimeException e) {
+            // Unknown revision: the report is rendered and not reused
+            return null;
+        }
+    }
+
+    private void saveJob(String jobId, Map<String, String> job) {
+        redisTemplate.opsForHash().putAll(jobKey(jobId), job);
+        redisTemplate.expire(jobKey(jobId), Duration.ofHours(jobTtlHours));
+    }
+
+    /**
+     * Ranged reports depend on the day too, since ranges are relative to today.
+     */
+    private static String artifactPath(Long testId, Format format, String dateRange, String version) {
+        String range = dateRange != null ? dateRange.replaceAll("[^A-Za-z0-9]", "") + "-" + LocalDate.now() : "all";
+        return ARTIFACT_ROOT + testId + "/" + range + "-" + version + "." + format.getExtension();
+    }
+
+    private static Long longField(Map<Object, Object> job, String field) {
+        Object value = job.get(field);
+        return value != null ? Long.valueOf(value.toString()) : null;
+    }
+
+    private static String jobKey(String jobId) {
+        return "exam:report:job:" + jobId;
+    }
+
+    private static String renderingKey(String artifactPath) {
+        return "exam:report:rendering:" + artifactPath;
+    }
+
+    private static String latestKey(Long testId, Format format, String dateRange) {
+        return "exam:report:latest:" + testId + ":" + format.name() + ":" + (dateRange != null ? dateRange : "all");
+    }
+}
@@ -0,0 +1,327 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.dto.AnalyticsUpdate;
+import com.almubaraksuleiman.cbts.examiner.model.AnalyticsData;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Change-driven analytics push for open examiner dashboards.
+ *
+ * Exam start, submission and grading bump the test's revision in
+ * {@link TestAnalyticsAccumulator}. This service polls the revisions of the tests that have
+ * subscribers on this node in one round trip, and only for a test whose revision moved does
+ * it recompute analytics. Pushes per test are at least debounce-ms apart, so a burst of
+ * submissions during a live sitting becomes one update. The recompute (which may rebuild the
+ * test's accumulated state) runs on a small bounded pool, at most one per test at a time, so
+ * the poll never blocks the scheduler thread.
+ *
+ * Updates go out on "/topic/analytics/{testId}/updates" as {@link AnalyticsUpdate}s: a
+ * DELTA holds only the sections that differ from the previously pushed version, and nothing
+ * is sent when no section changed. Versions are per test and per node, which matches the
+ * node-local simple broker the dashboards are connected to.
+ *
+ * Subscriptions are counted per STOMP session as well, and a session's subscriptions are
+ * released when it disconnects, so dashboards closed without an unsubscribe stop the pushes.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class AnalyticsPushService {
+
+    public static final String SECTION_TEST = "test";
+    public static final String SECTION_SUMMARY = "summary";
+    public static final String SECTION_SCORE_DISTRIBUTION = "scoreDistribution";
+    public static final String SECTION_QUESTION_ANALYSIS = "questionAnalysis";
+    public static final String SECTION_TIME_ANALYSIS = "timeAnalysis";
+    public static final String SECTION_STUDENT_PERFORMANCE = "studentPerformance";
+
+    /**
+     * Push state of one subscribed test; guarded by its own monitor. revision and lastPushAt
+     * are also read by the poll without it.
+     */
+    private static final class Feed {
+        private int subscribers;
+        private long version;
+        private volatile Long revision;
+        private volatile long lastPushAt;
+        private AnalyticsData lastPushed;
+        /** A recompute is queued or running; written by the poll, cleared by the worker */
+        private volatile boolean pushing;
+    }
+
+    private final AnalyticsService analyticsService;
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Map<Long, Feed> feeds = new ConcurrentHashMap<>();
+    /** STOMP session ID -> test ID -> subscriptions held by that session; inner maps guarded by themselves */
+    private final Map<String, Map<Long, Integer>> sessionSubscriptions = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+
+    @Value("${exam.analytics.push.debounce-ms:3000}")
+    private long debounceMs;
+
+    public AnalyticsPushService(AnalyticsService analyticsService,
+                                TestAnalyticsAccumulator analyticsAccumulator,
+                                SimpMessagingTemplate messagingTemplate,
+                                @Value("${exam.analytics.push.workers:2}") int workerCount,
+                                @Value("${exam.analytics.push.queue-capacity:100}") int queueCapacity) {
+        this.analyticsService = analyticsService;
+        this.analyticsAccumulator = analyticsAccumulator;
+        this.messagingTemplate = messagingTemplate;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "analytics-push-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ==================== SUBSCRIPTIONS ====================
+
+    /**
+     * @param stompSessionId the subscribing connection, released on disconnect
+     * @return subscribers of the test after this one
+     */
+    public int subscribe(Long testId, String stompSessionId) {
+        if (stompSessionId != null) {
+            Map<Long, Integer> held = sessionSubscriptions.computeIfAbsent(stompSessionId, id -> new HashMap<>());
+            synchronized (held) {
+                held.merge(testId, 1, Integer::sum);
+            }
+        }
+
+        Feed feed = feeds.computeIfAbsent(testId, id -> new Feed());
+        synchronized (feed) {
+            return ++feed.subscribers;
+        }
+    }
+
+    /**
+     * Releases one subscription the connection holds on the test; an unsubscribe for a test
+     * the connection did not subscribe to changes nothing.
+     *
+     * @return subscribers of the test left; its push state is dropped with the last one
+     */
+    public int unsubscribe(Long testId, String stompSessionId) {
+        if (stompSessionId != null) {
+            Map<Long, Integer> held = sessionSubscriptions.get(stompSessionId);
+            if (held == null) return getSubscribers(testId);
+
+            synchronized (held) {
+                Integer count = held.get(testId);
+                if (count == null) return getSubscribers(testId);
+                if (count > 1) {
+                    held.put(testId, count - 1);
+                } else {
+                    held.remove(testId);
+                }
+            }
+        }
+        return release(testId, 1);
+    }
+
+    /**
+     * Releases every subscription of a closed connection.
+     */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<Long, Integer> held = sessionSubscriptions.remove(event.getSessionId());
+        if (held == null) return;
+
+        synchronized (held) {
+            held.forEach(this::release);
+            if (!held.isEmpty()) {
+                log.debug("Released analytics subscriptions {} of closed session {}", held, event.getSessionId());
+            }
+        }
+    }
+
+    public int getSubscribers(Long testId) {
+        Feed feed = feeds.get(testId);
+        return feed != null ? feed.subscribers : 0;
+    }
+
+    private int release(Long testId, int subscriptions) {
+        Feed feed = feeds.get(testId);
+        if (feed == null) return 0;
+
+        synchronized (feed) {
+            feed.subscribers = Math.max(0, feed.subscribers - subscriptions);
+            if (feed.subscribers == 0) {
+                feeds.remove(testId, feed);
+            }
+            return feed.subscribers;
+        }
+    }
+
+    // ==================== PUSH ====================
+
+    /**
+     * Full analytics as a new version, which becomes the base of the following deltas.
+     * Clients that missed a delta, or just subscribed, ask for one.
+     */
+    public AnalyticsUpdate snapshot(Long testId) {
+        Feed feed = feeds.computeIfAbsent(testId, id -> new Feed());
+        synchronized (feed) {
+            Long revision = currentRevision(testId);
+            AnalyticsData data = analyticsService.getTestAnalytics(testId, null);
+            return snapshot(testId, feed, data, revision);
+        }
+    }
+
+    /**
+     * Pushes a snapshot to every subscriber of the test.
+     */
+    public void broadcastSnapshot(Long testId) {
+        messagingTemplate.convertAndSend(topic(testId), snapshot(testId));
+    }
+
+    /**
+     * Hands every subscribed test whose revision moved and whose last push is older than the
+     * debounce interval to the push workers, which send its changed sections.
+     */
+    @Scheduled(fixedDelayString = "${exam.analytics.push.poll-interval-ms:1000}")
+    public void pushChanges() {
+        List<Long> testIds = feeds.entrySet().stream()
+                .filter(entry -> entry.getValue().subscribers > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (testIds.isEmpty()) return;
+
+        Map<Long, Long> revisions;
+        try {
+            revisions = analyticsAccumulator.revisions(testIds);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read analytics revisions: {}", e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Long testId : testIds) {
+            Feed feed = feeds.get(testId);
+            Long revision = revisions.get(testId);
+            if (feed == null || revision == null || feed.pushing) continue;
+            if (revision.equals(feed.revision) || now - feed.lastPushAt < debounceMs) continue;
+
+            feed.pushing = true;
+            try {
+                workers.execute(() -> push(testId, feed, revision));
+            } catch (RejectedExecutionException e) {
+                // Workers saturated; the revision is still unseen, so the next poll retries
+                feed.pushing = false;
+                log.debug("Analytics push of test {} deferred, workers busy", testId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void push(Long testId, Feed feed, Long revision) {
+        try {
+            synchronized (feed) {
+                AnalyticsUpdate update = nextUpdate(testId, feed, revision);
+                if (update != null) {
+                    messagingTemplate.convertAndSend(topic(testId), update);
+                    log.debug("Pushed analytics {} v{} of test {} with sections {}",
+                            update.getType(), update.getVersion(), testId, update.getSections().keySet());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to push analytics of test {}: {}", testId, e.getMessage());
+        } finally {
+            feed.pushing = false;
+        }
+    }
+
+    private AnalyticsUpdate nextUpdate(Long testId, Feed feed, Long revision) {
+        AnalyticsData data = analyticsService.getTestAnalytics(testId, null);
+        if (feed.lastPushed == null) {
+            return snapshot(testId, feed, data, revision);
+        }
+
+        Map<String, Object> previous = sections(feed.lastPushed);
+        Map<String, Object> changed = new LinkedHashMap<>();
+        sections(data).forEach((name, section) -> {
+            if (!Objects.equals(section, previous.get(name))) {
+                changed.put(name, section);
+            }
+        });
+
+        feed.revision = revision;
+        if (changed.isEmpty()) return null;
+
+        feed.lastPushed = data;
+        feed.lastPushAt = System.currentTimeMillis();
+        feed.version++;
+        return AnalyticsUpdate.builder()
+                .testId(testId)
+                .type(AnalyticsUpdate.UpdateType.DELTA)
+                .version(feed.version)
+                .baseVersion(feed.version - 1)
+                .sections(changed)
+                .serverTime(feed.lastPushAt)
+                .build();
+    }
+
+    private AnalyticsUpdate snapshot(Long testId, Feed feed, AnalyticsData data, Long revision) {
+        feed.revision = revision;
+        feed.lastPushed = data;
+        feed.lastPushAt = System.currentTimeMillis();
+        feed.version++;
+        return AnalyticsUpdate.builder()
+                .testId(testId)
+                .type(AnalyticsUpdate.UpdateType.SNAPSHOT)
+                .version(feed.version)
+                .sections(sections(data))
+                .serverTime(feed.lastPushAt)
+                .build();
+    }
+
+    private Long currentRevision(Long testId) {
+        try {
+            return analyticsAccumulator.revisions(List.of(testId)).get(testId);
+        } catch (RuntimeException e) {
+            // Unknown revision: the next poll that reads one pushes whatever changed
+            return null;
+        }
+    }
+
+    private static Map<String, Object> sections(AnalyticsData data) {
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put(SECTION_TEST, data.getTest());
+        sections.put(SECTION_SUMMARY, data.getSummary());
+        sections.put(SECTION_SCORE_DISTRIBUTION, data.getScoreDistribution());
+        sections.put(SECTION_QUESTION_ANALYSIS, data.getQuestionAnalysis());
+        sections.put(SECTION_TIME_ANALYSIS, data.getTimeAnalysis());
+        sections.put(SECTION_STUDENT_PERFORMANCE, data.getStudentPerformance());
+        return sections;
+    }
+
+    private static String topic(Long testId) {
+        return "/topic/analytics/" + testId + "/updates";
+    }
+}
@@ -0,0 +1,212 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.examiner.repository.QuestionTimeStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Turns question navigation events from exam pages into per-question time sums.
+ *
+ * Ingest only appends the event's primitives to an in-memory buffer under a short lock;
+ * it allocates nothing and touches neither Redis nor the database. Every flush-interval-ms
+ * the buffer is swapped with a standby one and its events are replayed in order. Per exam
+ * session, an ENTER opens a visit of the question and the matching LEAVE closes it. An
+ * ENTER while another visit is open also closes that one, since its LEAVE may never come
+ * (e.g. the tab was closed). The visits of a batch are summed per question and added to
+ * question_time_stats with one batched upsert.
+ *
+ * Sessions are tracked on the node that receives their events: with sticky STOMP
+ * connections that is one node per session, and the upserts of several nodes add up.
+ * Visits longer than max-visit-ms are dropped as outliers, and so are events that arrive
+ * while the buffer is full.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class QuestionTimeTracker {
+
+    /**
+     * Events as parallel primitive arrays; written under the tracker's lock.
+     */
+    private static final class EventBuffer {
+        private final long[] sessionIds;
+        private final long[] questionIds;
+        private final long[] times;
+        private final boolean[] enters;
+        private int size;
+
+        private EventBuffer(int capacity) {
+            sessionIds = new long[capacity];
+            questionIds = new long[capacity];
+            times = new long[capacity];
+            enters = new boolean[capacity];
+        }
+    }
+
+    /**
+     * Navigation state of one exam session; only used by the flushing thread.
+     */
+    private static final class SessionVisits {
+        private long questionId;
+        private long enteredAt = -1;
+        private long lastEventAt;
+        /** Server time of the flush that last saw an event of the session */
+        private long seenAt;
+        private long[] visited = new long[16];
+        private int visitedCount;
+
+        /**
+         * @return true the first time the session visits the question
+         */
+        private boolean markVisited(long questionId) {
+            for (int i = 0; i < visitedCount; i++) {
+                if (visited[i] == questionId) return false;
+            }
+            if (visitedCount == visited.length) {
+                visited = Arrays.copyOf(visited, visitedCount * 2);
+            }
+            visited[visitedCount++] = questionId;
+            return true;
+        }
+    }
+
+    private final QuestionTimeStatsRepository statsRepository;
+    private final Object bufferLock = new Object();
+    private EventBuffer active;
+    private EventBuffer standby;
+    private long droppedEvents;
+
+    // Flush state; the scheduler never runs flush() concurrently with itself
+    private final Map<Long, SessionVisits> sessions = new HashMap<>();
+    private final Map<Long, QuestionTimeStatsRepository.Delta> pending = new HashMap<>();
+
+    @Value("${exam.analytics.question-time.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.analytics.question-time.max-visit-ms:1800000}")
+    private long maxVisitMs;
+
+    @Value("${exam.analytics.question-time.session-idle-ms:10800000}")
+    private long sessionIdleMs;
+
+    public QuestionTimeTracker(QuestionTimeStatsRepository statsRepository,
+                               @Value("${exam.analytics.question-time.buffer-capacity:65536}") int bufferCapacity) {
+        this.statsRepository = statsRepository;
+        this.active = new EventBuffer(bufferCapacity);
+        this.standby = new EventBuffer(bufferCapacity);
+    }
+
+    // ==================== INGEST ====================
+
+    /**
+     * Buffers a navigation event of an exam session.
+     *
+     * @param enter true when the student entered the question, false when they left it
+     * @param at server time the event was received in epoch millis
+     * @return false if tracking is disabled or the buffer is full
+     */
+    public boolean record(long sessionId, long questionId, boolean enter, long at) {
+        if (!enabled) return false;
+
+        synchronized (bufferLock) {
+            EventBuffer buffer = active;
+            if (buffer.size == buffer.sessionIds.length) {
+                droppedEvents++;
+                return false;
+            }
+            int i = buffer.size++;
+            buffer.sessionIds[i] = sessionId;
+            buffer.questionIds[i] = questionId;
+            buffer.times[i] = at;
+            buffer.enters[i] = enter;
+        }
+        return true;
+    }
+
+    // ==================== AGGREGATION ====================
+
+    @Scheduled(fixedDelayString = "${exam.analytics.question-time.flush-interval-ms:5000}")
+    public void flush() {
+        EventBuffer batch;
+        long dropped;
+        synchronized (bufferLock) {
+            batch = active;
+            active = standby;
+            standby = batch;
+            dropped = droppedEvents;
+            droppedEvents = 0;
+        }
+        if (dropped > 0) {
+            log.warn("Dropped {} question navigation events: buffer full", dropped);
+        }
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size; i++) {
+            apply(batch.sessionIds[i], batch.questionIds[i], batch.enters[i], batch.times[i], now);
+        }
+        int events = batch.size;
+        batch.size = 0;
+        expireIdleSessions(now);
+
+        if (pending.isEmpty()) return;
+        try {
+            statsRepository.add(pending.values());
+            log.debug("Added question times of {} questions from {} navigation events", pending.size(), events);
+            pending.clear();
+        } catch (RuntimeException e) {
+            // Kept and added with the next batch
+            log.warn("Failed to save question times of {} questions: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    private void apply(long sessionId, long questionId, boolean enter, long at, long now) {
+        SessionVisits session = sessions.computeIfAbsent(sessionId, id -> new SessionVisits());
+        session.seenAt = now;
+        if (at < session.lastEventAt) {
+            // Out of order: the visit it belongs to was already closed
+            return;
+        }
+        session.lastEventAt = at;
+
+        if (session.enteredAt >= 0 && (enter || session.questionId == questionId)) {
+            closeVisit(session, at);
+        }
+        if (enter) {
+            session.questionId = questionId;
+            session.enteredAt = at;
+        }
+    }
+
+    private void closeVisit(SessionVisits session, long at) {
+        long durationMs = at - session.enteredAt;
+        session.enteredAt = -1;
+        if (durationMs > maxVisitMs) return;
+
+        pending.computeIfAbsent(session.questionId, QuestionTimeStatsRepository.Delta::new)
+                .visit(durationMs, session.markVisited(session.questionId));
+    }
+
+    /**
+     * Forgets sessions without events for session-idle-ms, e.g. submitted exams. A visit
+     * still open is dropped since its end is unknown.
+     */
+    private void expireIdleSessions(long now) {
+        long idleBefore = now - sessionIdleMs;
+        Iterator<SessionVisits> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().seenAt < idleBefore) {
+                iterator.remove();
+            }
+        }
+    }
+}
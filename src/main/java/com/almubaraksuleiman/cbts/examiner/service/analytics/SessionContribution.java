@@ -0,0 +1,86 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What one exam session contributes to its test's analytics, as known at one event.
+ *
+ * The accumulator stores the latest contribution of every session and applies a new one as a
+ * delta against it, so replaying an event changes nothing and a regrade moves the session
+ * between buckets instead of counting it twice. A section the contribution carries
+ * (completion, grade, answers) replaces the stored section as a whole, so a field it leaves
+ * out, such as the score bucket of an out-of-range percentage, is cleared. Sections an event
+ * does not know about (a regrade knows nothing of completion times) are left out and keep
+ * their stored values. Whether a graded session passed is decided by the accumulator against
+ * the passing score stored with the test's state.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public final class SessionContribution {
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private List<Long> attempted;
+    private List<Long> correct;
+
+    public SessionContribution completed(LocalDateTime startTime, LocalDateTime endTime) {
+        fields.put("c", 1);
+        if (startTime != null && endTime != null) {
+            long minutes = Duration.between(startTime, endTime).toMinutes();
+            fields.put("t", minutes);
+            fields.put("tb", TestAnalyticsState.timeBucket(minutes));
+        }
+        return this;
+    }
+
+    public SessionContribution graded(double percentage) {
+        fields.put("p", percentage);
+        int bucket = TestAnalyticsState.scoreBucket(percentage);
+        if (bucket >= 0) {
+            fields.put("sb", bucket);
+        }
+        return this;
+    }
+
+    /**
+     * Makes this contribution carry per-question outcomes, replacing the session's stored ones
+     * as a whole even if no answer is added.
+     */
+    public SessionContribution withAnswers() {
+        if (attempted == null) {
+            attempted = new ArrayList<>();
+            correct = new ArrayList<>();
+        }
+        return this;
+    }
+
+    /**
+     * Records one graded answer.
+     */
+    public SessionContribution answer(Long questionId, boolean isCorrect) {
+        withAnswers();
+        attempted.add(questionId);
+        if (isCorrect) {
+            correct.add(questionId);
+        }
+        return this;
+    }
+
+    /**
+     * @return the fields in the form the accumulator script reads
+     */
+    Map<String, Object> toFields() {
+        Map<String, Object> result = new LinkedHashMap<>(fields);
+        if (attempted != null) {
+            result.put("qa", attempted);
+            result.put("qc", correct);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,495 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.examiner.model.Test;
+import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
+import com.almubaraksuleiman.cbts.examiner.service.grading.AnswerMatcherCache;
+import com.almubaraksuleiman.cbts.examiner.service.grading.AnswerScorer;
+import com.almubaraksuleiman.cbts.examiner.service.grading.GradableAnswer;
+import com.almubaraksuleiman.cbts.student.model.StudentExam;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamBatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Per-test analytics kept up to date by exam events instead of being recomputed per request.
+ *
+ * Each test has four Redis keys:
+ * - "analytics:test:{testId}": counters, the 11-bucket score histogram and the time histogram
+ * - "...:questions": "{questionId}:correct" and "{questionId}:attempts" over graded sessions
+ * - "...:top": sorted set of graded sessions by percentage, read for the top performers
+ * - "...:sessions": the latest {@link SessionContribution} of every session
+ *
+ * Exam start, submission and grading call {@link #record}, which applies the contribution
+ * once the caller's transaction commits. The script subtracts the session's previous
+ * contribution before adding the new one, so events are idempotent and regrades move
+ * sessions between buckets. The top performers are read as the head of a sorted set of all
+ * graded sessions rather than kept in a bounded heap, because a bounded heap cannot refill
+ * itself when a regrade lowers one of its members.
+ *
+ * A test's state is rebuilt from the database on the first read after it was created or
+ * invalidated (for example after Redis was unavailable while an event was recorded, or after
+ * the test's passing score changed). The passing score is stored with the state when it is
+ * rebuilt and the script derives each session's pass flag from it, so every session of one
+ * build is judged against the same score. A rebuild reads the sessions as keyset pages of a
+ * narrow projection and only fills in sessions no event has written since it started, and
+ * it only marks the state ready if the test was not invalidated again meanwhile.
+ *
+ * Every recorded event also increments the test's revision ("...:rev"), which live
+ * dashboards poll to find out which tests changed.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class TestAnalyticsAccumulator {
+
+    private static final String KEY_PREFIX = "analytics:test:";
+    private static final String READY_FIELD = "ready";
+    private static final String PASSING_SCORE_FIELD = "passing-score";
+
+    /**
+     * Replaces the stored contribution of session ARGV[1] with ARGV[2], applying the
+     * difference to the summary (KEYS[1]), question (KEYS[2]) and top (KEYS[4]) keys, and
+     * bumps the revision (KEYS[5]). KEYS[3] holds the stored contributions.
+     *
+     * Each section of the new contribution (completion "c", grade "p", answers "qa")
+     * replaces the stored section as a whole, including fields it leaves out; sections it does
+     * not carry are kept. With ARGV[3] = "1" (rebuild) a stored contribution is never
+     * replaced, since it was written by an event after the rebuild started, and the revision
+     * is left alone.
+     */
+    private static final RedisScript<Long> APPLY_SCRIPT = new DefaultRedisScript<>(
+            "local function apply(c, sign) " +
+            "  redis.call('HINCRBY', KEYS[1], 'sessions', sign) " +
+            "  if c.c == 1 then redis.call('HINCRBY', KEYS[1], 'completed', sign) end " +
+            "  if c.t then " +
+            "    redis.call('HINCRBY', KEYS[1], 'timed', sign) " +
+            "    redis.call('HINCRBY', KEYS[1], 'time-sum', sign * c.t) " +
+            "    redis.call('HINCRBY', KEYS[1], 'time:' .. c.tb, sign) " +
+            "  end " +
+            "  if c.p then " +
+            "    redis.call('HINCRBY', KEYS[1], 'scored', sign) " +
+            "    redis.call('HINCRBYFLOAT', KEYS[1], 'score-sum', sign * c.p) " +
+            "    if c.sb then redis.call('HINCRBY', KEYS[1], 'bucket:' .. c.sb, sign) end " +
+            "    if c.ps == 1 then redis.call('HINCRBY', KEYS[1], 'passed', sign) end " +
+            "  end " +
+            "  if c.qa then " +
+            "    for _, q in ipairs(c.qa) do redis.call('HINCRBY', KEYS[2], q .. ':attempts', sign) end " +
+            "    for _, q in ipairs(c.qc) do redis.call('HINCRBY', KEYS[2], q .. ':correct', sign) end " +
+            "  end " +
+            "end " +
+            "local stored = redis.call('HGET', KEYS[3], ARGV[1]) " +
+            "if stored and ARGV[3] == '1' then return 0 end " +
+            "local new = cjson.decode(ARGV[2]) " +
+            "if new.p then " +
+            "  local pass = tonumber(redis.call('HGET', KEYS[1], '" + PASSING_SCORE_FIELD + "')) " +
+            "  if pass and new.p >= pass then new.ps = 1 else new.ps = 0 end " +
+            "end " +
+            "if stored then " +
+            "  local old = cjson.decode(stored) " +
+            "  local sections = {c = {'c', 't', 'tb'}, p = {'p', 'sb', 'ps'}, qa = {'qa', 'qc'}} " +
+            "  for marker, fields in pairs(sections) do " +
+            "    if new[marker] == nil then for _, f in ipairs(fields) do new[f] = old[f] end end " +
+            "  end " +
+            "  apply(old, -1) " +
+            "end " +
+            "apply(new, 1) " +
+            "redis.call('HSET', KEYS[3], ARGV[1], cjson.encode(new)) " +
+            "if new.p then redis.call('ZADD', KEYS[4], new.p, ARGV[1]) end " +
+            "if ARGV[3] == '1' then return 0 end " +
+            "return redis.call('INCR', KEYS[5])", Long.class);
+
+    /**
+     * Clears the state keys (KEYS[1..4]) for a rebuild and stores the passing score ARGV[1]
+     * (empty if the test has none) in the summary.
+     */
+    private static final RedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1], KEYS[2], KEYS[3], KEYS[4]) " +
+            "if ARGV[1] ~= '' then redis.call('HSET', KEYS[1], '" + PASSING_SCORE_FIELD + "', ARGV[1]) end " +
+            "return 1", Long.class);
+
+    /**
+     * Marks a rebuilt state (KEYS[1]) ready and bumps the revision (KEYS[3]), unless the
+     * invalidation epoch (KEYS[2]) moved on from ARGV[1] while it was rebuilt.
+     */
+    private static final RedisScript<Long> FINISH_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end " +
+            "redis.call('HSET', KEYS[1], '" + READY_FIELD + "', '1') " +
+            "redis.call('INCR', KEYS[3]) " +
+            "return 1", Long.class);
+
+    /**
+     * Marks the state (KEYS[1]) stale, fencing off rebuilds in progress through the epoch
+     * (KEYS[2]), and bumps the revision (KEYS[3]) so dashboards re-read it.
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) " +
+            "redis.call('HDEL', KEYS[1], '" + READY_FIELD + "') " +
+            "return redis.call('INCR', KEYS[3])", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StudentExamBatchRepository examBatchRepository;
+    private final StudentAnswerRepository answerRepository;
+    private final TestRepository testRepository;
+    private final AnswerMatcherCache matcherCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam.analytics.accumulator.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.analytics.accumulator.rebuild-chunk-size:500}")
+    private int rebuildChunkSize;
+
+    @Value("${exam.analytics.accumulator.rebuild-lock-ms:600000}")
+    private long rebuildLockMs;
+
+    public TestAnalyticsAccumulator(StringRedisTemplate redisTemplate,
+                                    StudentExamBatchRepository examBatchRepository,
+                                    StudentAnswerRepository answerRepository,
+                                    TestRepository testRepository,
+                                    AnswerMatcherCache matcherCache,
+                                    ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.examBatchRepository = examBatchRepository;
+        this.answerRepository = answerRepository;
+        this.testRepository = testRepository;
+        this.matcherCache = matcherCache;
+        this.objectMapper = objectMapper;
+    }
+
+    // ==================== EVENTS ====================
+
+    /**
+     * Contribution of an exam session as far as its entity knows: started, and if submitted
+     * its duration, and if graded its percentage.
+     */
+    public SessionContribution contribution(StudentExam exam) {
+        return contribution(exam, new SessionContribution());
+    }
+
+    /**
+     * Adds what the exam entity knows to a contribution that may already hold answers.
+     */
+    public SessionContribution contribution(StudentExam exam, SessionContribution contribution) {
+        return contribution(exam.getCompleted(), exam.getStartTime(), exam.getEndTime(),
+                exam.getGraded(), exam.getPercentage(), contribution);
+    }
+
+    private static SessionContribution contribution(Boolean completed, LocalDateTime startTime, LocalDateTime endTime,
+                                                    Boolean graded, Double percentage,
+                                                    SessionContribution contribution) {
+        if (Boolean.TRUE.equals(completed)) {
+            contribution.completed(startTime, endTime);
+        }
+        if (Boolean.TRUE.equals(graded) && percentage != null) {
+            contribution.graded(percentage);
+        }
+        return contribution;
+    }
+
+    /**
+     * Adds a regraded session's new percentage, the only exam result a regrade knows.
+     *
+     * @param percentage new percentage, null to keep the stored one
+     */
+    public SessionContribution graded(Double percentage, SessionContribution contribution) {
+        if (percentage != null) {
+            contribution.graded(percentage);
+        }
+        return contribution;
+    }
+
+    /**
+     * Records a session's current state from its entity.
+     */
+    public void record(StudentExam exam) {
+        record(exam.getTest().getId(), exam.getSessionId(), contribution(exam));
+    }
+
+    /**
+     * Applies a session's contribution once the current transaction commits, or immediately
+     * outside a transaction. Failures are logged and invalidate the test's state, so the
+     * next read rebuilds it.
+     */
+    public void record(Long testId, Long sessionId, SessionContribution contribution) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyOrBump(testId, sessionId, contribution);
+                }
+            });
+        } else {
+            applyOrBump(testId, sessionId, contribution);
+        }
+    }
+
+    private void applyOrBump(Long testId, Long sessionId, SessionContribution contribution) {
+        if (enabled) {
+            apply(testId, sessionId, contribution);
+            return;
+        }
+
+        // Without the accumulator the revision still tells dashboards the test changed
+        try {
+            redisTemplate.opsForValue().increment(revisionKey(testId));
+        } catch (RuntimeException e) {
+            log.warn("Failed to bump analytics revision of test {}: {}", testId, e.getMessage());
+        }
+    }
+
+    private void apply(Long testId, Long sessionId, SessionContribution contribution) {
+        try {
+            applyScript(testId, sessionId, contribution, false);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to update analytics of test {} for session {}: {}", testId, sessionId, e.getMessage());
+            invalidateNow(testId);
+        }
+    }
+
+    private void applyScript(Long testId, Long sessionId, SessionContribution contribution, boolean rebuilding)
+            throws JsonProcessingException {
+        List<String> keys = new ArrayList<>(keys(testId));
+        keys.add(revisionKey(testId));
+        redisTemplate.execute(APPLY_SCRIPT, keys, sessionId.toString(),
+                objectMapper.writeValueAsString(contribution.toFields()), rebuilding ? "1" : "0");
+    }
+
+    /**
+     * Marks a test's state stale, e.g. after its passing score changed; the next read rebuilds
+     * it from the database. Inside a transaction this happens once it commits, so the rebuild
+     * sees the change.
+     */
+    public void invalidate(Long testId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(testId);
+                }
+            });
+        } else {
+            invalidateNow(testId);
+        }
+    }
+
+    private void invalidateNow(Long testId) {
+        try {
+            redisTemplate.execute(INVALIDATE_SCRIPT,
+                    List.of(summaryKey(testId), epochKey(testId), revisionKey(testId)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to invalidate analytics of test {}: {}", testId, e.getMessage());
+        }
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Change counters of the given tests, read in one round trip.
+     *
+     * @return testId -> revision, absent for tests nothing was recorded for yet
+     */
+    public Map<Long, Long> revisions(List<Long> testIds) {
+        List<String> values = redisTemplate.opsForValue()
+                .multiGet(testIds.stream().map(TestAnalyticsAccumulator::revisionKey).toList());
+
+        Map<Long, Long> revisions = new HashMap<>();
+        for (int i = 0; values != null && i < testIds.size(); i++) {
+            if (values.get(i) != null) {
+                revisions.put(testIds.get(i), Long.valueOf(values.get(i)));
+            }
+        }
+        return revisions;
+    }
+
+    /**
+     * Current analytics of a test, rebuilding them first if needed.
+     *
+     * @param topCount number of top sessions to return
+     * @return the state, or empty if the accumulator is disabled, unavailable or being rebuilt
+     *         by another node, in which case callers compute analytics directly
+     */
+    public Optional<TestAnalyticsState> read(Long testId, int topCount) {
+        if (!enabled) return Optional.empty();
+
+        try {
+            if (redisTemplate.opsForHash().get(summaryKey(testId), READY_FIELD) == null && !rebuild(testId)) {
+                return Optional.empty();
+            }
+            return Optional.of(readState(testId, topCount));
+        } catch (RuntimeException e) {
+            log.warn("Failed to read analytics of test {}: {}", testId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private TestAnalyticsState readState(Long testId, int topCount) {
+        Map<Object, Object> summary = redisTemplate.opsForHash().entries(summaryKey(testId));
+
+        long[] scoreBuckets = new long[TestAnalyticsState.SCORE_BUCKETS];
+        for (int i = 0; i < scoreBuckets.length; i++) {
+            scoreBuckets[i] = longField(summary, "bucket:" + i);
+        }
+        long[] timeBuckets = new long[TestAnalyticsState.TIME_RANGES.size()];
+        for (int i = 0; i < timeBuckets.length; i++) {
+            timeBuckets[i] = longField(summary, "time:" + i);
+        }
+
+        // questionId -> [correct, attempts]
+        Map<Long, long[]> questionCounts = new HashMap<>();
+        redisTemplate.opsForHash().entries(questionsKey(testId)).forEach((field, value) -> {
+            String name = field.toString();
+            int separator = name.indexOf(':');
+            long[] counts = questionCounts.computeIfAbsent(Long.valueOf(name.substring(0, separator)), id -> new long[2]);
+            counts[name.endsWith(":correct") ? 0 : 1] = Long.parseLong(value.toString());
+        });
+
+        List<Long> topSessionIds = new ArrayList<>();
+        Set<ZSetOperations.TypedTuple<String>> top =
+                redisTemplate.opsForZSet().reverseRangeWithScores(topKey(testId), 0, topCount - 1);
+        if (top != null) {
+            top.forEach(tuple -> topSessionIds.add(Long.valueOf(Objects.requireNonNull(tuple.getValue()))));
+        }
+
+        return new TestAnalyticsState(
+                longField(summary, "sessions"),
+                longField(summary, "completed"),
+                longField(summary, "scored"),
+                summary.get("score-sum") != null ? Double.parseDouble(summary.get("score-sum").toString()) : 0.0,
+                longField(summary, "passed"),
+                longField(summary, "timed"),
+                longField(summary, "time-sum"),
+                scoreBuckets,
+                timeBuckets,
+                questionCounts,
+                topSessionIds);
+    }
+
+    private static long longField(Map<Object, Object> hash, String field) {
+        Object value = hash.get(field);
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    // ==================== REBUILD ====================
+
+    /**
+     * Recomputes a test's state from its sessions and graded answers, one keyset page of
+     * sessions at a time. Sessions that events have written since the reset keep the event's
+     * contribution, which is at least as new as what the page read.
+     *
+     * @return false if another node holds the rebuild lock, or the test was invalidated again
+     *         while it was rebuilt
+     */
+    private boolean rebuild(Long testId) {
+        String lockKey = KEY_PREFIX + testId + ":rebuild-lock";
+        String token = UUID.randomUUID().toString();
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(lockKey, token, Duration.ofMillis(rebuildLockMs)))) {
+            return false;
+        }
+
+        try {
+            long started = System.currentTimeMillis();
+
+            // Read before the passing score: an invalidation committed after this fails the finish
+            String epoch = Objects.requireNonNullElse(redisTemplate.opsForValue().get(epochKey(testId)), "0");
+            Integer passingScore = testRepository.findById(testId).map(Test::getPassingScore).orElse(null);
+            redisTemplate.execute(RESET_SCRIPT, keys(testId), passingScore != null ? passingScore.toString() : "");
+
+            AnswerScorer scorer = new AnswerScorer(matcherCache);
+            long sessions = 0;
+            long afterSessionId = 0;
+            List<StudentExamBatchRepository.AnalyticsRow> page;
+            do {
+                page = examBatchRepository.findAnalyticsRows(testId, afterSessionId, rebuildChunkSize);
+
+                Map<Long, SessionContribution> contributions = new LinkedHashMap<>();
+                List<Long> gradedSessionIds = new ArrayList<>();
+                for (StudentExamBatchRepository.AnalyticsRow row : page) {
+                    SessionContribution contribution = contribution(row.completed(), row.startTime(), row.endTime(),
+                            row.graded(), row.percentage(), new SessionContribution());
+                    if (row.graded()) {
+                        contribution.withAnswers();
+                        gradedSessionIds.add(row.sessionId());
+                    }
+                    contributions.put(row.sessionId(), contribution);
+                }
+
+                if (!gradedSessionIds.isEmpty()) {
+                    for (Object[] row : answerRepository.findGradingRowsBySessionIds(gradedSessionIds)) {
+                        GradableAnswer answer = GradableAnswer.of(row);
+                        contributions.get(answer.sessionId()).answer(answer.questionId(), scorer.isCorrect(answer));
+                    }
+                }
+
+                for (Map.Entry<Long, SessionContribution> entry : contributions.entrySet()) {
+                    applyScript(testId, entry.getKey(), entry.getValue(), true);
+                }
+
+                sessions += page.size();
+                if (!page.isEmpty()) {
+                    afterSessionId = page.get(page.size() - 1).sessionId();
+                }
+            } while (page.size() == rebuildChunkSize);
+
+            Long finished = redisTemplate.execute(FINISH_SCRIPT,
+                    List.of(summaryKey(testId), epochKey(testId), revisionKey(testId)), epoch);
+            if (!Long.valueOf(1).equals(finished)) {
+                log.info("Analytics of test {} were invalidated while being rebuilt", testId);
+                return false;
+            }
+
+            log.info("Rebuilt analytics of test {} from {} sessions in {} ms",
+                    testId, sessions, System.currentTimeMillis() - started);
+            return true;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize analytics of test " + testId, e);
+        } finally {
+            if (token.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        }
+    }
+
+    private static List<String> keys(Long testId) {
+        return List.of(summaryKey(testId), questionsKey(testId), KEY_PREFIX + testId + ":sessions", topKey(testId));
+    }
+
+    private static String summaryKey(Long testId) {
+        return KEY_PREFIX + testId;
+    }
+
+    private static String questionsKey(Long testId) {
+        return KEY_PREFIX + testId + ":questions";
+    }
+
+    private static String topKey(Long testId) {
+        return KEY_PREFIX + testId + ":top";
+    }
+
+    /** Not part of {@link #keys}: bumped by every invalidation, so a rebuild can tell it went stale */
+    private static String epochKey(Long testId) {
+        return KEY_PREFIX + testId + ":epoch";
+    }
+
+    /** Not part of {@link #keys}: it survives rebuilds so revisions never go backwards */
+    private static String revisionKey(Long testId) {
+        return KEY_PREFIX + testId + ":rev";
+    }
+}
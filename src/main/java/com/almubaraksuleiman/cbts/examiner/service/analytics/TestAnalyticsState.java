@@ -0,0 +1,53 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of a test's incrementally maintained analytics, read from
+ * {@link TestAnalyticsAccumulator}. Its size depends on the number of questions, never on the
+ * number of sessions.
+ *
+ * @param sessions sessions started
+ * @param completed sessions submitted
+ * @param scored sessions with a percentage
+ * @param scoreSum sum of those percentages
+ * @param passed sessions at or above the passing score
+ * @param timed completed sessions with a start and end time
+ * @param timeSumMinutes sum of their durations in whole minutes
+ * @param scoreBuckets session counts per 10-point percentage bucket, 0 to 100
+ * @param timeBuckets session counts per {@link #TIME_RANGES} entry
+ * @param questionCounts questionId -> [correct, attempts] over graded sessions
+ * @param topSessionIds best scoring sessions, highest first
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public record TestAnalyticsState(long sessions, long completed, long scored, double scoreSum, long passed,
+                                 long timed, long timeSumMinutes, long[] scoreBuckets, long[] timeBuckets,
+                                 Map<Long, long[]> questionCounts, List<Long> topSessionIds) {
+
+    /** Histogram buckets of 10 percentage points: 0, 10, ..., 100 */
+    public static final int SCORE_BUCKETS = 11;
+
+    /** Labels of the time-spent histogram */
+    public static final List<String> TIME_RANGES = List.of(
+            "0-10 min", "10-20 min", "20-30 min", "30-40 min", "40-50 min", "50-60+ min");
+
+    /**
+     * @return bucket index of a percentage, or -1 if it is outside 0 to 100
+     */
+    public static int scoreBucket(double percentage) {
+        int bucket = (int) Math.floor(percentage / 10.0);
+        return bucket >= 0 && bucket < SCORE_BUCKETS ? bucket : -1;
+    }
+
+    /**
+     * @return index into {@link #TIME_RANGES} for a duration in whole minutes
+     */
+    public static int timeBucket(long minutes) {
+        if (minutes <= 10) return 0;
+        return (int) Math.min(TIME_RANGES.size() - 1, (minutes - 1) / 10);
+    }
+}
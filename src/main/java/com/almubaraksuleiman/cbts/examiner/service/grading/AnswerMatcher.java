@@ -0,0 +1,76 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+
+/**
+ * Answer key of one question, compiled into the representation it is compared in.
+ *
+ * A matcher is built once per question revision (see {@link AnswerMatcherCache}) and then
+ * shared by grading and analytics:
+ * - MULTIPLE_CHOICE, TRUE_FALSE, FILL_IN_THE_BLANK: the trimmed key, compared case-insensitively
+ *   in place against the response
+ * - MULTIPLE_SELECT: a bitmask over the question's choice indices; the response is scanned
+ *   option by option into a mask of its own and the two longs are compared
+ * - MATCHING: normalized left -> right pairs; the response is scanned pair by pair into a
+ *   bitmask over the key's items
+ * Essays are not auto-scored and compile to {@link #NEVER}.
+ *
+ * Partial credit is computed on the same representations: multi-select responses are
+ * compared to the key with two bit counts, matching responses pair by pair.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@FunctionalInterface
+public interface AnswerMatcher {
+
+    /** Matches nothing, used for essays and questions without a usable key */
+    AnswerMatcher NEVER = answer -> false;
+
+    /**
+     * @param answer the student's response, may be null
+     * @return true if the response matches the key exactly
+     */
+    boolean matches(String answer);
+
+    /**
+     * Share of the question's marks earned by a response. Keys with a single item are all or
+     * nothing whatever the policy.
+     *
+     * @param answer the student's response, may be null
+     * @param policy how hits and misses are turned into credit
+     * @return credit between -1 and 1
+     */
+    default double credit(String answer, PartialCreditPolicy policy) {
+        return matches(answer) ? 1.0 : 0.0;
+    }
+
+    /**
+     * Compiles the matcher for a question.
+     *
+     * @param type question type
+     * @param correctAnswer the question's answer key, may be null
+     * @param choices the question's comma-separated choices, used to index MULTIPLE_SELECT keys
+     */
+    static AnswerMatcher compile(QuestionType type, String correctAnswer, String choices) {
+        if (type == null || correctAnswer == null || correctAnswer.trim().isEmpty()) return NEVER;
+
+        switch (type) {
+            case MULTIPLE_CHOICE:
+            case TRUE_FALSE:
+            case FILL_IN_THE_BLANK:
+                return new AnswerMatchers.KeyMatcher(correctAnswer);
+
+            case MULTIPLE_SELECT:
+                return AnswerMatchers.multipleSelect(correctAnswer, choices);
+
+            case MATCHING:
+                return AnswerMatchers.matching(correctAnswer);
+
+            default:
+                return NEVER;
+        }
+    }
+}
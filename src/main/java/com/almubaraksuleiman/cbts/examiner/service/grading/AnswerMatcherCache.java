@@ -0,0 +1,60 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.Question;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+/**
+ * Compiled {@link AnswerMatcher}s per question, shared by grading and analytics.
+ *
+ * An entry remembers the type, key and choices it was compiled from, and a lookup that
+ * presents a different revision recompiles it. Editing a question therefore needs no explicit
+ * invalidation, and a stale matcher can never be used.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+public class AnswerMatcherCache {
+
+    private record Compiled(QuestionType type, String correctAnswer, String choices, AnswerMatcher matcher) {
+
+        boolean isRevision(QuestionType type, String correctAnswer, String choices) {
+            return this.type == type
+                    && Objects.equals(this.correctAnswer, correctAnswer)
+                    && Objects.equals(this.choices, choices);
+        }
+    }
+
+    private final Cache<Long, Compiled> matchers;
+
+    public AnswerMatcherCache(@Value("${exam.grading.matcher-cache.max-questions:100000}") long maxQuestions) {
+        this.matchers = CacheBuilder.newBuilder()
+                .maximumSize(maxQuestions)
+                .build();
+    }
+
+    /**
+     * Matcher for the given revision of a question, compiled on first use.
+     */
+    public AnswerMatcher get(Long questionId, QuestionType type, String correctAnswer, String choices) {
+        Compiled compiled = matchers.getIfPresent(questionId);
+        if (compiled != null && compiled.isRevision(type, correctAnswer, choices)) {
+            return compiled.matcher();
+        }
+
+        AnswerMatcher matcher = AnswerMatcher.compile(type, correctAnswer, choices);
+        matchers.put(questionId, new Compiled(type, correctAnswer, choices, matcher));
+        return matcher;
+    }
+
+    public AnswerMatcher get(Question question) {
+        return get(question.getId(), question.getType(), question.getCorrectAnswer(), question.getChoices());
+    }
+}
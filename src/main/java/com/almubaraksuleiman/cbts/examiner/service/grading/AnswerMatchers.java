@@ -0,0 +1,401 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link AnswerMatcher} implementations. Responses are compared in place (index ranges and
+ * case-insensitive region matches), so scoring an answer allocates nothing; only the rare
+ * fallbacks (MULTIPLE_SELECT keys outside the choices or with 64+ choices, MATCHING responses
+ * naming items that are not in the key or keys of 32+ pairs) parse the response.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+final class AnswerMatchers {
+
+    private AnswerMatchers() {
+    }
+
+    /**
+     * Single key: trimmed, case-insensitive equality.
+     */
+    static final class KeyMatcher implements AnswerMatcher {
+
+        private final String key;
+
+        KeyMatcher(String correctAnswer) {
+            this.key = correctAnswer.trim();
+        }
+
+        @Override
+        public boolean matches(String answer) {
+            return answer != null && equalsTrimmed(key, answer, 0, answer.length());
+        }
+    }
+
+    /**
+     * MULTIPLE_SELECT key as a bitmask over choice indices. The response must select exactly
+     * the key's options, in any order.
+     */
+    static final class ChoiceMaskMatcher implements AnswerMatcher {
+
+        private final String[] options;
+        private final long keyMask;
+        private final int keySize;
+
+        private ChoiceMaskMatcher(String[] options, long keyMask) {
+            this.options = options;
+            this.keyMask = keyMask;
+            this.keySize = Long.bitCount(keyMask);
+        }
+
+        @Override
+        public boolean matches(String answer) {
+            if (answer == null) return false;
+            long mask = responseMask(options, answer);
+            return mask >= 0 && mask == keyMask;
+        }
+
+        /**
+         * Selected key options are hits; selected distractors and options that are not among
+         * the choices are misses.
+         */
+        @Override
+        public double credit(String answer, PartialCreditPolicy policy) {
+            if (answer == null) return 0.0;
+
+            long mask = 0;
+            int unknown = 0;
+            int from = 0;
+            while (true) {
+                int comma = answer.indexOf(',', from);
+                int to = comma < 0 ? answer.length() : comma;
+
+                if (!isBlank(answer, from, to)) {
+                    int index = optionIndex(options, answer, from, to);
+                    if (index >= 0) {
+                        mask |= 1L << index;
+                    } else {
+                        unknown++;
+                    }
+                }
+
+                if (comma < 0) break;
+                from = comma + 1;
+            }
+
+            int hits = Long.bitCount(mask & keyMask);
+            int misses = Long.bitCount(mask & ~keyMask) + unknown;
+            return policy.credit(hits, misses, keySize);
+        }
+    }
+
+    /**
+     * MULTIPLE_SELECT key as a set of normalized options, for questions whose key options are
+     * not all among their choices or that have 64 or more choices.
+     */
+    static final class OptionSetMatcher implements AnswerMatcher {
+
+        private final Set<String> keyOptions;
+
+        private OptionSetMatcher(Set<String> keyOptions) {
+            this.keyOptions = keyOptions;
+        }
+
+        @Override
+        public boolean matches(String answer) {
+            return answer != null && keyOptions.equals(optionSet(answer));
+        }
+
+        @Override
+        public double credit(String answer, PartialCreditPolicy policy) {
+            if (answer == null) return 0.0;
+
+            int hits = 0;
+            int misses = 0;
+            for (String option : optionSet(answer)) {
+                if (keyOptions.contains(option)) {
+                    hits++;
+                } else if (!option.isEmpty()) {
+                    misses++;
+                }
+            }
+            return policy.credit(hits, misses, keyOptions.size());
+        }
+    }
+
+    /**
+     * MATCHING key as normalized left -> right pairs; the response must pair every item the
+     * same way and nothing else. Keys of fewer than 32 pairs are also held as index-aligned
+     * arrays, and responses are scanned against them into bitmasks over the key's items: the
+     * items paired as in the key and the items paired at all, packed into one long.
+     */
+    static final class PairMapMatcher implements AnswerMatcher {
+
+        private static final int MAX_SCANNED_ITEMS = Integer.SIZE - 1;
+
+        /** Scan result: an entry has no separator */
+        private static final long UNPARSEABLE = -1;
+        /** Scan result: an entry pairs an item that is not in the key */
+        private static final long UNKNOWN_ITEM = -2;
+
+        private final Map<String, String> keyPairs;
+        private final String[] lefts;
+        private final String[] rights;
+        private final int keyMask;
+
+        private PairMapMatcher(Map<String, String> keyPairs) {
+            this.keyPairs = keyPairs;
+            if (keyPairs.size() <= MAX_SCANNED_ITEMS) {
+                this.lefts = keyPairs.keySet().toArray(new String[0]);
+                this.rights = new String[lefts.length];
+                for (int i = 0; i < lefts.length; i++) {
+                    rights[i] = keyPairs.get(lefts[i]);
+                }
+                this.keyMask = (1 << lefts.length) - 1;
+            } else {
+                this.lefts = null;
+                this.rights = null;
+                this.keyMask = 0;
+            }
+        }
+
+        @Override
+        public boolean matches(String answer) {
+            if (answer == null) return false;
+            if (lefts == null) return keyPairs.equals(parsePairs(answer));
+            long scanned = scan(answer);
+            return scanned >= 0 && (int) scanned == keyMask;
+        }
+
+        /**
+         * Items paired as in the key are hits; items paired differently, or that are not in
+         * the key, are misses. Items left unpaired are neither, and a response that cannot
+         * be parsed earns nothing.
+         */
+        @Override
+        public double credit(String answer, PartialCreditPolicy policy) {
+            if (answer == null) return 0.0;
+
+            if (lefts != null) {
+                long scanned = scan(answer);
+                if (scanned == UNPARSEABLE) return 0.0;
+                if (scanned != UNKNOWN_ITEM) {
+                    int hitMask = (int) scanned;
+                    int answeredMask = (int) (scanned >>> Integer.SIZE);
+                    return policy.credit(Integer.bitCount(hitMask), Integer.bitCount(answeredMask & ~hitMask), lefts.length);
+                }
+            }
+
+            Map<String, String> pairs = parsePairs(answer);
+            if (pairs == null) return 0.0;
+
+            int hits = 0;
+            int misses = 0;
+            for (Map.Entry<String, String> pair : pairs.entrySet()) {
+                if (pair.getValue().equals(keyPairs.get(pair.getKey()))) {
+                    hits++;
+                } else if (!pair.getValue().isEmpty()) {
+                    misses++;
+                }
+            }
+            return policy.credit(hits, misses, keyPairs.size());
+        }
+
+        /**
+         * Scans a response in the notations {@link #parsePairs} accepts. As there, a later
+         * entry for an item replaces an earlier one.
+         *
+         * @return the mask of items paired as in the key in the low 32 bits and the mask of
+         *         items paired with anything non-blank in the high 32 bits, or
+         *         {@link #UNPARSEABLE} or {@link #UNKNOWN_ITEM}
+         */
+        private long scan(String answer) {
+            int from = 0;
+            int end = answer.length();
+            while (from < end && answer.charAt(from) <= ' ') from++;
+            while (end > from && answer.charAt(end - 1) <= ' ') end--;
+            if (end - from >= 2 && answer.charAt(from) == '{' && answer.charAt(end - 1) == '}') {
+                from++;
+                end--;
+            }
+
+            int hits = 0;
+            int answered = 0;
+            while (from <= end) {
+                int comma = indexOf(answer, ',', from, end);
+                int to = comma < 0 ? end : comma;
+
+                if (!isBlank(answer, from, to)) {
+                    int separatorLength = 2;
+                    int separator = answer.indexOf("->", from);
+                    if (separator < 0 || separator >= to) {
+                        separatorLength = 1;
+                        separator = indexOf(answer, ':', from, to);
+                        if (separator < 0) separator = indexOf(answer, '=', from, to);
+                    }
+                    if (separator < 0) return UNPARSEABLE;
+
+                    int item = itemIndex(answer, from, separator);
+                    if (item < 0) return UNKNOWN_ITEM;
+
+                    int rightFrom = separator + separatorLength;
+                    int bit = 1 << item;
+                    hits = equalsUnquoted(rights[item], answer, rightFrom, to) ? hits | bit : hits & ~bit;
+                    answered = !isBlank(answer, rightFrom, to) ? answered | bit : answered & ~bit;
+                }
+
+                if (comma < 0) break;
+                from = comma + 1;
+            }
+            return (long) answered << Integer.SIZE | hits & 0xFFFFFFFFL;
+        }
+
+        private int itemIndex(String answer, int from, int to) {
+            for (int i = 0; i < lefts.length; i++) {
+                if (equalsUnquoted(lefts[i], answer, from, to)) return i;
+            }
+            return -1;
+        }
+    }
+
+    static AnswerMatcher multipleSelect(String correctAnswer, String choices) {
+        String[] options = choices == null || choices.trim().isEmpty()
+                ? new String[0]
+                : choices.trim().split("\\s*,\\s*");
+
+        if (options.length > 0 && options.length < Long.SIZE) {
+            long keyMask = responseMask(options, correctAnswer);
+            if (keyMask > 0) return new ChoiceMaskMatcher(options, keyMask);
+        }
+        return new OptionSetMatcher(optionSet(correctAnswer));
+    }
+
+    static AnswerMatcher matching(String correctAnswer) {
+        Map<String, String> keyPairs = parsePairs(correctAnswer);
+        return keyPairs == null || keyPairs.isEmpty() ? AnswerMatcher.NEVER : new PairMapMatcher(keyPairs);
+    }
+
+    /**
+     * @return bitmask of the options selected by a comma-separated response, or -1 if it
+     *         names an option that is not among the choices; blank entries select nothing
+     */
+    static long responseMask(String[] options, String response) {
+        long mask = 0;
+        int from = 0;
+        while (true) {
+            int comma = response.indexOf(',', from);
+            int to = comma < 0 ? response.length() : comma;
+
+            if (!isBlank(response, from, to)) {
+                int index = optionIndex(options, response, from, to);
+                if (index < 0) return -1;
+                mask |= 1L << index;
+            }
+
+            if (comma < 0) return mask;
+            from = comma + 1;
+        }
+    }
+
+    private static int optionIndex(String[] options, String response, int from, int to) {
+        for (int i = 0; i < options.length; i++) {
+            if (equalsTrimmed(options[i], response, from, to)) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(String value, char ch, int from, int to) {
+        int index = value.indexOf(ch, from);
+        return index < to ? index : -1;
+    }
+
+    /**
+     * Like {@link #equalsTrimmed}, after stripping one pair of double quotes around the
+     * trimmed range.
+     */
+    private static boolean equalsUnquoted(String expected, String value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') from++;
+        while (to > from && value.charAt(to - 1) <= ' ') to--;
+        if (to - from >= 2 && value.charAt(from) == '"' && value.charAt(to - 1) == '"') {
+            from++;
+            to--;
+        }
+        return equalsTrimmed(expected, value, from, to);
+    }
+
+    private static boolean isBlank(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares {@code value[from, to)}, trimmed as by String.trim(), to an already trimmed
+     * expected string, ignoring case.
+     */
+    static boolean equalsTrimmed(String expected, String value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') from++;
+        while (to > from && value.charAt(to - 1) <= ' ') to--;
+        return to - from == expected.length() && expected.regionMatches(true, 0, value, from, to - from);
+    }
+
+    private static Set<String> optionSet(String value) {
+        Set<String> options = new HashSet<>();
+        for (String option : value.split(",")) {
+            if (option.isBlank()) continue;
+            options.add(normalize(option));
+        }
+        return options;
+    }
+
+    /**
+     * Parses "A1:B3, A2:B1" or {"A1":"B3","A2":"B1"} (':', '=' or '->' separated).
+     *
+     * @return normalized pairs, or null if an entry has no separator
+     */
+    static Map<String, String> parsePairs(String value) {
+        String body = value.trim();
+        if (body.startsWith("{") && body.endsWith("}")) {
+            body = body.substring(1, body.length() - 1);
+        }
+
+        Map<String, String> pairs = new HashMap<>();
+        for (String entry : body.split(",")) {
+            if (entry.trim().isEmpty()) continue;
+
+            int separatorLength = 2;
+            int separator = entry.indexOf("->");
+            if (separator < 0) {
+                separatorLength = 1;
+                separator = entry.indexOf(':');
+                if (separator < 0) separator = entry.indexOf('=');
+            }
+            if (separator < 0) return null;
+
+            pairs.put(normalize(unquote(entry.substring(0, separator))),
+                    normalize(unquote(entry.substring(separator + separatorLength))));
+        }
+        return pairs;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
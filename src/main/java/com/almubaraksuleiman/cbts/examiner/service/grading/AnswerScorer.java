@@ -0,0 +1,74 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scores {@link GradableAnswer} rows with the questions' compiled {@link AnswerMatcher}s,
+ * resolving each question's matcher once per scorer. Essays keep their manually assigned
+ * score. Questions that allow partial credit are scored with their {@link PartialCreditPolicy};
+ * all others take the exact-match path. Thread-safe, so one scorer can be shared by the
+ * parallel workers of a regrade job.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Slf4j
+public final class AnswerScorer {
+
+    private static final Set<QuestionType> AUTO_GRADED = EnumSet.of(
+            QuestionType.MULTIPLE_CHOICE, QuestionType.TRUE_FALSE, QuestionType.FILL_IN_THE_BLANK,
+            QuestionType.MULTIPLE_SELECT, QuestionType.MATCHING);
+
+    private final AnswerMatcherCache matcherCache;
+    private final Map<Long, AnswerMatcher> matchers = new ConcurrentHashMap<>();
+
+    public AnswerScorer(AnswerMatcherCache matcherCache) {
+        this.matcherCache = matcherCache;
+    }
+
+    /**
+     * @return marks awarded for the answer; 0 if it cannot be graded
+     */
+    public double score(GradableAnswer answer) {
+        if (answer.type() == QuestionType.ESSAY) {
+            // ESSAY GRADING - Use manually assigned score if available
+            return answer.score() != null && answer.score() > 0 ? answer.score() : 0.0;
+        }
+
+        AnswerMatcher matcher = matcher(answer);
+        try {
+            if (answer.creditPolicy() == PartialCreditPolicy.ALL_OR_NOTHING) {
+                return matcher.matches(answer.answer()) ? answer.maxMarks() : 0.0;
+            }
+            return matcher.credit(answer.answer(), answer.creditPolicy()) * answer.maxMarks();
+        } catch (Exception e) {
+            log.error("Error grading answer for question {}: {}", answer.questionId(), e.getMessage());
+            return 0.0;
+        }
+    }
+
+    /**
+     * @return true if the answer matches its key exactly, the definition of "correct" used by
+     *         question analytics; essays are never correct
+     */
+    public boolean isCorrect(GradableAnswer answer) {
+        return answer.type() != QuestionType.ESSAY && matcher(answer).matches(answer.answer());
+    }
+
+    private AnswerMatcher matcher(GradableAnswer answer) {
+        return matchers.computeIfAbsent(answer.questionId(), questionId -> {
+            if (!AUTO_GRADED.contains(answer.type())) {
+                log.warn("Unknown question type: {} for question ID: {}", answer.type(), questionId);
+            }
+            return matcherCache.get(questionId, answer.type(), answer.correctAnswer(), answer.choices());
+        });
+    }
+}
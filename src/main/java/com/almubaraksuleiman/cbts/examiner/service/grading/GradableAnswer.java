@@ -0,0 +1,37 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+
+/**
+ * One answer row with everything needed to grade it, read in a single projection query.
+ *
+ * @param score current score, may be null (essays keep a manually assigned score)
+ * @param creditPolicy the question's effective partial credit policy
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public record GradableAnswer(Long answerId, Long sessionId, String answer, Double score,
+                             Long questionId, QuestionType type, String correctAnswer, double maxMarks,
+                             String choices, PartialCreditPolicy creditPolicy) {
+
+    /**
+     * @param row [answerId, sessionId, answer, score, questionId, type, correctAnswer, maxMarks, choices,
+     *            allowPartialCredit, partialCreditPolicy]
+     */
+    public static GradableAnswer of(Object[] row) {
+        return new GradableAnswer(
+                (Long) row[0],
+                (Long) row[1],
+                (String) row[2],
+                (Double) row[3],
+                (Long) row[4],
+                (QuestionType) row[5],
+                (String) row[6],
+                row[7] != null ? (Double) row[7] : 0.0,
+                (String) row[8],
+                PartialCreditPolicy.effective((Boolean) row[9], (PartialCreditPolicy) row[10]));
+    }
+}
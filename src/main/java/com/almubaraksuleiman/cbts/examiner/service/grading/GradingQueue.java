@@ -0,0 +1,414 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.dto.ExamGradedMessage;
+import com.almubaraksuleiman.cbts.examiner.service.impl.ExamGradingService;
+import com.almubaraksuleiman.cbts.student.model.StudentExam;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
+import com.almubaraksuleiman.cbts.student.service.impl.AnswerWriteBehindJournal;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background grading pipeline for submitted exams.
+ *
+ * Submission only marks the exam SUBMITTED and calls {@link #submit(StudentExam)}, which
+ * queues the session in the Redis sorted set {@value #QUEUE_KEY} (score = submission time)
+ * once the submit transaction commits. A bounded pool of workers claims batches from the
+ * queue and grades each batch in one transaction through
+ * {@link ExamGradingService#gradeExams}; results are pushed on
+ * "/topic/exam-completed/{sessionId}" as an {@link ExamGradedMessage}.
+ *
+ * A claimed session is held in {@value #PROCESSING_KEY} with a lease and only removed after
+ * its grading commits, so a crashed worker's batch is requeued when the lease expires. A
+ * failing batch is retried per session, and a session that keeps failing is parked in
+ * {@value #PARKED_KEY} after max-attempts. A periodic sweep requeues SUBMITTED exams that are
+ * still ungraded, which covers submissions that never made it into Redis; parked sessions are
+ * left out of the sweep and stay parked until removed from that hash.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class GradingQueue {
+
+    /** Sorted set: member = sessionId, score = submission time in epoch millis */
+    public static final String QUEUE_KEY = "exam:grading:queue";
+
+    /** Sorted set: member = sessionId, score = lease expiry in epoch millis */
+    public static final String PROCESSING_KEY = "exam:grading:processing";
+
+    private static final String SUBMITTED_AT_KEY = "exam:grading:submitted-at";
+    private static final String ATTEMPTS_KEY = "exam:grading:attempts";
+
+    /** Hash: field = sessionId, value = time it was parked after max-attempts */
+    public static final String PARKED_KEY = "exam:grading:parked";
+
+    /** Queues a session unless it is being graded or parked (ARGV[1] = sessionId, ARGV[2] = now) */
+    private static final RedisScript<Long> ENQUEUE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZSCORE', KEYS[2], ARGV[1]) then return 0 end " +
+            "if redis.call('HEXISTS', KEYS[4], ARGV[1]) == 1 then return 0 end " +
+            "redis.call('HSETNX', KEYS[3], ARGV[1], ARGV[2]) " +
+            "return redis.call('ZADD', KEYS[1], 'NX', redis.call('HGET', KEYS[3], ARGV[1]), ARGV[1])", Long.class);
+
+    /**
+     * Requeues expired leases, then moves up to ARGV[1] of the oldest sessions into the
+     * processing set with a lease until ARGV[3] (ARGV[2] = now)
+     */
+    @SuppressWarnings("unchecked")
+    private static final RedisScript<List<Object>> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[2]) " +
+            "for _, m in ipairs(expired) do " +
+            "  redis.call('ZREM', KEYS[2], m) " +
+            "  redis.call('ZADD', KEYS[1], 'NX', redis.call('HGET', KEYS[3], m) or ARGV[2], m) " +
+            "end " +
+            "local ids = redis.call('ZRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1) " +
+            "for _, m in ipairs(ids) do " +
+            "  redis.call('ZREM', KEYS[1], m) " +
+            "  redis.call('ZADD', KEYS[2], ARGV[3], m) " +
+            "end " +
+            "return ids", (Class<List<Object>>) (Class<?>) List.class);
+
+    /** Forgets graded sessions (ARGV = sessionIds) */
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV do " +
+            "  redis.call('ZREM', KEYS[1], ARGV[i]) " +
+            "  redis.call('HDEL', KEYS[2], ARGV[i]) " +
+            "  redis.call('HDEL', KEYS[3], ARGV[i]) " +
+            "end " +
+            "return #ARGV", Long.class);
+
+    /**
+     * Requeues a failed session, or parks it in KEYS[5] once ARGV[2] attempts have failed
+     * (ARGV[1] = sessionId, ARGV[3] = now). Returns 0 if parked.
+     */
+    private static final RedisScript<Long> RETRY_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZREM', KEYS[2], ARGV[1]) " +
+            "local attempts = redis.call('HINCRBY', KEYS[4], ARGV[1], 1) " +
+            "if attempts >= tonumber(ARGV[2]) then " +
+            "  redis.call('HDEL', KEYS[3], ARGV[1]) " +
+            "  redis.call('HDEL', KEYS[4], ARGV[1]) " +
+            "  redis.call('HSET', KEYS[5], ARGV[1], ARGV[3]) " +
+            "  return 0 " +
+            "end " +
+            "redis.call('ZADD', KEYS[1], 'NX', redis.call('HGET', KEYS[3], ARGV[1]) or ARGV[3], ARGV[1]) " +
+            "return attempts", Long.class);
+
+    /**
+     * Queue depth and lag as seen by clients.
+     *
+     * @param queued sessions waiting for a worker
+     * @param inFlight sessions claimed by a worker on any node
+     * @param oldestWaitingMs age of the oldest queued submission, 0 if the queue is empty
+     * @param lastGradingLagMs submission-to-result time of the last batch graded on this node
+     * @param busyWorkers workers currently grading on this node
+     */
+    public record GradingQueueStats(long queued, long inFlight, long oldestWaitingMs,
+                                    long lastGradingLagMs, int busyWorkers) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final StudentExamRepository studentExamRepository;
+    private final ExamGradingService examGradingService;
+    private final AnswerWriteBehindJournal answerJournal;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final Semaphore workerSlots;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final AtomicLong lastGradingLagMs = new AtomicLong();
+
+    @Value("${exam.grading.async.enabled:true}")
+    private boolean asyncEnabled;
+
+    @Value("${exam.grading.batch-size:50}")
+    private int batchSize;
+
+    @Value("${exam.grading.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${exam.grading.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${exam.grading.recovery-grace-ms:300000}")
+    private long recoveryGraceMs;
+
+    @Value("${exam.grading.recovery-batch-size:500}")
+    private int recoveryBatchSize;
+
+    public GradingQueue(StringRedisTemplate redisTemplate,
+                        StudentExamRepository studentExamRepository,
+                        ExamGradingService examGradingService,
+                        AnswerWriteBehindJournal answerJournal,
+                        SimpMessagingTemplate messagingTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${exam.grading.workers:4}") int workerCount) {
+        this.redisTemplate = redisTemplate;
+        this.studentExamRepository = studentExamRepository;
+        this.examGradingService = examGradingService;
+        this.answerJournal = answerJournal;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerSlots = new Semaphore(workerCount);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "grading-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hands a submitted exam over for grading. With the async pipeline disabled the exam is
+     * graded inline as before; otherwise it is queued once the caller's transaction commits.
+     */
+    public void submit(StudentExam exam) {
+        Long sessionId = exam.getSessionId();
+
+        if (!asyncEnabled) {
+            examGradingService.gradeExam(sessionId);
+            exam.setGraded(true);
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(sessionId);
+                }
+            });
+        } else {
+            enqueue(sessionId);
+        }
+    }
+
+    /**
+     * Current queue depth and grading lag.
+     */
+    public GradingQueueStats getStats() {
+        long now = System.currentTimeMillis();
+        Long queued = redisTemplate.opsForZSet().zCard(QUEUE_KEY);
+        Long inFlight = redisTemplate.opsForZSet().zCard(PROCESSING_KEY);
+
+        long oldestWaitingMs = 0;
+        Set<ZSetOperations.TypedTuple<String>> oldest = redisTemplate.opsForZSet().rangeWithScores(QUEUE_KEY, 0, 0);
+        if (oldest != null && !oldest.isEmpty()) {
+            Double submittedAt = oldest.iterator().next().getScore();
+            if (submittedAt != null) oldestWaitingMs = Math.max(0, now - submittedAt.longValue());
+        }
+
+        return new GradingQueueStats(
+                queued != null ? queued : 0,
+                inFlight != null ? inFlight : 0,
+                oldestWaitingMs,
+                lastGradingLagMs.get(),
+                busyWorkers.get());
+    }
+
+    /**
+     * Claims batches for every idle worker on this node.
+     */
+    @Scheduled(fixedDelayString = "${exam.grading.poll-interval-ms:500}")
+    public void dispatch() {
+        if (!asyncEnabled) return;
+
+        while (workerSlots.tryAcquire()) {
+            List<Long> batch;
+            try {
+                batch = claim();
+            } catch (Exception e) {
+                workerSlots.release();
+                log.error("Failed to claim grading batch: {}", e.getMessage());
+                return;
+            }
+
+            if (batch.isEmpty()) {
+                workerSlots.release();
+                return;
+            }
+
+            workers.execute(() -> {
+                busyWorkers.incrementAndGet();
+                try {
+                    gradeBatch(batch);
+                } finally {
+                    busyWorkers.decrementAndGet();
+                    workerSlots.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Requeues SUBMITTED exams that are still ungraded well after submission, e.g. because
+     * the node crashed between commit and enqueue or Redis lost the queue. Parked sessions are
+     * excluded so they neither retry forever nor fill the recovery page.
+     */
+    @Scheduled(fixedDelayString = "${exam.grading.recovery-interval-ms:300000}")
+    public void recoverUnqueued() {
+        if (!asyncEnabled) return;
+
+        try {
+            LocalDateTime submittedBefore = LocalDateTime.now().minus(Duration.ofMillis(recoveryGraceMs));
+            List<Long> sessionIds = studentExamRepository.findSessionIdsAwaitingGrading(
+                    StudentExam.ExamStatus.SUBMITTED, submittedBefore, parkedSessionIds(),
+                    PageRequest.of(0, recoveryBatchSize));
+
+            sessionIds.forEach(this::enqueue);
+            if (!sessionIds.isEmpty()) {
+                log.warn("Requeued {} submitted exams that were waiting for grading", sessionIds.size());
+            }
+        } catch (Exception e) {
+            log.error("Failed to recover ungraded exams: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void enqueue(Long sessionId) {
+        redisTemplate.execute(ENQUEUE_SCRIPT, List.of(QUEUE_KEY, PROCESSING_KEY, SUBMITTED_AT_KEY, PARKED_KEY),
+                sessionId.toString(), String.valueOf(System.currentTimeMillis()));
+        log.debug("Queued session {} for grading", sessionId);
+    }
+
+    private Set<Long> parkedSessionIds() {
+        Set<Long> parked = new HashSet<>();
+        redisTemplate.opsForHash().keys(PARKED_KEY).forEach(field -> parked.add(Long.valueOf(field.toString())));
+        return parked;
+    }
+
+    private List<Long> claim() {
+        long now = System.currentTimeMillis();
+        List<Object> claimed = redisTemplate.execute(CLAIM_SCRIPT,
+                List.of(QUEUE_KEY, PROCESSING_KEY, SUBMITTED_AT_KEY),
+                String.valueOf(batchSize), String.valueOf(now), String.valueOf(now + leaseMs));
+
+        List<Long> sessionIds = new ArrayList<>();
+        if (claimed != null) {
+            claimed.forEach(member -> sessionIds.add(Long.valueOf(member.toString())));
+        }
+        return sessionIds;
+    }
+
+    /**
+     * Grades a batch in one transaction; a failing batch is split so one bad session cannot
+     * hold back the rest.
+     */
+    private void gradeBatch(List<Long> sessionIds) {
+        List<ExamGradedMessage> results;
+        try {
+            Map<Long, Long> submittedAt = submittedAt(sessionIds);
+            results = transactionTemplate.execute(status -> gradeInTransaction(sessionIds, submittedAt));
+        } catch (Exception e) {
+            if (sessionIds.size() > 1) {
+                log.warn("Grading batch of {} sessions failed, retrying per session: {}", sessionIds.size(), e.getMessage());
+                sessionIds.forEach(sessionId -> gradeBatch(List.of(sessionId)));
+            } else {
+                retryOrPark(sessionIds.get(0), e);
+            }
+            return;
+        }
+
+        redisTemplate.execute(COMPLETE_SCRIPT, List.of(PROCESSING_KEY, SUBMITTED_AT_KEY, ATTEMPTS_KEY),
+                sessionIds.stream().map(String::valueOf).toArray());
+
+        if (results != null) {
+            results.forEach(result ->
+                    messagingTemplate.convertAndSend("/topic/exam-completed/" + result.getSessionId(), result));
+            results.stream().mapToLong(ExamGradedMessage::getGradingLagMs).max()
+                    .ifPresent(lastGradingLagMs::set);
+            log.info("Graded {} submitted exams in one batch", results.size());
+        }
+    }
+
+    private List<ExamGradedMessage> gradeInTransaction(List<Long> sessionIds, Map<Long, Long> submittedAt) {
+        List<StudentExam> pending = new ArrayList<>();
+        for (StudentExam exam : studentExamRepository.findAllById(sessionIds)) {
+            // Already graded (e.g. requeued after a lost lease) or not submitted after all
+            if (Boolean.TRUE.equals(exam.getGraded()) || !Boolean.TRUE.equals(exam.getCompleted())) continue;
+
+            // Make every acknowledged autosave visible to the grading below
+            answerJournal.drain(exam.getSessionId());
+            pending.add(exam);
+        }
+        if (pending.isEmpty()) return List.of();
+
+        examGradingService.gradeExams(pending);
+
+        long now = System.currentTimeMillis();
+        List<ExamGradedMessage> results = new ArrayList<>(pending.size());
+        for (StudentExam exam : pending) {
+            Long submitted = submittedAt.get(exam.getSessionId());
+            results.add(ExamGradedMessage.builder()
+                    .sessionId(exam.getSessionId())
+                    .type(ExamGradedMessage.EventType.GRADED)
+                    .score(exam.getScore())
+                    .percentage(exam.getPercentage())
+                    .status(exam.getStatus() != null ? exam.getStatus().name() : null)
+                    .gradingLagMs(submitted != null ? now - submitted : 0L)
+                    .serverTime(now)
+                    .build());
+        }
+        return results;
+    }
+
+    private Map<Long, Long> submittedAt(List<Long> sessionIds) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(SUBMITTED_AT_KEY,
+                sessionIds.stream().map(id -> (Object) id.toString()).toList());
+
+        Map<Long, Long> submittedAt = new HashMap<>();
+        for (int i = 0; i < sessionIds.size(); i++) {
+            Object value = values != null ? values.get(i) : null;
+            if (value != null) submittedAt.put(sessionIds.get(i), Long.valueOf(value.toString()));
+        }
+        return submittedAt;
+    }
+
+    private void retryOrPark(Long sessionId, Exception cause) {
+        Long attempts = redisTemplate.execute(RETRY_SCRIPT,
+                List.of(QUEUE_KEY, PROCESSING_KEY, SUBMITTED_AT_KEY, ATTEMPTS_KEY, PARKED_KEY),
+                sessionId.toString(), String.valueOf(maxAttempts), String.valueOf(System.currentTimeMillis()));
+
+        if (attempts != null && attempts > 0) {
+            log.warn("Grading failed for session {} (attempt {}), requeued: {}", sessionId, attempts, cause.getMessage());
+            return;
+        }
+
+        log.error("Grading failed for session {} after {} attempts, parked: {}", sessionId, maxAttempts, cause.getMessage());
+        messagingTemplate.convertAndSend("/topic/exam-completed/" + sessionId, ExamGradedMessage.builder()
+                .sessionId(sessionId)
+                .type(ExamGradedMessage.EventType.GRADING_FAILED)
+                .serverTime(System.currentTimeMillis())
+                .build());
+    }
+}
@@ -0,0 +1,76 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import com.almubaraksuleiman.cbts.student.model.StudentExam;
+import lombok.Getter;
+
+/**
+ * Running totals of one exam session, accumulated while its answers are scored, and the exam
+ * results derived from them.
+ *
+ * Negative marking may take single questions below zero, but never the session: its total
+ * and percentage are floored at 0, so every graded session falls into the 0 to 100 range the
+ * score histograms and averages are built on.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Getter
+public final class SessionScore {
+
+    private double totalScore;
+    private double maxPossibleScore;
+    private int totalQuestions;
+    private int gradedQuestions;
+    private boolean hasEssays;
+    private int ungradedEssays;
+
+    public void add(GradableAnswer answer, double questionScore) {
+        totalScore += questionScore;
+        maxPossibleScore += answer.maxMarks();
+        totalQuestions++;
+        if (questionScore > 0) {
+            gradedQuestions++;
+        }
+        if (answer.type() == QuestionType.ESSAY) {
+            hasEssays = true;
+            if (questionScore == 0) {
+                ungradedEssays++;
+            }
+        }
+    }
+
+    /**
+     * @return sum of the question scores, at least 0
+     */
+    public double getTotalScore() {
+        return Math.max(0.0, totalScore);
+    }
+
+    /**
+     * @return percentage of the answered questions' max marks, rounded to 2 decimal places,
+     *         or null if nothing gradable was answered
+     */
+    public Double percentage() {
+        if (maxPossibleScore <= 0) return null;
+        double percentage = (getTotalScore() / maxPossibleScore) * 100;
+        return Math.round(percentage * 100.0) / 100.0;
+    }
+
+    /**
+     * @return PARTIALLY_GRADED while essays are still waiting for a manual score
+     */
+    public StudentExam.ExamStatus status() {
+        return hasEssays && ungradedEssays > 0
+                ? StudentExam.ExamStatus.PARTIALLY_GRADED
+                : StudentExam.ExamStatus.FULLY_GRADED;
+    }
+
+    /**
+     * @return share of answered questions that scored, in whole percent
+     */
+    public int autoGradedPercent() {
+        return totalQuestions > 0 ? (gradedQuestions * 100) / totalQuestions : 0;
+    }
+}
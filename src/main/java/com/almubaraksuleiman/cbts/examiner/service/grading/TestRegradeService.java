@@ -0,0 +1,372 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.service.analytics.SessionContribution;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerBatchRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamBatchRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Regrades every graded session of a test against the current answer keys, e.g. after an
+ * examiner corrected a wrong correctAnswer.
+ *
+ * The job walks the test's graded sessions in session ID order, in chunks of chunk-sessions.
+ * For each chunk it reads all answers with one grading projection query and scores them on
+ * a shared ForkJoinPool. It then writes changed answer scores and the sessions'
+ * score/percentage/status as two JDBC batches in one transaction. A chunk always holds whole
+ * sessions, so exam totals are exact without a second pass.
+ *
+ * Progress lives in the Redis hash "exam:regrade:{testId}". Its cursor (last session ID
+ * written) advances only after a chunk commits, together with the chunk's counts, and only
+ * for the node holding the job lock and past the current cursor. A job whose node dies keeps
+ * status RUNNING without a live lock, and any node resumes it from the cursor. Rescoring a
+ * chunk is idempotent, so a chunk interrupted between commit and cursor update is safe to
+ * redo, and a redone chunk is counted once.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class TestRegradeService {
+
+    /** Set of test IDs with a job that is running or must be resumed */
+    private static final String ACTIVE_JOBS_KEY = "exam:regrade:jobs";
+
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_FAILED = "FAILED";
+
+    /** Extends the job lock only while this node still owns it (ARGV[1] = token, ARGV[2] = ttl ms) */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end " +
+            "return 0", Long.class);
+
+    /**
+     * Records a committed chunk if this node still owns the job and the chunk is past the
+     * cursor (KEYS = state, lock; ARGV = token, last session ID, sessions, changed answers, now)
+     */
+    private static final RedisScript<Long> ADVANCE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[2]) ~= ARGV[1] then return 0 end " +
+            "if tonumber(redis.call('HGET', KEYS[1], 'lastSessionId') or '0') >= tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'lastSessionId', ARGV[2], 'updatedAt', ARGV[5]) " +
+            "redis.call('HINCRBY', KEYS[1], 'processedSessions', ARGV[3]) " +
+            "redis.call('HINCRBY', KEYS[1], 'changedAnswers', ARGV[4]) " +
+            "return 1", Long.class);
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    /**
+     * Progress of a regrade job.
+     *
+     * @param status RUNNING, COMPLETED, FAILED or NONE if the test was never regraded
+     * @param lastSessionId cursor: last session ID whose results are committed
+     * @param changedAnswers answers whose score changed so far
+     */
+    public record RegradeProgress(Long testId, String status, long totalSessions, long processedSessions,
+                                  long changedAnswers, long lastSessionId, Long startedAt, Long updatedAt,
+                                  String error) {
+
+        public double percentComplete() {
+            return totalSessions > 0 ? Math.min(100.0, processedSessions * 100.0 / totalSessions) : 100.0;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final StudentExamRepository studentExamRepository;
+    private final StudentAnswerRepository answerRepository;
+    private final StudentAnswerBatchRepository answerBatchRepository;
+    private final StudentExamBatchRepository examBatchRepository;
+    private final AnswerMatcherCache matcherCache;
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService jobs;
+    private final ForkJoinPool scoringPool;
+
+    @Value("${exam.regrade.chunk-sessions:200}")
+    private int chunkSessions;
+
+    @Value("${exam.regrade.lock-ttl-ms:120000}")
+    private long lockTtlMs;
+
+    public TestRegradeService(StringRedisTemplate redisTemplate,
+                              StudentExamRepository studentExamRepository,
+                              StudentAnswerRepository answerRepository,
+                              StudentAnswerBatchRepository answerBatchRepository,
+                              StudentExamBatchRepository examBatchRepository,
+                              AnswerMatcherCache matcherCache,
+                              TestAnalyticsAccumulator analyticsAccumulator,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${exam.regrade.concurrent-jobs:2}") int concurrentJobs,
+                              @Value("${exam.regrade.parallelism:0}") int parallelism) {
+        this.redisTemplate = redisTemplate;
+        this.studentExamRepository = studentExamRepository;
+        this.answerRepository = answerRepository;
+        this.answerBatchRepository = answerBatchRepository;
+        this.examBatchRepository = examBatchRepository;
+        this.matcherCache = matcherCache;
+        this.analyticsAccumulator = analyticsAccumulator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scoringPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.jobs = Executors.newFixedThreadPool(concurrentJobs, runnable -> {
+            Thread thread = new Thread(runnable, "regrade-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts regrading a test in the background. If a job for the test is already running,
+     * its progress is returned instead of starting another; an abandoned one is resumed.
+     */
+    public RegradeProgress start(Long testId) {
+        String token = UUID.randomUUID().toString();
+        if (!tryLock(testId, token)) {
+            log.info("Regrade of test {} is already running", testId);
+            return getProgress(testId);
+        }
+
+        try {
+            if (STATUS_RUNNING.equals(redisTemplate.opsForHash().get(stateKey(testId), "status"))) {
+                log.warn("Resuming abandoned regrade of test {}", testId);
+                jobs.execute(() -> run(testId, token));
+                return getProgress(testId);
+            }
+
+            long now = System.currentTimeMillis();
+            Map<String, String> state = new HashMap<>();
+            state.put("status", STATUS_RUNNING);
+            state.put("totalSessions", String.valueOf(studentExamRepository.countGradedByTestId(testId)));
+            state.put("processedSessions", "0");
+            state.put("changedAnswers", "0");
+            state.put("lastSessionId", "0");
+            state.put("startedAt", String.valueOf(now));
+            state.put("updatedAt", String.valueOf(now));
+            redisTemplate.delete(stateKey(testId));
+            redisTemplate.opsForHash().putAll(stateKey(testId), state);
+            redisTemplate.opsForSet().add(ACTIVE_JOBS_KEY, testId.toString());
+
+            jobs.execute(() -> run(testId, token));
+        } catch (RuntimeException e) {
+            unlock(testId, token);
+            throw e;
+        }
+
+        log.info("Started regrade of test {}", testId);
+        return getProgress(testId);
+    }
+
+    /**
+     * Current progress of the test's latest regrade job.
+     */
+    public RegradeProgress getProgress(Long testId) {
+        Map<Object, Object> state = redisTemplate.opsForHash().entries(stateKey(testId));
+        if (state.isEmpty()) {
+            return new RegradeProgress(testId, "NONE", 0, 0, 0, 0, null, null, null);
+        }
+        return new RegradeProgress(
+                testId,
+                (String) state.get("status"),
+                longField(state, "totalSessions"),
+                longField(state, "processedSessions"),
+                longField(state, "changedAnswers"),
+                longField(state, "lastSessionId"),
+                state.containsKey("startedAt") ? longField(state, "startedAt") : null,
+                state.containsKey("updatedAt") ? longField(state, "updatedAt") : null,
+                (String) state.get("error"));
+    }
+
+    /**
+     * Picks up RUNNING jobs whose node died (the lock expired) and continues them from their cursor.
+     */
+    @Scheduled(fixedDelayString = "${exam.regrade.resume-interval-ms:60000}")
+    public void resumeAbandonedJobs() {
+        try {
+            Set<String> active = redisTemplate.opsForSet().members(ACTIVE_JOBS_KEY);
+            if (active == null) return;
+
+            for (String member : active) {
+                Long testId = Long.valueOf(member);
+                if (!STATUS_RUNNING.equals(redisTemplate.opsForHash().get(stateKey(testId), "status"))) {
+                    redisTemplate.opsForSet().remove(ACTIVE_JOBS_KEY, member);
+                    continue;
+                }
+
+                String token = UUID.randomUUID().toString();
+                if (tryLock(testId, token)) {
+                    log.warn("Resuming abandoned regrade of test {}", testId);
+                    jobs.execute(() -> run(testId, token));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to resume regrade jobs: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdownNow();
+        scoringPool.shutdownNow();
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    private void run(Long testId, String token) {
+        try {
+            // Each question's matcher is resolved against its current key once per job
+            AnswerScorer scorer = new AnswerScorer(matcherCache);
+            long cursor = longField(redisTemplate.opsForHash().entries(stateKey(testId)), "lastSessionId");
+
+            while (true) {
+                if (!renewLock(testId, token)) {
+                    log.warn("Lost the lock of regrade job for test {}, stopping at session {}", testId, cursor);
+                    return;
+                }
+
+                List<Long> sessionIds = studentExamRepository.findGradedSessionIdsAfter(
+                        testId, cursor, PageRequest.of(0, chunkSessions));
+                if (sessionIds.isEmpty()) break;
+
+                Integer changed = transactionTemplate.execute(status -> regradeChunk(testId, sessionIds, scorer));
+                long chunkEnd = sessionIds.get(sessionIds.size() - 1);
+
+                if (!recordChunk(testId, token, chunkEnd, sessionIds.size(), changed != null ? changed : 0)) {
+                    log.warn("Lost the regrade job of test {} while rescoring sessions {} to {}, leaving them to its new owner",
+                            testId, sessionIds.get(0), chunkEnd);
+                    return;
+                }
+                cursor = chunkEnd;
+            }
+
+            redisTemplate.opsForHash().putAll(stateKey(testId), Map.of(
+                    "status", STATUS_COMPLETED, "updatedAt", String.valueOf(System.currentTimeMillis())));
+            redisTemplate.opsForSet().remove(ACTIVE_JOBS_KEY, testId.toString());
+
+            RegradeProgress progress = getProgress(testId);
+            log.info("Regrade of test {} completed: {} sessions, {} answers changed",
+                    testId, progress.processedSessions(), progress.changedAnswers());
+        } catch (Exception e) {
+            log.error("Regrade of test {} failed: {}", testId, e.getMessage());
+            redisTemplate.opsForHash().putAll(stateKey(testId), Map.of(
+                    "status", STATUS_FAILED, "error", String.valueOf(e.getMessage())));
+            redisTemplate.opsForSet().remove(ACTIVE_JOBS_KEY, testId.toString());
+        } finally {
+            unlock(testId, token);
+        }
+    }
+
+    /**
+     * Rescores one chunk of whole sessions and writes answers and exam results.
+     *
+     * @return number of answers whose score changed
+     */
+    private int regradeChunk(Long testId, List<Long> sessionIds, AnswerScorer scorer) {
+        List<GradableAnswer> answers = answerRepository.findGradingRowsBySessionIds(sessionIds).stream()
+                .map(GradableAnswer::of)
+                .toList();
+
+        double[] scores = scoreInParallel(answers, scorer);
+
+        Map<Long, SessionScore> sessionScores = new LinkedHashMap<>();
+        Map<Long, SessionContribution> contributions = new HashMap<>();
+        sessionIds.forEach(sessionId -> {
+            sessionScores.put(sessionId, new SessionScore());
+            contributions.put(sessionId, new SessionContribution().withAnswers());
+        });
+
+        List<StudentAnswerBatchRepository.ScoreUpdate> scoreUpdates = new ArrayList<>();
+        for (int i = 0; i < answers.size(); i++) {
+            GradableAnswer answer = answers.get(i);
+            if (!Objects.equals(answer.score(), scores[i])) {
+                scoreUpdates.add(new StudentAnswerBatchRepository.ScoreUpdate(answer.answerId(), scores[i]));
+            }
+            sessionScores.get(answer.sessionId()).add(answer, scores[i]);
+            contributions.get(answer.sessionId()).answer(answer.questionId(), scorer.isCorrect(answer));
+        }
+
+        List<StudentExamBatchRepository.ResultUpdate> resultUpdates = new ArrayList<>(sessionScores.size());
+        sessionScores.forEach((sessionId, sessionScore) -> resultUpdates.add(new StudentExamBatchRepository.ResultUpdate(
+                sessionId, (int) sessionScore.getTotalScore(), sessionScore.percentage(), sessionScore.status().name())));
+
+        answerBatchRepository.updateScores(scoreUpdates);
+        examBatchRepository.updateResults(resultUpdates);
+
+        // Sessions keep their previous percentage when nothing gradable was answered
+        sessionScores.forEach((sessionId, sessionScore) -> analyticsAccumulator.record(testId, sessionId,
+                analyticsAccumulator.graded(sessionScore.percentage(), contributions.get(sessionId))));
+        return scoreUpdates.size();
+    }
+
+    private double[] scoreInParallel(List<GradableAnswer> answers, AnswerScorer scorer) {
+        try {
+            return scoringPool.submit(() -> answers.parallelStream().mapToDouble(scorer::score).toArray()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scoring regrade chunk", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to score regrade chunk", e.getCause());
+        }
+    }
+
+    /**
+     * @return false if the job lock has passed to another node, which redoes the chunk
+     */
+    private boolean recordChunk(Long testId, String token, long cursor, int sessions, int changedAnswers) {
+        Long advanced = redisTemplate.execute(ADVANCE_SCRIPT, List.of(stateKey(testId), lockKey(testId)),
+                token, String.valueOf(cursor), String.valueOf(sessions), String.valueOf(changedAnswers),
+                String.valueOf(System.currentTimeMillis()));
+        return advanced != null && advanced > 0;
+    }
+
+    private boolean tryLock(Long testId, String token) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(lockKey(testId), token, Duration.ofMillis(lockTtlMs)));
+    }
+
+    private boolean renewLock(Long testId, String token) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(lockKey(testId)), token, String.valueOf(lockTtlMs));
+        return renewed != null && renewed > 0;
+    }
+
+    private void unlock(Long testId, String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey(testId)), token);
+    }
+
+    private static long longField(Map<Object, Object> state, String field) {
+        Object value = state.get(field);
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    private static String stateKey(Long testId) {
+        return "exam:regrade:" + testId;
+    }
+
+    private static String lockKey(Long testId) {
+        return "exam:regrade:" + testId + ":lock";
+    }
+}
@@ -0,0 +1,439 @@
+package com.almubaraksuleiman.cbts.examiner.service.impl;
+
+import com.almubaraksuleiman.cbts.examiner.model.AnalyticsData;
+import com.almubaraksuleiman.cbts.examiner.model.AnalyticsFilters;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionAnalysis;
+import com.almubaraksuleiman.cbts.examiner.model.ScoreDistribution;
+import com.almubaraksuleiman.cbts.examiner.model.StudentPerformance;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes analytics and student result reports (PDF, Excel, CSV) straight to an output
+ * stream, typically a StreamingResponseBody.
+ *
+ * Only the test-level sections (summary, score distribution, questions) are held in memory;
+ * student rows come from a forward-only cursor and are written as they are read. Excel
+ * keeps a bounded window of rows in memory and uses fixed column widths, CSV is written
+ * through a small buffer, and PDF pages are closed as they fill, their content kept in a
+ * scratch file rather than on the heap. Peak memory therefore does not grow with the cohort.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsReportService {
+
+    private static final DateTimeFormatter GENERATED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final String[] STUDENT_HEADERS = {"Student ID", "Name", "Score", "Time Spent (min)", "Status", "Submitted At"};
+
+    private final AnalyticsService analyticsService;
+
+    /** Excel rows kept in memory per sheet; older rows are flushed to a temp file */
+    @Value("${exam.reports.excel.row-window:200}")
+    private int excelRowWindow;
+
+    // ==================== EXCEL ====================
+
+    public void writeExcelReport(AnalyticsData analytics, AnalyticsFilters filters, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelRowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            // Create styles
+            CellStyle headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            CellStyle highlightStyle = workbook.createCellStyle();
+            highlightStyle.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
+            highlightStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            // Summary Sheet
+            Sheet summarySheet = workbook.createSheet("Summary");
+            setColumnWidths(summarySheet, 24, 48);
+
+            Row testRow = summarySheet.createRow(0);
+            testRow.createCell(0).setCellValue("Test Analytics Report");
+
+            Row titleRow = summarySheet.createRow(2);
+            titleRow.createCell(0).setCellValue("Test:");
+            titleRow.createCell(1).setCellValue(analytics.getTest().getTitle());
+
+            int rowNum = 3;
+            String[][] testData = {
+                    {"Duration", analytics.getTest().getDurationMinutes() + " minutes"},
+                    {"Total Questions", String.valueOf(analytics.getTest().getNumberOfQuestions())},
+                    {"Passing Score", analytics.getTest().getPassingScore() + "%"},
+                    {"", ""}
+            };
+            for (String[] data : testData) {
+                Row row = summarySheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(data[0]);
+                row.createCell(1).setCellValue(data[1]);
+            }
+            for (String[] data : summaryRows(analytics)) {
+                Row row = summarySheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(data[0]);
+                row.createCell(1).setCellValue(data[1]);
+            }
+
+            // Score Distribution Sheet
+            Sheet scoreSheet = workbook.createSheet("Score Distribution");
+            setColumnWidths(scoreSheet, 14, 16, 12);
+            writeHeader(scoreSheet, headerStyle, "Score Range", "Student Count", "Percentage");
+
+            rowNum = 1;
+            for (ScoreDistribution dist : analytics.getScoreDistribution()) {
+                Row row = scoreSheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(dist.getScore() + "%");
+                row.createCell(1).setCellValue(dist.getCount());
+                row.createCell(2).setCellValue(String.format("%.1f%%", distributionPercentage(analytics, dist)));
+            }
+
+            // Question Analysis Sheet
+            Sheet questionSheet = workbook.createSheet("Question Performance");
+            setColumnWidths(questionSheet, 12, 60, 10, 10, 10, 12, 14);
+            String[] questionHeaders = {"Question ID", "Question Text", "Correct", "Incorrect", "Accuracy", "Difficulty", "Avg Time (s)"};
+            writeHeader(questionSheet, headerStyle, questionHeaders);
+
+            rowNum = 1;
+            for (QuestionAnalysis qa : analytics.getQuestionAnalysis()) {
+                Row row = questionSheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(qa.getQuestionId());
+                row.createCell(1).setCellValue(qa.getText());
+                row.createCell(2).setCellValue(qa.getCorrectAnswers());
+                row.createCell(3).setCellValue(qa.getIncorrectAnswers());
+                row.createCell(4).setCellValue(String.format("%.1f%%", accuracy(qa)));
+                row.createCell(5).setCellValue(qa.getDifficulty());
+                row.createCell(6).setCellValue(String.format("%.1f", qa.getAverageTime()));
+
+                // Highlight difficult questions
+                if ("hard".equals(qa.getDifficulty())) {
+                    for (int i = 0; i < questionHeaders.length; i++) {
+                        row.getCell(i).setCellStyle(highlightStyle);
+                    }
+                }
+            }
+
+            // Student Performance Sheet: every student, streamed from the database
+            Sheet studentSheet = workbook.createSheet("Students");
+            setColumnWidths(studentSheet, 12, 32, 10, 16, 12, 20);
+            writeHeader(studentSheet, headerStyle, STUDENT_HEADERS);
+
+            int[] studentRow = {1};
+            analyticsService.streamStudentPerformance(analytics.getTest().getId(), filters, sp -> {
+                Row row = studentSheet.createRow(studentRow[0]++);
+                String[] values = studentValues(sp);
+                for (int i = 0; i < values.length; i++) {
+                    row.createCell(i).setCellValue(values[i]);
+                }
+            });
+
+            workbook.write(out);
+            log.info("Wrote Excel report of test {} with {} students", analytics.getTest().getId(), studentRow[0] - 1);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void setColumnWidths(Sheet sheet, int... widthsInChars) {
+        for (int i = 0; i < widthsInChars.length; i++) {
+            sheet.setColumnWidth(i, widthsInChars[i] * 256);
+        }
+    }
+
+    private static void writeHeader(Sheet sheet, CellStyle style, String... headers) {
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(style);
+        }
+    }
+
+    // ==================== CSV ====================
+
+    public void writeCsvReport(AnalyticsData analytics, AnalyticsFilters filters, OutputStream out) throws IOException {
+        Writer csv = csvWriter(out);
+
+        // Header
+        csv.append("Test Analytics Report\n");
+        csv.append("Test:,").append(csvValue(analytics.getTest().getTitle())).append("\n");
+        csv.append("Generated:,").append(String.valueOf(LocalDateTime.now())).append("\n\n");
+
+        // Summary
+        csv.append("SUMMARY\n");
+        csv.append("Metric,Value\n");
+        csv.append("Total Students,").append(String.valueOf(analytics.getSummary().getTotalStudents())).append("\n");
+        csv.append("Completed Students,").append(String.valueOf(analytics.getSummary().getCompletedStudents())).append("\n");
+        csv.append("Average Score,").append(String.format("%.1f", analytics.getSummary().getAverageScore())).append("\n");
+        csv.append("Pass Rate,").append(String.format("%.1f", analytics.getSummary().getPassRate())).append("\n");
+        csv.append("Average Time Spent,").append(String.format("%.1f", analytics.getSummary().getAverageTimeSpent())).append("\n\n");
+
+        // Score Distribution
+        csv.append("SCORE DISTRIBUTION\n");
+        csv.append("Score Range,Student Count,Percentage\n");
+        for (ScoreDistribution dist : analytics.getScoreDistribution()) {
+            csv.append(String.valueOf(dist.getScore())).append("%,")
+                    .append(String.valueOf(dist.getCount())).append(",")
+                    .append(String.format("%.1f", distributionPercentage(analytics, dist))).append("%\n");
+        }
+        csv.append("\n");
+
+        // Question Performance
+        csv.append("QUESTION PERFORMANCE\n");
+        csv.append("Question ID,Correct Answers,Incorrect Answers,Accuracy,Difficulty,Average Time\n");
+        for (QuestionAnalysis qa : analytics.getQuestionAnalysis()) {
+            csv.append(String.valueOf(qa.getQuestionId())).append(",")
+                    .append(String.valueOf(qa.getCorrectAnswers())).append(",")
+                    .append(String.valueOf(qa.getIncorrectAnswers())).append(",")
+                    .append(String.format("%.1f", accuracy(qa))).append("%,")
+                    .append(csvValue(qa.getDifficulty())).append(",")
+                    .append(String.format("%.1f", qa.getAverageTime())).append("\n");
+        }
+        csv.append("\n");
+
+        // Student Performance
+        csv.append("STUDENTS\n");
+        writeStudentRows(csv, analytics.getTest().getId(), filters);
+        csv.flush();
+    }
+
+    /**
+     * Student results of a test as a plain CSV table, highest score first.
+     */
+    public void writeStudentResultsCsv(Long testId, OutputStream out) throws IOException {
+        Writer csv = csvWriter(out);
+        writeStudentRows(csv, testId, null);
+        csv.flush();
+    }
+
+    private void writeStudentRows(Writer csv, Long testId, AnalyticsFilters filters) throws IOException {
+        csv.append(String.join(",", STUDENT_HEADERS)).append("\n");
+        try {
+            analyticsService.streamStudentPerformance(testId, filters, sp -> {
+                try {
+                    csv.append(Arrays.stream(studentValues(sp))
+                            .map(AnalyticsReportService::csvValue)
+                            .collect(Collectors.joining(","))).append("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Writer csvWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Quotes a value containing a separator, quote or line break.
+     */
+    private static String csvValue(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // ==================== PDF ====================
+
+    public void writePdfReport(AnalyticsData analytics, AnalyticsFilters filters, OutputStream out) throws IOException {
+        // Page content goes to a scratch file, so finished pages do not stay on the heap
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            PdfPages pdf = new PdfPages(document);
+
+            pdf.line(PDType1Font.HELVETICA_BOLD, 16, 0, "Test Analytics Report");
+            pdf.skip(22);
+
+            // Test Information
+            pdf.line(PDType1Font.HELVETICA_BOLD, 12, 0, "Test: " + analytics.getTest().getTitle());
+            pdf.line(PDType1Font.HELVETICA, 10, 0, "Duration: " + analytics.getTest().getDurationMinutes() + " minutes | " +
+                    "Questions: " + analytics.getTest().getNumberOfQuestions() + " | " +
+                    "Passing Score: " + analytics.getTest().getPassingScore() + "%");
+            pdf.skip(PdfPages.LINE_HEIGHT);
+
+            // Summary Section
+            pdf.line(PDType1Font.HELVETICA_BOLD, 12, 0, "Performance Summary");
+            for (String[] data : summaryRows(analytics)) {
+                pdf.line(PDType1Font.HELVETICA, 10, 10, data[0] + ": " + data[1]);
+            }
+            pdf.skip(PdfPages.LINE_HEIGHT);
+
+            // Score Distribution
+            pdf.line(PDType1Font.HELVETICA_BOLD, 12, 0, "Score Distribution");
+            for (ScoreDistribution dist : analytics.getScoreDistribution()) {
+                pdf.line(PDType1Font.HELVETICA, 9, 10, String.format("%3d%%: %3d students (%.1f%%)",
+                        dist.getScore(), dist.getCount(), distributionPercentage(analytics, dist)));
+            }
+            pdf.skip(PdfPages.LINE_HEIGHT);
+
+            // Question Performance (Top 10 most difficult)
+            pdf.line(PDType1Font.HELVETICA_BOLD, 12, 0, "Top 10 Most Difficult Questions");
+            List<QuestionAnalysis> difficultQuestions = analytics.getQuestionAnalysis().stream()
+                    .sorted(Comparator.comparingDouble(AnalyticsReportService::accuracy))
+                    .limit(10)
+                    .collect(Collectors.toList());
+            for (QuestionAnalysis qa : difficultQuestions) {
+                pdf.line(PDType1Font.HELVETICA, 9, 10, String.format("Q%d: %.1f%% correct (%s)",
+                        qa.getQuestionId(), accuracy(qa), qa.getDifficulty()));
+            }
+            pdf.skip(PdfPages.LINE_HEIGHT);
+
+            // Student Performance, streamed page by page
+            pdf.line(PDType1Font.HELVETICA_BOLD, 12, 0, "Students");
+            try {
+                analyticsService.streamStudentPerformance(analytics.getTest().getId(), filters, sp -> {
+                    try {
+                        pdf.line(PDType1Font.HELVETICA, 9, 10, String.format("%-10s %-36.36s %6.1f%% %6.0f min  %-12s %s",
+                                sp.getStudentId(), sp.getName(), sp.getScore(), sp.getTimeSpent(), sp.getStatus(),
+                                sp.getSubmittedAt() != null ? sp.getSubmittedAt().format(GENERATED_FORMAT) : "N/A"));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            pdf.finish();
+            document.save(out);
+        }
+    }
+
+    /**
+     * Writes lines top to bottom, starting a new page when the current one is full. Each
+     * page's content stream is closed as soon as the page is, with its footer.
+     */
+    private static final class PdfPages {
+
+        private static final float MARGIN = 50;
+        private static final float LINE_HEIGHT = 14;
+
+        private final PDDocument document;
+        private final String generated = "Generated on: " + LocalDateTime.now().format(GENERATED_FORMAT);
+        private PDPageContentStream contentStream;
+        private float yPosition;
+        private int pageNumber;
+
+        private PdfPages(PDDocument document) throws IOException {
+            this.document = document;
+            newPage();
+        }
+
+        private void line(PDFont font, float fontSize, float indent, String text) throws IOException {
+            if (yPosition < MARGIN + LINE_HEIGHT * 2) {
+                newPage();
+            }
+            contentStream.beginText();
+            contentStream.setFont(font, fontSize);
+            contentStream.newLineAtOffset(MARGIN + indent, yPosition);
+            contentStream.showText(printable(text));
+            contentStream.endText();
+            yPosition -= LINE_HEIGHT;
+        }
+
+        private void skip(float height) {
+            yPosition -= height;
+        }
+
+        private void newPage() throws IOException {
+            finish();
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            yPosition = PDRectangle.A4.getHeight() - MARGIN;
+            pageNumber++;
+        }
+
+        private void finish() throws IOException {
+            if (contentStream == null) return;
+
+            // Footer with generation date
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 8);
+            contentStream.newLineAtOffset(MARGIN, MARGIN);
+            contentStream.showText(generated + " | Page " + pageNumber);
+            contentStream.endText();
+            contentStream.close();
+            contentStream = null;
+        }
+
+        /**
+         * The standard 14 fonts only encode Latin-1; other characters are replaced.
+         */
+        private static String printable(String text) {
+            if (text == null) return "";
+            StringBuilder printable = new StringBuilder(text.length());
+            for (char c : text.toCharArray()) {
+                printable.append((c >= 0x20 && c <= 0x7E) || (c >= 0xA0 && c <= 0xFF) ? c : '?');
+            }
+            return printable.toString();
+        }
+    }
+
+    // ==================== SHARED ====================
+
+    private static String[][] summaryRows(AnalyticsData analytics) {
+        return new String[][]{
+                {"Total Students", String.valueOf(analytics.getSummary().getTotalStudents())},
+                {"Completed Students", String.valueOf(analytics.getSummary().getCompletedStudents())},
+                {"Average Score", String.format("%.1f%%", analytics.getSummary().getAverageScore())},
+                {"Pass Rate", String.format("%.1f%%", analytics.getSummary().getPassRate())},
+                {"Average Time Spent", String.format("%.1f min", analytics.getSummary().getAverageTimeSpent())}
+        };
+    }
+
+    private static String[] studentValues(StudentPerformance sp) {
+        return new String[]{
+                sp.getStudentId(),
+                sp.getName(),
+                String.format("%.1f%%", sp.getScore()),
+                String.format("%.1f", sp.getTimeSpent()),
+                sp.getStatus(),
+                sp.getSubmittedAt() != null ? sp.getSubmittedAt().toString() : "N/A"
+        };
+    }
+
+    private static double distributionPercentage(AnalyticsData analytics, ScoreDistribution dist) {
+        return analytics.getSummary().getTotalStudents() > 0 ?
+                (double) dist.getCount() / analytics.getSummary().getTotalStudents() * 100 : 0;
+    }
+
+    private static double accuracy(QuestionAnalysis qa) {
+        long attempts = qa.getCorrectAnswers() + qa.getIncorrectAnswers();
+        return attempts > 0 ? (double) qa.getCorrectAnswers() / attempts * 100 : 0;
+    }
+}
@@ -3,34 +3,28 @@ package com.almubaraksuleiman.cbts.examiner.service.impl;
 
 import com.almubaraksuleiman.cbts.examiner.model.*;
 import com.almubaraksuleiman.cbts.student.model.StudentExam;
-import com.almubaraksuleiman.cbts.student.model.StudentAnswer;
+import com.almubaraksuleiman.cbts.examiner.repository.QuestionTimeStatsRepository;
 import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsState;
+import com.almubaraksuleiman.cbts.examiner.service.grading.AnswerMatcherCache;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentPerformanceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-
-// Add these imports for PDFBox
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,6 +36,12 @@ public class AnalyticsService {
     private final StudentExamQuestionRepository studentExamQuestionRepository;
     private final StudentAnswerRepository studentAnswerRepository;
     private final TestRepository testRepository;
+    private final StudentPerformanceRepository studentPerformanceRepository;
+    private final QuestionTimeStatsRepository questionTimeStatsRepository;
+    private final AnswerMatcherCache matcherCache;
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+
+    private static final int TOP_PERFORMERS = 10;
 
     public AnalyticsData getTestAnalytics(Long testId, AnalyticsFilters filters) {
         log.info("Fetching analytics for test ID: {} with filters: {}", testId, filters);
@@ -52,9 +52,18 @@ public class AnalyticsService {
         }
         
         Test test = testOpt.get();
+
+        // Unfiltered analytics come from the incrementally maintained per-test state
+        if (filterStartTime(filters) == null) {
+            Optional<TestAnalyticsState> state = analyticsAccumulator.read(testId, TOP_PERFORMERS);
+            if (state.isPresent()) {
+                return buildAnalyticsData(test, state.get());
+            }
+        }
+
         List<StudentExam> studentExams = getFilteredStudentExams(testId, filters);
         
-        return buildAnalyticsData(test, studentExams);
+        return buildAnalyticsData(test, filters, studentExams);
     }
 
     public Page<QuestionAnalysis> getQuestionAnalysisWithPagination(
@@ -68,8 +77,7 @@ public class AnalyticsService {
         }
 
         Test test = testOpt.get();
-        List<StudentExam> studentExams = getFilteredStudentExams(testId, filters);
-        List<QuestionAnalysis> allQuestions = buildQuestionAnalysis(test.getId(), studentExams);
+        List<QuestionAnalysis> allQuestions = buildQuestionAnalysis(test.getId(), filterStartTime(filters));
 
         // Implement manual pagination since we're processing in memory
         int start = (int) pageable.getOffset();
@@ -85,6 +93,10 @@ public class AnalyticsService {
     }
 
 
+    /**
+     * One page of a test's student performance. Search, status filter, sort and page are
+     * applied by the database, so only the requested rows are read.
+     */
     public Page<StudentPerformance> getStudentPerformanceWithPagination(
             Long testId,
             AnalyticsFilters filters,
@@ -95,131 +107,63 @@ public class AnalyticsService {
         log.info("Fetching student performance for test ID: {} with filters: {}, search: {}, status: {}",
                 testId, filters, search, status);
 
-        Optional<Test> testOpt = testRepository.findById(testId);
-        if (testOpt.isEmpty()) {
+        if (!testRepository.existsById(testId)) {
             throw new RuntimeException("Test not found with ID: " + testId);
         }
 
-        List<StudentExam> studentExams = getFilteredStudentExams(testId, filters);
-        List<StudentPerformance> allStudents = buildStudentPerformance(studentExams);
-
-        // Apply search filter
-        if (search != null && !search.trim().isEmpty()) {
-            String searchTerm = search.toLowerCase().trim();
-            allStudents = allStudents.stream()
-                    .filter(student ->
-                            student.getName().toLowerCase().contains(searchTerm) ||
-                                    student.getStudentId().toLowerCase().contains(searchTerm))
-                    .collect(Collectors.toList());
-        }
-
-        // Apply status filter
-        if (status != null && !status.equals("all")) {
-            allStudents = allStudents.stream()
-                    .filter(student -> student.getStatus().equals(status))
-                    .collect(Collectors.toList());
-        }
-
-        // Apply sorting based on pageable
-        allStudents = applySorting(allStudents, pageable.getSort());
-
-        // Implement manual pagination
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), allStudents.size());
-
-        if (start > allStudents.size()) {
-            return new PageImpl<>(Collections.emptyList(), pageable, allStudents.size());
-        }
-
-        List<StudentPerformance> paginatedStudents = allStudents.subList(start, end);
-
-        return new PageImpl<>(paginatedStudents, pageable, allStudents.size());
+        return studentPerformanceRepository.findByTest(testId, filterStartTime(filters), search, status, pageable);
     }
 
-    private List<StudentPerformance> applySorting(List<StudentPerformance> students, Sort sort) {
-        if (sort == null || !sort.iterator().hasNext()) {
-            return students;
-        }
-
-        Sort.Order order = sort.iterator().next();
-        String property = order.getProperty();
-        Sort.Direction direction = order.getDirection();
-
-        List<StudentPerformance> sortedStudents = new ArrayList<>(students);
-
-        sortedStudents.sort((s1, s2) -> {
-            int comparison = 0;
-
-            switch (property) {
-                case "name":
-                    comparison = s1.getName().compareToIgnoreCase(s2.getName());
-                    break;
-                case "score":
-                    comparison = Double.compare(s1.getScore(), s2.getScore());
-                    break;
-                case "timeSpent":
-                    comparison = Double.compare(s1.getTimeSpent(), s2.getTimeSpent());
-                    break;
-                case "status":
-                    comparison = s1.getStatus().compareTo(s2.getStatus());
-                    break;
-//                case "submittedAt":
-//                    comparison = compareDates(s1.getSubmittedAt(), s2.getSubmittedAt());
-//                    break;
-                default:
-                    comparison = Double.compare(s1.getScore(), s2.getScore());
-            }
-
-            return direction == Sort.Direction.ASC ? comparison : -comparison;
-        });
-
-        return sortedStudents;
-    }
-
-    private int compareDates(Date date1, Date date2) {
-        if (date1 == null && date2 == null) return 0;
-        if (date1 == null) return -1;
-        if (date2 == null) return 1;
-        return date1.compareTo(date2);
+    /**
+     * Passes the performance of every student of the test within the filters' date range to
+     * the consumer, highest score first, without loading the cohort into memory.
+     */
+    public void streamStudentPerformance(Long testId, AnalyticsFilters filters, Consumer<StudentPerformance> consumer) {
+        studentPerformanceRepository.streamByTest(testId, filterStartTime(filters), consumer);
     }
 
     private List<StudentExam> getFilteredStudentExams(Long testId, AnalyticsFilters filters) {
         List<StudentExam> allExams = studentExamRepository.findByTestId(testId);
         
-        if (filters == null || filters.getDateRange() == null || "all".equals(filters.getDateRange())) {
+        LocalDateTime startedFrom = filterStartTime(filters);
+        if (startedFrom == null) {
             return allExams;
         }
         
-        LocalDate now = LocalDate.now();
-        LocalDate startDate = null;
+        return allExams.stream()
+                .filter(exam -> exam.getStartTime() != null && !exam.getStartTime().isBefore(startedFrom))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return start of the first day covered by the filter's date range, or null for all time
+     */
+    private LocalDateTime filterStartTime(AnalyticsFilters filters) {
+        if (filters == null || filters.getDateRange() == null) {
+            return null;
+        }
         
+        LocalDate now = LocalDate.now();
         switch (filters.getDateRange()) {
             case "today":
-                startDate = now;
-                break;
+                return now.atStartOfDay();
             case "week":
-                startDate = now.minusWeeks(1);
-                break;
+                return now.minusWeeks(1).atStartOfDay();
             case "month":
-                startDate = now.minusMonths(1);
-                break;
+                return now.minusMonths(1).atStartOfDay();
             default:
-                return allExams;
+                return null;
         }
-        
-        final LocalDate filterStartDate = startDate;
-        return allExams.stream()
-                .filter(exam -> exam.getStartTime() != null && 
-                               exam.getStartTime().toLocalDate().isAfter(filterStartDate.minusDays(1)))
-                .collect(Collectors.toList());
     }
 
-    private AnalyticsData buildAnalyticsData(Test test, List<StudentExam> studentExams) {
+    private AnalyticsData buildAnalyticsData(Test test, AnalyticsFilters filters, List<StudentExam> studentExams) {
         AnalyticsSummary summary = buildSummary(test, studentExams);
         List<ScoreDistribution> scoreDistribution = buildScoreDistribution(studentExams);
-        List<QuestionAnalysis> questionAnalysis = buildQuestionAnalysis(test.getId(), studentExams);
+        List<QuestionAnalysis> questionAnalysis = buildQuestionAnalysis(test.getId(), filterStartTime(filters));
         List<TimeAnalysis> timeAnalysis = buildTimeAnalysis(studentExams, test.getDurationMinutes());
-        List<StudentPerformance> studentPerformance = buildStudentPerformance(studentExams);
+        List<StudentPerformance> studentPerformance = studentPerformanceRepository.findByTest(test.getId(),
+                filterStartTime(filters), null, null,
+                PageRequest.of(0, TOP_PERFORMERS, Sort.by(Sort.Direction.DESC, "score"))).getContent();
 
         return AnalyticsData.builder()
                 .test(mapTestData(test))
@@ -231,6 +175,50 @@ public class AnalyticsService {
                 .build();
     }
 
+    /**
+     * Analytics from the accumulated state: counters and histograms as stored, question
+     * counts joined with the test's questions, and only the top sessions read, names included,
+     * in one query. Runs on scheduler and STOMP threads, so nothing here touches lazy
+     * associations.
+     */
+    private AnalyticsData buildAnalyticsData(Test test, TestAnalyticsState state) {
+        AnalyticsSummary summary = AnalyticsSummary.builder()
+                .totalStudents((int) state.sessions())
+                .completedStudents((int) state.completed())
+                .averageScore(state.scored() > 0 ? state.scoreSum() / state.scored() : 0.0)
+                .passRate(state.passed() * 100.0 / (state.completed() > 0 ? state.completed() : 1))
+                .averageTimeSpent(state.timed() > 0 ? (double) state.timeSumMinutes() / state.timed() : 0.0)
+                .build();
+
+        List<ScoreDistribution> scoreDistribution = new ArrayList<>();
+        for (int bucket = 0; bucket < TestAnalyticsState.SCORE_BUCKETS; bucket++) {
+            scoreDistribution.add(ScoreDistribution.builder()
+                    .score(bucket * 10)
+                    .count((int) state.scoreBuckets()[bucket])
+                    .build());
+        }
+
+        List<TimeAnalysis> timeAnalysis = new ArrayList<>();
+        for (int bucket = 0; bucket < TestAnalyticsState.TIME_RANGES.size(); bucket++) {
+            timeAnalysis.add(TimeAnalysis.builder()
+                    .timeRange(TestAnalyticsState.TIME_RANGES.get(bucket))
+                    .count((int) state.timeBuckets()[bucket])
+                    .build());
+        }
+
+        List<StudentPerformance> studentPerformance = studentPerformanceRepository.findBySessionIds(state.topSessionIds());
+
+        return AnalyticsData.builder()
+                .test(mapTestData(test))
+                .summary(summary)
+                .scoreDistribution(scoreDistribution)
+                .questionAnalysis(toQuestionAnalysis(testRepository.findQuestionsByTestId(test.getId()),
+                        state.questionCounts()))
+                .timeAnalysis(timeAnalysis)
+                .studentPerformance(studentPerformance)
+                .build();
+    }
+
     private AnalyticsSummary buildSummary(Test test, List<StudentExam> studentExams) {
         long totalStudents = studentExams.size();
         long completedStudents = studentExams.stream()
@@ -283,21 +271,52 @@ public class AnalyticsService {
         return distribution;
     }
 
-    private List<QuestionAnalysis> buildQuestionAnalysis(Long testId, List<StudentExam> studentExams) {
+    /**
+     * Correct and incorrect counts per question over the filtered graded sessions, from one
+     * aggregate query grouped by distinct response. Each distinct response is checked once
+     * against the question's compiled matcher, so memory grows with the questions, not with
+     * the answers.
+     */
+    private List<QuestionAnalysis> buildQuestionAnalysis(Long testId, LocalDateTime startedFrom) {
         List<Question> questions = testRepository.findQuestionsByTestId(testId);
-        List<QuestionAnalysis> questionAnalysis = new ArrayList<>();
+        Map<Long, Question> questionsById = questions.stream()
+                .collect(Collectors.toMap(Question::getId, question -> question, (a, b) -> a));
+
+        // questionId -> [correct, total]
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] row : studentAnswerRepository.countResponsesByQuestion(testId, startedFrom)) {
+            Long questionId = (Long) row[0];
+            Question question = questionsById.get(questionId);
+            if (question == null) continue;
+
+            long responses = (Long) row[2];
+            long[] questionCounts = counts.computeIfAbsent(questionId, id -> new long[2]);
+            if (matcherCache.get(question).matches((String) row[1])) {
+                questionCounts[0] += responses;
+            }
+            questionCounts[1] += responses;
+        }
 
-        for (Question question : questions) {
-            List<StudentAnswer> questionAnswers = studentAnswerRepository.findByQuestionId(question.getId());
+        return toQuestionAnalysis(questions, counts);
+    }
 
-            long correctAnswers = questionAnswers.stream()
-                    .filter(answer -> isAnswerCorrect(answer, question))
-                    .count();
+    /**
+     * @param counts questionId -> [correct, attempts]
+     */
+    private List<QuestionAnalysis> toQuestionAnalysis(List<Question> questions, Map<Long, long[]> counts) {
+        // Time spent comes from question navigation events, summed over all sittings
+        Map<Long, QuestionTimeStatsRepository.QuestionTime> times = questionTimeStatsRepository.findByQuestionIds(
+                questions.stream().map(Question::getId).collect(Collectors.toList()));
 
-            long incorrectAnswers = questionAnswers.size() - correctAnswers;
+        List<QuestionAnalysis> questionAnalysis = new ArrayList<>();
+        for (Question question : questions) {
+            long[] questionCounts = counts.getOrDefault(question.getId(), new long[2]);
+            long correctAnswers = questionCounts[0];
+            long incorrectAnswers = questionCounts[1] - correctAnswers;
 
-            double averageTime = calculateAverageTimeForQuestion(question.getId(), studentExams);
-            String difficulty = determineQuestionDifficulty(correctAnswers, questionAnswers.size());
+            QuestionTimeStatsRepository.QuestionTime time = times.get(question.getId());
+            double averageTime = time != null ? Math.round(time.averageSeconds() * 10.0) / 10.0 : 0.0;
+            String difficulty = determineQuestionDifficulty(correctAnswers, questionCounts[1]);
 
             questionAnalysis.add(QuestionAnalysis.builder()
                     .questionId(Math.toIntExact(question.getId()))
@@ -305,6 +324,9 @@ public class AnalyticsService {
                     .correctAnswers((int) correctAnswers)
                     .incorrectAnswers((int) incorrectAnswers)
                     .averageTime(averageTime)
+                    .timeHistogram(time != null
+                            ? Arrays.stream(time.histogram()).boxed().collect(Collectors.toList())
+                            : null)
                     .difficulty(difficulty)
                     .build());
         }
@@ -312,32 +334,6 @@ public class AnalyticsService {
         return questionAnalysis;
     }
 
-    private boolean isAnswerCorrect(StudentAnswer answer, Question question) {
-        if (answer.getAnswer() == null || question.getCorrectAnswer() == null) {
-            return false;
-        }
-        
-        // For multiple select questions
-        if (answer.getAnswer().contains(",")) {
-            Set<String> studentAnswers = Arrays.stream(answer.getAnswer().split(","))
-                    .map(String::trim)
-                    .collect(Collectors.toSet());
-            Set<String> correctAnswers = Arrays.stream(question.getCorrectAnswer().split(","))
-                    .map(String::trim)
-                    .collect(Collectors.toSet());
-            return studentAnswers.equals(correctAnswers);
-        }
-        
-        // For single answer questions
-        return answer.getAnswer().trim().equalsIgnoreCase(question.getCorrectAnswer().trim());
-    }
-
-    private double calculateAverageTimeForQuestion(Long questionId, List<StudentExam> studentExams) {
-        // This would need additional timing data in your entities
-        // For now, returning a calculated average based on question complexity
-        return new Random().nextInt(60) + 30.0; // Random between 30-90 seconds
-    }
-
     private String determineQuestionDifficulty(long correctAnswers, long totalAttempts) {
         if (totalAttempts == 0) return "medium";
         
@@ -351,12 +347,7 @@ public class AnalyticsService {
         if (testDuration == null) testDuration = 60; // Default 60 minutes
         
         Map<String, Long> timeRanges = new LinkedHashMap<>();
-        timeRanges.put("0-10 min", 0L);
-        timeRanges.put("10-20 min", 0L);
-        timeRanges.put("20-30 min", 0L);
-        timeRanges.put("30-40 min", 0L);
-        timeRanges.put("40-50 min", 0L);
-        timeRanges.put("50-60+ min", 0L);
+        TestAnalyticsState.TIME_RANGES.forEach(range -> timeRanges.put(range, 0L));
         
         for (StudentExam exam : studentExams) {
             if (exam.getStartTime() != null && exam.getEndTime() != null) {
@@ -375,48 +366,7 @@ public class AnalyticsService {
     }
 
     private String getTimeRange(long minutes) {
-        if (minutes <= 10) return "0-10 min";
-        if (minutes <= 20) return "10-20 min";
-        if (minutes <= 30) return "20-30 min";
-        if (minutes <= 40) return "30-40 min";
-        if (minutes <= 50) return "40-50 min";
-        return "50-60+ min";
-    }
-
-    private List<StudentPerformance> buildStudentPerformance(List<StudentExam> studentExams) {
-        return studentExams.stream()
-                .map(this::mapToStudentPerformance)
-                .sorted((s1, s2) -> Double.compare(s2.getScore(), s1.getScore())) // Sort by score descending
-                .limit(10) // Top 10 performers
-                .collect(Collectors.toList());
-    }
-
-    private StudentPerformance mapToStudentPerformance(StudentExam exam) {
-
-        String studentName = exam.getStudent() != null ?
-                exam.getStudent().getFullName() : "Student " + exam.getStudentId();//fetch actual student names
-
-        return StudentPerformance.builder()
-                .studentId(String.valueOf(exam.getStudentId()))
-                .name(studentName)
-                .score(exam.getPercentage() != null ? exam.getPercentage() : 0.0)
-                .timeSpent(calculateTimeSpent(exam))
-                .status(determineStatus(exam))
-                .submittedAt(exam.getEndTime())
-                .build();
-    }
-
-    private double calculateTimeSpent(StudentExam exam) {
-        if (exam.getStartTime() != null && exam.getEndTime() != null) {
-            return java.time.Duration.between(exam.getStartTime(), exam.getEndTime()).toMinutes();
-        }
-        return 0.0;
-    }
-
-    private String determineStatus(StudentExam exam) {
-        if (Boolean.TRUE.equals(exam.getCompleted())) return "completed";
-        if (exam.getStartTime() != null) return "in-progress";
-        return "not-started";
+        return TestAnalyticsState.TIME_RANGES.get(TestAnalyticsState.timeBucket(minutes));
     }
 
     private TestData mapTestData(Test test) {
@@ -430,346 +380,4 @@ public class AnalyticsService {
                 .build();
     }
 
-
-
-
-
-
-
-// Replace the generatePdfReport method with this PDFBox version:
-
-    public byte[] generatePdfReport(AnalyticsData analytics) {
-        try (PDDocument document = new PDDocument(); ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-
-            // Set up margins and starting position
-            float margin = 50;
-            float yPosition = PDRectangle.A4.getHeight() - margin;
-            float lineHeight = 14;
-            float titleHeight = 18;
-
-            // Title
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 16);
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("Test Analytics Report");
-            contentStream.endText();
-            yPosition -= titleHeight * 2;
-
-            // Test Information
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("Test: " + analytics.getTest().getTitle());
-            contentStream.endText();
-            yPosition -= lineHeight;
-
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA, 10);
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("Duration: " + analytics.getTest().getDurationMinutes() + " minutes | " +
-                    "Questions: " + analytics.getTest().getNumberOfQuestions() + " | " +
-                    "Passing Score: " + analytics.getTest().getPassingScore() + "%");
-            contentStream.endText();
-            yPosition -= lineHeight * 2;
-
-            // Summary Section
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("Performance Summary");
-            contentStream.endText();
-            yPosition -= lineHeight;
-
-            String[] summaryLines = {
-                    "Total Students: " + analytics.getSummary().getTotalStudents(),
-                    "Completed Students: " + analytics.getSummary().getCompletedStudents(),
-                    "Average Score: " + String.format("%.1f%%", analytics.getSummary().getAverageScore()),
-                    "Pass Rate: " + String.format("%.1f%%", analytics.getSummary().getPassRate()),
-                    "Average Time Spent: " + String.format("%.1f min", analytics.getSummary().getAverageTimeSpent())
-            };
-
-            for (String line : summaryLines) {
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA, 10);
-                contentStream.newLineAtOffset(margin + 10, yPosition);
-                contentStream.showText(line);
-                contentStream.endText();
-                yPosition -= lineHeight;
-            }
-            yPosition -= lineHeight;
-
-            // Score Distribution
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("Score Distribution");
-            contentStream.endText();
-            yPosition -= lineHeight;
-
-            for (ScoreDistribution dist : analytics.getScoreDistribution()) {
-                double percentage = analytics.getSummary().getTotalStudents() > 0 ?
-                        (double) dist.getCount() / analytics.getSummary().getTotalStudents() * 100 : 0;
-
-                String scoreLine = String.format("%3d%%: %3d students (%.1f%%)",
-                        dist.getScore(), dist.getCount(), percentage);
-
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA, 9);
-                contentStream.newLineAtOffset(margin + 10, yPosition);
-                contentStream.showText(scoreLine);
-                contentStream.endText();
-                yPosition -= lineHeight;
-
-                // Create new page if running out of space
-                if (yPosition < margin + 100) {
-                    contentStream.close();
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    contentStream = new PDPageContentStream(document, page);
-                    yPosition = PDRectangle.A4.getHeight() - margin;
-                }
-            }
-            yPosition -= lineHeight;
-
-            // Question Performance (Top 10 most difficult)
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-            contentStream.newLineAtOffset(margin, yPosition);
-            contentStream.showText("Top 10 Most Difficult Questions");
-            contentStream.endText();
-            yPosition -= lineHeight;
-
-            List<QuestionAnalysis> difficultQuestions = analytics.getQuestionAnalysis().stream()
-                    .sorted((q1, q2) -> {
-                        double acc1 = (double) q1.getCorrectAnswers() / (q1.getCorrectAnswers() + q1.getIncorrectAnswers());
-                        double acc2 = (double) q2.getCorrectAnswers() / (q2.getCorrectAnswers() + q2.getIncorrectAnswers());
-                        return Double.compare(acc1, acc2);
-                    })
-                    .limit(10)
-                    .collect(Collectors.toList());
-
-            for (QuestionAnalysis qa : difficultQuestions) {
-                double accuracy = (double) qa.getCorrectAnswers() / (qa.getCorrectAnswers() + qa.getIncorrectAnswers()) * 100;
-
-                String questionLine = String.format("Q%d: %.1f%% correct (%s)",
-                        qa.getQuestionId(), accuracy, qa.getDifficulty());
-
-                contentStream.beginText();
-                contentStream.setFont(PDType1Font.HELVETICA, 9);
-                contentStream.newLineAtOffset(margin + 10, yPosition);
-                contentStream.showText(questionLine);
-                contentStream.endText();
-                yPosition -= lineHeight;
-
-                if (yPosition < margin + 100) {
-                    contentStream.close();
-                    page = new PDPage(PDRectangle.A4);
-                    document.addPage(page);
-                    contentStream = new PDPageContentStream(document, page);
-                    yPosition = PDRectangle.A4.getHeight() - margin;
-                }
-            }
-
-            // Footer with generation date
-            contentStream.beginText();
-            contentStream.setFont(PDType1Font.HELVETICA_OBLIQUE, 8);
-            contentStream.newLineAtOffset(margin, margin);
-            contentStream.showText("Generated on: " + LocalDateTime.now().format(
-                    java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
-            contentStream.endText();
-
-            contentStream.close();
-            document.save(baos);
-            return baos.toByteArray();
-
-        } catch (IOException e) {
-            throw new RuntimeException("Error generating PDF report", e);
-        }
-    }
-
-    public byte[] generateExcelReport(AnalyticsData analytics) {
-        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-            // Create styles
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-            CellStyle highlightStyle = workbook.createCellStyle();
-            highlightStyle.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
-            highlightStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-            // Summary Sheet
-            Sheet summarySheet = workbook.createSheet("Summary");
-
-            // Test Info
-            Row testRow = summarySheet.createRow(0);
-            testRow.createCell(0).setCellValue("Test Analytics Report");
-
-            Row titleRow = summarySheet.createRow(2);
-            titleRow.createCell(0).setCellValue("Test:");
-            titleRow.createCell(1).setCellValue(analytics.getTest().getTitle());
-
-            int rowNum = 3;
-            String[][] summaryData = {
-                    {"Duration", analytics.getTest().getDurationMinutes() + " minutes"},
-                    {"Total Questions", String.valueOf(analytics.getTest().getNumberOfQuestions())},
-                    {"Passing Score", analytics.getTest().getPassingScore() + "%"},
-                    {"", ""},
-                    {"Total Students", String.valueOf(analytics.getSummary().getTotalStudents())},
-                    {"Completed Students", String.valueOf(analytics.getSummary().getCompletedStudents())},
-                    {"Average Score", String.format("%.1f%%", analytics.getSummary().getAverageScore())},
-                    {"Pass Rate", String.format("%.1f%%", analytics.getSummary().getPassRate())},
-                    {"Average Time Spent", String.format("%.1f min", analytics.getSummary().getAverageTimeSpent())}
-            };
-
-            for (String[] data : summaryData) {
-                Row row = summarySheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(data[0]);
-                row.createCell(1).setCellValue(data[1]);
-            }
-
-            // Score Distribution Sheet
-            Sheet scoreSheet = workbook.createSheet("Score Distribution");
-            Row scoreHeader = scoreSheet.createRow(0);
-            String[] scoreHeaders = {"Score Range", "Student Count", "Percentage"};
-            for (int i = 0; i < scoreHeaders.length; i++) {
-                Cell cell = scoreHeader.createCell(i);
-                cell.setCellValue(scoreHeaders[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            rowNum = 1;
-            for (ScoreDistribution dist : analytics.getScoreDistribution()) {
-                Row row = scoreSheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(dist.getScore() + "%");
-                row.createCell(1).setCellValue(dist.getCount());
-                double percentage = analytics.getSummary().getTotalStudents() > 0 ?
-                        (double) dist.getCount() / analytics.getSummary().getTotalStudents() * 100 : 0;
-                row.createCell(2).setCellValue(String.format("%.1f%%", percentage));
-            }
-
-            // Question Analysis Sheet
-            Sheet questionSheet = workbook.createSheet("Question Performance");
-            Row questionHeader = questionSheet.createRow(0);
-            String[] questionHeaders = {"Question ID", "Question Text", "Correct", "Incorrect", "Accuracy", "Difficulty", "Avg Time (s)"};
-            for (int i = 0; i < questionHeaders.length; i++) {
-                Cell cell = questionHeader.createCell(i);
-                cell.setCellValue(questionHeaders[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            rowNum = 1;
-            for (QuestionAnalysis qa : analytics.getQuestionAnalysis()) {
-                Row row = questionSheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(qa.getQuestionId());
-                row.createCell(1).setCellValue(qa.getText());
-                row.createCell(2).setCellValue(qa.getCorrectAnswers());
-                row.createCell(3).setCellValue(qa.getIncorrectAnswers());
-
-                double accuracy = (double) qa.getCorrectAnswers() / (qa.getCorrectAnswers() + qa.getIncorrectAnswers()) * 100;
-                row.createCell(4).setCellValue(String.format("%.1f%%", accuracy));
-
-                row.createCell(5).setCellValue(qa.getDifficulty());
-                row.createCell(6).setCellValue(String.format("%.1f", qa.getAverageTime()));
-
-                // Highlight difficult questions
-                if ("hard".equals(qa.getDifficulty())) {
-                    for (int i = 0; i < questionHeaders.length; i++) {
-                        row.getCell(i).setCellStyle(highlightStyle);
-                    }
-                }
-            }
-
-            // Student Performance Sheet
-            Sheet studentSheet = workbook.createSheet("Top Performers");
-            Row studentHeader = studentSheet.createRow(0);
-            String[] studentHeaders = {"Student ID", "Name", "Score", "Time Spent (min)", "Status", "Submitted At"};
-            for (int i = 0; i < studentHeaders.length; i++) {
-                Cell cell = studentHeader.createCell(i);
-                cell.setCellValue(studentHeaders[i]);
-                cell.setCellStyle(headerStyle);
-            }
-
-            rowNum = 1;
-            for (StudentPerformance sp : analytics.getStudentPerformance()) {
-                Row row = studentSheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(sp.getStudentId());
-                row.createCell(1).setCellValue(sp.getName());
-                row.createCell(2).setCellValue(String.format("%.1f%%", sp.getScore()));
-                row.createCell(3).setCellValue(String.format("%.1f", sp.getTimeSpent()));
-                row.createCell(4).setCellValue(sp.getStatus());
-                row.createCell(5).setCellValue(sp.getSubmittedAt() != null ?
-                        sp.getSubmittedAt().toString() : "N/A");
-            }
-
-            // Auto-size columns
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-                Sheet sheet = workbook.getSheetAt(i);
-                for (int j = 0; j < sheet.getRow(0).getLastCellNum(); j++) {
-                    sheet.autoSizeColumn(j);
-                }
-            }
-
-            workbook.write(baos);
-            return baos.toByteArray();
-
-        } catch (IOException e) {
-            throw new RuntimeException("Error generating Excel report", e);
-        }
-    }
-
-    public byte[] generateCsvReport(AnalyticsData analytics) {
-        StringBuilder csv = new StringBuilder();
-
-        // Header
-        csv.append("Test Analytics Report\n");
-        csv.append("Test:,").append(analytics.getTest().getTitle()).append("\n");
-        csv.append("Generated:,").append(LocalDateTime.now()).append("\n\n");
-
-        // Summary
-        csv.append("SUMMARY\n");
-        csv.append("Metric,Value\n");
-        csv.append("Total Students,").append(analytics.getSummary().getTotalStudents()).append("\n");
-        csv.append("Completed Students,").append(analytics.getSummary().getCompletedStudents()).append("\n");
-        csv.append("Average Score,").append(String.format("%.1f", analytics.getSummary().getAverageScore())).append("\n");
-        csv.append("Pass Rate,").append(String.format("%.1f", analytics.getSummary().getPassRate())).append("\n");
-        csv.append("Average Time Spent,").append(String.format("%.1f", analytics.getSummary().getAverageTimeSpent())).append("\n\n");
-
-        // Score Distribution
-        csv.append("SCORE DISTRIBUTION\n");
-        csv.append("Score Range,Student Count,Percentage\n");
-        for (ScoreDistribution dist : analytics.getScoreDistribution()) {
-            double percentage = analytics.getSummary().getTotalStudents() > 0 ?
-                    (double) dist.getCount() / analytics.getSummary().getTotalStudents() * 100 : 0;
-            csv.append(dist.getScore()).append("%,")
-                    .append(dist.getCount()).append(",")
-                    .append(String.format("%.1f", percentage)).append("%\n");
-        }
-        csv.append("\n");
-
-        // Question Performance
-        csv.append("QUESTION PERFORMANCE\n");
-        csv.append("Question ID,Correct Answers,Incorrect Answers,Accuracy,Difficulty,Average Time\n");
-        for (QuestionAnalysis qa : analytics.getQuestionAnalysis()) {
-            double accuracy = (double) qa.getCorrectAnswers() / (qa.getCorrectAnswers() + qa.getIncorrectAnswers()) * 100;
-            csv.append(qa.getQuestionId()).append(",")
-                    .append(qa.getCorrectAnswers()).append(",")
-                    .append(qa.getIncorrectAnswers()).append(",")
-                    .append(String.format("%.1f", accuracy)).append("%,")
-                    .append(qa.getDifficulty()).append(",")
-                    .append(String.format("%.1f", qa.getAverageTime())).append("\n");
-        }
-
-        return csv.toString().getBytes();
-    }
-
 }
\ No newline at end of file
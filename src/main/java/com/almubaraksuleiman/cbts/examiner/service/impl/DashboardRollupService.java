@@ -0,0 +1,182 @@
+package com.almubaraksuleiman.cbts.examiner.service.impl;
+
+import com.almubaraksuleiman.cbts.examiner.repository.DashboardRollupRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the dashboard's daily rollups (per day, test and examiner) up to date.
+ *
+ * Rollups cover whole past days up to rolledUpThrough; the dashboard reads later days from the
+ * live tables. Each refresh rolls up the days that ended since the previous one, and
+ * recomputes the already rolled-up days that have exams updated (e.g. graded or regraded) or
+ * enrollments made since the watermark. The watermark is moved back by an overlap so rows
+ * written by transactions that committed late are not missed; recomputing a day is
+ * idempotent. Changes that leave no trace in updated_at (a test's passing score or examiner,
+ * deleted enrollments) mark their days stale through {@link #markTestChanged(Long)} and
+ * {@link #markEnrollmentsDeleted(Long, Long)}, and the next refresh recomputes those too.
+ *
+ * The scheduled trigger only hands the refresh to a dedicated thread, so a slow rollup (a
+ * full build in particular) never holds up the shared scheduler; a trigger that finds the
+ * previous refresh still running is skipped.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class DashboardRollupService {
+
+    /** Days rolled up per statement during a full build */
+    private static final int BUILD_CHUNK_DAYS = 31;
+
+    private final DashboardRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService worker;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    @Value("${exam.dashboard.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${exam.dashboard.rollup.watermark-overlap-minutes:10}")
+    private long watermarkOverlapMinutes;
+
+    public DashboardRollupService(DashboardRollupRepository rollupRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return last day the dashboard may read from the rollups, null to read live tables only
+     */
+    public LocalDate rolledUpThrough() {
+        if (!enabled) return null;
+        try {
+            return rollupRepository.state().rolledUpThrough();
+        } catch (RuntimeException e) {
+            log.warn("Failed to read dashboard rollup state: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Call in the transaction that changes a test's passing score or examiner, or deletes it,
+     * before the change is made.
+     */
+    public void markTestChanged(Long testId) {
+        if (!enabled) return;
+        rollupRepository.markTestDaysStale(testId);
+    }
+
+    /**
+     * Call in the transaction that deletes enrollments of a test, before deleting them.
+     *
+     * @param studentId the one student being unenrolled, null for all of the test's students
+     */
+    public void markEnrollmentsDeleted(Long testId, Long studentId) {
+        if (!enabled) return;
+        rollupRepository.markEnrollmentDaysStale(testId, studentId);
+    }
+
+    /**
+     * Starts a refresh on the rollup thread unless one is still running.
+     */
+    @Scheduled(fixedDelayString = "${exam.dashboard.rollup.interval-ms:300000}")
+    public void scheduleRefresh() {
+        if (!enabled || !refreshing.compareAndSet(false, true)) return;
+
+        worker.execute(() -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> refresh());
+            } catch (Exception e) {
+                log.error("Failed to refresh dashboard rollups: {}", e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    private void refresh() {
+        LocalDateTime started = LocalDateTime.now();
+        LocalDate yesterday = started.toLocalDate().minusDays(1);
+        DashboardRollupRepository.State state = rollupRepository.lockState();
+
+        if (state.rolledUpThrough() == null) {
+            build(yesterday, started);
+            return;
+        }
+
+        TreeSet<LocalDate> changedDays = new TreeSet<>();
+        if (state.watermark() != null) {
+            changedDays.addAll(rollupRepository.changedDays(
+                    state.watermark().minusMinutes(watermarkOverlapMinutes), state.rolledUpThrough()));
+        }
+        // Stale days after rolledUpThrough are rolled up below anyway
+        changedDays.addAll(rollupRepository.takeStaleDays().stream()
+                .filter(day -> !day.isAfter(state.rolledUpThrough()))
+                .toList());
+        changedDays.forEach(day -> rollupRepository.rollUp(day, day));
+
+        LocalDate through = state.rolledUpThrough();
+        if (through.isBefore(yesterday)) {
+            rollupRepository.rollUp(through.plusDays(1), yesterday);
+            through = yesterday;
+        }
+        rollupRepository.saveState(through, started);
+
+        if (!changedDays.isEmpty()) {
+            log.info("Refreshed dashboard rollups of {} changed days through {}", changedDays.size(), through);
+        }
+    }
+
+    /**
+     * Drops and recomputes all rollups from the live tables.
+     */
+    @Transactional
+    public void rebuild() {
+        LocalDateTime started = LocalDateTime.now();
+        rollupRepository.lockState();
+        build(started.toLocalDate().minusDays(1), started);
+    }
+
+    private void build(LocalDate through, LocalDateTime started) {
+        long buildStarted = System.currentTimeMillis();
+        rollupRepository.deleteAll();
+
+        LocalDate first = rollupRepository.firstDay();
+        if (first != null) {
+            for (LocalDate from = first; !from.isAfter(through); from = from.plusDays(BUILD_CHUNK_DAYS)) {
+                LocalDate to = from.plusDays(BUILD_CHUNK_DAYS - 1);
+                rollupRepository.rollUp(from, to.isAfter(through) ? through : to);
+            }
+        }
+        rollupRepository.saveState(through, started);
+        log.info("Built dashboard rollups from {} through {} in {} ms",
+                first, through, System.currentTimeMillis() - buildStarted);
+    }
+}
@@ -577,6 +577,8 @@ public class DashboardService {
     private final EnrollmentRepository enrollmentRepository;
     private final QuestionRepository questionRepository;
     private final SecurityUtils securityUtils;
+    private final DashboardQueryRepository dashboardQueryRepository;
+    private final DashboardRollupService dashboardRollupService;
 
     /**
      * Get comprehensive dashboard statistics with role-based filtering
@@ -590,15 +592,19 @@ public class DashboardService {
 
         try {
             // Role-based data calculation
-            long totalTests = getTotalTests(isAdmin, currentExaminer);
+            DashboardQueryRepository.Scope scope = scope(dateRangeFilter, isAdmin, currentExaminer);
+            DashboardQueryRepository.TestTotals testTotals = dashboardQueryRepository.testTotals(scope.examinerId());
+            DashboardQueryRepository.ExamTotals examTotals = dashboardQueryRepository.examTotals(scope);
+
+            long totalTests = testTotals.total();
             long totalStudents = getTotalStudents(isAdmin, currentExaminer);
             long totalExaminers = getTotalExaminers(isAdmin);
-            long activeTests = getActiveTests(isAdmin, currentExaminer);
-            long completedExams = getCompletedExamsCount(dateRangeFilter, isAdmin, currentExaminer);
-            double averageScore = calculateAverageScore(dateRangeFilter, isAdmin, currentExaminer);
-            double passRate = calculatePassRate(dateRangeFilter, isAdmin, currentExaminer);
+            long activeTests = testTotals.published();
+            long completedExams = examTotals.completed();
+            double averageScore = examTotals.averageScore();
+            double passRate = examTotals.scored() > 0 ? (double) examTotals.passed() / examTotals.scored() * 100 : 0.0;
             double enrollmentRate = calculateEnrollmentRate(isAdmin, currentExaminer);
-            long pendingGrading = getPendingGradingCount(dateRangeFilter, isAdmin, currentExaminer);
+            long pendingGrading = examTotals.pendingGrading();
             long totalQuestions = getTotalQuestions(isAdmin, currentExaminer);
 
             return DashboardStats.builder()
@@ -632,14 +638,17 @@ public class DashboardService {
 
         try {
             // Real data for charts
-            List<ChartData> testsByStatus = getTestsByStatusData(isAdmin, currentExaminer);
-            List<ChartData> studentPerformance = getStudentPerformanceData(dateRangeFilter, isAdmin, currentExaminer);
-            List<ChartData> questionDistribution = getQuestionTypeDistributionData(isAdmin, currentExaminer);
-            List<TrendData> enrollmentTrends = getEnrollmentTrendsData(dateRangeFilter, isAdmin, currentExaminer);
+            DashboardQueryRepository.Scope scope = scope(dateRangeFilter, isAdmin, currentExaminer);
+            DashboardQueryRepository.ScoreHistograms histograms = dashboardQueryRepository.scoreHistograms(scope);
+
+            List<ChartData> testsByStatus = getTestsByStatusData(scope);
+            List<ChartData> studentPerformance = getStudentPerformanceData(histograms);
+            List<ChartData> questionDistribution = getQuestionTypeDistributionData(scope);
+            List<TrendData> enrollmentTrends = getEnrollmentTrendsData(dateRangeFilter, scope);
             List<ActivityData> recentActivity = getRecentActivityData(10, isAdmin, currentExaminer);
-            List<StudentPerformance> topPerformers = getTopPerformersData(dateRangeFilter, isAdmin, currentExaminer);
-            List<ChartData> testPerformance = getTestPerformanceData(dateRangeFilter, isAdmin, currentExaminer);
-            List<ChartData> scoreDistribution = getScoreDistributionData(dateRangeFilter, isAdmin, currentExaminer);
+            List<StudentPerformance> topPerformers = dashboardQueryRepository.topPerformers(scope, 10);
+            List<ChartData> testPerformance = getTestPerformanceData(scope);
+            List<ChartData> scoreDistribution = getScoreDistributionData(histograms);
 
             return PlatformOverview.builder()
                     .testsByStatus(testsByStatus)
@@ -666,11 +675,9 @@ public class DashboardService {
         log.info("Generating examiner dashboard data for: {}", examiner.getUsername());
 
         try {
-            long myTests = testRepository.findByCreatedBy(examiner, org.springframework.data.domain.Pageable.unpaged())
-                    .getContent().size();
-
-            long myPublishedTests = testRepository.findByCreatedByAndPublished(examiner, true,
-                    org.springframework.data.domain.Pageable.unpaged()).getContent().size();
+            DashboardQueryRepository.TestTotals testTotals = dashboardQueryRepository.testTotals(examiner.getId());
+            long myTests = testTotals.total();
+            long myPublishedTests = testTotals.published();
 
             long myStudents = enrollmentRepository.countDistinctStudentsByExaminer(examiner);
             long totalEnrollments = enrollmentRepository.countByTestCreatedBy(examiner);
@@ -772,13 +779,6 @@ public class DashboardService {
     // getTotalTests, getTotalStudents, getTestsByStatusData, etc.
     // They don't need to change
 
-    private long getTotalTests(boolean isAdmin, Examiner examiner) {
-        return isAdmin ?
-                testRepository.count() :
-                testRepository.findByCreatedBy(examiner, org.springframework.data.domain.Pageable.unpaged())
-                        .getContent().size();
-    }
-
     private long getTotalStudents(boolean isAdmin, Examiner examiner) {
         return isAdmin ?
                 studentRepository.count() :
@@ -789,96 +789,62 @@ public class DashboardService {
         return isAdmin ? examinerRepository.count() : 0;
     }
 
-    private long getActiveTests(boolean isAdmin, Examiner examiner) {
-        return isAdmin ?
-                testRepository.findByPublished(true, org.springframework.data.domain.Pageable.unpaged())
-                        .getContent().size() :
-                testRepository.findByCreatedByAndPublished(examiner, true,
-                        org.springframework.data.domain.Pageable.unpaged()).getContent().size();
-    }
-
     private long getTotalQuestions(boolean isAdmin, Examiner examiner) {
         return isAdmin ?
                 questionRepository.count() :
-                getExaminerQuestionsCount(examiner);
+                dashboardQueryRepository.questionCountsByType(examiner.getId()).values().stream()
+                        .mapToLong(Long::longValue)
+                        .sum();
     }
 
-    private List<ChartData> getTestsByStatusData(boolean isAdmin, Examiner examiner) {
-        List<Test> tests = isAdmin ?
-                testRepository.findAll() :
-                testRepository.findByCreatedBy(examiner, org.springframework.data.domain.Pageable.unpaged()).getContent();
-
-        long published = tests.stream().filter(Test::getPublished).count();
-        long draft = tests.stream().filter(t -> !t.getPublished()).count();
-        long archived = tests.stream().filter(t -> t.getCreatedAt().isBefore(LocalDateTime.now().minusMonths(6))).count();
+    private List<ChartData> getTestsByStatusData(DashboardQueryRepository.Scope scope) {
+        DashboardQueryRepository.TestTotals totals = dashboardQueryRepository.testTotals(scope.examinerId());
 
         return Arrays.asList(
-                ChartData.builder().name("Published").value(published).color("#198754").build(),
-                ChartData.builder().name("Draft").value(draft).color("#ffc107").build(),
-                ChartData.builder().name("Archived").value(archived).color("#6c757d").build()
+                ChartData.builder().name("Published").value(totals.published()).color("#198754").build(),
+                ChartData.builder().name("Draft").value(totals.total() - totals.published()).color("#ffc107").build(),
+                ChartData.builder().name("Archived").value(totals.archived()).color("#6c757d").build()
         );
     }
 
-    private List<ChartData> getStudentPerformanceData(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        List<StudentExam> exams = getFilteredExams(dateRange, isAdmin, examiner);
-
-        Map<String, Long> scoreRanges = exams.stream()
-                .filter(exam -> exam.getPercentage() != null)
-                .collect(Collectors.groupingBy(
-                        exam -> {
-                            double score = exam.getPercentage();
-                            if (score <= 20) return "0-20%";
-                            else if (score <= 40) return "21-40%";
-                            else if (score <= 60) return "41-60%";
-                            else if (score <= 80) return "61-80%";
-                            else return "81-100%";
-                        },
-                        Collectors.counting()
-                ));
+    private List<ChartData> getStudentPerformanceData(DashboardQueryRepository.ScoreHistograms histograms) {
+        long[] ranges = histograms.ranges();
 
         return Arrays.asList(
-                ChartData.builder().name("0-20%").value(scoreRanges.getOrDefault("0-20%", 0L)).color("#dc3545").build(),
-                ChartData.builder().name("21-40%").value(scoreRanges.getOrDefault("21-40%", 0L)).color("#fd7e14").build(),
-                ChartData.builder().name("41-60%").value(scoreRanges.getOrDefault("41-60%", 0L)).color("#ffc107").build(),
-                ChartData.builder().name("61-80%").value(scoreRanges.getOrDefault("61-80%", 0L)).color("#20c997").build(),
-                ChartData.builder().name("81-100%").value(scoreRanges.getOrDefault("81-100%", 0L)).color("#198754").build()
+                ChartData.builder().name("0-20%").value(ranges[0]).color("#dc3545").build(),
+                ChartData.builder().name("21-40%").value(ranges[1]).color("#fd7e14").build(),
+                ChartData.builder().name("41-60%").value(ranges[2]).color("#ffc107").build(),
+                ChartData.builder().name("61-80%").value(ranges[3]).color("#20c997").build(),
+                ChartData.builder().name("81-100%").value(ranges[4]).color("#198754").build()
         );
     }
 
-    private List<ChartData> getQuestionTypeDistributionData(boolean isAdmin, Examiner examiner) {
-        // Get real question type distribution from database
-        List<Question> questions = isAdmin ?
-                questionRepository.findAll() :
-                getExaminerQuestions(examiner);
-
-        Map<QuestionType, Long> typeCounts = questions.stream()
-                .collect(Collectors.groupingBy(Question::getType, Collectors.counting()));
+    private List<ChartData> getQuestionTypeDistributionData(DashboardQueryRepository.Scope scope) {
+        Map<String, Long> typeCounts = dashboardQueryRepository.questionCountsByType(scope.examinerId());
 
         return Arrays.asList(
-                ChartData.builder().name("Multiple Choice").value(typeCounts.getOrDefault(QuestionType.MULTIPLE_CHOICE, 0L)).color("#0d6efd").build(),
-                ChartData.builder().name("True/False").value(typeCounts.getOrDefault(QuestionType.TRUE_FALSE, 0L)).color("#198754").build(),
-                ChartData.builder().name("Fill in Blank").value(typeCounts.getOrDefault(QuestionType.FILL_IN_THE_BLANK, 0L)).color("#ffc107").build(),
-                ChartData.builder().name("Essay").value(typeCounts.getOrDefault(QuestionType.ESSAY, 0L)).color("#dc3545").build(),
-                ChartData.builder().name("Multiple Select").value(typeCounts.getOrDefault(QuestionType.MULTIPLE_SELECT, 0L)).color("#6f42c1").build(),
-                ChartData.builder().name("Matching").value(typeCounts.getOrDefault(QuestionType.MATCHING, 0L)).color("#fd7e14").build()
+                ChartData.builder().name("Multiple Choice").value(typeCounts.getOrDefault(QuestionType.MULTIPLE_CHOICE.name(), 0L)).color("#0d6efd").build(),
+                ChartData.builder().name("True/False").value(typeCounts.getOrDefault(QuestionType.TRUE_FALSE.name(), 0L)).color("#198754").build(),
+                ChartData.builder().name("Fill in Blank").value(typeCounts.getOrDefault(QuestionType.FILL_IN_THE_BLANK.name(), 0L)).color("#ffc107").build(),
+                ChartData.builder().name("Essay").value(typeCounts.getOrDefault(QuestionType.ESSAY.name(), 0L)).color("#dc3545").build(),
+                ChartData.builder().name("Multiple Select").value(typeCounts.getOrDefault(QuestionType.MULTIPLE_SELECT.name(), 0L)).color("#6f42c1").build(),
+                ChartData.builder().name("Matching").value(typeCounts.getOrDefault(QuestionType.MATCHING.name(), 0L)).color("#fd7e14").build()
         );
     }
 
-    private List<TrendData> getEnrollmentTrendsData(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
+    private List<TrendData> getEnrollmentTrendsData(LocalDate[] dateRange, DashboardQueryRepository.Scope scope) {
         List<TrendData> trends = new ArrayList<>();
         LocalDate endDate = dateRange[1] != null ? dateRange[1] : LocalDate.now();
         LocalDate startDate = dateRange[0] != null ? dateRange[0] : endDate.minusDays(6);
 
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            LocalDate finalDate = date;
-            long enrollments = enrollmentRepository.findAll().stream()
-                    .filter(e -> e.getEnrolledAt() != null && e.getEnrolledAt().toLocalDate().equals(finalDate))
-                    .filter(e -> isAdmin || e.getTest().getCreatedBy().equals(examiner))
-                    .count();
+        Map<LocalDate, Long> enrollmentsByDay =
+                dashboardQueryRepository.enrollmentsByDay(scope.examinerId(), startDate, endDate,
+                        scope.rolledUpThrough());
 
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
             trends.add(TrendData.builder()
                     .date(date.format(DateTimeFormatter.ofPattern("MMM dd")))
-                    .value(enrollments)
+                    .value(enrollmentsByDay.getOrDefault(date, 0L))
                     .build());
         }
 
@@ -924,59 +890,23 @@ public class DashboardService {
                 .collect(Collectors.toList());
     }
 
-    private List<StudentPerformance> getTopPerformersData(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        List<StudentExam> exams = getFilteredExams(dateRange, isAdmin, examiner);
-
-        return exams.stream()
-                .filter(exam -> exam.getPercentage() != null)
-                .sorted((e1, e2) -> Double.compare(e2.getPercentage(), e1.getPercentage()))
-                .limit(10)
-                .map(exam -> StudentPerformance.builder()
-                        .studentId(String.valueOf(exam.getStudentId()))
-                        .name("Student " + exam.getStudentId())
-                        .score(exam.getPercentage())
-                        .timeSpent(calculateTimeSpent(exam))
-                        .status("completed")
-                        .submittedAt(exam.getEndTime())
+    private List<ChartData> getTestPerformanceData(DashboardQueryRepository.Scope scope) {
+        return dashboardQueryRepository.averageScoreByTest(scope, 8).stream()
+                .map(test -> ChartData.builder()
+                        .name(test.title())
+                        .value(Math.round(test.averageScore() * 10.0) / 10.0)
+                        .color(getRandomColor())
                         .build())
                 .collect(Collectors.toList());
     }
 
-    private List<ChartData> getTestPerformanceData(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        List<Test> tests = isAdmin ?
-                testRepository.findAll() :
-                testRepository.findByCreatedBy(examiner, org.springframework.data.domain.Pageable.unpaged()).getContent();
-
-        return tests.stream()
-                .map(test -> {
-                    double avgScore = studentExamRepository.findByTestId(test.getId()).stream()
-                            .filter(exam -> exam.getPercentage() != null)
-                            .mapToDouble(StudentExam::getPercentage)
-                            .average()
-                            .orElse(0.0);
-                    return ChartData.builder()
-                            .name(test.getTitle())
-                            .value(Math.round(avgScore * 10.0) / 10.0)
-                            .color(getRandomColor())
-                            .build();
-                })
-                .limit(8)
-                .collect(Collectors.toList());
-    }
-
-    private List<ChartData> getScoreDistributionData(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        List<StudentExam> exams = getFilteredExams(dateRange, isAdmin, examiner);
-
+    private List<ChartData> getScoreDistributionData(DashboardQueryRepository.ScoreHistograms histograms) {
         List<ChartData> distribution = new ArrayList<>();
-        for (int i = 0; i <= 100; i += 10) {
-            final int rangeStart = i;
-            long count = exams.stream()
-                    .filter(exam -> exam.getPercentage() != null)
-                    .filter(exam -> exam.getPercentage() >= rangeStart && exam.getPercentage() < rangeStart + 10)
-                    .count();
+        for (int bucket = 0; bucket < DashboardQueryRepository.SCORE_DECILES; bucket++) {
+            int rangeStart = bucket * 10;
             distribution.add(ChartData.builder()
                     .name(rangeStart + "%")
-                    .value(count)
+                    .value(histograms.deciles()[bucket])
                     .color(getColorForScore(rangeStart))
                     .build());
         }
@@ -986,40 +916,13 @@ public class DashboardService {
 
     // ========== UTILITY METHODS ==========
 
-    private List<StudentExam> getFilteredExams(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        return studentExamRepository.findAll().stream()
-                .filter(exam -> isAdmin || (exam.getTest().getCreatedBy() != null && exam.getTest().getCreatedBy().equals(examiner)))
-                .filter(exam -> filterByDateRange(exam.getEndTime(), dateRange))
-                .collect(Collectors.toList());
-    }
-
-    private long getCompletedExamsCount(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        return getFilteredExams(dateRange, isAdmin, examiner).stream()
-                .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()))
-                .count();
-    }
-
-    private double calculateAverageScore(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        List<StudentExam> filteredExams = getFilteredExams(dateRange, isAdmin, examiner);
-        return filteredExams.stream()
-                .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()) && exam.getPercentage() != null)
-                .mapToDouble(StudentExam::getPercentage)
-                .average()
-                .orElse(0.0);
-    }
-
-    private double calculatePassRate(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        List<StudentExam> completedExams = getFilteredExams(dateRange, isAdmin, examiner).stream()
-                .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()) && exam.getPercentage() != null)
-                .collect(Collectors.toList());
-
-        if (completedExams.isEmpty()) return 0.0;
-
-        long passedExams = completedExams.stream()
-                .filter(exam -> exam.getPercentage() >= exam.getTest().getPassingScore())
-                .count();
-
-        return (double) passedExams / completedExams.size() * 100;
+    /**
+     * Aggregate scope of the current user: all tests for admins, otherwise the examiner's own,
+     * read from the rollups as far as they go.
+     */
+    private DashboardQueryRepository.Scope scope(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
+        return new DashboardQueryRepository.Scope(isAdmin ? null : examiner.getId(), dateRange[0], dateRange[1],
+                dashboardRollupService.rolledUpThrough());
     }
 
     private double calculateEnrollmentRate(boolean isAdmin, Examiner examiner) {
@@ -1031,40 +934,6 @@ public class DashboardService {
         return totalStudents > 0 ? (double) enrolledStudents / totalStudents * 100 : 0.0;
     }
 
-    private long getPendingGradingCount(LocalDate[] dateRange, boolean isAdmin, Examiner examiner) {
-        return getFilteredExams(dateRange, isAdmin, examiner).stream()
-                .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()))
-                .filter(exam -> !Boolean.TRUE.equals(exam.getGraded()))
-                .count();
-    }
-
-    private long getExaminerQuestionsCount(Examiner examiner) {
-        return testRepository.findByCreatedBy(examiner, org.springframework.data.domain.Pageable.unpaged())
-                .getContent().stream()
-                .mapToLong(test -> questionRepository.findByTestId(test.getId()).size())
-                .sum();
-    }
-
-    private List<Question> getExaminerQuestions(Examiner examiner) {
-        return testRepository.findByCreatedBy(examiner, org.springframework.data.domain.Pageable.unpaged())
-                .getContent().stream()
-                .flatMap(test -> questionRepository.findByTestId(test.getId()).stream())
-                .collect(Collectors.toList());
-    }
-
-    private double calculateTimeSpent(StudentExam exam) {
-        if (exam.getStartTime() != null && exam.getEndTime() != null) {
-            return java.time.Duration.between(exam.getStartTime(), exam.getEndTime()).toMinutes();
-        }
-        return 0.0;
-    }
-
-    private boolean filterByDateRange(LocalDateTime dateTime, LocalDate[] dateRange) {
-        if (dateTime == null || dateRange[0] == null) return true;
-        LocalDate date = dateTime.toLocalDate();
-        return !date.isBefore(dateRange[0]) && !date.isAfter(dateRange[1]);
-    }
-
     private LocalDate[] parseDateRange(String dateRange) {
         LocalDate now = LocalDate.now();
         if (dateRange == null || "all".equals(dateRange)) {
@@ -1146,32 +1015,15 @@ public class DashboardService {
     private Map<String, Object> getExaminerPerformanceMetrics(Examiner examiner) {
         Map<String, Object> metrics = new HashMap<>();
 
-        List<Test> examinerTests = testRepository.findByCreatedBy(examiner,
-                org.springframework.data.domain.Pageable.unpaged()).getContent();
-
-        double averageScore = examinerTests.stream()
-                .flatMap(test -> studentExamRepository.findByTestId(test.getId()).stream())
-                .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()) && exam.getPercentage() != null)
-                .mapToDouble(StudentExam::getPercentage)
-                .average()
-                .orElse(0.0);
+        DashboardQueryRepository.ExamTotals totals =
+                dashboardQueryRepository.examTotals(scope(new LocalDate[]{null, null}, false, examiner));
 
+        double averageScore = totals.averageScore();
         long totalEnrollments = enrollmentRepository.countByTestCreatedBy(examiner);
-        long completedExams = examinerTests.stream()
-                .mapToLong(test -> studentExamRepository.findByTestId(test.getId()).stream()
-                        .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()))
-                        .count())
-                .sum();
+        long completedExams = totals.completed();
 
         double completionRate = totalEnrollments > 0 ? (double) completedExams / totalEnrollments * 100 : 0.0;
-
-        long passedExams = examinerTests.stream()
-                .flatMap(test -> studentExamRepository.findByTestId(test.getId()).stream())
-                .filter(exam -> Boolean.TRUE.equals(exam.getCompleted()) && exam.getPercentage() != null)
-                .filter(exam -> exam.getPercentage() >= exam.getTest().getPassingScore())
-                .count();
-
-        double passRate = completedExams > 0 ? (double) passedExams / completedExams * 100 : 0.0;
+        double passRate = completedExams > 0 ? (double) totals.passed() / completedExams * 100 : 0.0;
 
         metrics.put("averageScore", Math.round(averageScore * 100.0) / 100.0);
         metrics.put("completionRate", Math.round(completionRate * 100.0) / 100.0);
@@ -1181,4 +1033,4 @@ public class DashboardService {
 
         return metrics;
     }
-}
\ No newline at end of file
+}
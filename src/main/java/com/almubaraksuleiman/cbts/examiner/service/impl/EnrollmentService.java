@@ -28,6 +28,7 @@ public class EnrollmentService {
     private final EnrollmentRepository enrollmentRepository;
     private final StudentRepository studentRepository;
     private final TestRepository testRepository;
+    private final DashboardRollupService dashboardRollupService;
    // private final NotificationService notificationService;
     
     @Transactional
@@ -90,6 +91,7 @@ public class EnrollmentService {
             throw new RuntimeException("Student is not enrolled in this test");
         }
         
+        dashboardRollupService.markEnrollmentsDeleted(testId, studentId);
         enrollmentRepository.deleteByTestIdAndStudentId(testId, studentId);
     }
     
@@ -102,6 +104,7 @@ public class EnrollmentService {
             throw new RuntimeException("No students enrolled in this test");
         }
         
+        dashboardRollupService.markEnrollmentsDeleted(testId, null);
         enrollmentRepository.deleteByTestId(testId);
     }
     
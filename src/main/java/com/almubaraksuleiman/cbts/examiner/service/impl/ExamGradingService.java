@@ -73,12 +73,19 @@
 package com.almubaraksuleiman.cbts.examiner.service.impl;
 
 // Import statements organized by functionality
-import com.almubaraksuleiman.cbts.examiner.model.Question;
 import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.SessionContribution;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
+import com.almubaraksuleiman.cbts.examiner.service.grading.AnswerMatcherCache;
+import com.almubaraksuleiman.cbts.examiner.service.grading.AnswerScorer;
+import com.almubaraksuleiman.cbts.examiner.service.grading.GradableAnswer;
+import com.almubaraksuleiman.cbts.examiner.service.grading.SessionScore;
 import com.almubaraksuleiman.cbts.student.model.StudentAnswer;
 import com.almubaraksuleiman.cbts.student.model.StudentExam;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerBatchRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
+import com.almubaraksuleiman.cbts.student.service.impl.AnswerWriteBehindJournal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -115,6 +122,18 @@ public class ExamGradingService {
     /** For student answer data access and score updates */
     private final StudentAnswerRepository answerRepository;
 
+    /** For writing answer scores back in one batch */
+    private final StudentAnswerBatchRepository answerBatchRepository;
+
+    /** Compiled answer keys, shared with analytics */
+    private final AnswerMatcherCache matcherCache;
+
+    /** Drained before grading so journalled answers are graded */
+    private final AnswerWriteBehindJournal answerJournal;
+
+    /** Per-test analytics, updated with each graded session */
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+
     /**
      * Grades an entire exam session by evaluating all student answers
      *
@@ -177,128 +196,98 @@ public class ExamGradingService {
     public double gradeExam(Long sessionId) {
         log.info("Starting enhanced automatic grading for exam session: {}", sessionId);
 
+        answerJournal.drain(sessionId);
+
         StudentExam exam = studentExamRepository.findById(sessionId)
                 .orElseThrow(() -> {
                     log.error("Exam session not found for grading: {}", sessionId);
                     return new RuntimeException("Session not found with ID: " + sessionId);
                 });
 
-        double totalScore = 0.0;
-        int gradedQuestions = 0;
-        boolean hasEssays = false;
-
-        List<StudentAnswer> answers = answerRepository.findByStudentExam(exam);
-        log.debug("Found {} answers to grade for session {}", answers.size(), sessionId);
-
-        for (StudentAnswer answer : answers) {
-            Question question = answer.getStudentExamQuestion().getQuestion();
-            double questionScore = 0.0;
-
-            try {
-                switch (question.getType()) {
-                    case MULTIPLE_CHOICE:
-                        questionScore = gradeMultipleChoice(answer, question);
-                        break;
-
-                    case MULTIPLE_SELECT:
-                        questionScore = gradeMultipleSelect(answer, question);
-                        break;
-
-                    case TRUE_FALSE:
-                        questionScore = gradeTrueFalse(answer, question);
-                        break;
-
-                    case FILL_IN_THE_BLANK:
-                        questionScore = gradeFillInTheBlank(answer, question);
-                        break;
-
-                    case ESSAY:
-                        // ESSAY GRADING - Use manually assigned score if available
-                        if (answer.getScore() != null && answer.getScore() > 0) {
-                            questionScore = answer.getScore();
-                            log.debug("Using manual essay score for question {}: {}", question.getId(), questionScore);
-                        } else {
-                            questionScore = 0.0; // Essay not graded yet
-                            log.debug("Essay question {} not graded yet, score set to 0", question.getId());
-                        }
-                        hasEssays = true;
-                        break;
-
-                    default:
-                        log.warn("Unknown question type: {} for question ID: {}", question.getType(), question.getId());
-                        questionScore = 0.0;
-                }
-            } catch (Exception e) {
-                log.error("Error grading answer for question {}: {}", question.getId(), e.getMessage());
-                questionScore = 0.0;
-            }
+        return gradeExams(List.of(exam)).get(sessionId);
+    }
+
+    /**
+     * Grades a set of exam sessions with a constant number of statements: one projection query
+     * for all their answers, one JDBC batch for the changed answer scores. Scores, percentage
+     * and essay status are computed in the same pass and set on the given exam entities.
+     *
+     * @param exams Sessions to grade; their answer journals must already be drained
+     * @return Map of sessionId to total score
+     */
+    public Map<Long, Double> gradeExams(Collection<StudentExam> exams) {
+        Map<Long, SessionScore> sessionScores = new HashMap<>();
+        Map<Long, SessionContribution> contributions = new HashMap<>();
+        exams.forEach(exam -> {
+            sessionScores.put(exam.getSessionId(), new SessionScore());
+            contributions.put(exam.getSessionId(), new SessionContribution().withAnswers());
+        });
+        if (sessionScores.isEmpty()) return Map.of();
+
+        // Each question's compiled matcher is resolved once and shared by every answer to it
+        AnswerScorer scorer = new AnswerScorer(matcherCache);
+        List<StudentAnswerBatchRepository.ScoreUpdate> scoreUpdates = new ArrayList<>();
+
+        List<Object[]> rows = answerRepository.findGradingRowsBySessionIds(sessionScores.keySet());
+        log.debug("Found {} answers to grade across {} sessions", rows.size(), sessionScores.size());
+
+        for (Object[] row : rows) {
+            GradableAnswer answer = GradableAnswer.of(row);
+            double questionScore = scorer.score(answer);
 
             // Update the answer score if it's different
-            if (!Objects.equals(answer.getScore(), questionScore)) {
-                answer.setScore(questionScore);
-                answerRepository.save(answer);
+            if (!Objects.equals(answer.score(), questionScore)) {
+                scoreUpdates.add(new StudentAnswerBatchRepository.ScoreUpdate(answer.answerId(), questionScore));
             }
 
-            totalScore += questionScore;
-
-            if (questionScore > 0) {
-                gradedQuestions++;
-            }
+            sessionScores.get(answer.sessionId()).add(answer, questionScore);
+            contributions.get(answer.sessionId()).answer(answer.questionId(), scorer.isCorrect(answer));
         }
 
-        // Update exam with final score and status
-        updateExamResults(exam, totalScore, gradedQuestions, answers.size(), hasEssays);
+        answerBatchRepository.updateScores(scoreUpdates);
 
-        log.info("Completed enhanced grading session {}. Total score: {}. Graded {}/{} questions. Has essays: {}",
-                sessionId, totalScore, gradedQuestions, answers.size(), hasEssays);
+        Map<Long, Double> totals = new HashMap<>();
+        for (StudentExam exam : exams) {
+            SessionScore sessionScore = sessionScores.get(exam.getSessionId());
+            updateExamResults(exam, sessionScore);
+            totals.put(exam.getSessionId(), sessionScore.getTotalScore());
 
-        return totalScore;
+            analyticsAccumulator.record(exam.getTest().getId(), exam.getSessionId(),
+                    analyticsAccumulator.contribution(exam, contributions.get(exam.getSessionId())));
+
+            log.info("Completed enhanced grading session {}. Total score: {}. Graded {}/{} questions. Has essays: {}",
+                    exam.getSessionId(), sessionScore.getTotalScore(), sessionScore.getGradedQuestions(),
+                    sessionScore.getTotalQuestions(), sessionScore.isHasEssays());
+        }
+        return totals;
     }
 
     /**
      * Enhanced exam results update
      */
-    private void updateExamResults(StudentExam exam, double totalScore, int gradedQuestions, int totalQuestions, boolean hasEssays) {
+    private void updateExamResults(StudentExam exam, SessionScore sessionScore) {
         exam.setGraded(true);
-        exam.setScore((int) totalScore);
+        exam.setScore((int) sessionScore.getTotalScore());
 
-        // Calculate percentage based on maximum possible score
-        double maxPossibleScore = calculateMaxPossibleScore(exam);
-        if (maxPossibleScore > 0) {
-            double percentage = (totalScore / maxPossibleScore) * 100;
-            exam.setPercentage(Math.round(percentage * 100.0) / 100.0); // Round to 2 decimal places
+        // Percentage based on maximum possible score, rounded to 2 decimal places
+        Double percentage = sessionScore.percentage();
+        if (percentage != null) {
+            exam.setPercentage(percentage);
         }
 
         // Set appropriate status based on grading completion
-        if (hasEssays) {
-            // Check if all essays are graded
-            long ungradedEssays = answerRepository.findByStudentExam(exam).stream()
-                    .filter(answer -> answer.getQuestion().getType() == QuestionType.ESSAY)
-                    .filter(answer -> answer.getScore() == null || answer.getScore() == 0)
-                    .count();
-
-            if (ungradedEssays > 0) {
-               // exam.setStatus("PARTIALLY_GRADED");
-                exam.setStatus(StudentExam.ExamStatus.PARTIALLY_GRADED);
-
-                log.info("Exam {} partially graded. {} essays still pending.", exam.getSessionId(), ungradedEssays);
-            } else {
-                exam.setStatus(StudentExam.ExamStatus.FULLY_GRADED);
-
-                //exam.setStatus("FULLY_GRADED");
-                log.info("Exam {} fully graded including all essays.", exam.getSessionId());
-            }
-        } else {
-            exam.setStatus(StudentExam.ExamStatus.FULLY_GRADED);
-
-            // exam.setStatus("FULLY_GRADED");
+        exam.setStatus(sessionScore.status());
+        if (exam.getStatus() == StudentExam.ExamStatus.PARTIALLY_GRADED) {
+            log.info("Exam {} partially graded. {} essays still pending.", exam.getSessionId(), sessionScore.getUngradedEssays());
+        } else if (sessionScore.isHasEssays()) {
+            log.info("Exam {} fully graded including all essays.", exam.getSessionId());
         }
 
         studentExamRepository.save(exam);
 
         log.info("Exam {} graded. Score: {}/{} ({}% auto-graded), Status: {}",
-                exam.getSessionId(), totalScore, maxPossibleScore,
-                (gradedQuestions * 100) / totalQuestions, exam.getStatus());
+                exam.getSessionId(), sessionScore.getTotalScore(), sessionScore.getMaxPossibleScore(),
+                sessionScore.autoGradedPercent(), exam.getStatus());
     }
 
 
@@ -350,188 +339,6 @@ public class ExamGradingService {
 
 
 
-    /**
-     * Grades a single student answer based on question type and correctness
-     *
-     * @param answer The StudentAnswer entity to grade
-     * @return double The score achieved for this question (0 if incorrect or not gradable)
-     */
-    private double gradeSingleAnswer(StudentAnswer answer) {
-        Question question = answer.getStudentExamQuestion().getQuestion();
-        double score = 0.0;
-
-        try {
-            switch (question.getType()) {
-                case MULTIPLE_CHOICE:
-                    score = gradeMultipleChoice(answer, question);
-                    break;
-
-                case MULTIPLE_SELECT:
-                    score = gradeMultipleSelect(answer, question);
-                    break;
-
-                case TRUE_FALSE:
-                    score = gradeTrueFalse(answer, question);
-                    break;
-
-                case FILL_IN_THE_BLANK:
-                    score = gradeFillInTheBlank(answer, question);
-                    break;
-
-                case ESSAY:
-                    score = gradeEssay(answer, question);
-                    break;
-
-                default:
-                    log.warn("Unknown question type: {} for question ID: {}",
-                            question.getType(), question.getId());
-                    score = 0.0;
-            }
-        } catch (Exception e) {
-            log.error("Error grading answer for question {}: {}", question.getId(), e.getMessage());
-            score = 0.0; // Safe fallback on grading errors
-        }
-
-        // Update and save the answer score
-        answer.setScore(score);
-        answerRepository.save(answer);
-
-        log.debug("Graded question {}: score {}", question.getId(), score);
-        return score;
-    }
-
-    /**
-     * Grades a multiple choice question
-     *
-     * @param answer The student's answer
-     * @param question The question with correct answer
-     * @return double Full marks if correct, 0 otherwise
-     */
-    private double gradeMultipleChoice(StudentAnswer answer, Question question) {
-        if (answer.getAnswer() != null &&
-                answer.getAnswer().trim().equalsIgnoreCase(question.getCorrectAnswer().trim())) {
-            return question.getMaxMarks();
-        }
-        return 0.0;
-    }
-
-
-    /**
-     * Grades a TRUE_FALSE
-     *
-     * @param answer The student's answer
-     * @param question The question with correct answer
-     * @return double Full marks if correct, 0 otherwise
-     */
-    private double gradeTrueFalse(StudentAnswer answer, Question question) {
-        if (answer.getAnswer() != null &&
-                answer.getAnswer().trim().equalsIgnoreCase(question.getCorrectAnswer().trim())) {
-            return question.getMaxMarks();
-        }
-        return 0.0;
-    }
-
-    /**
-     * Grades a fill-in-the-blank question (case-insensitive)
-     *
-     * @param answer The student's answer
-     * @param question The question with correct answer
-     * @return double Full marks if correct, 0 otherwise
-     */
-    private double gradeFillInTheBlank(StudentAnswer answer, Question question) {
-        if (answer.getAnswer() != null &&
-                answer.getAnswer().trim().equalsIgnoreCase(question.getCorrectAnswer().trim())) {
-            return question.getMaxMarks();
-        }
-        return 0.0;
-    }
-
-    /**
-     * Grades a multiple select question (order-independent comparison)
-     *
-     * @param answer The student's answer (comma-separated values)
-     * @param question The question with correct answers (comma-separated)
-     * @return double Full marks if all selections are correct, 0 otherwise
-     */
-    private double gradeMultipleSelect(StudentAnswer answer, Question question) {
-        if (answer.getAnswer() == null || question.getCorrectAnswer() == null) {
-            return 0.0;
-        }
-
-        // Normalize and compare answer sets
-        List<String> correctAnswers = Arrays.stream(question.getCorrectAnswer().split(","))
-                .map(String::trim)
-                .map(String::toLowerCase)
-                .toList();
-
-        List<String> studentAnswers = Arrays.stream(answer.getAnswer().split(","))
-                .map(String::trim)
-                .map(String::toLowerCase)
-                .toList();
-
-        // Check if sets match (order doesn't matter, but all must be present)
-        if (correctAnswers.size() == studentAnswers.size() &&
-                correctAnswers.containsAll(studentAnswers)) {
-            return question.getMaxMarks();
-        }
-
-        return 0.0;
-    }
-
-    /**
-     * Handles essay question grading
-     *
-     * @param answer The student's essay answer
-     * @param question The essay question
-     * @return double Always returns 0 as essays require manual grading
-     * @apiNote Essay questions require manual grading. This method serves as a placeholder
-     *          and should be extended for automated essay scoring if needed.
-     */
-    private double gradeEssay(StudentAnswer answer, Question question) {
-        log.debug("Essay question {} requires manual grading. Score set to 0.", question.getId());
-        // Essay questions typically require manual grading
-
-        return 0.0;
-    }
-
-    /**
-     * Updates the exam with final results and grading status
-     *
-     * @param exam The StudentExam entity to update
-     * @param totalScore The total score achieved
-     * @param gradedQuestions Number of questions that were automatically graded
-     * @param totalQuestions Total number of questions in the exam
-     */
-    private void updateExamResults(StudentExam exam, double totalScore, int gradedQuestions, int totalQuestions) {
-        exam.setGraded(true);
-        exam.setScore((int) totalScore);
-
-        // Calculate percentage if needed
-        double maxPossibleScore = calculateMaxPossibleScore(exam);
-        if (maxPossibleScore > 0) {
-            double percentage = (totalScore / maxPossibleScore) * 100;
-            exam.setPercentage(percentage);
-        }
-
-        studentExamRepository.save(exam);
-
-        log.info("Exam {} graded. Score: {}/{} ({}% auto-graded)",
-                exam.getSessionId(), totalScore, maxPossibleScore,
-                (gradedQuestions * 100) / totalQuestions);
-    }
-
-    /**
-     * Calculates the maximum possible score for the exam
-     *
-     * @param exam The StudentExam entity
-     * @return double The sum of max marks for all questions
-     */
-    private double calculateMaxPossibleScore(StudentExam exam) {
-        return answerRepository.findByStudentExam(exam).stream()
-                .mapToDouble(answer -> answer.getStudentExamQuestion().getQuestion().getMaxMarks())
-                .sum();
-    }
-
     /**
      * Gets the grading status of an exam
      *
@@ -8,6 +8,7 @@ import com.almubaraksuleiman.cbts.examiner.model.*;
 import com.almubaraksuleiman.cbts.examiner.repository.QuestionRepository;
 import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
 import com.almubaraksuleiman.cbts.examiner.service.QuestionService;
+import com.almubaraksuleiman.cbts.examiner.service.paper.ExamPaperCache;
 import com.almubaraksuleiman.cbts.mapper.QuestionMapper;
 import com.almubaraksuleiman.cbts.resource.FileStorageService;
 import lombok.RequiredArgsConstructor;
@@ -48,6 +49,7 @@ public class QuestionServiceImpl implements QuestionService {
     private final TestRepository testRepository;   // Handles database operations for tests
     private final QuestionMapper questionMapper;   // Converts between DTO and Entity objects
     private final FileStorageService fileStorageService; // Service for handling file uploads
+    private final ExamPaperCache examPaperCache; // Cached per-test papers used at exam start
 
     /**
      * Adds a new question to a specific test.
@@ -72,6 +74,7 @@ public class QuestionServiceImpl implements QuestionService {
 
         // Save the question to database and get the persisted entity
         Question saved = questionRepo.save(question);
+        examPaperCache.invalidate(testId);
 
         // Convert the saved entity back to DTO and return
         return questionMapper.toDto(saved);
@@ -156,6 +159,7 @@ public class QuestionServiceImpl implements QuestionService {
 
         Question saved = questionRepo.save(question);
         log.info("Question created successfully with ID: {}", saved.getId());
+        examPaperCache.invalidate(testId);
 
         return questionMapper.toDto(saved);
     }
@@ -196,6 +200,7 @@ public class QuestionServiceImpl implements QuestionService {
 
 
         Question saved = questionRepo.save(existing);
+        examPaperCache.invalidate(existing.getTest().getId());
         return questionMapper.toDto(saved);
     }
 
@@ -249,6 +254,7 @@ public class QuestionServiceImpl implements QuestionService {
 
         Question saved = questionRepo.save(existing);
         log.info("Question updated successfully with ID: {}", saved.getId());
+        examPaperCache.invalidate(existing.getTest().getId());
 
         return questionMapper.toDto(saved);
     }
@@ -414,8 +420,11 @@ public class QuestionServiceImpl implements QuestionService {
         if (!questionRepo.existsById(id)) {
             throw new IllegalArgumentException("Question not found with id: " + id);
         }
+        Long testId = questionRepo.findTestIdById(id);
+
         // Delete the question from database
         questionRepo.deleteById(id);
+        examPaperCache.invalidate(testId);
     }
 
     /**
@@ -448,6 +457,7 @@ public class QuestionServiceImpl implements QuestionService {
             // Throw error for unsupported formats
             throw new IllegalArgumentException("Unsupported file format. Please use CSV or Excel.");
         }
+        examPaperCache.invalidate(testId);
     }
 
     /**
@@ -586,7 +586,6 @@ import com.almubaraksuleiman.cbts.examiner.model.Test;
 import com.almubaraksuleiman.cbts.examiner.model.Examiner;
 import com.almubaraksuleiman.cbts.student.model.StudentAnswer;
 import com.almubaraksuleiman.cbts.student.model.StudentExam;
-import com.almubaraksuleiman.cbts.student.model.Student;
 import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
 import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
@@ -594,11 +593,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
-import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -627,12 +628,11 @@ public class ResultsService {
         Page<Test> testsPage = testRepository.findAll(spec, pageable);
 
         // Convert to TestResultSummary with proper pagination
-        List<TestResultSummary> summaries = testsPage.getContent().stream()
+        List<Test> tests = testsPage.getContent().stream()
                 .filter(test -> securityUtils.isAdmin() || securityUtils.canAccessTest(test))
-                .map(this::buildTestResultSummary)
                 .collect(Collectors.toList());
 
-        return new PageImpl<>(summaries, pageable, testsPage.getTotalElements());
+        return new PageImpl<>(buildTestResultSummaries(tests), pageable, testsPage.getTotalElements());
     }
 
     /**
@@ -641,8 +641,10 @@ public class ResultsService {
     public Page<StudentExamResult> getStudentExamResults(Long testId, StudentResultsFilter filter, Pageable pageable) {
         securityUtils.validateTestAccess(testId);
 
-        Specification<StudentExam> spec = buildStudentExamSpecification(testId, filter);
-        Page<StudentExam> examsPage = studentExamRepository.findAll(spec, pageable);
+        StudentResultsFilter criteria = filter != null ? filter : new StudentResultsFilter();
+        Page<StudentExam> examsPage = studentExamRepository.findResults(testId,
+                searchPattern(criteria), criteria.getMinScore(), criteria.getMaxScore(), examStatus(criteria),
+                criteria.getGraded(), criteria.getStartDate(), criteria.getEndDate(), pageable);
 
         List<StudentExamResult> results = examsPage.getContent().stream()
                 .map(this::buildStudentExamResult)
@@ -651,6 +653,36 @@ public class ResultsService {
         return new PageImpl<>(results, pageable, examsPage.getTotalElements());
     }
 
+    /**
+     * Get student exam results for a specific test by keyset pagination: the sessions after
+     * afterSessionId in session ID order. Unlike offset pages, deep pages cost the same as
+     * the first one.
+     *
+     * @param afterSessionId last session ID of the previous page, null for the first page
+     */
+    public StudentExamResultWindow getStudentExamResultsAfter(Long testId, StudentResultsFilter filter,
+                                                              Long afterSessionId, int size) {
+        securityUtils.validateTestAccess(testId);
+
+        StudentResultsFilter criteria = filter != null ? filter : new StudentResultsFilter();
+        // One row beyond the page tells whether another page follows
+        List<StudentExam> exams = studentExamRepository.findResultsAfter(testId,
+                afterSessionId != null ? afterSessionId : 0L,
+                searchPattern(criteria), criteria.getMinScore(), criteria.getMaxScore(), examStatus(criteria),
+                criteria.getGraded(), criteria.getStartDate(), criteria.getEndDate(),
+                PageRequest.of(0, size + 1));
+
+        boolean hasMore = exams.size() > size;
+        List<StudentExam> window = hasMore ? exams.subList(0, size) : exams;
+
+        return StudentExamResultWindow.builder()
+                .results(window.stream().map(this::buildStudentExamResult).collect(Collectors.toList()))
+                .size(window.size())
+                .hasMore(hasMore)
+                .nextAfterSessionId(hasMore ? window.get(window.size() - 1).getSessionId() : null)
+                .build();
+    }
+
     /**
      * Search test results with pagination
      */
@@ -726,11 +758,8 @@ public class ResultsService {
             Specification<Test> finalSpec = examinerSpec.and(buildTestSpecification(filter));
             Page<Test> testsPage = testRepository.findAll(finalSpec, pageable);
 
-            List<TestResultSummary> summaries = testsPage.getContent().stream()
-                    .map(this::buildTestResultSummary)
-                    .collect(Collectors.toList());
-
-            return new PageImpl<>(summaries, pageable, testsPage.getTotalElements());
+            return new PageImpl<>(buildTestResultSummaries(testsPage.getContent()), pageable,
+                    testsPage.getTotalElements());
         } else {
             return getTestResultsSummary(filter, pageable);
         }
@@ -788,76 +817,57 @@ public class ResultsService {
     }
 
     /**
-     * Build specification for student exam filtering
+     * Lower-case LIKE pattern of the filter's search term, null without one
      */
-    private Specification<StudentExam> buildStudentExamSpecification(Long testId, StudentResultsFilter filter) {
-        return (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            // Filter by test ID
-            predicates.add(cb.equal(root.get("test").get("id"), testId));
-
-            if (filter != null) {
-                if (filter.getSearchTerm() != null && !filter.getSearchTerm().isEmpty()) {
-                    String searchPattern = "%" + filter.getSearchTerm().toLowerCase() + "%";
-
-                    // Join with student entity for name/email search
-                    Join<StudentExam, Student> studentJoin = root.join("student");
-                    predicates.add(cb.or(
-                            cb.like(cb.lower(studentJoin.get("username")), searchPattern),
-                            cb.like(cb.lower(studentJoin.get("email")), searchPattern),
-                            cb.like(cb.lower(studentJoin.get("studentId")), searchPattern)
-                    ));
-                }
-
-                if (filter.getMinScore() != null) {
-                    predicates.add(cb.greaterThanOrEqualTo(root.get("percentage"), filter.getMinScore()));
-                }
-
-                if (filter.getMaxScore() != null) {
-                    predicates.add(cb.lessThanOrEqualTo(root.get("percentage"), filter.getMaxScore()));
-                }
-
-                if (filter.getStatus() != null) {
-                    predicates.add(cb.equal(root.get("status"), filter.getStatus()));
-                }
+    private String searchPattern(StudentResultsFilter filter) {
+        if (filter.getSearchTerm() == null || filter.getSearchTerm().isEmpty()) {
+            return null;
+        }
+        return "%" + filter.getSearchTerm().toLowerCase() + "%";
+    }
 
-                if (filter.getGraded() != null) {
-                    predicates.add(cb.equal(root.get("graded"), filter.getGraded()));
-                }
+    private StudentExam.ExamStatus examStatus(StudentResultsFilter filter) {
+        if (filter.getStatus() == null || filter.getStatus().isEmpty()) {
+            return null;
+        }
+        try {
+            return StudentExam.ExamStatus.valueOf(filter.getStatus().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown exam status: " + filter.getStatus());
+        }
+    }
 
-                if (filter.getStartDate() != null) {
-                    predicates.add(cb.greaterThanOrEqualTo(root.get("endTime"), filter.getStartDate()));
-                }
+    /**
+     * Build test result summaries of a page of tests from one grouped query over their exams
+     */
+    private List<TestResultSummary> buildTestResultSummaries(List<Test> tests) {
+        if (tests.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-                if (filter.getEndDate() != null) {
-                    predicates.add(cb.lessThanOrEqualTo(root.get("endTime"), filter.getEndDate()));
-                }
-            }
+        Map<Long, Object[]> countsByTest = new HashMap<>();
+        for (Object[] row : studentExamRepository.summarizeResultsByTestIds(
+                tests.stream().map(Test::getId).collect(Collectors.toList()))) {
+            countsByTest.put((Long) row[0], row);
+        }
 
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
+        return tests.stream()
+                .map(test -> buildTestResultSummary(test, countsByTest.get(test.getId())))
+                .collect(Collectors.toList());
     }
 
     /**
      * Build test result summary from Test entity
+     *
+     * @param counts [testId, sessions, completed, graded, average percentage, passed], null
+     *               for a test without sessions
      */
-    private TestResultSummary buildTestResultSummary(Test test) {
-        List<StudentExam> exams = studentExamRepository.findByTestId(test.getId());
-
-        long totalStudents = exams.size();
-        long completedStudents = exams.stream().filter(StudentExam::getCompleted).count();
-        long gradedStudents = exams.stream().filter(StudentExam::getGraded).count();
-
-        double averageScore = exams.stream()
-                .filter(exam -> exam.getPercentage() != null)
-                .mapToDouble(StudentExam::getPercentage)
-                .average()
-                .orElse(0.0);
-
-        long passedStudents = exams.stream()
-                .filter(exam -> exam.getPercentage() != null && exam.getPercentage() >= test.getPassingScore())
-                .count();
+    private TestResultSummary buildTestResultSummary(Test test, Object[] counts) {
+        long totalStudents = counts != null ? ((Number) counts[1]).longValue() : 0;
+        long completedStudents = counts != null && counts[2] != null ? ((Number) counts[2]).longValue() : 0;
+        long gradedStudents = counts != null && counts[3] != null ? ((Number) counts[3]).longValue() : 0;
+        double averageScore = counts != null && counts[4] != null ? ((Number) counts[4]).doubleValue() : 0.0;
+        long passedStudents = counts != null && counts[5] != null ? ((Number) counts[5]).longValue() : 0;
 
         double passRate = totalStudents > 0 ? (double) passedStudents / totalStudents * 100 : 0.0;
 
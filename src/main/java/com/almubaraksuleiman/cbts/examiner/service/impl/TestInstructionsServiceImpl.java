@@ -6,6 +6,7 @@ import com.almubaraksuleiman.cbts.dto.TestInstructions;
 import com.almubaraksuleiman.cbts.examiner.model.Test;
 import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
 import com.almubaraksuleiman.cbts.examiner.service.TestInstructionsService;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
 import com.almubaraksuleiman.cbts.config.RedisConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.HashOperations;
@@ -47,6 +48,9 @@ public class TestInstructionsServiceImpl implements TestInstructionsService {
     // Repository for accessing test data from database
     private final TestRepository testRepository;
 
+    // Analytics judge pass flags against the passing score
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+
     /**
      * Constructor for dependency injection
      *
@@ -54,16 +58,19 @@ public class TestInstructionsServiceImpl implements TestInstructionsService {
      * @param examInstructionsHashOps Redis operations for exam instructions resource
      * @param defaultInstructionTemplate Template for default instructions
      * @param testRepository Repository for test data access
+     * @param analyticsAccumulator Per-test analytics, invalidated when the passing score changes
      */
     public TestInstructionsServiceImpl(
             HashOperations<String, String, String> userStatusHashOps,
             HashOperations<String, String, TestInstructions> examInstructionsHashOps,
             List<String> defaultInstructionTemplate,
-            TestRepository testRepository) {
+            TestRepository testRepository,
+            TestAnalyticsAccumulator analyticsAccumulator) {
         this.userStatusHashOps = userStatusHashOps;
         this.examInstructionsHashOps = examInstructionsHashOps;
         this.defaultInstructionTemplate = defaultInstructionTemplate;
         this.testRepository = testRepository;
+        this.analyticsAccumulator = analyticsAccumulator;
         log.info("TestInstructionsServiceImpl initialized with default instruction template");
     }
 
@@ -149,6 +156,7 @@ public class TestInstructionsServiceImpl implements TestInstructionsService {
     @Override
     public void updateInstructions(Long testId, TestInstructions updatedInstructions) {
         TestInstructions existing = getInstructionsForTest(testId);
+        boolean passingScoreChanged = existing.getPassingScore() != updatedInstructions.getPassingScore();
 
         // Update fields that are allowed to change
         existing.setInstructions(updatedInstructions.getInstructions());
@@ -161,6 +169,9 @@ public class TestInstructionsServiceImpl implements TestInstructionsService {
         existing.setShowResultsImmediately(updatedInstructions.isShowResultsImmediately());
 
         saveInstructions(existing);
+        if (passingScoreChanged) {
+            analyticsAccumulator.invalidate(testId);
+        }
     }
 
     /**
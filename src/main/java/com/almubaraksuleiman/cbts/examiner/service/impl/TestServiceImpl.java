@@ -10,6 +10,7 @@ import com.almubaraksuleiman.cbts.mapper.TestMapper;
 import com.almubaraksuleiman.cbts.examiner.model.Test;
 import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
 import com.almubaraksuleiman.cbts.examiner.service.TestService;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,6 +23,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
@@ -31,6 +33,7 @@ import java.io.InputStreamReader;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -57,6 +60,12 @@ public class TestServiceImpl implements TestService {
 
     private final SecurityUtils securityUtils;
 
+    // Its stored pass flags are judged against the passing score
+    private final TestAnalyticsAccumulator analyticsAccumulator;
+
+    // Rollups count passes against the passing score
+    private final DashboardRollupService dashboardRollupService;
+
     /**
      * Creates a new test from the provided DTO.
      * Converts DTO to entity, saves to database, and returns the saved entity as DTO.
@@ -87,12 +96,18 @@ public class TestServiceImpl implements TestService {
      * @throws IllegalArgumentException if test with given ID is not found
      */
     @Override
+    @Transactional
     public TestDto editTest(Long id, TestDto testDto) {
         Test test = testRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Test not found"));
 
         securityUtils.validateTestAccess(test);
 
+        boolean passingScoreChanged = !Objects.equals(test.getPassingScore(), testDto.getPassingScore());
+        if (passingScoreChanged) {
+            dashboardRollupService.markTestChanged(id);
+        }
+
         // Update fields
         test.setTitle(testDto.getTitle());
         test.setDescription(testDto.getDescription());
@@ -104,7 +119,11 @@ public class TestServiceImpl implements TestService {
         test.setPassingScore(testDto.getPassingScore());
         test.setTotalMarks(testDto.getTotalMarks());
 
-        return testMapper.toDto(testRepository.save(test));
+        Test saved = testRepository.save(test);
+        if (passingScoreChanged) {
+            analyticsAccumulator.invalidate(id);
+        }
+        return testMapper.toDto(saved);
     }
 
     /**
@@ -154,12 +173,14 @@ public class TestServiceImpl implements TestService {
      * @param id The ID of the test to delete
      */
     @Override
+    @Transactional
     public void deleteTest(Long id) {
         Test test = testRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Test not found"));
 
         securityUtils.validateTestAccess(test);
 
+        dashboardRollupService.markTestChanged(id);
         testRepository.delete(test);
     }
 
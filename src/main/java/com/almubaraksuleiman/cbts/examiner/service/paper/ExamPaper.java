@@ -0,0 +1,97 @@
+package com.almubaraksuleiman.cbts.examiner.service.paper;
+
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of a test's question bank, holding only what exam start needs.
+ *
+ * Questions are stored column-wise in parallel arrays indexed by position, so selecting and
+ * shuffling a paper for a candidate works on int indices and never touches question text,
+ * explanations or media. Choices are pre-split into options for index-based shuffling.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public final class ExamPaper {
+
+    private final long testId;
+    private final long version;
+    private final long[] questionIds;
+    private final QuestionType[] types;
+    private final double[] maxMarks;
+    private final String[] choices;
+    private final String[][] choiceOptions;
+
+    private ExamPaper(long testId, long version, int size) {
+        this.testId = testId;
+        this.version = version;
+        this.questionIds = new long[size];
+        this.types = new QuestionType[size];
+        this.maxMarks = new double[size];
+        this.choices = new String[size];
+        this.choiceOptions = new String[size][];
+    }
+
+    /**
+     * @param rows [id, type, maxMarks, choices] rows ordered by question ID
+     * @param version invalidation version the rows were read under
+     */
+    public static ExamPaper of(long testId, long version, List<Object[]> rows) {
+        ExamPaper paper = new ExamPaper(testId, version, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            String rawChoices = (String) row[3];
+
+            paper.questionIds[i] = (Long) row[0];
+            paper.types[i] = (QuestionType) row[1];
+            paper.maxMarks[i] = row[2] != null ? (Double) row[2] : 0.0;
+            paper.choices[i] = rawChoices;
+            paper.choiceOptions[i] = rawChoices == null || rawChoices.trim().isEmpty()
+                    ? new String[0]
+                    : rawChoices.split("\\s*,\\s*");
+        }
+        return paper;
+    }
+
+    public long getTestId() {
+        return testId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public long questionId(int index) {
+        return questionIds[index];
+    }
+
+    public QuestionType type(int index) {
+        return types[index];
+    }
+
+    public double maxMarks(int index) {
+        return maxMarks[index];
+    }
+
+    /** Choices as stored on the question */
+    public String choices(int index) {
+        return choices[index];
+    }
+
+    /** Number of options the choices split into, 0 if the question has none */
+    public int optionCount(int index) {
+        return choiceOptions[index].length;
+    }
+
+    /** Single option; callers index into it rather than receiving the shared array */
+    public String option(int index, int optionIndex) {
+        return choiceOptions[index][optionIndex];
+    }
+}
@@ -0,0 +1,107 @@
+package com.almubaraksuleiman.cbts.examiner.service.paper;
+
+import com.almubaraksuleiman.cbts.examiner.repository.QuestionRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-test cache of {@link ExamPaper} snapshots used at exam start.
+ *
+ * Snapshots are built from a narrow projection (id, type, marks, choices) and shared by every
+ * candidate starting the same test. Each test has a version counter in Redis that
+ * QuestionServiceImpl bumps after a question edit commits; a snapshot built under an older
+ * version is rebuilt on next use, which keeps every node consistent without a broadcast.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class ExamPaperCache {
+
+    private final QuestionRepository questionRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<Long, ExamPaper> papers;
+
+    public ExamPaperCache(QuestionRepository questionRepository,
+                          StringRedisTemplate redisTemplate,
+                          @Value("${exam.paper.cache.max-tests:500}") long maxTests,
+                          @Value("${exam.paper.cache.expire-after-access-minutes:120}") long expireAfterAccessMinutes) {
+        this.questionRepository = questionRepository;
+        this.redisTemplate = redisTemplate;
+        this.papers = CacheBuilder.newBuilder()
+                .maximumSize(maxTests)
+                .expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Returns the current snapshot for a test, loading it once if missing or outdated.
+     */
+    public ExamPaper getPaper(Long testId) {
+        long version = currentVersion(testId);
+
+        ExamPaper cached = papers.getIfPresent(testId);
+        if (cached != null) {
+            if (cached.getVersion() == version) return cached;
+            papers.asMap().remove(testId, cached);
+        }
+
+        try {
+            // Concurrent starts of the same test wait for a single load
+            return papers.get(testId, () -> load(testId, version));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to load question paper for test: " + testId, e.getCause());
+        }
+    }
+
+    /**
+     * Marks the test's snapshot outdated on every node. Inside a transaction the version is
+     * bumped after commit, so no node can rebuild from the uncommitted state and keep it.
+     */
+    public void invalidate(Long testId) {
+        if (testId == null) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpVersion(testId);
+                }
+            });
+        } else {
+            bumpVersion(testId);
+        }
+    }
+
+    private ExamPaper load(Long testId, long version) {
+        ExamPaper paper = ExamPaper.of(testId, version, questionRepository.findPaperRowsByTestId(testId));
+        log.info("Built question paper for test {} (version {}, {} questions)", testId, version, paper.size());
+        return paper;
+    }
+
+    private void bumpVersion(Long testId) {
+        redisTemplate.opsForValue().increment(versionKey(testId));
+        papers.invalidate(testId);
+        log.debug("Invalidated question paper for test {}", testId);
+    }
+
+    private long currentVersion(Long testId) {
+        String version = redisTemplate.opsForValue().get(versionKey(testId));
+        return version != null ? Long.parseLong(version) : 0L;
+    }
+
+    private static String versionKey(Long testId) {
+        return "exam:paper:version:" + testId;
+    }
+}
@@ -0,0 +1,99 @@
+package com.almubaraksuleiman.cbts.examiner.service.paper;
+
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+/**
+ * Deterministic permutations derived from a per-session seed.
+ *
+ * Question selection and every question's choice order are pure functions of
+ * (seed, questionId), so they can be regenerated on demand instead of being stored per
+ * student. Each question gets its own SplittableRandom stream, which keeps a question's
+ * choice order independent of where it appears in the paper.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public final class SeededShuffle {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private SeededShuffle() {
+    }
+
+    /**
+     * Picks {@code count} paper positions, shuffled when {@code randomize} is set.
+     *
+     * @return positions into the paper in display order
+     */
+    public static int[] selectPositions(int paperSize, int count, boolean randomize, long seed) {
+        int selected = Math.min(count, paperSize);
+        int[] positions = new int[paperSize];
+        for (int i = 0; i < paperSize; i++) {
+            positions[i] = i;
+        }
+
+        if (randomize) {
+            // Partial Fisher-Yates: only the selected prefix needs to be shuffled
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < selected; i++) {
+                swap(positions, i, i + random.nextInt(paperSize - i));
+            }
+        }
+
+        int[] result = new int[selected];
+        System.arraycopy(positions, 0, result, 0, selected);
+        return result;
+    }
+
+    /**
+     * Choice order of a paper question for the given seed.
+     */
+    public static String shuffleChoices(ExamPaper paper, int position, long seed) {
+        int count = paper.optionCount(position);
+        int[] order = permutation(count, seed, paper.questionId(position));
+
+        StringJoiner joiner = new StringJoiner(",");
+        for (int index : order) {
+            joiner.add(paper.option(position, index));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Choice order of a question's stored choices for the given seed. Produces the same result
+     * as {@link #shuffleChoices(ExamPaper, int, long)} for the same choices.
+     */
+    public static String shuffleChoices(String choices, long questionId, long seed) {
+        if (choices == null || choices.trim().isEmpty()) {
+            return choices;
+        }
+        String[] options = choices.split("\\s*,\\s*");
+        int[] order = permutation(options.length, seed, questionId);
+
+        StringJoiner joiner = new StringJoiner(",");
+        for (int index : order) {
+            joiner.add(options[index]);
+        }
+        return joiner.toString();
+    }
+
+    private static int[] permutation(int count, long seed, long questionId) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed + questionId * GOLDEN_GAMMA);
+        for (int i = count - 1; i > 0; i--) {
+            swap(order, i, random.nextInt(i + 1));
+        }
+        return order;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int swap = values[i];
+        values[i] = values[j];
+        values[j] = swap;
+    }
+}
@@ -0,0 +1,198 @@
+package com.almubaraksuleiman.cbts.examiner.service.timer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Deadline-based exam timer engine.
+ *
+ * Every running exam session has exactly one absolute expiry (epoch millis) stored in the
+ * Redis sorted set {@value #DEADLINES_KEY}; remaining time is always derived as
+ * {@code deadline - now} rather than decremented. A local {@link HierarchicalTimingWheel}
+ * mirrors the deadlines this node knows about so that a tick only touches sessions that are
+ * actually due, and the sorted set stays the single source of truth shared by all nodes:
+ * - A due session is claimed with ZREM, so exactly one node auto-submits it
+ * - Extra time simply rewrites the score; stale wheel entries are re-read and rescheduled
+ * - A periodic reconcile pulls in deadlines scheduled by other nodes (or before a restart)
+ *   using a bounded ZRANGEBYSCORE window instead of scanning every session
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class ExamDeadlineScheduler {
+
+    /** Sorted set: member = sessionId, score = absolute deadline in epoch millis */
+    public static final String DEADLINES_KEY = "exam:timer:deadlines";
+
+    private final StringRedisTemplate redisTemplate;
+    private final long reconcileHorizonMs;
+
+    /** Deadlines currently held in the local wheel; used for lazy cancellation */
+    private final Map<Long, Long> localDeadlines = new HashMap<>();
+    private final HierarchicalTimingWheel wheel;
+
+    /** Sessions that were already due when they were tracked */
+    private final Map<Long, Long> dueNow = new HashMap<>();
+
+    public ExamDeadlineScheduler(StringRedisTemplate redisTemplate,
+                                 @Value("${exam.timer.wheel.tick-ms:1000}") long tickMs,
+                                 @Value("${exam.timer.wheel.size:64}") int wheelSize,
+                                 @Value("${exam.timer.reconcile-horizon-ms:120000}") long reconcileHorizonMs) {
+        this.redisTemplate = redisTemplate;
+        this.reconcileHorizonMs = reconcileHorizonMs;
+        this.wheel = new HierarchicalTimingWheel(tickMs, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Registers (or moves) the absolute deadline of a session.
+     */
+    public void schedule(Long sessionId, long deadlineMs) {
+        redisTemplate.opsForZSet().add(DEADLINES_KEY, sessionId.toString(), deadlineMs);
+        trackLocally(sessionId, deadlineMs);
+    }
+
+    /**
+     * Removes the deadline of a session.
+     *
+     * @return true if the session had a deadline registered
+     */
+    public boolean cancel(Long sessionId) {
+        synchronized (wheel) {
+            localDeadlines.remove(sessionId);
+        }
+        Long removed = redisTemplate.opsForZSet().remove(DEADLINES_KEY, sessionId.toString());
+        return removed != null && removed > 0;
+    }
+
+    /**
+     * @return the absolute deadline in epoch millis, or null if the session has no running timer
+     */
+    public Long getDeadline(Long sessionId) {
+        Double score = redisTemplate.opsForZSet().score(DEADLINES_KEY, sessionId.toString());
+        return score != null ? score.longValue() : null;
+    }
+
+    /**
+     * @return remaining whole seconds for the session, 0 if expired or not running
+     */
+    public int getRemainingSeconds(Long sessionId) {
+        Long deadline = getDeadline(sessionId);
+        return deadline != null ? remainingSeconds(deadline, System.currentTimeMillis()) : 0;
+    }
+
+    /**
+     * Returns the deadlines of every running session in a single round trip.
+     */
+    public Map<Long, Long> getAllDeadlines() {
+        Set<ZSetOperations.TypedTuple<String>> tuples =
+                redisTemplate.opsForZSet().rangeWithScores(DEADLINES_KEY, 0, -1);
+        Map<Long, Long> deadlines = new LinkedHashMap<>();
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    deadlines.put(Long.parseLong(tuple.getValue()), tuple.getScore().longValue());
+                }
+            }
+        }
+        return deadlines;
+    }
+
+    /**
+     * Advances the local wheel and claims every session whose deadline has passed.
+     * Cost is proportional to the number of sessions coming due, not to the number running.
+     * A claimed session no longer has a deadline, so a caller that fails to auto-submit it
+     * must {@link #schedule} it again to have it retried.
+     *
+     * @return session IDs this node has claimed for auto-submit
+     */
+    public List<Long> pollExpired() {
+        long now = System.currentTimeMillis();
+        List<Long> candidates = new ArrayList<>();
+
+        synchronized (wheel) {
+            BiConsumer<Long, Long> collect = (sessionId, deadline) -> {
+                // Skip entries that were cancelled or rescheduled since they were added
+                if (deadline.equals(localDeadlines.get(sessionId))) {
+                    localDeadlines.remove(sessionId);
+                    candidates.add(sessionId);
+                }
+            };
+            dueNow.forEach(collect);
+            dueNow.clear();
+            wheel.advance(now, collect);
+        }
+
+        List<Long> claimed = new ArrayList<>();
+        for (Long sessionId : candidates) {
+            Long current = getDeadline(sessionId);
+            if (current == null) {
+                continue; // Stopped or already claimed by another node
+            }
+            if (current > now) {
+                trackLocally(sessionId, current); // Extra time was granted
+                continue;
+            }
+            Long removed = redisTemplate.opsForZSet().remove(DEADLINES_KEY, sessionId.toString());
+            if (removed != null && removed > 0) {
+                claimed.add(sessionId);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Pulls deadlines falling inside the reconcile horizon into the local wheel. This covers
+     * sessions started on other nodes and anything scheduled before this node restarted.
+     */
+    @Scheduled(fixedDelayString = "${exam.timer.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        try {
+            long upper = System.currentTimeMillis() + reconcileHorizonMs;
+            Set<ZSetOperations.TypedTuple<String>> tuples =
+                    redisTemplate.opsForZSet().rangeByScoreWithScores(DEADLINES_KEY, Double.NEGATIVE_INFINITY, upper);
+            if (tuples == null || tuples.isEmpty()) {
+                return;
+            }
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    trackLocally(Long.parseLong(tuple.getValue()), tuple.getScore().longValue());
+                }
+            }
+            log.debug("Reconciled {} exam deadlines within {} ms", tuples.size(), reconcileHorizonMs);
+        } catch (Exception e) {
+            log.error("Failed to reconcile exam deadlines: {}", e.getMessage());
+        }
+    }
+
+    public static int remainingSeconds(long deadlineMs, long nowMs) {
+        long remaining = deadlineMs - nowMs;
+        return remaining > 0 ? (int) ((remaining + 999) / 1000) : 0;
+    }
+
+    private void trackLocally(Long sessionId, long deadlineMs) {
+        synchronized (wheel) {
+            if (Long.valueOf(deadlineMs).equals(localDeadlines.get(sessionId))) {
+                return;
+            }
+            localDeadlines.put(sessionId, deadlineMs);
+            if (!wheel.add(sessionId, deadlineMs)) {
+                dueNow.put(sessionId, deadlineMs); // Already inside the current tick
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.almubaraksuleiman.cbts.examiner.service.timer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Hierarchical timing wheel keyed by exam session ID.
+ *
+ * Each level has {@code wheelSize} buckets of {@code tickMs} width. Deadlines beyond the
+ * span of a level are parked in a coarser overflow level and cascaded down as the clock
+ * reaches them, so adding, cancelling and expiring a session are all O(1) and advancing the
+ * clock only touches the buckets that actually come due.
+ *
+ * The wheel is not thread-safe; callers are expected to guard it with their own lock.
+ * Cancellation is lazy: the owner keeps the authoritative deadline per session and discards
+ * expirations whose deadline no longer matches.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public final class HierarchicalTimingWheel {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final List<Map<Long, Long>> buckets;
+    private final HierarchicalTimingWheel root;
+
+    private long currentTime;
+    private HierarchicalTimingWheel overflowWheel;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        this(tickMs, wheelSize, startMs, null);
+    }
+
+    private HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs, HierarchicalTimingWheel root) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize greater than 1");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.currentTime = startMs - (startMs % tickMs);
+        this.root = root != null ? root : this;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Places a session in the bucket covering its deadline. Deadlines are rounded up to the
+     * next tick of the finest level, so a session never expires before its deadline.
+     *
+     * @return false if the deadline has already been reached, i.e. it is due now
+     */
+    public boolean add(long sessionId, long deadlineMs) {
+        long remainder = deadlineMs % tickMs;
+        long expiry = remainder == 0 ? deadlineMs : deadlineMs - remainder + tickMs;
+        if (expiry <= currentTime) {
+            return false;
+        }
+        place(sessionId, deadlineMs, expiry);
+        return true;
+    }
+
+    private void place(long sessionId, long deadlineMs, long expiry) {
+        if (expiry < currentTime + interval) {
+            buckets.get(bucketIndex(expiry)).put(sessionId, deadlineMs);
+        } else {
+            overflow().place(sessionId, deadlineMs, expiry);
+        }
+    }
+
+    /**
+     * Advances the clock to {@code nowMs}, handing every due (sessionId, deadline) pair to
+     * {@code expired}. Entries parked in coarser levels are cascaded back through the root.
+     */
+    public void advance(long nowMs, BiConsumer<Long, Long> expired) {
+        while (currentTime + tickMs <= nowMs) {
+            currentTime += tickMs;
+            if (overflowWheel != null) {
+                overflowWheel.advance(currentTime, expired);
+            }
+            drainBucket(bucketIndex(currentTime), expired);
+        }
+    }
+
+    private void drainBucket(int index, BiConsumer<Long, Long> expired) {
+        Map<Long, Long> bucket = buckets.get(index);
+        if (bucket.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> due = new HashMap<>(bucket);
+        bucket.clear();
+        due.forEach((sessionId, deadline) -> {
+            if (!root.add(sessionId, deadline)) {
+                expired.accept(sessionId, deadline);
+            }
+        });
+    }
+
+    private HierarchicalTimingWheel overflow() {
+        if (overflowWheel == null) {
+            overflowWheel = new HierarchicalTimingWheel(interval, wheelSize, currentTime, root);
+        }
+        return overflowWheel;
+    }
+
+    private int bucketIndex(long timeMs) {
+        return (int) ((timeMs / tickMs) % wheelSize);
+    }
+}
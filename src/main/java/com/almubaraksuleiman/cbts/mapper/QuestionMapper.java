@@ -124,6 +124,7 @@ public class QuestionMapper {
                 .category(question.getCategory())
                 .timeLimitSeconds(question.getTimeLimitSeconds())
                 .allowPartialCredit(question.getAllowPartialCredit())
+                .partialCreditPolicy(question.getPartialCreditPolicy())
                 .createdAt(question.getCreatedAt())
                 .updatedAt(question.getUpdatedAt())
                 .build();
@@ -169,6 +170,7 @@ public class QuestionMapper {
                 .category(dto.getCategory())
                 .timeLimitSeconds(dto.getTimeLimitSeconds())
                 .allowPartialCredit(dto.getAllowPartialCredit())
+                .partialCreditPolicy(dto.getPartialCreditPolicy())
                 .build();
     }
 
@@ -238,5 +240,8 @@ public class QuestionMapper {
         if (dto.getAllowPartialCredit() != null) {
             question.setAllowPartialCredit(dto.getAllowPartialCredit());
         }
+        if (dto.getPartialCreditPolicy() != null) {
+            question.setPartialCreditPolicy(dto.getPartialCreditPolicy());
+        }
     }
 }
\ No newline at end of file
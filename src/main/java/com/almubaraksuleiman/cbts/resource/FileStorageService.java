@@ -5,6 +5,9 @@ package com.almubaraksuleiman.cbts.resource;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * File Storage Service Interface for multi-cloud support.
  *
@@ -36,6 +39,26 @@ public interface FileStorageService {
      */
     String storeFile(MultipartFile file);
 
+    /**
+     * Writes the content of a file generated by the application (e.g. a report) to a
+     * stream, without holding it in memory.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Stores generated content under the given path, replacing any file already there.
+     * Readers never see a partially written file.
+     *
+     * @param filePath The relative path to store the file at, e.g. "reports/12/r40.pdf"
+     * @param writer Writes the content of the file
+     * @return String The storage path, URL, or identifier for the stored file
+     * @throws FileStorageException if file storage fails
+     */
+    String storeFile(String filePath, ContentWriter writer);
+
     /**
      * Deletes a file from storage using its path or URL.
      * Handles different storage backends transparently.
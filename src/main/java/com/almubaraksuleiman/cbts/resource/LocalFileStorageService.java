@@ -8,8 +8,10 @@ import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -98,6 +100,47 @@ public class LocalFileStorageService implements FileStorageService {
         }
     }
 
+    /**
+     * Stores generated content on the local file system. The content is written to a
+     * temporary file in the target directory and then moved over the target in one step.
+     *
+     * @param filePath The relative path to store the file at
+     * @param writer Writes the content of the file
+     * @return String The relative path of the stored file
+     * @throws FileStorageException if the path is outside the upload directory or storage fails
+     */
+    @Override
+    public String storeFile(String filePath, ContentWriter writer) {
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path target = uploadPath.resolve(filePath).normalize();
+        if (!target.startsWith(uploadPath) || target.equals(uploadPath)) {
+            throw new FileStorageException("Cannot store file outside upload directory");
+        }
+
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), ".tmp-", "-" + target.getFileName());
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            return filePath;
+
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store file " + filePath, ex);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Left for the next cleanup of the upload directory
+                }
+            }
+        }
+    }
+
     /**
      * Deletes a file from the local file system.
      *
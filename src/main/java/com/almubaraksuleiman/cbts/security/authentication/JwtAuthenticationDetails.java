@@ -0,0 +1,27 @@
+package com.almubaraksuleiman.cbts.security.authentication;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+/**
+ * Request details of a JWT-authenticated request, extended with the identity claims the
+ * token carried so controllers do not have to look them up again.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class JwtAuthenticationDetails extends WebAuthenticationDetails {
+
+    /** Numeric student ID from the token, null for non-student or older tokens */
+    private final Long studentId;
+
+    public JwtAuthenticationDetails(HttpServletRequest request, Long studentId) {
+        super(request);
+        this.studentId = studentId;
+    }
+}
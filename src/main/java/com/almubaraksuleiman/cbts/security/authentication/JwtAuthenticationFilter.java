@@ -53,6 +53,7 @@
 package com.almubaraksuleiman.cbts.security.authentication;
 
 import com.almubaraksuleiman.cbts.security.authentication.service.JwtService;
+import com.almubaraksuleiman.cbts.security.authentication.service.VerifiedClaims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -61,13 +62,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * A Spring Security filter that intercepts incoming HTTP requests to authenticate users
@@ -137,12 +138,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Proceed only if the extracted token is not empty
             if (StringUtils.hasText(token)) {
                 try {
-                    // Delegate token validation (signature, expiration) to the JwtService
-                    if (jwtService.isTokenValid(token)) {
-                        // Extract the username (subject) from the validated token
-                        String username = jwtService.extractUsername(token);
-                        // Extract the user's role from the token claims
-                        String role = jwtService.parseRole(token);
+                    // Verify the token once (signature, expiration); repeat tokens are served from cache
+                    Optional<VerifiedClaims> verified = jwtService.verify(token);
+                    if (verified.isPresent()) {
+                        VerifiedClaims claims = verified.get();
+                        String username = claims.username();
+                        String role = claims.role();
 
                         /*
                          * Check if the SecurityContext is not already authenticated.
@@ -159,10 +160,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                             List.of(new org.springframework.security.core.authority.SimpleGrantedAuthority(role)) // authorities
                                     );
 
-                            // Add request details (like remote IP address and session ID) to the authentication object
-                            authenticationToken.setDetails(
-                                    new WebAuthenticationDetailsSource().buildDetails(request)
-                            );
+                            // Add request details (like remote IP address and session ID) and the token's student ID
+                            authenticationToken.setDetails(new JwtAuthenticationDetails(request, claims.studentId()));
 
                             // Set the fully authenticated user into the SecurityContext for this thread
                             SecurityContextHolder.getContext().setAuthentication(authenticationToken);
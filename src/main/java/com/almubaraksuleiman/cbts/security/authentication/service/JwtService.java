@@ -4,14 +4,20 @@ import com.almubaraksuleiman.cbts.admin.repository.AdminRepository;
 import com.almubaraksuleiman.cbts.examiner.repository.ExaminerRepository;
 import com.almubaraksuleiman.cbts.proctor.repository.ProctorRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for JWT token operations including generation, validation, and parsing.
@@ -30,10 +36,19 @@ public class JwtService {
     private final StudentRepository studentRepository;
     private final ProctorRepository proctorRepository;
 
+    /** Claim holding the numeric student ID on student tokens */
+    public static final String STUDENT_ID_CLAIM = "studentId";
+
     // JWT configuration properties
     private final long accessTokenSeconds;
     private final SecretKey key;
 
+    /** Built once; JwtParser is immutable and thread-safe */
+    private final JwtParser parser;
+
+    /** Verified claims by token hash, so each token's signature is checked once per node */
+    private final Cache<String, VerifiedClaims> verifiedClaims;
+
     /**
      * Constructs a JwtService with required dependencies and configuration.
      *
@@ -43,6 +58,7 @@ public class JwtService {
      * @param proctorRepository Repository for proctor user operations
      * @param secret JWT secret key for signing tokens from application properties
      * @param accessTokenSeconds Access token expiration time in seconds from application properties
+     * @param verifiedCacheMaxSize Maximum number of verified tokens kept in the claims cache
      */
     public JwtService(
             AdminRepository adminRepository,
@@ -50,7 +66,8 @@ public class JwtService {
             StudentRepository studentRepository,
             ProctorRepository proctorRepository,
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.access-exp-sec}") long accessTokenSeconds
+            @Value("${jwt.access-exp-sec}") long accessTokenSeconds,
+            @Value("${jwt.verified-cache.max-size:100000}") long verifiedCacheMaxSize
     ) {
         this.adminRepository = adminRepository;
         this.examinerRepository = examinerRepository;
@@ -58,6 +75,51 @@ public class JwtService {
         this.proctorRepository = proctorRepository;
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.accessTokenSeconds = accessTokenSeconds;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedClaims = CacheBuilder.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                // Upper bound only; entries are also rejected once their token's exp has passed
+                .expireAfterWrite(accessTokenSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Verifies a token once and returns its identity claims.
+     * Signature and expiry are checked on first sight; later calls with the same token are
+     * served from a bounded cache keyed by the token's SHA-256 until the token expires.
+     *
+     * @param token The JWT token to verify
+     * @return the verified claims, or empty if the token is invalid, malformed or expired
+     */
+    public Optional<VerifiedClaims> verify(String token) {
+        if (token == null || token.isEmpty()) return Optional.empty();
+
+        String tokenHash = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+        long now = System.currentTimeMillis();
+
+        VerifiedClaims cached = verifiedClaims.getIfPresent(tokenHash);
+        if (cached != null) {
+            if (cached.isExpired(now)) {
+                verifiedClaims.invalidate(tokenHash);
+                return Optional.empty();
+            }
+            return Optional.of(cached);
+        }
+
+        try {
+            Claims body = parseToken(token).getBody();
+            Number studentId = body.get(STUDENT_ID_CLAIM, Number.class);
+            VerifiedClaims claims = new VerifiedClaims(
+                    body.getSubject(),
+                    body.get("role", String.class),
+                    studentId != null ? studentId.longValue() : null,
+                    body.getExpiration() != null ? body.getExpiration().getTime() : Long.MAX_VALUE);
+
+            verifiedClaims.put(tokenHash, claims);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
     /**
@@ -85,10 +147,7 @@ public class JwtService {
      * @throws IllegalArgumentException if the token is null or empty
      */
     public Jws<Claims> parseToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
     }
 
     /**
@@ -112,9 +171,17 @@ public class JwtService {
     public String generateToken(String username) {
         String role = determineRoleForUsername(username);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(username)
-                .claim("role", role)
+                .claim("role", role);
+
+        // Students carry their numeric ID so exam endpoints resolve identity without a lookup
+        if ("ROLE_STUDENT".equals(role)) {
+            studentRepository.findByUsername(username)
+                    .ifPresent(student -> builder.claim(STUDENT_ID_CLAIM, student.getId()));
+        }
+
+        return builder
                 .setIssuedAt(new Date())
                 .setExpiration(Date.from(Instant.now().plusSeconds(accessTokenSeconds)))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -160,10 +227,7 @@ public class JwtService {
      * @throws JwtException if the token is invalid or malformed
      */
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
@@ -177,10 +241,7 @@ public class JwtService {
      * @throws JwtException if the token is invalid or doesn't contain a role claim
      */
     public String extractRole(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .get("role", String.class);
     }
@@ -194,10 +255,7 @@ public class JwtService {
      * @throws JwtException if the token is invalid
      */
     public String extractIp(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .get("ip", String.class);
     }
@@ -211,10 +269,7 @@ public class JwtService {
      * @throws JwtException if the token is invalid
      */
     public String extractUserAgent(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .get("userAgent", String.class);
     }
@@ -239,10 +294,7 @@ public class JwtService {
      * @throws JwtException if the token is invalid or malformed
      */
     private boolean isTokenExpired(String token) {
-        Date expiration = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        Date expiration = parser.parseClaimsJws(token)
                 .getBody()
                 .getExpiration();
         return expiration.before(new Date());
@@ -0,0 +1,70 @@
+package com.almubaraksuleiman.cbts.security.authentication.service;
+
+import com.almubaraksuleiman.cbts.security.authentication.JwtAuthenticationDetails;
+import com.almubaraksuleiman.cbts.student.repository.StudentRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the numeric student ID of an authenticated request.
+ *
+ * Student tokens carry the ID as a signed claim, which the JWT filter places in the request's
+ * {@link JwtAuthenticationDetails}. Tokens issued before the claim existed fall back to a
+ * bounded username -> ID cache, so a student is looked up at most once per expiry window
+ * rather than on every autosave and timer poll.
+ *
+ * Entries are never invalidated explicitly: usernames are not renamed and student accounts
+ * are not deleted through the application, so expire-after-write is the only bound on how
+ * long a stale mapping can be served (30 minutes by default).
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+public class StudentIdResolver {
+
+    private final StudentRepository studentRepository;
+    private final Cache<String, Long> studentIdsByUsername;
+
+    public StudentIdResolver(StudentRepository studentRepository,
+                             @Value("${security.student-id-cache.max-size:50000}") long maxSize,
+                             @Value("${security.student-id-cache.expire-after-write-minutes:30}") long expireAfterWriteMinutes) {
+        this.studentRepository = studentRepository;
+        this.studentIdsByUsername = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWriteMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * @throws IllegalArgumentException if no student exists for the authenticated username
+     */
+    public Long resolve(Authentication authentication) {
+        if (authentication.getDetails() instanceof JwtAuthenticationDetails details && details.getStudentId() != null) {
+            return details.getStudentId();
+        }
+        return resolve(authentication.getName());
+    }
+
+    /**
+     * @throws IllegalArgumentException if no student exists for the username
+     */
+    public Long resolve(String username) {
+        try {
+            return studentIdsByUsername.get(username, () -> studentRepository.findByUsername(username)
+                    .orElseThrow(() -> new IllegalArgumentException("Student not found for username: " + username))
+                    .getId());
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
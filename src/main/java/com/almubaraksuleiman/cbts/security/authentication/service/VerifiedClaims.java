@@ -0,0 +1,19 @@
+package com.almubaraksuleiman.cbts.security.authentication.service;
+
+/**
+ * Identity claims of a JWT whose signature and expiry have been verified.
+ *
+ * @param username    token subject
+ * @param role        granted role, e.g. "ROLE_STUDENT"
+ * @param studentId   numeric student ID, null for non-student tokens and older tokens
+ * @param expiresAtMs token expiry in epoch millis
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+public record VerifiedClaims(String username, String role, Long studentId, long expiresAtMs) {
+
+    public boolean isExpired(long nowMs) {
+        return nowMs >= expiresAtMs;
+    }
+}
@@ -18,7 +18,10 @@ import java.time.LocalDateTime;
  * @since 2025
  */
 @Entity
-@Table(name = "student")
+@Table(name = "student", indexes = {
+        @Index(name = "idx_student_first_name", columnList = "first_name"),
+        @Index(name = "idx_student_last_name", columnList = "last_name")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,7 +19,15 @@ import java.time.Duration;
  * @since 2025
  */
 @Entity
-@Table(name = "student_exam")
+@Table(name = "student_exam", indexes = {
+        @Index(name = "idx_student_exam_test_percentage", columnList = "test_id, percentage"),
+        @Index(name = "idx_student_exam_test_start", columnList = "test_id, start_time"),
+        // Keyset pages of a test's sessions (WHERE test_id = ? AND session_id > ? ORDER BY session_id)
+        @Index(name = "idx_student_exam_test_session", columnList = "test_id, session_id"),
+        @Index(name = "idx_student_exam_end_time", columnList = "end_time"),
+        @Index(name = "idx_student_exam_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_student_exam_percentage", columnList = "percentage")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -83,6 +91,13 @@ public class StudentExam {
     @Builder.Default
     private Integer currentQuestionIndex = 0;
 
+    /**
+     * Seed from which question selection and choice order of this session are derived.
+     * Null for sessions that store their shuffled choices per question.
+     */
+    @Column(name = "paper_seed")
+    private Long paperSeed;
+
     /**
      * Audit fields
      */
@@ -0,0 +1,96 @@
+package com.almubaraksuleiman.cbts.student.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JDBC batch writer for the answer autosave and grading paths.
+ *
+ * StudentAnswer and StudentExamQuestion use IDENTITY keys, which makes Hibernate send every
+ * insert on its own round trip. This repository writes a whole autosave request as at most
+ * three JDBC batches (question flags, answer updates, answer inserts), independent of the
+ * number of answers in the request. Grading writes its changed scores as one more batch.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class StudentAnswerBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One answer row to be written.
+     *
+     * @param answerId existing student_answers.id, or null if the row must be inserted
+     */
+    public record AnswerWrite(Long studentExamQuestionId, Long sessionId, Long questionId,
+                              Long answerId, String answer) {
+    }
+
+    /**
+     * Marks the exam questions answered and stores the latest saved answer.
+     */
+    public void updateExamQuestions(List<AnswerWrite> writes) {
+        if (writes.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "UPDATE student_exam_question SET answered = true, saved_answer = ? WHERE id = ?",
+                writes, writes.size(), (ps, write) -> {
+                    ps.setString(1, write.answer());
+                    ps.setLong(2, write.studentExamQuestionId());
+                });
+    }
+
+    /**
+     * Updates existing answer rows and inserts the missing ones.
+     */
+    public void upsertAnswers(List<AnswerWrite> writes) {
+        List<AnswerWrite> updates = writes.stream().filter(w -> w.answerId() != null).toList();
+        List<AnswerWrite> inserts = writes.stream().filter(w -> w.answerId() == null).toList();
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE student_answers SET answer = ? WHERE id = ?",
+                    updates, updates.size(), (ps, write) -> {
+                        ps.setString(1, write.answer());
+                        ps.setLong(2, write.answerId());
+                    });
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO student_answers (student_exam_question_id, session_id, question_id, answer) " +
+                            "VALUES (?, ?, ?, ?)",
+                    inserts, inserts.size(), (ps, write) -> {
+                        ps.setLong(1, write.studentExamQuestionId());
+                        ps.setLong(2, write.sessionId());
+                        ps.setLong(3, write.questionId());
+                        ps.setString(4, write.answer());
+                    });
+        }
+    }
+
+    /**
+     * New score of one answer row.
+     */
+    public record ScoreUpdate(Long answerId, double score) {
+    }
+
+    /**
+     * Writes grading results as a single JDBC batch.
+     */
+    public void updateScores(List<ScoreUpdate> updates) {
+        if (updates.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "UPDATE student_answers SET score = ? WHERE id = ?",
+                updates, updates.size(), (ps, update) -> {
+                    ps.setDouble(1, update.score());
+                    ps.setLong(2, update.answerId());
+                });
+    }
+}
@@ -13,6 +13,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -75,6 +77,54 @@ public interface StudentAnswerRepository extends JpaRepository<StudentAnswer, Lo
      */
     List<StudentAnswer> findByStudentExam(StudentExam exam);
 
+    /**
+     * Looks up the existing answer row IDs for a batch of exam questions in one IN query.
+     * Used by the bulk autosave path to decide between update and insert.
+     *
+     * @param studentExamQuestionIds IDs of the StudentExamQuestion rows being saved
+     * @return List of [studentExamQuestionId, studentAnswerId] pairs
+     */
+    @Query("SELECT sa.studentExamQuestion.id, sa.id FROM StudentAnswer sa " +
+            "WHERE sa.studentExamQuestion.id IN :ids")
+    List<Object[]> findAnswerIdsByStudentExamQuestionIds(@Param("ids") Collection<Long> studentExamQuestionIds);
+
+    /**
+     * Grading projection: every answer of the given sessions joined with its question's type,
+     * correct answer, max marks, choices and partial credit settings, in one query.
+     *
+     * @param sessionIds IDs of the exam sessions to grade
+     * @return Rows of [answerId, sessionId, answer, score, questionId, type, correctAnswer, maxMarks, choices,
+     *         allowPartialCredit, partialCreditPolicy]
+     */
+    @Query("SELECT sa.id, sa.studentExam.sessionId, sa.answer, sa.score, " +
+            "q.id, q.type, q.correctAnswer, q.maxMarks, q.choices, q.allowPartialCredit, q.partialCreditPolicy " +
+            "FROM StudentAnswer sa JOIN sa.studentExamQuestion seq JOIN seq.question q " +
+            "WHERE sa.studentExam.sessionId IN :sessionIds")
+    List<Object[]> findGradingRowsBySessionIds(@Param("sessionIds") Collection<Long> sessionIds);
+
+    /**
+     * Question analytics aggregate: how many graded sessions of a test gave each distinct
+     * response to each question. Only graded sessions count, as in the accumulated per-test
+     * state, so filtered and unfiltered analytics agree on the same data. Essay responses are collapsed into one null row per question, since they
+     * are never auto-marked correct, so the result size depends on the questions and their
+     * distinct responses, not on the number of answers.
+     *
+     * @param testId ID of the test
+     * @param startedFrom only count graded sessions started at or after this time, null for all
+     * @return Rows of [questionId, answer, count]
+     */
+    @Query("SELECT sa.question.id, " +
+            "CASE WHEN sa.question.type = com.almubaraksuleiman.cbts.examiner.model.QuestionType.ESSAY " +
+            "THEN NULL ELSE sa.answer END, COUNT(sa) " +
+            "FROM StudentAnswer sa " +
+            "WHERE sa.studentExam.test.id = :testId AND sa.studentExam.graded = true " +
+            "AND (:startedFrom IS NULL OR sa.studentExam.startTime >= :startedFrom) " +
+            "GROUP BY sa.question.id, " +
+            "CASE WHEN sa.question.type = com.almubaraksuleiman.cbts.examiner.model.QuestionType.ESSAY " +
+            "THEN NULL ELSE sa.answer END")
+    List<Object[]> countResponsesByQuestion(@Param("testId") Long testId,
+                                            @Param("startedFrom") LocalDateTime startedFrom);
+
 
 
     List<StudentAnswer> findByQuestionId(Long questionId);
@@ -0,0 +1,87 @@
+package com.almubaraksuleiman.cbts.student.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batch access to the exam results of many sessions at once, used where sessions are not
+ * loaded as entities (e.g. regrading a whole test or rebuilding its analytics).
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class StudentExamBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * New results of one session.
+     *
+     * @param percentage null keeps the stored percentage
+     * @param status StudentExam.ExamStatus name
+     */
+    public record ResultUpdate(Long sessionId, int score, Double percentage, String status) {
+    }
+
+    /**
+     * What the analytics of a test need of one session.
+     */
+    public record AnalyticsRow(Long sessionId, boolean completed, LocalDateTime startTime, LocalDateTime endTime,
+                               boolean graded, Double percentage) {
+    }
+
+    /**
+     * One keyset page of a test's sessions in session ID order, served by the
+     * (test_id, session_id) index.
+     *
+     * @param afterSessionId last session ID of the previous page, 0 for the first
+     */
+    public List<AnalyticsRow> findAnalyticsRows(Long testId, long afterSessionId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT session_id, completed, start_time, end_time, graded, percentage FROM student_exam " +
+                        "WHERE test_id = ? AND session_id > ? ORDER BY session_id LIMIT ?",
+                (rs, rowNum) -> {
+                    Timestamp startTime = rs.getTimestamp("start_time");
+                    Timestamp endTime = rs.getTimestamp("end_time");
+                    double percentage = rs.getDouble("percentage");
+                    boolean percentageNull = rs.wasNull();
+                    return new AnalyticsRow(
+                            rs.getLong("session_id"),
+                            rs.getBoolean("completed"),
+                            startTime != null ? startTime.toLocalDateTime() : null,
+                            endTime != null ? endTime.toLocalDateTime() : null,
+                            rs.getBoolean("graded"),
+                            percentageNull ? null : percentage);
+                },
+                testId, afterSessionId, limit);
+    }
+
+    /**
+     * Writes the results as a single JDBC batch.
+     */
+    public void updateResults(List<ResultUpdate> updates) {
+        if (updates.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "UPDATE student_exam SET score = ?, percentage = COALESCE(?, percentage), status = ?, " +
+                        "updated_at = CURRENT_TIMESTAMP WHERE session_id = ?",
+                updates, updates.size(), (ps, update) -> {
+                    ps.setInt(1, update.score());
+                    if (update.percentage() != null) {
+                        ps.setDouble(2, update.percentage());
+                    } else {
+                        ps.setNull(2, Types.DOUBLE);
+                    }
+                    ps.setString(3, update.status());
+                    ps.setLong(4, update.sessionId());
+                });
+    }
+}
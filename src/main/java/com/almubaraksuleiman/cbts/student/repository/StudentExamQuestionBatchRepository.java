@@ -0,0 +1,66 @@
+package com.almubaraksuleiman.cbts.student.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JDBC writer for the question set assigned at exam start.
+ *
+ * StudentExamQuestion uses IDENTITY keys, so saving it through JPA costs one INSERT round trip
+ * per question. This repository writes the whole set as multi-row INSERT statements of up to
+ * {@link #ROWS_PER_STATEMENT} rows each, so a typical test starts with a single statement
+ * regardless of question count.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class StudentExamQuestionBatchRepository {
+
+    /** Keeps statements well below MySQL's placeholder and max_allowed_packet limits */
+    static final int ROWS_PER_STATEMENT = 500;
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO student_exam_question (session_id, question_id, answered, question_order, shuffled_choices) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, false, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One assigned question.
+     *
+     * @param order 1-based display position
+     */
+    public record AssignedQuestion(Long questionId, int order, String shuffledChoices) {
+    }
+
+    /**
+     * Inserts the assigned questions of a session.
+     *
+     * @return number of rows inserted
+     */
+    public int insertAll(Long sessionId, List<AssignedQuestion> questions) {
+        int inserted = 0;
+        for (int from = 0; from < questions.size(); from += ROWS_PER_STATEMENT) {
+            List<AssignedQuestion> chunk = questions.subList(from, Math.min(from + ROWS_PER_STATEMENT, questions.size()));
+            String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(chunk.size(), ROW_PLACEHOLDERS));
+
+            inserted += jdbcTemplate.update(sql, ps -> {
+                int index = 1;
+                for (AssignedQuestion question : chunk) {
+                    ps.setLong(index++, sessionId);
+                    ps.setLong(index++, question.questionId());
+                    ps.setInt(index++, question.order());
+                    ps.setString(index++, question.shuffledChoices());
+                }
+            });
+        }
+        return inserted;
+    }
+}
@@ -22,15 +22,29 @@ public interface StudentExamQuestionRepository extends JpaRepository<StudentExam
     @Query("SELECT seq.id FROM StudentExamQuestion seq WHERE seq.studentExam.sessionId = :sessionId")
     List<Long> findQuestionIdsBySessionId(@Param("sessionId") Long sessionId);
 
+    /**
+     * IDs of the test questions (not the per-session rows) assigned to an exam session.
+     */
+    @Query("SELECT seq.question.id FROM StudentExamQuestion seq WHERE seq.studentExam.sessionId = :sessionId")
+    List<Long> findOriginalQuestionIdsBySessionId(@Param("sessionId") Long sessionId);
+
+    /**
+     * All questions of a session in display order, with their Question fetched in the same query.
+     */
+    @Query("SELECT seq FROM StudentExamQuestion seq JOIN FETCH seq.question WHERE seq.studentExam.sessionId = :sessionId ORDER BY seq.id")
+    List<StudentExamQuestion> findAllBySessionIdWithQuestion(@Param("sessionId") Long sessionId);
+
     /**
      * Finds paginated question assignments for a specific exam session.
      */
     Page<StudentExamQuestion> findByStudentExam_SessionId(Long sessionId, Pageable pageable);
 
     /**
-     * Ordered pagination for questions - uses the stored question order
+     * Ordered pagination for questions. Questions of a session are inserted in display order,
+     * so ordering by ID matches the stored question order and is served by the session index
+     * without a sort.
      */
-    @Query("SELECT seq FROM StudentExamQuestion seq WHERE seq.studentExam.sessionId = :sessionId ORDER BY seq.order")
+    @Query("SELECT seq FROM StudentExamQuestion seq WHERE seq.studentExam.sessionId = :sessionId ORDER BY seq.id")
     Page<StudentExamQuestion> findByStudentExam_SessionIdOrdered(@Param("sessionId") Long sessionId, Pageable pageable);
 
     /**
@@ -55,9 +69,9 @@ public interface StudentExamQuestionRepository extends JpaRepository<StudentExam
     );
 
     /**
-     * Ordered pagination for questions by type - uses the stored question order
+     * Ordered pagination for questions by type - ID order matches the stored question order
      */
-    @Query("SELECT seq FROM StudentExamQuestion seq WHERE seq.studentExam.sessionId = :sessionId AND seq.question.type = :type ORDER BY seq.order")
+    @Query("SELECT seq FROM StudentExamQuestion seq WHERE seq.studentExam.sessionId = :sessionId AND seq.question.type = :type ORDER BY seq.id")
     Page<StudentExamQuestion> findByStudentExam_SessionIdAndQuestion_TypeOrdered(
             @Param("sessionId") Long sessionId,
             @Param("type") QuestionType type,
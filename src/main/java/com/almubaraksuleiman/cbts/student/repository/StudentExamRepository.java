@@ -6,11 +6,14 @@ import com.almubaraksuleiman.cbts.student.model.StudentExam;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -61,6 +64,12 @@ public interface StudentExamRepository extends JpaRepository<StudentExam, Long>
      */
     Optional<StudentExam> findByStudentIdAndTestId(Long studentId, Long testId);
 
+    /**
+     * Owner of an exam session, without loading the session or its associations.
+     */
+    @Query("SELECT se.studentId FROM StudentExam se WHERE se.sessionId = :sessionId")
+    Optional<Long> findStudentIdBySessionId(@Param("sessionId") Long sessionId);
+
 
 
 
@@ -71,12 +80,113 @@ public interface StudentExamRepository extends JpaRepository<StudentExam, Long>
     @Query("SELECT se FROM StudentExam se WHERE se.test.id = :testId AND se.completed = true")
     List<StudentExam> findCompletedExamsByTestId(@Param("testId") Long testId);
 
+    /**
+     * Submitted but still ungraded sessions, oldest first. Used to requeue exams the
+     * background grading queue has lost track of.
+     *
+     * @param status Status a submitted exam waits in, normally SUBMITTED
+     * @param submittedBefore Only sessions submitted before this time
+     * @param excluded Sessions to leave out, e.g. those parked after repeated grading failures
+     */
+    @Query("SELECT se.sessionId FROM StudentExam se " +
+            "WHERE se.completed = true AND se.graded = false AND se.status = :status " +
+            "AND se.endTime < :submittedBefore AND se.sessionId NOT IN :excluded ORDER BY se.endTime")
+    List<Long> findSessionIdsAwaitingGrading(@Param("status") StudentExam.ExamStatus status,
+                                             @Param("submittedBefore") LocalDateTime submittedBefore,
+                                             @Param("excluded") Collection<Long> excluded,
+                                             Pageable pageable);
+
+    /**
+     * Keyset page of a test's graded sessions in session ID order, used by the regrade job.
+     *
+     * @param afterSessionId Last session ID already processed (0 to start)
+     */
+    @Query("SELECT se.sessionId FROM StudentExam se " +
+            "WHERE se.test.id = :testId AND se.completed = true AND se.graded = true " +
+            "AND se.sessionId > :afterSessionId ORDER BY se.sessionId")
+    List<Long> findGradedSessionIdsAfter(@Param("testId") Long testId,
+                                         @Param("afterSessionId") Long afterSessionId,
+                                         Pageable pageable);
+
+    @Query("SELECT COUNT(se) FROM StudentExam se " +
+            "WHERE se.test.id = :testId AND se.completed = true AND se.graded = true")
+    long countGradedByTestId(@Param("testId") Long testId);
+
     long countByTestId(Long testId);
 
     long countByTestIdAndCompletedTrue(Long testId);
 
     Page<StudentExam> findAll(Specification<StudentExam> spec, Pageable pageable);
 
+    /**
+     * Result listing filters shared by the offset and keyset listings. Null parameters do
+     * not filter; :search is a lower-case LIKE pattern.
+     */
+    String RESULT_FILTERS =
+            "(:search IS NULL OR LOWER(s.username) LIKE :search OR LOWER(s.email) LIKE :search " +
+            "OR CAST(se.studentId AS string) LIKE :search) " +
+            "AND (:minScore IS NULL OR se.percentage >= :minScore) " +
+            "AND (:maxScore IS NULL OR se.percentage <= :maxScore) " +
+            "AND (:status IS NULL OR se.status = :status) " +
+            "AND (:graded IS NULL OR se.graded = :graded) " +
+            "AND (:endFrom IS NULL OR se.endTime >= :endFrom) " +
+            "AND (:endTo IS NULL OR se.endTime <= :endTo)";
+
+    /**
+     * Page of a test's sessions for the results listing, with student and test loaded in the
+     * same query.
+     */
+    @EntityGraph(attributePaths = {"student", "test"})
+    @Query(value = "SELECT se FROM StudentExam se LEFT JOIN se.student s " +
+            "WHERE se.test.id = :testId AND " + RESULT_FILTERS,
+            countQuery = "SELECT COUNT(se) FROM StudentExam se LEFT JOIN se.student s " +
+                    "WHERE se.test.id = :testId AND " + RESULT_FILTERS)
+    Page<StudentExam> findResults(@Param("testId") Long testId,
+                                  @Param("search") String search,
+                                  @Param("minScore") Double minScore,
+                                  @Param("maxScore") Double maxScore,
+                                  @Param("status") StudentExam.ExamStatus status,
+                                  @Param("graded") Boolean graded,
+                                  @Param("endFrom") LocalDateTime endFrom,
+                                  @Param("endTo") LocalDateTime endTo,
+                                  Pageable pageable);
+
+    /**
+     * Keyset page of a test's sessions for the results listing: the sessions after
+     * afterSessionId in session ID order, read by seeking the (test_id, session_id) index
+     * instead of skipping an offset.
+     *
+     * @param afterSessionId Last session ID of the previous page (0 to start)
+     * @param pageable Only its page size is used
+     */
+    @EntityGraph(attributePaths = {"student", "test"})
+    @Query("SELECT se FROM StudentExam se LEFT JOIN se.student s " +
+            "WHERE se.test.id = :testId AND se.sessionId > :afterSessionId AND " + RESULT_FILTERS +
+            " ORDER BY se.sessionId")
+    List<StudentExam> findResultsAfter(@Param("testId") Long testId,
+                                       @Param("afterSessionId") Long afterSessionId,
+                                       @Param("search") String search,
+                                       @Param("minScore") Double minScore,
+                                       @Param("maxScore") Double maxScore,
+                                       @Param("status") StudentExam.ExamStatus status,
+                                       @Param("graded") Boolean graded,
+                                       @Param("endFrom") LocalDateTime endFrom,
+                                       @Param("endTo") LocalDateTime endTo,
+                                       Pageable pageable);
+
+    /**
+     * Result counters of several tests in one grouped query.
+     *
+     * @return rows of [testId, sessions, completed, graded, average percentage, passed]
+     */
+    @Query("SELECT t.id, COUNT(se), " +
+            "SUM(CASE WHEN se.completed = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN se.graded = true THEN 1 ELSE 0 END), " +
+            "AVG(se.percentage), " +
+            "SUM(CASE WHEN se.percentage >= t.passingScore THEN 1 ELSE 0 END) " +
+            "FROM StudentExam se JOIN se.test t WHERE t.id IN :testIds GROUP BY t.id")
+    List<Object[]> summarizeResultsByTestIds(@Param("testIds") Collection<Long> testIds);
+
     Optional<StudentExam> findByStudentIdAndCompletedFalse(Long studentId);
     /*
      * Inherited methods from JpaRepository include:
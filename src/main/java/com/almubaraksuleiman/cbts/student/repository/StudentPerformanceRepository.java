@@ -0,0 +1,199 @@
+package com.almubaraksuleiman.cbts.student.repository;
+
+import com.almubaraksuleiman.cbts.examiner.model.StudentPerformance;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Paged student performance of one test, filtered, sorted and limited by the database.
+ *
+ * Name, status and time spent are computed by the same SQL expressions in the select list,
+ * the filters and the ORDER BY, so a page is ordered and filtered exactly as it is displayed.
+ * Search matches a prefix of the first name, last name, username or "first last" name, or
+ * the exact student id. It is checked on the test's sessions as they are joined to their
+ * students: the OR across columns, one of them computed, keeps the student name indexes out
+ * of it, so its cost follows the number of sessions of the test.
+ *
+ * Exports read every session of a test through {@link #streamByTest}, a forward-only cursor
+ * that does not hold the result in memory.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Repository
+@RequiredArgsConstructor
+public class StudentPerformanceRepository {
+
+    private static final String NAME_SQL =
+            "CASE WHEN s.id IS NULL THEN CONCAT('Student ', se.student_id) " +
+                    "ELSE CONCAT_WS(' ', s.first_name, NULLIF(TRIM(s.middle_name), ''), s.last_name) END";
+    private static final String STATUS_SQL =
+            "CASE WHEN se.completed = TRUE THEN 'completed' " +
+                    "WHEN se.start_time IS NOT NULL THEN 'in-progress' ELSE 'not-started' END";
+    private static final String TIME_SPENT_SQL =
+            "COALESCE(TIMESTAMPDIFF(MINUTE, se.start_time, se.end_time), 0)";
+    private static final String SCORE_SQL = "COALESCE(se.percentage, 0)";
+
+    private static final String SELECT_SQL = "SELECT se.student_id, " + NAME_SQL + " AS name, " +
+            SCORE_SQL + " AS score, " + TIME_SPENT_SQL + " AS time_spent, " + STATUS_SQL + " AS status, se.end_time";
+    private static final String FROM_SQL = " FROM student_exam se LEFT JOIN student s ON s.id = se.std_id";
+
+    /** Sortable StudentPerformance properties and the columns they sort by */
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "name", "s.first_name %1$s, s.last_name %1$s",
+            "score", SCORE_SQL + " %s",
+            "timeSpent", TIME_SPENT_SQL + " %s",
+            "status", STATUS_SQL + " %s",
+            "submittedAt", "se.end_time %s");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param startedFrom only sessions started at or after it, null for all
+     * @param search name, username or student id to look for, null or blank for all
+     * @param status "completed", "in-progress" or "not-started"; null or "all" for every status
+     * @param pageable page and sort; unknown sort properties sort by score
+     */
+    public Page<StudentPerformance> findByTest(Long testId, LocalDateTime startedFrom, String search,
+                                               String status, Pageable pageable) {
+        StringBuilder where = new StringBuilder(" WHERE se.test_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(testId);
+
+        if (startedFrom != null) {
+            where.append(" AND se.start_time >= ?");
+            params.add(Timestamp.valueOf(startedFrom));
+        }
+        if (search != null && !search.isBlank()) {
+            String term = search.trim();
+            String prefix = escapeLike(term) + "%";
+            where.append(" AND (s.first_name LIKE ? OR s.last_name LIKE ? OR s.username LIKE ? " +
+                    "OR CONCAT(s.first_name, ' ', s.last_name) LIKE ?");
+            params.add(prefix);
+            params.add(prefix);
+            params.add(prefix);
+            params.add(prefix);
+            if (term.chars().allMatch(Character::isDigit) && term.length() < 19) {
+                where.append(" OR se.student_id = ?");
+                params.add(Long.valueOf(term));
+            }
+            where.append(")");
+        }
+        if (status != null && !status.equals("all")) {
+            where.append(" AND ").append(STATUS_SQL).append(" = ?");
+            params.add(status);
+        }
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*)" + FROM_SQL + where, Long.class, params.toArray());
+        if (total == null || total == 0 || pageable.getOffset() >= total) {
+            return new PageImpl<>(List.of(), pageable, total != null ? total : 0);
+        }
+
+        List<Object> pageParams = new ArrayList<>(params);
+        pageParams.add(pageable.getPageSize());
+        pageParams.add(pageable.getOffset());
+        List<StudentPerformance> content = jdbcTemplate.query(
+                SELECT_SQL + FROM_SQL + where + orderBy(pageable.getSort()) + " LIMIT ? OFFSET ?",
+                (rs, rowNum) -> mapRow(rs),
+                pageParams.toArray());
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Performance of the given sessions in one query, e.g. a test's top sessions.
+     *
+     * @return rows in the order of the given IDs; sessions that no longer exist are skipped
+     */
+    public List<StudentPerformance> findBySessionIds(List<Long> sessionIds) {
+        if (sessionIds.isEmpty()) return List.of();
+
+        Map<Long, StudentPerformance> bySession = new HashMap<>();
+        jdbcTemplate.query(
+                SELECT_SQL + ", se.session_id" + FROM_SQL + " WHERE se.session_id IN (" +
+                        String.join(", ", Collections.nCopies(sessionIds.size(), "?")) + ")",
+                rs -> {
+                    bySession.put(rs.getLong("session_id"), mapRow(rs));
+                },
+                sessionIds.toArray());
+
+        List<StudentPerformance> rows = new ArrayList<>(bySession.size());
+        for (Long sessionId : sessionIds) {
+            StudentPerformance row = bySession.get(sessionId);
+            if (row != null) rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Passes every session of the test to the consumer, highest score first and unscored
+     * sessions last. The statement is forward-only and read-only with MySQL's streaming fetch
+     * size, so rows are read from the connection one at a time rather than buffered whole.
+     *
+     * @param startedFrom only sessions started at or after it, null for all
+     */
+    public void streamByTest(Long testId, LocalDateTime startedFrom, Consumer<StudentPerformance> consumer) {
+        String sql = SELECT_SQL + FROM_SQL + " WHERE se.test_id = ?" +
+                (startedFrom != null ? " AND se.start_time >= ?" : "") +
+                " ORDER BY se.percentage DESC, se.session_id ASC";
+
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(Integer.MIN_VALUE);
+                    ps.setLong(1, testId);
+                    if (startedFrom != null) {
+                        ps.setTimestamp(2, Timestamp.valueOf(startedFrom));
+                    }
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(mapRow(rs));
+                });
+    }
+
+    private static StudentPerformance mapRow(ResultSet rs) throws SQLException {
+        Timestamp endTime = rs.getTimestamp("end_time");
+        return StudentPerformance.builder()
+                .studentId(String.valueOf(rs.getLong("student_id")))
+                .name(rs.getString("name"))
+                .score(rs.getDouble("score"))
+                .timeSpent(rs.getLong("time_spent"))
+                .status(rs.getString("status"))
+                .submittedAt(endTime != null ? endTime.toLocalDateTime() : null)
+                .build();
+    }
+
+    private static String orderBy(Sort sort) {
+        List<String> columns = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.getOrDefault(order.getProperty(), SORT_COLUMNS.get("score"));
+            columns.add(String.format(column, order.isAscending() ? "ASC" : "DESC"));
+        }
+        // Session id makes the order total, so pages neither repeat nor skip rows
+        columns.add("se.session_id ASC");
+        return " ORDER BY " + String.join(", ", columns);
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -7,6 +7,7 @@ import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
+import java.util.Map;
 
 public interface StudentExamService {
 
@@ -44,4 +45,16 @@ public interface StudentExamService {
      * Uses studentId and testId to identify the correct session
      */
     Page<QuestionDto> getQuestionsByType(Long studentId, Long testId, QuestionType type, int page, int size);
+
+    /**
+     * Retrieves the question map entries (questionId, answered, type, originalQuestionId,
+     * sessionId, displayOrder) of an exam session in display order.
+     */
+    List<Map<String, Object>> getQuestionMap(Long studentId, Long testId);
+
+    /**
+     * Whether an exam session belongs to the student and includes the test question.
+     * Only reads, and from the session read cache once the session has been looked up.
+     */
+    boolean isSessionQuestion(Long studentId, Long sessionId, Long questionId);
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.almubaraksuleiman.cbts.student.service.impl;
+
+import com.almubaraksuleiman.cbts.student.model.StudentExamQuestion;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerBatchRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes answers to student_answers and student_exam_question with a constant number of
+ * round trips: one IN query for the exam questions, one for their existing answers, then
+ * JDBC batches for the question flags and the answer upserts.
+ *
+ * Joins the caller's transaction. Used by the synchronous autosave path and by the
+ * write-behind journal flusher, which writes many sessions in one call.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AnswerBulkWriter {
+
+    private final StudentExamQuestionRepository studentExamQuestionRepository;
+    private final StudentAnswerRepository answerRepository;
+    private final StudentAnswerBatchRepository answerBatchRepository;
+
+    /**
+     * @param answersBySession sessionId -> (studentExamQuestionId -> answer)
+     * @throws RuntimeException if a question does not exist or does not belong to its session
+     */
+    public void write(Map<Long, Map<Long, String>> answersBySession) {
+        Set<Long> questionIds = new HashSet<>();
+        answersBySession.values().forEach(answers -> questionIds.addAll(answers.keySet()));
+        if (questionIds.isEmpty()) return;
+
+        List<StudentExamQuestion> examQuestions = studentExamQuestionRepository.findAllById(questionIds);
+        if (examQuestions.size() != questionIds.size()) {
+            throw new RuntimeException("Invalid question for this session");
+        }
+
+        Map<Long, Long> answerIdByQuestionId = new HashMap<>();
+        for (Object[] row : answerRepository.findAnswerIdsByStudentExamQuestionIds(questionIds)) {
+            answerIdByQuestionId.putIfAbsent((Long) row[0], (Long) row[1]);
+        }
+
+        List<StudentAnswerBatchRepository.AnswerWrite> writes = new ArrayList<>(examQuestions.size());
+        for (StudentExamQuestion examQuestion : examQuestions) {
+            Long sessionId = examQuestion.getStudentExam().getSessionId();
+            Map<Long, String> sessionAnswers = answersBySession.get(sessionId);
+
+            // Validate ownership in memory
+            if (sessionAnswers == null || !sessionAnswers.containsKey(examQuestion.getId())) {
+                throw new RuntimeException("Unauthorized answer submission: Question does not belong to this session");
+            }
+
+            writes.add(new StudentAnswerBatchRepository.AnswerWrite(
+                    examQuestion.getId(),
+                    sessionId,
+                    examQuestion.getQuestion().getId(),
+                    answerIdByQuestionId.get(examQuestion.getId()),
+                    sessionAnswers.get(examQuestion.getId())));
+        }
+
+        answerBatchRepository.updateExamQuestions(writes);
+        answerBatchRepository.upsertAnswers(writes);
+
+        log.debug("Bulk-wrote {} answers across {} sessions", writes.size(), answersBySession.size());
+    }
+}
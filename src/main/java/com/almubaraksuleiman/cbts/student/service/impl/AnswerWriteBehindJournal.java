@@ -0,0 +1,482 @@
+package com.almubaraksuleiman.cbts.student.service.impl;
+
+import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind journal for exam answers.
+ *
+ * When enabled, autosaves are validated against the session's question set, written to a
+ * per-session Redis hash ("exam:{sessionId}:answers", field = studentExamQuestionId) and
+ * acknowledged without touching MySQL. A scheduled flusher moves the journal into
+ * student_answers / student_exam_question in one JDBC batch for many sessions, and
+ * completion, auto-submit and grading call {@link #drain(Long)} first so they always see
+ * every acknowledged answer.
+ *
+ * A flush never deletes journal data before the database commit: pending answers are first
+ * moved into "exam:{sessionId}:answers:flushing" and that key is only removed after the
+ * transaction commits, so a crash or rollback leaves it to be retried. Surviving a Redis
+ * restart requires the Redis server to run with appendonly yes / appendfsync always (or
+ * exam.answers.write-behind.wait-replicas > 0 against a replicated Redis).
+ *
+ * Failed flushes are counted per session. Once a session reaches max-flush-attempts, answers
+ * that can never be written (deleted question, question outside the session) are moved to
+ * "exam:{sessionId}:answers:dead" and logged, so the rest of the session can still flush
+ * and its drain on submit can succeed.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class AnswerWriteBehindJournal {
+
+    private static final String DIRTY_SESSIONS_KEY = "exam:answers:dirty";
+
+    /** sessionId -> number of consecutive failed flushes */
+    private static final String FLUSH_FAILURES_KEY = "exam:answers:flush-failures";
+
+    /** Redis hashes cannot hold null, so a cleared answer is journalled as this marker */
+    private static final String NULL_ANSWER = "\u0000";
+
+    /** Appends answer pairs (ARGV[2..]) to the journal and marks the session dirty */
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /** Moves pending answers into the flushing hash; newer answers overwrite older ones */
+    private static final RedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+            "  if redis.call('EXISTS', KEYS[2]) == 0 then " +
+            "    redis.call('RENAME', KEYS[1], KEYS[2]) " +
+            "  else " +
+            "    local kv = redis.call('HGETALL', KEYS[1]) " +
+            "    for i = 1, #kv, 2 do redis.call('HSET', KEYS[2], kv[i], kv[i + 1]) end " +
+            "    redis.call('DEL', KEYS[1]) " +
+            "  end " +
+            "end " +
+            "return redis.call('EXISTS', KEYS[2])", Long.class);
+
+    /** Drops the flushed hash, resets the failure count, clears the dirty flag if nothing new arrived, releases the lock */
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HDEL', KEYS[5], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[2]) == 0 then redis.call('SREM', KEYS[3], ARGV[1]) end " +
+            "if redis.call('GET', KEYS[4]) == ARGV[2] then redis.call('DEL', KEYS[4]) end " +
+            "return 1", Long.class);
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StudentExamQuestionRepository studentExamQuestionRepository;
+    private final AnswerBulkWriter answerBulkWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    /** studentExamQuestion IDs per session, used to validate autosaves without a DB round trip */
+    private final Cache<Long, Set<Long>> sessionQuestionIds = CacheBuilder.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterAccess(6, TimeUnit.HOURS)
+            .build();
+
+    @Value("${exam.answers.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${exam.answers.write-behind.flush-batch-sessions:200}")
+    private int flushBatchSessions;
+
+    @Value("${exam.answers.write-behind.lock-ttl-ms:30000}")
+    private long lockTtlMs;
+
+    @Value("${exam.answers.write-behind.wait-replicas:0}")
+    private int waitReplicas;
+
+    @Value("${exam.answers.write-behind.wait-timeout-ms:100}")
+    private long waitTimeoutMs;
+
+    @Value("${exam.answers.write-behind.max-flush-attempts:5}")
+    private int maxFlushAttempts;
+
+    public AnswerWriteBehindJournal(StringRedisTemplate redisTemplate,
+                                    StudentExamQuestionRepository studentExamQuestionRepository,
+                                    AnswerBulkWriter answerBulkWriter,
+                                    PlatformTransactionManager transactionManager) {
+        this.redisTemplate = redisTemplate;
+        this.studentExamQuestionRepository = studentExamQuestionRepository;
+        this.answerBulkWriter = answerBulkWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals a batch of answers for a session. Returns once Redis has accepted them.
+     *
+     * @param answers studentExamQuestionId -> answer
+     * @throws RuntimeException if a question does not belong to the session
+     */
+    public void append(Long sessionId, Map<Long, String> answers) {
+        Set<Long> ownedQuestionIds = ownedQuestionIds(sessionId);
+        for (Long studentExamQuestionId : answers.keySet()) {
+            if (!ownedQuestionIds.contains(studentExamQuestionId)) {
+                throw new RuntimeException("Unauthorized answer submission: Question does not belong to this session");
+            }
+        }
+
+        String[] args = new String[1 + answers.size() * 2];
+        args[0] = sessionId.toString();
+        int i = 1;
+        for (Map.Entry<Long, String> entry : answers.entrySet()) {
+            args[i++] = entry.getKey().toString();
+            args[i++] = entry.getValue() != null ? entry.getValue() : NULL_ANSWER;
+        }
+
+        redisTemplate.execute(APPEND_SCRIPT, List.of(answersKey(sessionId), DIRTY_SESSIONS_KEY), (Object[]) args);
+        awaitReplication();
+    }
+
+    /**
+     * Answers acknowledged but not yet flushed, so reads can overlay them on the DB state.
+     */
+    public Map<Long, String> pendingAnswers(Long sessionId) {
+        if (!enabled) return Collections.emptyMap();
+
+        Map<Long, String> pending = new HashMap<>();
+        redisTemplate.opsForHash().entries(flushingKey(sessionId))
+                .forEach((field, value) -> pending.put(Long.valueOf(field.toString()), decode(value)));
+        redisTemplate.opsForHash().entries(answersKey(sessionId))
+                .forEach((field, value) -> pending.put(Long.valueOf(field.toString()), decode(value)));
+        return pending;
+    }
+
+    /**
+     * Synchronously writes every journalled answer of a session to the database.
+     *
+     * Joins the caller's transaction so the flushed rows are visible to the grading that
+     * follows; the journal is only cleared once that transaction commits.
+     */
+    public void drain(Long sessionId) {
+        if (!enabled || !markDrainedInTransaction(sessionId)) return;
+
+        String token = acquireLock(sessionId, true);
+        boolean handedOff = false;
+        try {
+            Long claimed = redisTemplate.execute(CLAIM_SCRIPT,
+                    List.of(answersKey(sessionId), flushingKey(sessionId)));
+            if (claimed == null || claimed == 0) return;
+
+            Map<Long, String> answers = flushingAnswers(sessionId);
+            if (flushFailures(sessionId) >= maxFlushAttempts) {
+                // Only the ownership check is safe here: a failed write would mark the caller's transaction rollback-only
+                answers = deadLetterUnowned(sessionId, answers);
+            }
+            Map<Long, String> writable = answers;
+            try {
+                transactionTemplate.executeWithoutResult(status -> answerBulkWriter.write(Map.of(sessionId, writable)));
+            } catch (RuntimeException e) {
+                recordFlushFailure(sessionId);
+                throw e;
+            }
+            completeAfterCommit(Map.of(sessionId, token));
+            handedOff = true;
+
+            log.info("Drained {} journalled answers for session {}", answers.size(), sessionId);
+        } finally {
+            if (!handedOff) {
+                unlock(sessionId, token);
+            }
+        }
+    }
+
+    /**
+     * Flushes the journal of up to flush-batch-sessions dirty sessions in one transaction.
+     */
+    @Scheduled(fixedDelayString = "${exam.answers.write-behind.flush-interval-ms:2000}")
+    public void flush() {
+        if (!enabled) return;
+
+        Set<String> dirty = redisTemplate.opsForSet().distinctRandomMembers(DIRTY_SESSIONS_KEY, flushBatchSessions);
+        if (dirty == null || dirty.isEmpty()) return;
+
+        Map<Long, String> locks = new HashMap<>();
+        Map<Long, Map<Long, String>> batch = new HashMap<>();
+        try {
+            for (String member : dirty) {
+                Long sessionId = Long.valueOf(member);
+                String token = acquireLock(sessionId, false);
+                if (token == null) continue; // Being drained or flushed elsewhere
+                locks.put(sessionId, token);
+
+                redisTemplate.execute(CLAIM_SCRIPT, List.of(answersKey(sessionId), flushingKey(sessionId)));
+                batch.put(sessionId, flushingAnswers(sessionId));
+            }
+            if (locks.isEmpty()) return;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> answerBulkWriter.write(batch));
+            } catch (Exception e) {
+                log.warn("Batched journal flush of {} sessions failed, retrying per session: {}",
+                        batch.size(), e.getMessage());
+                flushIndividually(batch, locks);
+                return;
+            }
+
+            locks.forEach(this::complete);
+            locks.clear();
+            log.debug("Flushed journalled answers for {} sessions", batch.size());
+        } finally {
+            locks.forEach(this::unlock);
+        }
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /**
+     * Isolates a failing session so it cannot hold back the rest of the batch; the failing
+     * session's answers stay in Redis and are retried on the next run, until it reaches
+     * max-flush-attempts and its unwritable answers are dead-lettered.
+     */
+    private void flushIndividually(Map<Long, Map<Long, String>> batch, Map<Long, String> locks) {
+        for (Map.Entry<Long, Map<Long, String>> entry : batch.entrySet()) {
+            Long sessionId = entry.getKey();
+            try {
+                transactionTemplate.executeWithoutResult(status -> answerBulkWriter.write(Map.of(sessionId, entry.getValue())));
+                complete(sessionId, locks.remove(sessionId));
+            } catch (Exception e) {
+                long failures = recordFlushFailure(sessionId);
+                if (failures < maxFlushAttempts) {
+                    log.error("Failed to flush journalled answers for session {} (attempt {}): {}",
+                            sessionId, failures, e.getMessage());
+                    continue;
+                }
+                try {
+                    flushWritable(sessionId, entry.getValue());
+                    complete(sessionId, locks.remove(sessionId));
+                } catch (Exception retryError) {
+                    log.error("Failed to flush remaining journalled answers for session {}: {}",
+                            sessionId, retryError.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes what can be written and dead-letters the rest: answers outside the session
+     * first, then, if the write still fails, every answer that fails on its own.
+     */
+    private void flushWritable(Long sessionId, Map<Long, String> answers) {
+        Map<Long, String> owned = deadLetterUnowned(sessionId, answers);
+        try {
+            transactionTemplate.executeWithoutResult(status -> answerBulkWriter.write(Map.of(sessionId, owned)));
+            return;
+        } catch (Exception e) {
+            log.warn("Flush of session {} still failing, writing its answers one by one: {}", sessionId, e.getMessage());
+        }
+
+        Map<Long, String> rejected = new HashMap<>();
+        for (Map.Entry<Long, String> answer : owned.entrySet()) {
+            Map<Long, String> single = new HashMap<>();
+            single.put(answer.getKey(), answer.getValue());
+            try {
+                transactionTemplate.executeWithoutResult(status -> answerBulkWriter.write(Map.of(sessionId, single)));
+            } catch (Exception e) {
+                rejected.put(answer.getKey(), answer.getValue());
+            }
+        }
+        deadLetter(sessionId, rejected);
+    }
+
+    /**
+     * Moves answers for questions that are no longer part of the session to the dead-letter
+     * hash and returns the remaining ones.
+     */
+    private Map<Long, String> deadLetterUnowned(Long sessionId, Map<Long, String> answers) {
+        Set<Long> ownedQuestionIds = new HashSet<>(studentExamQuestionRepository.findQuestionIdsBySessionId(sessionId));
+        sessionQuestionIds.put(sessionId, ownedQuestionIds);
+
+        Map<Long, String> owned = new HashMap<>();
+        Map<Long, String> rejected = new HashMap<>();
+        answers.forEach((questionId, answer) ->
+                (ownedQuestionIds.contains(questionId) ? owned : rejected).put(questionId, answer));
+        deadLetter(sessionId, rejected);
+        return owned;
+    }
+
+    private void deadLetter(Long sessionId, Map<Long, String> rejected) {
+        if (rejected.isEmpty()) return;
+
+        Map<String, String> fields = new HashMap<>();
+        rejected.forEach((questionId, answer) -> fields.put(questionId.toString(), answer != null ? answer : NULL_ANSWER));
+        redisTemplate.opsForHash().putAll(deadLetterKey(sessionId), fields);
+        redisTemplate.opsForHash().delete(flushingKey(sessionId), fields.keySet().toArray());
+
+        log.error("Moved {} unwritable journalled answers of session {} to {}: studentExamQuestionIds={}",
+                rejected.size(), sessionId, deadLetterKey(sessionId), rejected.keySet());
+    }
+
+    private long recordFlushFailure(Long sessionId) {
+        Long failures = redisTemplate.opsForHash().increment(FLUSH_FAILURES_KEY, sessionId.toString(), 1);
+        return failures != null ? failures : 1;
+    }
+
+    private long flushFailures(Long sessionId) {
+        Object failures = redisTemplate.opsForHash().get(FLUSH_FAILURES_KEY, sessionId.toString());
+        return failures != null ? Long.parseLong(failures.toString()) : 0;
+    }
+
+    private Set<Long> ownedQuestionIds(Long sessionId) {
+        try {
+            return sessionQuestionIds.get(sessionId,
+                    () -> new HashSet<>(studentExamQuestionRepository.findQuestionIdsBySessionId(sessionId)));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to load questions for session: " + sessionId, e.getCause());
+        }
+    }
+
+    private Map<Long, String> flushingAnswers(Long sessionId) {
+        Map<Long, String> answers = new HashMap<>();
+        redisTemplate.opsForHash().entries(flushingKey(sessionId))
+                .forEach((field, value) -> answers.put(Long.valueOf(field.toString()), decode(value)));
+        return answers;
+    }
+
+    /**
+     * Blocks until the journal write has reached the configured number of replicas.
+     */
+    private void awaitReplication() {
+        if (waitReplicas <= 0) return;
+
+        Long acknowledged = redisTemplate.execute((RedisCallback<Long>) connection -> waitFor(connection));
+        if (acknowledged == null || acknowledged < waitReplicas) {
+            throw new RuntimeException("Answer journal not replicated, please retry");
+        }
+    }
+
+    private Long waitFor(RedisConnection connection) {
+        Object reply = connection.execute("WAIT",
+                String.valueOf(waitReplicas).getBytes(StandardCharsets.UTF_8),
+                String.valueOf(waitTimeoutMs).getBytes(StandardCharsets.UTF_8));
+        return reply instanceof Long count ? count : null;
+    }
+
+    /**
+     * Returns false if the session was already drained in the current transaction, whose
+     * flushing hash is still waiting for the commit.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean markDrainedInTransaction(Long sessionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return true;
+
+        Set<Long> drained = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (drained == null) {
+            drained = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, drained);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AnswerWriteBehindJournal.this);
+                }
+            });
+        }
+        return drained.add(sessionId);
+    }
+
+    private void completeAfterCommit(Map<Long, String> locks) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            locks.forEach(this::complete);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    locks.forEach(AnswerWriteBehindJournal.this::complete);
+                } else {
+                    // Flushing hash is kept and retried by the next flush
+                    locks.forEach(AnswerWriteBehindJournal.this::unlock);
+                }
+            }
+        });
+    }
+
+    private void complete(Long sessionId, String token) {
+        redisTemplate.execute(COMPLETE_SCRIPT,
+                List.of(flushingKey(sessionId), answersKey(sessionId), DIRTY_SESSIONS_KEY, lockKey(sessionId),
+                        FLUSH_FAILURES_KEY),
+                sessionId.toString(), token);
+    }
+
+    /**
+     * @param wait whether to wait for a concurrent flush of the same session to finish
+     * @return the lock token, or null if the lock is held elsewhere and wait is false
+     */
+    private String acquireLock(Long sessionId, boolean wait) {
+        String token = UUID.randomUUID().toString();
+        long giveUpAt = System.currentTimeMillis() + lockTtlMs;
+        while (true) {
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey(sessionId), token, Duration.ofMillis(lockTtlMs));
+            if (Boolean.TRUE.equals(acquired)) return token;
+            if (!wait) return null;
+            if (System.currentTimeMillis() > giveUpAt) {
+                throw new RuntimeException("Timed out waiting for answer journal flush of session: " + sessionId);
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while draining answer journal", e);
+            }
+        }
+    }
+
+    private void unlock(Long sessionId, String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey(sessionId)), token);
+    }
+
+    private static String decode(Object value) {
+        String answer = value.toString();
+        return NULL_ANSWER.equals(answer) ? null : answer;
+    }
+
+    private static String answersKey(Long sessionId) {
+        return "exam:" + sessionId + ":answers";
+    }
+
+    private static String flushingKey(Long sessionId) {
+        return "exam:" + sessionId + ":answers:flushing";
+    }
+
+    private static String deadLetterKey(Long sessionId) {
+        return "exam:" + sessionId + ":answers:dead";
+    }
+
+    private static String lockKey(Long sessionId) {
+        return "exam:" + sessionId + ":answers:lock";
+    }
+}
@@ -0,0 +1,275 @@
+package com.almubaraksuleiman.cbts.student.service.impl;
+
+import com.almubaraksuleiman.cbts.dto.QuestionDto;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Read cache for an active exam session's questions.
+ *
+ * The question content of a session never changes once assigned, so the rendered QuestionDto
+ * list is kept in a local Guava cache. The only mutable part, which questions are answered
+ * and with what, lives in the Redis hash "exam:{sessionId}:saved" shared by all nodes: it is
+ * seeded from the database on first read and patched by every save, so paging through
+ * questions and the question map does not touch the database.
+ *
+ * A session's owner and question IDs are cached the same way, so messages that name a
+ * session (e.g. navigation events) can be checked against it without a query each.
+ *
+ * @author Almubarak Suleiman
+ * @version 1.0
+ * @since 2025
+ **/
+@Service
+@Slf4j
+public class ExamSessionReadCache {
+
+    /** Redis hashes cannot hold null, so a cleared answer is stored as this marker */
+    private static final String NULL_ANSWER = "\u0000";
+
+    /** Marks the saved-answer hash as seeded; answer fields are numeric IDs so this cannot clash */
+    private static final String SEEDED_FIELD = "seeded";
+
+    /** Seeds answers without overwriting newer saves (ARGV[1] = ttl ms, ARGV[2..] = pairs) */
+    @SuppressWarnings("unchecked")
+    private static final RedisScript<List<Object>> SEED_SCRIPT = new DefaultRedisScript<>(
+            "for i = 2, #ARGV, 2 do redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('HSET', KEYS[1], '" + SEEDED_FIELD + "', '1') " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "return redis.call('HGETALL', KEYS[1])", (Class<List<Object>>) (Class<?>) List.class);
+
+    /** Patches answers of a seeded hash; an unseeded one is seeded from the DB on next read */
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    /**
+     * Questions of a session as loaded from the database.
+     *
+     * @param questions questions in display order
+     * @param savedAnswers studentExamQuestionId -> saved answer (may be null) of answered questions
+     */
+    public record SessionQuestions(List<QuestionDto> questions, Map<Long, String> savedAnswers) {
+    }
+
+    /**
+     * Who a session belongs to and which questions it was assigned.
+     *
+     * @param studentId owner of the session
+     * @param questionIds IDs of the test questions (not the per-session rows) of the session
+     */
+    public record SessionScope(Long studentId, Set<Long> questionIds) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final long answerStateTtlMs;
+    private final Cache<String, Long> sessionIds;
+    private final Cache<Long, List<QuestionDto>> questions;
+    private final Cache<Long, SessionScope> scopes;
+
+    public ExamSessionReadCache(StringRedisTemplate redisTemplate,
+                                @Value("${exam.session-cache.enabled:true}") boolean enabled,
+                                @Value("${exam.session-cache.max-sessions:20000}") long maxSessions,
+                                @Value("${exam.session-cache.expire-after-access-minutes:60}") long expireAfterAccessMinutes,
+                                @Value("${exam.session-cache.answer-state-ttl-minutes:360}") long answerStateTtlMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.answerStateTtlMs = TimeUnit.MINUTES.toMillis(answerStateTtlMinutes);
+        this.sessionIds = CacheBuilder.newBuilder()
+                .maximumSize(maxSessions * 2)
+                .expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES)
+                .build();
+        this.questions = CacheBuilder.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES)
+                .build();
+        this.scopes = CacheBuilder.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Session ID of a student's exam; sessions are never reassigned, so the lookup is cached.
+     */
+    public Long getSessionId(Long studentId, Long testId, Supplier<Long> loader) {
+        try {
+            return sessionIds.get(studentId + ":" + testId, loader::get);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // Keep the loader's own exception (e.g. no session) for the caller
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Questions of a session in display order with their current saved answers.
+     */
+    public List<QuestionDto> getQuestions(Long sessionId, Supplier<SessionQuestions> loader) {
+        Snapshot snapshot = snapshot(sessionId, loader);
+
+        List<QuestionDto> result = new ArrayList<>(snapshot.questions().size());
+        for (QuestionDto template : snapshot.questions()) {
+            result.add(template.toBuilder()
+                    .savedAnswer(snapshot.saved().get(template.getStudentExamQuestionId()))
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Question map entries (questionId, answered, type, originalQuestionId, sessionId,
+     * displayOrder) in display order.
+     */
+    public List<Map<String, Object>> getQuestionMap(Long sessionId, Supplier<SessionQuestions> loader) {
+        Snapshot snapshot = snapshot(sessionId, loader);
+
+        List<Map<String, Object>> entries = new ArrayList<>(snapshot.questions().size());
+        for (QuestionDto question : snapshot.questions()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("questionId", question.getStudentExamQuestionId());
+            entry.put("answered", snapshot.saved().containsKey(question.getStudentExamQuestionId()));
+            entry.put("type", question.getType());
+            entry.put("originalQuestionId", question.getId());
+            entry.put("sessionId", sessionId);
+            entry.put("displayOrder", question.getQuestionOrder());
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Owner and question IDs of a session; neither changes once the session is assigned.
+     * A loader result of null (no such session) is passed through and not cached, since the
+     * session ID may still be taken by a later session.
+     */
+    public SessionScope getScope(Long sessionId, Supplier<SessionScope> loader) {
+        SessionScope scope = scopes.getIfPresent(sessionId);
+        if (scope == null) {
+            scope = loader.get();
+            if (scope != null) scopes.put(sessionId, scope);
+        }
+        return scope;
+    }
+
+    /**
+     * Patches saved answers after a save. Inside a transaction the patch is applied on commit.
+     *
+     * @param answers studentExamQuestionId -> answer
+     */
+    public void recordAnswers(Long sessionId, Map<Long, String> answers) {
+        if (!enabled || answers.isEmpty()) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyAnswers(sessionId, answers);
+                }
+            });
+        } else {
+            applyAnswers(sessionId, answers);
+        }
+    }
+
+    /**
+     * Drops everything cached for a session, e.g. once it is completed.
+     */
+    public void evict(Long sessionId) {
+        if (!enabled) return;
+        questions.invalidate(sessionId);
+        scopes.invalidate(sessionId);
+        redisTemplate.delete(savedKey(sessionId));
+    }
+
+    // ========== PRIVATE HELPER METHODS ==========
+
+    /** Cached question templates (savedAnswer unset) plus the current saved answers */
+    private record Snapshot(List<QuestionDto> questions, Map<Long, String> saved) {
+    }
+
+    private Snapshot snapshot(Long sessionId, Supplier<SessionQuestions> loader) {
+        List<QuestionDto> templates = questions.getIfPresent(sessionId);
+        Map<Long, String> saved = savedAnswers(sessionId);
+
+        if (templates == null || saved == null) {
+            SessionQuestions loaded = loader.get();
+            templates = loaded.questions().stream()
+                    .map(question -> question.toBuilder().savedAnswer(null).build())
+                    .toList();
+            questions.put(sessionId, templates);
+            saved = seed(sessionId, loaded.savedAnswers());
+        }
+        return new Snapshot(templates, saved);
+    }
+
+    private void applyAnswers(Long sessionId, Map<Long, String> answers) {
+        redisTemplate.execute(RECORD_SCRIPT, List.of(savedKey(sessionId)), (Object[]) ttlAndPairs(answers));
+    }
+
+    /**
+     * @return saved answers, or null if the hash has not been seeded (or has expired)
+     */
+    private Map<Long, String> savedAnswers(Long sessionId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(savedKey(sessionId));
+        if (!entries.containsKey(SEEDED_FIELD)) return null;
+        return decode(entries);
+    }
+
+    private Map<Long, String> seed(Long sessionId, Map<Long, String> answers) {
+        List<Object> flat = redisTemplate.execute(SEED_SCRIPT, List.of(savedKey(sessionId)), (Object[]) ttlAndPairs(answers));
+
+        Map<Object, Object> entries = new HashMap<>();
+        for (int i = 0; flat != null && i + 1 < flat.size(); i += 2) {
+            entries.put(flat.get(i), flat.get(i + 1));
+        }
+        log.debug("Seeded saved answers for session {} ({} answered)", sessionId, answers.size());
+        return decode(entries);
+    }
+
+    private String[] ttlAndPairs(Map<Long, String> answers) {
+        String[] args = new String[1 + answers.size() * 2];
+        args[0] = String.valueOf(answerStateTtlMs);
+        int i = 1;
+        for (Map.Entry<Long, String> entry : answers.entrySet()) {
+            args[i++] = entry.getKey().toString();
+            args[i++] = entry.getValue() != null ? entry.getValue() : NULL_ANSWER;
+        }
+        return args;
+    }
+
+    private static Map<Long, String> decode(Map<Object, Object> entries) {
+        Map<Long, String> answers = new HashMap<>();
+        entries.forEach((field, value) -> {
+            if (SEEDED_FIELD.equals(field.toString())) return;
+            String answer = value.toString();
+            answers.put(Long.valueOf(field.toString()), NULL_ANSWER.equals(answer) ? null : answer);
+        });
+        return answers;
+    }
+
+    private static String savedKey(Long sessionId) {
+        return "exam:" + sessionId + ":saved";
+    }
+}
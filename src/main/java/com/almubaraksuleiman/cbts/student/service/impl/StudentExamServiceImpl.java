@@ -7,22 +7,25 @@ import com.almubaraksuleiman.cbts.dto.StudentAnswerDto;
 import com.almubaraksuleiman.cbts.examiner.model.Question;
 import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
 import com.almubaraksuleiman.cbts.examiner.model.Test;
-import com.almubaraksuleiman.cbts.examiner.repository.QuestionRepository;
 import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
 import com.almubaraksuleiman.cbts.examiner.service.TestInstructionsService;
 import com.almubaraksuleiman.cbts.examiner.service.UnifiedWebSocketService;
-import com.almubaraksuleiman.cbts.examiner.service.impl.ExamGradingService;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
+import com.almubaraksuleiman.cbts.examiner.service.grading.GradingQueue;
+import com.almubaraksuleiman.cbts.examiner.service.paper.ExamPaper;
+import com.almubaraksuleiman.cbts.examiner.service.paper.ExamPaperCache;
+import com.almubaraksuleiman.cbts.examiner.service.paper.SeededShuffle;
 import com.almubaraksuleiman.cbts.student.model.Student;
-import com.almubaraksuleiman.cbts.student.model.StudentAnswer;
 import com.almubaraksuleiman.cbts.student.model.StudentExam;
 import com.almubaraksuleiman.cbts.student.model.StudentExamQuestion;
-import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionBatchRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
 import com.almubaraksuleiman.cbts.student.repository.StudentRepository;
 import com.almubaraksuleiman.cbts.student.service.StudentExamService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -31,6 +34,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 /**
@@ -47,19 +51,27 @@ public class StudentExamServiceImpl implements StudentExamService {
 
     // Repository dependencies
     private final TestRepository testRepository;
-    private final QuestionRepository questionRepository;
-    private final StudentAnswerRepository answerRepository;
     private final StudentExamRepository studentExamRepository;
     private final StudentExamQuestionRepository studentExamQuestionRepository;
     private final StudentRepository studentRepository;
+    private final StudentExamQuestionBatchRepository examQuestionBatchRepository;
+    private final ExamPaperCache examPaperCache;
+    private final AnswerBulkWriter answerBulkWriter;
+    private final AnswerWriteBehindJournal answerJournal;
+    private final ExamSessionReadCache sessionReadCache;
 
     // Service dependencies
     private final UnifiedWebSocketService unifiedWebSocketService;
     private final ExamSessionService examSessionService;
-    private final ExamGradingService examGradingService;
+    private final GradingQueue gradingQueue;
+    private final TestAnalyticsAccumulator analyticsAccumulator;
     private final TestInstructionsService instructionsService;
     private final StudentEnrolledTestsService enrolledTestsService;
 
+    /** Store one seed per session and derive choice order on read instead of storing it per question */
+    @Value("${exam.paper.seeded-shuffle.enabled:false}")
+    private boolean seededShuffle;
+
     /**
      * Starts a new exam session or resumes an existing one
      *
@@ -106,6 +118,10 @@ public class StudentExamServiceImpl implements StudentExamService {
         Long sessionId = getSessionId(studentId, testId);
         PageRequest pageable = PageRequest.of(page, size);
 
+        if (sessionReadCache.isEnabled()) {
+            return toPage(sessionReadCache.getQuestions(sessionId, () -> loadSessionQuestions(sessionId)), pageable);
+        }
+
         // Use ordered query for consistent question sequence
         Page<StudentExamQuestion> pageResult = studentExamQuestionRepository
                 .findByStudentExam_SessionIdOrdered(sessionId, pageable);
@@ -114,6 +130,7 @@ public class StudentExamServiceImpl implements StudentExamService {
                 .stream()
                 .map(this::convertToQuestionDto)
                 .collect(Collectors.toList());
+        overlayPendingAnswers(sessionId, dtos);
 
         log.debug("Retrieved {} questions for student {}, test {}, page {}",
                 dtos.size(), studentId, testId, page);
@@ -132,7 +149,11 @@ public class StudentExamServiceImpl implements StudentExamService {
     @Transactional(readOnly = true)
     public List<Long> getQuestionIds(Long studentId, Long testId) {
         Long sessionId = getSessionId(studentId, testId);
-        List<Long> questionIds = studentExamQuestionRepository.findQuestionIdsBySessionId(sessionId);
+        List<Long> questionIds = sessionReadCache.isEnabled()
+                ? sessionReadCache.getQuestions(sessionId, () -> loadSessionQuestions(sessionId)).stream()
+                        .map(QuestionDto::getStudentExamQuestionId)
+                        .collect(Collectors.toList())
+                : studentExamQuestionRepository.findQuestionIdsBySessionId(sessionId);
 
         log.debug("Retrieved {} question IDs for student {}, test {}",
                 questionIds.size(), studentId, testId);
@@ -156,16 +177,14 @@ public class StudentExamServiceImpl implements StudentExamService {
 
         Long sessionId = getSessionId(studentId, testId);
 
-        for (StudentAnswerDto dto : answers) {
-            saveSingleAnswer(sessionId, dto);
-        }
+        saveAnswersInBulk(sessionId, answers);
 
         log.info("Saved {} answers for student {}, test {}, session {}",
                 answers.size(), studentId, testId, sessionId);
     }
 
     /**
-     * Completes the exam session and triggers grading
+     * Completes the exam session and hands it to the grading queue
      *
      * @param studentId The student ID
      * @param testId The test ID
@@ -188,14 +207,15 @@ public class StudentExamServiceImpl implements StudentExamService {
             exam.setStatus(StudentExam.ExamStatus.SUBMITTED);
             exam.setTimeSpentSeconds(exam.getTimeSpent().getSeconds());
 
-            // Grade the exam
-            examGradingService.gradeExam(sessionId);
-            exam.setGraded(true);
-
             studentExamRepository.save(exam);
+            analyticsAccumulator.record(exam);
+
+            // Queue for grading once this commits; the grading worker drains the answer journal
+            gradingQueue.submit(exam);
 
             // Stop the timer
             unifiedWebSocketService.stopTimer(sessionId);
+            sessionReadCache.evict(sessionId);
 
             log.info("Exam completed for student {}, test {}, session {}", studentId, testId, sessionId);
 
@@ -223,16 +243,69 @@ public class StudentExamServiceImpl implements StudentExamService {
         Long sessionId = getSessionId(studentId, testId);
         PageRequest pageable = PageRequest.of(page, size);
 
+        if (sessionReadCache.isEnabled()) {
+            List<QuestionDto> ofType = sessionReadCache.getQuestions(sessionId, () -> loadSessionQuestions(sessionId))
+                    .stream()
+                    .filter(question -> question.getType() == type)
+                    .collect(Collectors.toList());
+            return toPage(ofType, pageable);
+        }
+
         Page<StudentExamQuestion> pageResult = studentExamQuestionRepository
                 .findByStudentExam_SessionIdAndQuestion_TypeOrdered(sessionId, type, pageable);
 
         List<QuestionDto> dtos = pageResult.getContent().stream()
                 .map(this::convertToQuestionDto)
                 .collect(Collectors.toList());
+        overlayPendingAnswers(sessionId, dtos);
 
         return new PageImpl<>(dtos, pageable, pageResult.getTotalElements());
     }
 
+    /**
+     * Gets the question map entries of an exam session in display order
+     *
+     * @param studentId The student ID
+     * @param testId The test ID
+     * @return Question map entries
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getQuestionMap(Long studentId, Long testId) {
+        if (sessionReadCache.isEnabled()) {
+            Long sessionId = getSessionId(studentId, testId);
+            return sessionReadCache.getQuestionMap(sessionId, () -> loadSessionQuestions(sessionId));
+        }
+
+        List<Map<String, Object>> entries = studentExamQuestionRepository.findQuestionIdsAnsweredAndType(studentId, testId);
+        if (entries.isEmpty() || !answerJournal.isEnabled()) return entries;
+
+        // Questions answered in the write-behind journal but not yet flushed
+        Map<Long, String> pending = answerJournal.pendingAnswers((Long) entries.get(0).get("sessionId"));
+        entries.stream()
+                .filter(entry -> pending.containsKey((Long) entry.get("questionId")))
+                .forEach(entry -> entry.put("answered", true));
+        return entries;
+    }
+
+    /**
+     * Checks that a question belongs to the student's own session
+     *
+     * @param studentId The student ID
+     * @param sessionId The exam session ID
+     * @param questionId The test question ID
+     * @return true if the student owns the session and it includes the question
+     */
+    @Override
+    public boolean isSessionQuestion(Long studentId, Long sessionId, Long questionId) {
+        // No transaction: a cached scope is answered without taking a connection
+        ExamSessionReadCache.SessionScope scope = sessionReadCache.isEnabled()
+                ? sessionReadCache.getScope(sessionId, () -> loadSessionScope(sessionId))
+                : loadSessionScope(sessionId);
+
+        return scope != null && scope.studentId().equals(studentId) && scope.questionIds().contains(questionId);
+    }
+
     // ========== PRIVATE HELPER METHODS ==========
 
     /**
@@ -294,12 +367,57 @@ public class StudentExamServiceImpl implements StudentExamService {
      * Gets session ID for student and test combination
      */
     private Long getSessionId(Long studentId, Long testId) {
+        if (sessionReadCache.isEnabled()) {
+            return sessionReadCache.getSessionId(studentId, testId, () -> findSessionId(studentId, testId));
+        }
+        return findSessionId(studentId, testId);
+    }
+
+    private Long findSessionId(Long studentId, Long testId) {
         return studentExamRepository.findByStudentIdAndTestId(studentId, testId)
                 .map(StudentExam::getSessionId)
                 .orElseThrow(() -> new RuntimeException(
                         "No active exam session found for student " + studentId + " and test " + testId));
     }
 
+    /**
+     * Loads all questions of a session with one query, for the session read cache
+     */
+    private ExamSessionReadCache.SessionQuestions loadSessionQuestions(Long sessionId) {
+        List<StudentExamQuestion> examQuestions = studentExamQuestionRepository.findAllBySessionIdWithQuestion(sessionId);
+
+        List<QuestionDto> questions = new ArrayList<>(examQuestions.size());
+        Map<Long, String> savedAnswers = new HashMap<>();
+        for (StudentExamQuestion examQuestion : examQuestions) {
+            questions.add(convertToQuestionDto(examQuestion));
+            if (Boolean.TRUE.equals(examQuestion.getAnswered())) {
+                savedAnswers.put(examQuestion.getId(), examQuestion.getSavedAnswer());
+            }
+        }
+        savedAnswers.putAll(answerJournal.pendingAnswers(sessionId));
+
+        return new ExamSessionReadCache.SessionQuestions(questions, savedAnswers);
+    }
+
+    /**
+     * Loads the owner and question IDs of a session, or null if there is no such session
+     */
+    private ExamSessionReadCache.SessionScope loadSessionScope(Long sessionId) {
+        return studentExamRepository.findStudentIdBySessionId(sessionId)
+                .map(owner -> new ExamSessionReadCache.SessionScope(owner,
+                        Set.copyOf(studentExamQuestionRepository.findOriginalQuestionIdsBySessionId(sessionId))))
+                .orElse(null);
+    }
+
+    /**
+     * Slices an in-memory question list into a page
+     */
+    private Page<QuestionDto> toPage(List<QuestionDto> questions, PageRequest pageable) {
+        int from = (int) Math.min(pageable.getOffset(), questions.size());
+        int to = Math.min(from + pageable.getPageSize(), questions.size());
+        return new PageImpl<>(questions.subList(from, to), pageable, questions.size());
+    }
+
     /**
      * Handles existing exam session (resume or create new session)
      */
@@ -324,6 +442,9 @@ public class StudentExamServiceImpl implements StudentExamService {
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new IllegalArgumentException("Student not found with ID: " + studentId));
 
+        // Independent per session, so concurrent starts do not share an ordering
+        long seed = ThreadLocalRandom.current().nextLong();
+
         // Create exam session
         StudentExam exam = StudentExam.builder()
                 .studentId(studentId)
@@ -334,71 +455,45 @@ public class StudentExamServiceImpl implements StudentExamService {
                 .graded(false)
                 .status(StudentExam.ExamStatus.IN_PROGRESS)
                 .currentQuestionIndex(0)
+                .paperSeed(seededShuffle ? seed : null)
                 .build();
 
         exam = studentExamRepository.save(exam);
+        analyticsAccumulator.record(exam);
 
         // Assign questions and start timer
-        assignQuestionsToExam(exam, test);
+        assignQuestionsToExam(exam, test, seed);
         startExamTimer(exam, test);
 
         return buildNewSessionResponse(exam, test);
     }
 
     /**
-     * Assigns questions to exam session with proper ordering
+     * Assigns questions to exam session with proper ordering.
+     * Selection and choice order are derived from the session seed over the cached paper;
+     * in seeded mode the choice order is not stored and is re-derived when questions are read.
      */
-    private void assignQuestionsToExam(StudentExam exam, Test test) {
-        List<Question> allQuestions = questionRepository.findByTestId(test.getId());
-        log.info("Fetched {} questions for test {}", allQuestions.size(), test.getId());
-
-        // Apply randomization if enabled
-        if (Boolean.TRUE.equals(test.getRandomizeQuestions())) {
-            Collections.shuffle(allQuestions);
-            log.info("Questions shuffled for test {}", test.getId());
+    private void assignQuestionsToExam(StudentExam exam, Test test, long seed) {
+        ExamPaper paper = examPaperCache.getPaper(test.getId());
+        int[] positions = SeededShuffle.selectPositions(paper.size(), test.getNumberOfQuestions(),
+                Boolean.TRUE.equals(test.getRandomizeQuestions()), seed);
+
+        // Assign questions with proper ordering, written as one batched insert
+        boolean shuffle = Boolean.TRUE.equals(test.getShuffleChoices());
+        List<StudentExamQuestionBatchRepository.AssignedQuestion> assigned = new ArrayList<>(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            int position = positions[i];
+            String choices = null;
+            if (!seededShuffle) {
+                choices = shuffle && paper.optionCount(position) > 0
+                        ? SeededShuffle.shuffleChoices(paper, position, seed)
+                        : paper.choices(position);
+            }
+            assigned.add(new StudentExamQuestionBatchRepository.AssignedQuestion(paper.questionId(position), i + 1, choices));
         }
+        examQuestionBatchRepository.insertAll(exam.getSessionId(), assigned);
 
-        // Select questions based on test configuration
-        List<Question> selectedQuestions = allQuestions.stream()
-                .limit(test.getNumberOfQuestions())
-                .collect(Collectors.toList());
-
-        // Assign questions with proper ordering
-        int order = 1;
-        for (Question question : selectedQuestions) {
-            assignSingleQuestion(exam, question, test, order);
-            order++;
-        }
-
-        log.info("Assigned {} questions to exam session {}", selectedQuestions.size(), exam.getSessionId());
-    }
-
-    /**
-     * Assigns a single question to exam session
-     */
-    private void assignSingleQuestion(StudentExam exam, Question question, Test test, int order) {
-        String originalChoices = question.getChoices();
-        String shuffledChoices = originalChoices;
-
-        // Apply choice shuffling if enabled
-        if (Boolean.TRUE.equals(test.getShuffleChoices()) &&
-                originalChoices != null &&
-                !originalChoices.trim().isEmpty()) {
-            shuffledChoices = shuffleChoices(originalChoices);
-        }
-
-        StudentExamQuestion examQuestion = StudentExamQuestion.builder()
-                .studentExam(exam)
-                .question(question)
-                .answered(false)
-                .shuffledChoices(shuffledChoices)
-                .order(order)
-                .build();
-
-        studentExamQuestionRepository.save(examQuestion);
-
-        log.debug("Assigned question {} (ID: {}) as position {} in exam session {}",
-                question.getId(), examQuestion.getId(), order, exam.getSessionId());
+        log.info("Assigned {} of {} questions to exam session {}", positions.length, paper.size(), exam.getSessionId());
     }
 
     /**
@@ -414,49 +509,41 @@ public class StudentExamServiceImpl implements StudentExamService {
     }
 
     /**
-     * Saves a single answer with validation
+     * Saves a batch of answers, either straight to the database in one bulk write or,
+     * in write-behind mode, to the Redis answer journal for a later batched flush.
      */
-    private void saveSingleAnswer(Long sessionId, StudentAnswerDto dto) {
-        StudentExamQuestion examQuestion = studentExamQuestionRepository.findById(dto.getStudentExamQuestionId())
-                .orElseThrow(() -> new RuntimeException("Invalid question for this session"));
-
-        validateQuestionOwnership(sessionId, examQuestion);
-        saveOrUpdateAnswer(examQuestion, dto.getAnswer());
-    }
+    private void saveAnswersInBulk(Long sessionId, List<StudentAnswerDto> answers) {
+        // Last write wins when the same question appears more than once in a batch
+        Map<Long, String> answerByQuestionId = new LinkedHashMap<>();
+        for (StudentAnswerDto dto : answers) {
+            if (dto.getStudentExamQuestionId() == null) {
+                throw new RuntimeException("Invalid question for this session");
+            }
+            answerByQuestionId.put(dto.getStudentExamQuestionId(), dto.getAnswer());
+        }
 
-    /**
-     * Validates that question belongs to the session
-     */
-    private void validateQuestionOwnership(Long sessionId, StudentExamQuestion examQuestion) {
-        if (!examQuestion.getStudentExam().getSessionId().equals(sessionId)) {
-            throw new RuntimeException("Unauthorized answer submission: Question does not belong to this session");
+        if (answerJournal.isEnabled()) {
+            answerJournal.append(sessionId, answerByQuestionId);
+        } else {
+            answerBulkWriter.write(Map.of(sessionId, answerByQuestionId));
         }
+        sessionReadCache.recordAnswers(sessionId, answerByQuestionId);
     }
 
     /**
-     * Saves or updates an answer record
+     * Choices in the order shown to this session: stored per question, or derived from the
+     * session seed for seeded sessions
      */
-    private void saveOrUpdateAnswer(StudentExamQuestion examQuestion, String answer) {
-        StudentAnswer existingAnswer = answerRepository.findByStudentExamQuestion(examQuestion).orElse(null);
-
-        if (existingAnswer == null) {
-            existingAnswer = StudentAnswer.builder()
-                    .question(examQuestion.getQuestion())
-                    .studentExam(examQuestion.getStudentExam())
-                    .studentExamQuestion(examQuestion)
-                    .answer(answer)
-                    .score(null)
-                    .build();
-        } else {
-            existingAnswer.setAnswer(answer);
+    private String resolveChoices(StudentExamQuestion examQuestion) {
+        StudentExam exam = examQuestion.getStudentExam();
+        if (exam.getPaperSeed() == null || examQuestion.getShuffledChoices() != null) {
+            return examQuestion.getShuffledChoices();
         }
 
-        // Update exam question status
-        examQuestion.setAnswered(true);
-        examQuestion.setSavedAnswer(answer);
-
-        studentExamQuestionRepository.save(examQuestion);
-        answerRepository.save(existingAnswer);
+        Question question = examQuestion.getQuestion();
+        return Boolean.TRUE.equals(exam.getTest().getShuffleChoices())
+                ? SeededShuffle.shuffleChoices(question.getChoices(), question.getId(), exam.getPaperSeed())
+                : question.getChoices();
     }
 
     /**
@@ -469,7 +556,7 @@ public class StudentExamServiceImpl implements StudentExamService {
                 .studentExamQuestionId(examQuestion.getId())
                 .id(question.getId())
                 .text(question.getText())
-                .choices(examQuestion.getShuffledChoices())
+                .choices(resolveChoices(examQuestion))
                 .correctAnswer(question.getCorrectAnswer())
                 .type(question.getType())
                 .maxMarks(question.getMaxMarks())
@@ -481,6 +568,20 @@ public class StudentExamServiceImpl implements StudentExamService {
                 .build();
     }
 
+    /**
+     * Replaces saved answers with journalled ones that have not been flushed yet
+     */
+    private void overlayPendingAnswers(Long sessionId, List<QuestionDto> dtos) {
+        Map<Long, String> pending = answerJournal.pendingAnswers(sessionId);
+        if (pending.isEmpty()) return;
+
+        for (QuestionDto dto : dtos) {
+            if (pending.containsKey(dto.getStudentExamQuestionId())) {
+                dto.setSavedAnswer(pending.get(dto.getStudentExamQuestionId()));
+            }
+        }
+    }
+
     /**
      * Builds response for new session
      */
@@ -496,6 +597,7 @@ public class StudentExamServiceImpl implements StudentExamService {
                 .durationMinutes(test.getDurationMinutes())
                 .status(exam.getStatus().toString())
                 .currentQuestionIndex(exam.getCurrentQuestionIndex())
+                .deadline(unifiedWebSocketService.getTimerSync(exam.getSessionId()).getDeadline())
                 .build();
     }
 
@@ -515,25 +617,7 @@ public class StudentExamServiceImpl implements StudentExamService {
                 .durationMinutes(durationMinutes)
                 .totalQuestions(questionCount)
                 .status(status)
+                .deadline(unifiedWebSocketService.getTimerSync(sessionId).getDeadline())
                 .build();
     }
-
-    /**
-     * Shuffles answer choices for randomization
-     */
-    private String shuffleChoices(String choices) {
-        if (choices == null || choices.trim().isEmpty()) {
-            return choices;
-        }
-
-        try {
-            List<String> choiceList = Arrays.asList(choices.split("\\s*,\\s*"));
-            long seed = System.currentTimeMillis();
-            Collections.shuffle(choiceList, new Random(seed));
-            return String.join(",", choiceList);
-        } catch (Exception e) {
-            log.error("Error shuffling choices: {}", e.getMessage());
-            return choices;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.almubaraksuleiman.cbts.examiner.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PartialCreditPolicyTest {
+
+    @Test
+    void allOrNothingPaysOnlyForTheExactKey() {
+        assertThat(PartialCreditPolicy.ALL_OR_NOTHING.credit(3, 0, 3)).isEqualTo(1.0);
+        assertThat(PartialCreditPolicy.ALL_OR_NOTHING.credit(2, 0, 3)).isZero();
+        assertThat(PartialCreditPolicy.ALL_OR_NOTHING.credit(3, 1, 3)).isZero();
+        assertThat(PartialCreditPolicy.ALL_OR_NOTHING.credit(0, 0, 3)).isZero();
+        assertThat(PartialCreditPolicy.ALL_OR_NOTHING.credit(0, 0, 0)).isZero();
+    }
+
+    @Test
+    void proportionalPaysTheShareOfTheKeyLessWrongItems() {
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(4, 0, 4)).isEqualTo(1.0);
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(3, 0, 4)).isEqualTo(0.75);
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(3, 1, 4)).isEqualTo(0.5);
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(1, 0, 3)).isCloseTo(1 / 3.0, within(1e-12));
+    }
+
+    @Test
+    void proportionalIsFlooredAtZero() {
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(1, 1, 4)).isZero();
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(1, 3, 4)).isZero();
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(0, 6, 2)).isZero();
+        // Selecting every option of a 2-of-4 question earns nothing
+        assertThat(PartialCreditPolicy.PROPORTIONAL.credit(2, 2, 2)).isZero();
+    }
+
+    @Test
+    void negativeMarkingGoesBelowZeroButNotPastMinusMax() {
+        assertThat(PartialCreditPolicy.NEGATIVE_MARKING.credit(2, 0, 2)).isEqualTo(1.0);
+        assertThat(PartialCreditPolicy.NEGATIVE_MARKING.credit(1, 0, 2)).isEqualTo(0.5);
+        assertThat(PartialCreditPolicy.NEGATIVE_MARKING.credit(1, 2, 4)).isEqualTo(-0.25);
+        assertThat(PartialCreditPolicy.NEGATIVE_MARKING.credit(0, 2, 2)).isEqualTo(-1.0);
+        assertThat(PartialCreditPolicy.NEGATIVE_MARKING.credit(0, 5, 2)).isEqualTo(-1.0);
+    }
+
+    @Test
+    void emptyKeysEarnNothingUnderAnyPolicy() {
+        for (PartialCreditPolicy policy : PartialCreditPolicy.values()) {
+            assertThat(policy.credit(0, 0, 0)).isZero();
+            assertThat(policy.credit(0, 3, 0)).isZero();
+        }
+    }
+
+    @Test
+    void effectivePolicyRequiresThePartialCreditFlag() {
+        assertThat(PartialCreditPolicy.effective(null, PartialCreditPolicy.NEGATIVE_MARKING))
+                .isEqualTo(PartialCreditPolicy.ALL_OR_NOTHING);
+        assertThat(PartialCreditPolicy.effective(false, PartialCreditPolicy.PROPORTIONAL))
+                .isEqualTo(PartialCreditPolicy.ALL_OR_NOTHING);
+        assertThat(PartialCreditPolicy.effective(true, null)).isEqualTo(PartialCreditPolicy.PROPORTIONAL);
+        assertThat(PartialCreditPolicy.effective(true, PartialCreditPolicy.NEGATIVE_MARKING))
+                .isEqualTo(PartialCreditPolicy.NEGATIVE_MARKING);
+    }
+}
@@ -0,0 +1,250 @@
+package com.almubaraksuleiman.cbts.examiner.repository;
+
+import com.almubaraksuleiman.cbts.examiner.model.Enrollment;
+import com.almubaraksuleiman.cbts.examiner.model.Examiner;
+import com.almubaraksuleiman.cbts.examiner.service.impl.DashboardRollupService;
+import com.almubaraksuleiman.cbts.student.model.Student;
+import com.almubaraksuleiman.cbts.student.model.StudentExam;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the rollup statements and the refresh's change detection on H2 in MySQL mode.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rollups;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY,VALUE",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DashboardRollupRepository.class, DashboardRollupService.class})
+class DashboardRollupRepositoryTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate DAY = TODAY.minusDays(3);
+    private static final LocalDate YESTERDAY = TODAY.minusDays(1);
+
+    @Autowired
+    private DashboardRollupRepository rollupRepository;
+
+    @Autowired
+    private DashboardRollupService rollupService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Examiner examiner;
+    private com.almubaraksuleiman.cbts.examiner.model.Test test;
+    private int students;
+
+    @BeforeEach
+    void createTest() {
+        examiner = new Examiner();
+        examiner.setUsername("examiner");
+        examiner.setPassword("hash");
+        examiner.setEmail("examiner@example.com");
+        entityManager.persist(examiner);
+
+        test = com.almubaraksuleiman.cbts.examiner.model.Test.builder()
+                .title("Rollups")
+                .passingScore(50)
+                .createdBy(examiner)
+                .build();
+        entityManager.persist(test);
+    }
+
+    @Test
+    void rollUpGroupsExamsAndEnrollmentsByDay() {
+        exam(DAY.atTime(9, 0), 80.0, true);
+        exam(DAY.atTime(10, 0), 40.0, true);
+        exam(DAY.atTime(11, 0), null, false);
+        enroll(DAY.atTime(8, 0));
+        enroll(DAY.minusDays(1).atTime(8, 0));
+
+        rollupRepository.rollUp(DAY.minusDays(1), DAY);
+        rollupRepository.rollUp(DAY.minusDays(1), DAY);
+
+        assertThat(daily(DAY)).containsEntry("completed", 3L).containsEntry("scored", 2L)
+                .containsEntry("score_sum", 120.0).containsEntry("passed", 1L)
+                .containsEntry("pending_grading", 1L).containsEntry("enrollments", 1L)
+                .containsEntry("examiner_id", examiner.getId());
+        // A day with enrollments only gets a row of its own
+        assertThat(daily(DAY.minusDays(1))).containsEntry("completed", 0L).containsEntry("enrollments", 1L);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT decile, exam_count FROM dashboard_score_rollup WHERE day = ? ORDER BY decile", Date.valueOf(DAY)))
+                .extracting(row -> ((Number) row.get("decile")).intValue() + ":" + ((Number) row.get("exam_count")).longValue())
+                .containsExactly("4:1", "8:1");
+    }
+
+    @Test
+    void changedDaysAreEndDaysOfExamsUpdatedSinceAndDaysOfNewEnrollments() {
+        LocalDateTime since = DAY.atTime(12, 0);
+        updatedAt(exam(DAY.minusDays(1).atTime(9, 0), 70.0, true), since.plusMinutes(1));
+        updatedAt(exam(DAY.minusDays(2).atTime(9, 0), 70.0, true), since.minusMinutes(1));
+        updatedAt(exam(TODAY.atTime(0, 0), 70.0, true), since.plusMinutes(1));
+        enroll(DAY.atTime(13, 0));
+        enroll(DAY.atTime(11, 0));
+        enroll(TODAY.atTime(0, 0));
+
+        assertThat(rollupRepository.changedDays(since, YESTERDAY))
+                .containsExactlyInAnyOrder(DAY.minusDays(1), DAY);
+    }
+
+    @Test
+    void refreshRecomputesDaysUpdatedWithinTheWatermarkOverlap() {
+        Long late = exam(DAY.atTime(9, 0), 40.0, true);
+        Long old = exam(DAY.minusDays(1).atTime(9, 0), 40.0, true);
+        rollupRepository.rollUp(DAY.minusDays(1), DAY);
+        LocalDateTime watermark = LocalDateTime.now().minusHours(1);
+        rollupRepository.lockState();
+        rollupRepository.saveState(YESTERDAY, watermark);
+
+        // Regraded by transactions that committed after the watermark was taken
+        regrade(late, 90.0, watermark.minusMinutes(5));
+        regrade(old, 90.0, watermark.minusMinutes(30));
+        refresh();
+
+        assertThat(daily(DAY)).containsEntry("passed", 1L);
+        assertThat(daily(DAY.minusDays(1))).containsEntry("passed", 0L);
+        assertThat(rollupRepository.state().rolledUpThrough()).isEqualTo(YESTERDAY);
+        assertThat(rollupRepository.state().watermark()).isAfter(watermark);
+    }
+
+    @Test
+    void refreshCatchesUpOnDaysThatEndedSinceTheLastOne() {
+        exam(YESTERDAY.atTime(9, 0), 90.0, true);
+        rollupRepository.lockState();
+        rollupRepository.saveState(YESTERDAY.minusDays(2), LocalDateTime.now());
+
+        refresh();
+
+        assertThat(daily(YESTERDAY)).containsEntry("passed", 1L);
+        assertThat(rollupRepository.state().rolledUpThrough()).isEqualTo(YESTERDAY);
+    }
+
+    @Test
+    void aPassingScoreChangeRecomputesEveryDayOfTheTest() {
+        exam(DAY.atTime(9, 0), 60.0, true);
+        exam(DAY.minusDays(1).atTime(9, 0), 65.0, true);
+        rollupRepository.rollUp(DAY.minusDays(1), DAY);
+        rollupRepository.lockState();
+        rollupRepository.saveState(YESTERDAY, LocalDateTime.now());
+
+        rollupService.markTestChanged(test.getId());
+        jdbcTemplate.update("UPDATE tests SET passing_score = 70 WHERE id = ?", test.getId());
+        refresh();
+
+        assertThat(daily(DAY)).containsEntry("passed", 0L);
+        assertThat(daily(DAY.minusDays(1))).containsEntry("passed", 0L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dashboard_rollup_stale_day", Long.class)).isZero();
+    }
+
+    @Test
+    void deletedEnrollmentsAreTakenOutOfTheirDays() {
+        enroll(DAY.atTime(8, 0));
+        Student removed = enroll(DAY.atTime(9, 0));
+        rollupRepository.rollUp(DAY, DAY);
+        rollupRepository.lockState();
+        rollupRepository.saveState(YESTERDAY, LocalDateTime.now());
+
+        rollupService.markEnrollmentsDeleted(test.getId(), removed.getId());
+        jdbcTemplate.update("DELETE FROM enrollments WHERE student_id = ?", removed.getId());
+        refresh();
+
+        assertThat(daily(DAY)).containsEntry("enrollments", 1L);
+    }
+
+    @Test
+    void takeStaleDaysReturnsEachMarkedDayOnce() {
+        enroll(YESTERDAY.atTime(9, 0));
+        rollupRepository.lockState();
+        rollupRepository.saveState(DAY, LocalDateTime.now());
+
+        rollupService.markEnrollmentsDeleted(test.getId(), null);
+
+        assertThat(rollupRepository.takeStaleDays()).containsExactly(YESTERDAY);
+        assertThat(rollupRepository.takeStaleDays()).isEmpty();
+    }
+
+    private void refresh() {
+        ReflectionTestUtils.invokeMethod(rollupService, "refresh");
+    }
+
+    private Long exam(LocalDateTime endTime, Double percentage, boolean graded) {
+        StudentExam exam = StudentExam.builder()
+                .studentId(1L)
+                .test(test)
+                .startTime(endTime.minusMinutes(30))
+                .endTime(endTime)
+                .completed(true)
+                .percentage(percentage)
+                .graded(graded)
+                .build();
+        entityManager.persist(exam);
+        entityManager.flush();
+        return exam.getSessionId();
+    }
+
+    private void updatedAt(Long sessionId, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE student_exam SET updated_at = ? WHERE session_id = ?",
+                Timestamp.valueOf(updatedAt), sessionId);
+    }
+
+    private void regrade(Long sessionId, double percentage, LocalDateTime updatedAt) {
+        jdbcTemplate.update("UPDATE student_exam SET percentage = ?, updated_at = ? WHERE session_id = ?",
+                percentage, Timestamp.valueOf(updatedAt), sessionId);
+    }
+
+    private Student enroll(LocalDateTime enrolledAt) {
+        students++;
+        Student student = Student.builder()
+                .username("student" + students)
+                .firstName("First")
+                .lastName("Last")
+                .password("hash")
+                .email("student" + students + "@example.com")
+                .department("Science")
+                .build();
+        entityManager.persist(student);
+        Enrollment enrollment = Enrollment.builder()
+                .test(test)
+                .student(student)
+                .status(Enrollment.EnrollmentStatus.ENROLLED)
+                .notificationSent(false)
+                .build();
+        entityManager.persist(enrollment);
+        entityManager.flush();
+        // enrolled_at is a creation timestamp
+        jdbcTemplate.update("UPDATE enrollments SET enrolled_at = ? WHERE id = ?",
+                Timestamp.valueOf(enrolledAt), enrollment.getId());
+        return student;
+    }
+
+    private Map<String, Object> daily(LocalDate day) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT examiner_id, completed, scored, score_sum, passed, pending_grading, enrollments " +
+                        "FROM dashboard_daily_rollup WHERE day = ? AND test_id = ?",
+                Date.valueOf(day), test.getId());
+        assertThat(rows).hasSize(1);
+        return rows.get(0);
+    }
+}
@@ -0,0 +1,182 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.AnalyticsExportJobService.ExportJob;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.AnalyticsExportJobService.Format;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsReportService;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsService;
+import com.almubaraksuleiman.cbts.resource.FileStorageException;
+import com.almubaraksuleiman.cbts.resource.FileStorageService;
+import com.almubaraksuleiman.cbts.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalyticsExportJobServiceTest {
+
+    private static final Long TEST_ID = 5L;
+    private static final long JOB_TTL_HOURS = 24;
+
+    private final AnalyticsService analyticsService = mock(AnalyticsService.class);
+    private final TestAnalyticsAccumulator analyticsAccumulator = mock(TestAnalyticsAccumulator.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final TestRepository testRepository = mock(TestRepository.class);
+
+    /** Stored artifact paths */
+    private final Set<String> stored = ConcurrentHashMap.newKeySet();
+    private volatile long revision = 1;
+
+    private EmbeddedRedis redis;
+    private AnalyticsExportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        redis = EmbeddedRedis.start();
+
+        when(testRepository.existsById(TEST_ID)).thenReturn(true);
+        when(analyticsAccumulator.revisions(List.of(TEST_ID))).thenAnswer(invocation -> Map.of(TEST_ID, revision));
+        when(fileStorageService.storeFile(anyString(), any(FileStorageService.ContentWriter.class)))
+                .thenAnswer(invocation -> {
+                    String path = invocation.getArgument(0);
+                    stored.add(path);
+                    return path;
+                });
+        when(fileStorageService.isValidFile(anyString())).thenAnswer(invocation -> stored.contains(invocation.<String>getArgument(0)));
+        when(fileStorageService.deleteFile(anyString())).thenAnswer(invocation -> stored.remove(invocation.<String>getArgument(0)));
+        when(fileStorageService.loadFileAsResource(anyString())).thenAnswer(invocation -> {
+            String path = invocation.getArgument(0);
+            if (!stored.contains(path)) throw new FileStorageException("File not found " + path);
+            return new ByteArrayResource(path.getBytes());
+        });
+
+        service = service(1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        redis.close();
+    }
+
+    @Test
+    void anUnchangedRevisionIsServedFromItsArtifactWithoutRendering() throws Exception {
+        ExportJob rendered = awaitCompletion(service.submit(TEST_ID, Format.CSV, null));
+
+        ExportJob cached = service.submit(TEST_ID, Format.CSV, null);
+
+        assertThat(rendered.cached()).isFalse();
+        assertThat(cached.isCompleted()).isTrue();
+        assertThat(cached.cached()).isTrue();
+        assertThat(cached.revision()).isEqualTo(1L);
+        verify(analyticsService, times(1)).getTestAnalytics(eq(TEST_ID), any());
+    }
+
+    @Test
+    void aSupersededArtifactStaysDownloadableUntilItsJobsHaveExpired() throws Exception {
+        ExportJob first = awaitCompletion(service.submit(TEST_ID, Format.CSV, null));
+        ExportJob cachedFirst = service.submit(TEST_ID, Format.CSV, null);
+        revision = 2;
+        ExportJob second = awaitCompletion(service.submit(TEST_ID, Format.CSV, null));
+        long now = System.currentTimeMillis();
+
+        service.purgeSupersededArtifacts(now);
+
+        assertThat(service.getArtifact(first.jobId()).exists()).isTrue();
+        assertThat(service.getArtifact(cachedFirst.jobId()).exists()).isTrue();
+
+        service.purgeSupersededArtifacts(now + Duration.ofHours(JOB_TTL_HOURS).toMillis() + 60_000);
+
+        assertThat(stored).containsExactly("reports/analytics/5/all-r2.csv");
+        assertThat(service.getArtifact(second.jobId()).exists()).isTrue();
+        assertThatThrownBy(() -> service.getArtifact(first.jobId())).isInstanceOf(FileStorageException.class);
+    }
+
+    @Test
+    void concurrentExportsOfOneArtifactShareTheRenderingJob() throws Exception {
+        CountDownLatch release = blockRendering();
+
+        ExportJob first = service.submit(TEST_ID, Format.PDF, null);
+        ExportJob second = service.submit(TEST_ID, Format.PDF, null);
+
+        assertThat(second.jobId()).isEqualTo(first.jobId());
+        release.countDown();
+        awaitCompletion(first);
+        verify(analyticsService, times(1)).getTestAnalytics(eq(TEST_ID), any());
+    }
+
+    @Test
+    void aFullRenderQueueRejectsTheExportAndForgetsTheJob() throws Exception {
+        CountDownLatch release = blockRendering();
+        service.submit(TEST_ID, Format.PDF, null);
+        service.submit(TEST_ID, Format.EXCEL, null);
+
+        assertThatThrownBy(() -> service.submit(TEST_ID, Format.CSV, null))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(redis.template().keys("exam:report:job:*")).hasSize(2);
+        assertThat(redis.template().keys("exam:report:rendering:*")).hasSize(2);
+        release.countDown();
+    }
+
+    @Test
+    void anUnfinishedJobHasNoArtifact() throws Exception {
+        CountDownLatch release = blockRendering();
+        ExportJob job = service.submit(TEST_ID, Format.PDF, null);
+
+        assertThatThrownBy(() -> service.getArtifact(job.jobId())).isInstanceOf(IllegalStateException.class);
+        release.countDown();
+    }
+
+    private AnalyticsExportJobService service(int workers, int queueCapacity) {
+        AnalyticsExportJobService service = new AnalyticsExportJobService(redis.template(), analyticsService,
+                mock(AnalyticsReportService.class), analyticsAccumulator, fileStorageService, testRepository,
+                workers, queueCapacity);
+        ReflectionTestUtils.setField(service, "jobTtlHours", JOB_TTL_HOURS);
+        ReflectionTestUtils.setField(service, "renderTimeoutMs", 60_000L);
+        return service;
+    }
+
+    /**
+     * Holds every render until the returned latch is released.
+     */
+    private CountDownLatch blockRendering() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(analyticsService.getTestAnalytics(eq(TEST_ID), any())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+        return release;
+    }
+
+    private ExportJob awaitCompletion(ExportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ExportJob current = service.getJob(job.jobId());
+            if (current.isCompleted()) return current;
+            assertThat(current.status()).isNotEqualTo(AnalyticsExportJobService.STATUS_FAILED);
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Export job " + job.jobId() + " did not complete");
+    }
+}
@@ -0,0 +1,104 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.dto.AnalyticsUpdate;
+import com.almubaraksuleiman.cbts.examiner.model.AnalyticsData;
+import com.almubaraksuleiman.cbts.examiner.service.impl.AnalyticsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalyticsPushServiceTest {
+
+    private final AnalyticsService analyticsService = mock(AnalyticsService.class);
+    private final TestAnalyticsAccumulator accumulator = mock(TestAnalyticsAccumulator.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    private AnalyticsPushService pushService;
+
+    @BeforeEach
+    void setUp() {
+        pushService = new AnalyticsPushService(analyticsService, accumulator, messagingTemplate, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pushService.shutdown();
+    }
+
+    @Test
+    void disconnectReleasesEverySubscriptionOfTheSession() {
+        pushService.subscribe(1L, "a");
+        pushService.subscribe(1L, "a");
+        pushService.subscribe(2L, "a");
+        pushService.subscribe(1L, "b");
+
+        pushService.onDisconnect(disconnect("a"));
+
+        assertThat(pushService.getSubscribers(1L)).isEqualTo(1);
+        assertThat(pushService.getSubscribers(2L)).isZero();
+
+        pushService.onDisconnect(disconnect("b"));
+        pushService.onDisconnect(disconnect("b"));
+        assertThat(pushService.getSubscribers(1L)).isZero();
+    }
+
+    @Test
+    void unsubscribeOnlyReleasesSubscriptionsTheSessionHolds() {
+        pushService.subscribe(1L, "a");
+        pushService.subscribe(1L, "b");
+
+        assertThat(pushService.unsubscribe(1L, "c")).isEqualTo(2);
+        assertThat(pushService.unsubscribe(2L, "a")).isZero();
+        assertThat(pushService.unsubscribe(1L, "a")).isEqualTo(1);
+        assertThat(pushService.unsubscribe(1L, "a")).isEqualTo(1);
+
+        // Nothing left for "a" to release when it disconnects
+        pushService.onDisconnect(disconnect("a"));
+        assertThat(pushService.getSubscribers(1L)).isEqualTo(1);
+    }
+
+    @Test
+    void recomputeRunsOnAPushWorkerNotThePollingThread() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] computedOn = new Thread[1];
+        when(accumulator.revisions(List.of(1L))).thenReturn(Map.of(1L, 7L));
+        when(analyticsService.getTestAnalytics(1L, null)).thenAnswer(invocation -> {
+            computedOn[0] = Thread.currentThread();
+            release.await(5, TimeUnit.SECONDS);
+            return new AnalyticsData();
+        });
+        pushService.subscribe(1L, "a");
+
+        // Returns while the recompute is still blocked, and does not queue a second one
+        pushService.pushChanges();
+        pushService.pushChanges();
+        release.countDown();
+
+        verify(messagingTemplate, timeout(5000))
+                .convertAndSend(eq("/topic/analytics/1/updates"), any(AnalyticsUpdate.class));
+        assertThat(computedOn[0].getName()).startsWith("analytics-push-");
+        verify(analyticsService, timeout(5000).times(1)).getTestAnalytics(1L, null);
+    }
+
+    private static SessionDisconnectEvent disconnect(String sessionId) {
+        return new SessionDisconnectEvent(new Object(), MessageBuilder.withPayload(new byte[0]).build(),
+                sessionId, CloseStatus.NORMAL);
+    }
+}
@@ -0,0 +1,163 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.examiner.repository.QuestionTimeStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Replays navigation events through the tracker and reads the question time sums it would add.
+ */
+class QuestionTimeTrackerTest {
+
+    private static final long SESSION = 7L;
+    private static final long OTHER_SESSION = 8L;
+    private static final long Q1 = 100L;
+    private static final long Q2 = 200L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private QuestionTimeTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new QuestionTimeTracker(new QuestionTimeStatsRepository(jdbcTemplate), 64);
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "maxVisitMs", 600_000L);
+        ReflectionTestUtils.setField(tracker, "sessionIdleMs", 10_800_000L);
+    }
+
+    @Test
+    void anEnterAndTheLeaveOfTheSameQuestionMakeOneVisit() {
+        tracker.record(SESSION, Q1, true, 1_000);
+        tracker.record(SESSION, Q1, false, 31_000);
+
+        assertThat(flush()).containsOnlyKeys(Q1);
+        assertThat(flush().isEmpty()).isTrue();
+    }
+
+    @Test
+    void visitDurationsAndStudentsPerQuestion() {
+        tracker.record(SESSION, Q1, true, 0);
+        tracker.record(SESSION, Q1, false, 20_000);
+        tracker.record(SESSION, Q1, true, 30_000);
+        tracker.record(SESSION, Q1, false, 40_000);
+        tracker.record(OTHER_SESSION, Q1, true, 5_000);
+        tracker.record(OTHER_SESSION, Q1, false, 95_000);
+
+        long[] row = flush().get(Q1);
+
+        // total ms, visits, students, then visits under 15s, 30s, 1m, 2m, 5m and over 5m
+        assertThat(row).containsExactly(120_000, 3, 2, 1, 1, 0, 1, 0, 0);
+    }
+
+    @Test
+    void anEnterWhileAVisitIsOpenClosesIt() {
+        tracker.record(SESSION, Q1, true, 0);
+        tracker.record(SESSION, Q2, true, 10_000);
+        tracker.record(SESSION, Q2, false, 15_000);
+
+        Map<Long, long[]> times = flush();
+
+        assertThat(times.get(Q1)[0]).isEqualTo(10_000);
+        assertThat(times.get(Q2)[0]).isEqualTo(5_000);
+    }
+
+    @Test
+    void aLeaveOfAnotherQuestionLeavesTheOpenVisitOpen() {
+        tracker.record(SESSION, Q1, true, 0);
+        tracker.record(SESSION, Q2, false, 4_000);
+        tracker.record(SESSION, Q1, false, 9_000);
+
+        Map<Long, long[]> times = flush();
+
+        assertThat(times).containsOnlyKeys(Q1);
+        assertThat(times.get(Q1)[0]).isEqualTo(9_000);
+    }
+
+    @Test
+    void aVisitIsPairedAcrossFlushes() {
+        tracker.record(SESSION, Q1, true, 0);
+        assertThat(flush().isEmpty()).isTrue();
+
+        tracker.record(SESSION, Q1, false, 12_000);
+
+        assertThat(flush().get(Q1)).startsWith(12_000, 1, 1);
+    }
+
+    @Test
+    void aSecondVisitInALaterFlushIsNotASecondStudent() {
+        tracker.record(SESSION, Q1, true, 0);
+        tracker.record(SESSION, Q1, false, 1_000);
+        flush();
+
+        tracker.record(SESSION, Q1, true, 2_000);
+        tracker.record(SESSION, Q1, false, 3_000);
+
+        assertThat(flush().get(Q1)).startsWith(1_000, 1, 0);
+    }
+
+    @Test
+    void eventsOlderThanTheSessionsLastOneAreDropped() {
+        tracker.record(SESSION, Q1, true, 10_000);
+        tracker.record(SESSION, Q1, false, 5_000);
+        tracker.record(SESSION, Q1, false, 14_000);
+
+        assertThat(flush().get(Q1)).startsWith(4_000, 1, 1);
+    }
+
+    @Test
+    void visitsLongerThanTheMaximumAreDropped() {
+        tracker.record(SESSION, Q1, true, 0);
+        tracker.record(SESSION, Q1, false, 600_001);
+        tracker.record(SESSION, Q2, true, 700_000);
+        tracker.record(SESSION, Q2, false, 1_300_000);
+
+        assertThat(flush()).containsOnlyKeys(Q2);
+    }
+
+    @Test
+    void nothingIsBufferedWhileDisabled() {
+        ReflectionTestUtils.setField(tracker, "enabled", false);
+
+        assertThat(tracker.record(SESSION, Q1, true, 0)).isFalse();
+        tracker.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * @return questionId -> the row the flush upserted, empty if it upserted nothing
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, long[]> flush() {
+        clearInvocations(jdbcTemplate);
+        tracker.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atMost(1)).batchUpdate(anyString(), rows.capture());
+        Map<Long, long[]> times = new HashMap<>();
+        for (Object[] row : rows.getAllValues().stream().flatMap(List::stream).toList()) {
+            long[] values = new long[row.length - 1];
+            for (int i = 1; i < row.length; i++) {
+                values[i - 1] = ((Number) row[i]).longValue();
+            }
+            times.put(((Number) row[0]).longValue(), values);
+        }
+        return times;
+    }
+}
@@ -0,0 +1,204 @@
+package com.almubaraksuleiman.cbts.examiner.service.analytics;
+
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
+import com.almubaraksuleiman.cbts.examiner.service.grading.AnswerMatcherCache;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamBatchRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamBatchRepository.AnalyticsRow;
+import com.almubaraksuleiman.cbts.support.EmbeddedRedis;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the accumulator's scripts on an in-process Redis, with the database side mocked.
+ */
+class TestAnalyticsAccumulatorTest {
+
+    private static final Long TEST_ID = 3L;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private final StudentExamBatchRepository examBatchRepository = mock(StudentExamBatchRepository.class);
+    private final StudentAnswerRepository answerRepository = mock(StudentAnswerRepository.class);
+    private final TestRepository testRepository = mock(TestRepository.class);
+
+    /** Sessions in the database, in session ID order */
+    private final List<AnalyticsRow> rows = new ArrayList<>();
+    private Integer passingScore = 50;
+    private Runnable duringRebuild = () -> { };
+
+    private EmbeddedRedis redis;
+    private TestAnalyticsAccumulator accumulator;
+
+    @BeforeEach
+    void setUp() {
+        redis = EmbeddedRedis.start();
+        accumulator = new TestAnalyticsAccumulator(redis.template(), examBatchRepository, answerRepository,
+                testRepository, new AnswerMatcherCache(100), new ObjectMapper());
+        ReflectionTestUtils.setField(accumulator, "enabled", true);
+        ReflectionTestUtils.setField(accumulator, "rebuildChunkSize", 2);
+        ReflectionTestUtils.setField(accumulator, "rebuildLockMs", 60_000L);
+
+        when(testRepository.findById(TEST_ID)).thenAnswer(invocation ->
+                Optional.of(com.almubaraksuleiman.cbts.examiner.model.Test.builder()
+                        .id(TEST_ID).passingScore(passingScore).build()));
+        when(examBatchRepository.findAnalyticsRows(eq(TEST_ID), anyLong(), anyInt())).thenAnswer(invocation -> {
+            duringRebuild.run();
+            long after = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return rows.stream().filter(row -> row.sessionId() > after).limit(limit).toList();
+        });
+        when(answerRepository.findGradingRowsBySessionIds(anyCollection())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        redis.close();
+    }
+
+    @Test
+    void rebuildPagesThroughEverySessionWithItsAnswers() {
+        for (long sessionId = 1; sessionId <= 5; sessionId++) {
+            rows.add(graded(sessionId, 40 + sessionId * 10));
+        }
+        when(answerRepository.findGradingRowsBySessionIds(List.of(1L, 2L))).thenReturn(List.of(
+                gradingRow(1L, 10L, "A"),
+                gradingRow(2L, 10L, "B")));
+
+        TestAnalyticsState state = read();
+
+        assertThat(state.sessions()).isEqualTo(5);
+        assertThat(state.completed()).isEqualTo(5);
+        assertThat(state.scoreSum()).isEqualTo(50 + 60 + 70 + 80 + 90);
+        assertThat(state.passed()).isEqualTo(5);
+        assertThat(state.scoreBuckets()).containsExactly(0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 0);
+        assertThat(state.timeBuckets()).containsExactly(0, 0, 0, 0, 0, 5);
+        assertThat(state.questionCounts().get(10L)).containsExactly(1, 2);
+        assertThat(state.topSessionIds()).containsExactly(5L, 4L, 3L);
+        verify(examBatchRepository).findAnalyticsRows(TEST_ID, 0, 2);
+        verify(examBatchRepository).findAnalyticsRows(TEST_ID, 2, 2);
+        verify(examBatchRepository).findAnalyticsRows(TEST_ID, 4, 2);
+    }
+
+    @Test
+    void replayingAnEventChangesNothing() {
+        read();
+        SessionContribution contribution = new SessionContribution().completed(START, START.plusMinutes(15)).graded(72);
+
+        accumulator.record(TEST_ID, 1L, contribution);
+        accumulator.record(TEST_ID, 1L, contribution);
+
+        TestAnalyticsState state = read();
+        assertThat(state.sessions()).isEqualTo(1);
+        assertThat(state.scoreSum()).isEqualTo(72);
+        assertThat(state.scoreBuckets()[7]).isEqualTo(1);
+        assertThat(state.timeBuckets()[1]).isEqualTo(1);
+    }
+
+    @Test
+    void regradeWithoutABucketTakesTheSessionOutOfItsOldBucket() {
+        read();
+        accumulator.record(TEST_ID, 1L, new SessionContribution().graded(75));
+
+        accumulator.record(TEST_ID, 1L, new SessionContribution().graded(-10));
+
+        TestAnalyticsState state = read();
+        assertThat(state.scored()).isEqualTo(1);
+        assertThat(state.scoreSum()).isEqualTo(-10);
+        assertThat(state.scoreBuckets()).containsOnly(0);
+        assertThat(state.passed()).isZero();
+    }
+
+    @Test
+    void sectionsAnEventDoesNotCarryKeepTheirStoredValues() {
+        read();
+        accumulator.record(TEST_ID, 1L, new SessionContribution().completed(START, START.plusMinutes(35))
+                .answer(10L, true).answer(11L, false));
+
+        // A regrade knows the new percentage only
+        accumulator.record(TEST_ID, 1L, new SessionContribution().graded(64));
+
+        TestAnalyticsState state = read();
+        assertThat(state.timeBuckets()[3]).isEqualTo(1);
+        assertThat(state.questionCounts().get(10L)).containsExactly(1, 1);
+        assertThat(state.questionCounts().get(11L)).containsExactly(0, 1);
+        assertThat(state.scoreBuckets()[6]).isEqualTo(1);
+    }
+
+    @Test
+    void changingThePassingScoreRejudgesEverySession() {
+        rows.add(graded(1L, 80));
+        rows.add(graded(2L, 60));
+        assertThat(read().passed()).isEqualTo(2);
+        long revision = accumulator.revisions(List.of(TEST_ID)).get(TEST_ID);
+
+        passingScore = 70;
+        accumulator.invalidate(TEST_ID);
+
+        assertThat(accumulator.revisions(List.of(TEST_ID)).get(TEST_ID)).isGreaterThan(revision);
+        assertThat(read().passed()).isEqualTo(1);
+    }
+
+    @Test
+    void eventsAppliedDuringARebuildAreNotOverwrittenByItsOlderRead() {
+        rows.add(graded(1L, 50));
+        rows.add(graded(2L, 60));
+        duringRebuild = () -> {
+            accumulator.record(TEST_ID, 1L, new SessionContribution().graded(95));
+            duringRebuild = () -> { };
+        };
+
+        TestAnalyticsState state = read();
+
+        assertThat(state.sessions()).isEqualTo(2);
+        assertThat(state.scoreSum()).isEqualTo(95 + 60);
+        assertThat(state.scoreBuckets()[5]).isZero();
+        assertThat(state.scoreBuckets()[9]).isEqualTo(1);
+        assertThat(state.topSessionIds()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void aRebuildInvalidatedWhileRunningIsNotMarkedReady() {
+        rows.add(graded(1L, 80));
+        duringRebuild = () -> {
+            accumulator.invalidate(TEST_ID);
+            duringRebuild = () -> { };
+        };
+
+        assertThat(accumulator.read(TEST_ID, 3)).isEmpty();
+        assertThat(read().passed()).isEqualTo(1);
+    }
+
+    private TestAnalyticsState read() {
+        Optional<TestAnalyticsState> state = accumulator.read(TEST_ID, 3);
+        assertThat(state).isPresent();
+        return state.get();
+    }
+
+    private static AnalyticsRow graded(long sessionId, double percentage) {
+        return new AnalyticsRow(sessionId, true, START, START.plusMinutes(55), true, percentage);
+    }
+
+    /** Multiple choice question with key "A" */
+    private static Object[] gradingRow(Long sessionId, Long questionId, String answer) {
+        return new Object[]{sessionId * 100, sessionId, answer, null, questionId, QuestionType.MULTIPLE_CHOICE,
+                "A", 1.0, "A, B", null, null};
+    }
+}
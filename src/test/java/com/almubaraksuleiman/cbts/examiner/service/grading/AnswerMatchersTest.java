@@ -0,0 +1,168 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerMatchersTest {
+
+    private static final String CHOICES = "Paris, London, Rome, Madrid";
+
+    @Test
+    void singleKeyTypesCompareTrimmedIgnoringCase() {
+        for (QuestionType type : new QuestionType[]{
+                QuestionType.MULTIPLE_CHOICE, QuestionType.TRUE_FALSE, QuestionType.FILL_IN_THE_BLANK}) {
+            AnswerMatcher matcher = AnswerMatcher.compile(type, "  Paris ", CHOICES);
+
+            assertThat(matcher).isInstanceOf(AnswerMatchers.KeyMatcher.class);
+            assertThat(matcher.matches("paris")).isTrue();
+            assertThat(matcher.matches(" \tPARIS  ")).isTrue();
+            assertThat(matcher.matches("Pari")).isFalse();
+            assertThat(matcher.matches("Paris s")).isFalse();
+            assertThat(matcher.matches("")).isFalse();
+            assertThat(matcher.matches(null)).isFalse();
+        }
+    }
+
+    @Test
+    void multipleSelectKeyWithinChoicesCompilesToABitmask() {
+        AnswerMatcher matcher = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "Paris, Rome", CHOICES);
+
+        assertThat(matcher).isInstanceOf(AnswerMatchers.ChoiceMaskMatcher.class);
+        assertThat(matcher.matches("Paris,Rome")).isTrue();
+        assertThat(matcher.matches(" rome ,  PARIS")).isTrue();
+        assertThat(matcher.matches("Paris")).isFalse();
+        assertThat(matcher.matches("Paris, Rome, London")).isFalse();
+        assertThat(matcher.matches("Paris, Berlin")).isFalse();
+        assertThat(matcher.matches(null)).isFalse();
+    }
+
+    @Test
+    void duplicateOptionsInAResponseAreNotCountedTwice() {
+        AnswerMatcher mask = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "Paris, Rome", CHOICES);
+        AnswerMatcher optionSet = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "Paris, Rome", null);
+
+        for (AnswerMatcher matcher : new AnswerMatcher[]{mask, optionSet}) {
+            // Same size as the key, but only one key option
+            assertThat(matcher.matches("Paris, Paris")).isFalse();
+            // A repeated key option still selects the key exactly
+            assertThat(matcher.matches("Paris, Rome, rome")).isTrue();
+        }
+    }
+
+    @Test
+    void blankEntriesSelectNothing() {
+        AnswerMatcher mask = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "Paris, Rome,", "Paris, , London, Rome");
+        AnswerMatcher optionSet = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "Paris, Rome,", null);
+
+        assertThat(mask).isInstanceOf(AnswerMatchers.ChoiceMaskMatcher.class);
+        for (AnswerMatcher matcher : new AnswerMatcher[]{mask, optionSet}) {
+            assertThat(matcher.matches("Paris,Rome,")).isTrue();
+            assertThat(matcher.matches("Paris, ,Rome")).isTrue();
+            assertThat(matcher.matches(",")).isFalse();
+            assertThat(matcher.credit("Paris, , ", PartialCreditPolicy.PROPORTIONAL)).isEqualTo(0.5);
+        }
+    }
+
+    @Test
+    void multipleSelectFallsBackToAnOptionSetWhenTheKeyIsNotAmongTheChoices() {
+        AnswerMatcher matcher = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "Paris, Berlin", CHOICES);
+
+        assertThat(matcher).isInstanceOf(AnswerMatchers.OptionSetMatcher.class);
+        assertThat(matcher.matches("berlin, PARIS")).isTrue();
+        assertThat(matcher.matches("Paris")).isFalse();
+        assertThat(matcher.matches("Paris, Berlin, Rome")).isFalse();
+    }
+
+    @Test
+    void multipleSelectFallsBackToAnOptionSetWithoutChoicesOrWithSixtyFourOrMore() {
+        String manyChoices = IntStream.range(0, Long.SIZE)
+                .mapToObj(i -> "option" + i)
+                .collect(Collectors.joining(","));
+
+        AnswerMatcher noChoices = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "a, b", "  ");
+        AnswerMatcher tooMany = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "option1, option63", manyChoices);
+        AnswerMatcher justFits = AnswerMatcher.compile(QuestionType.MULTIPLE_SELECT, "option1, option62",
+                manyChoices.substring(0, manyChoices.lastIndexOf(',')));
+
+        assertThat(noChoices).isInstanceOf(AnswerMatchers.OptionSetMatcher.class);
+        assertThat(noChoices.matches("B,A")).isTrue();
+        assertThat(tooMany).isInstanceOf(AnswerMatchers.OptionSetMatcher.class);
+        assertThat(tooMany.matches("option63, option1")).isTrue();
+        assertThat(justFits).isInstanceOf(AnswerMatchers.ChoiceMaskMatcher.class);
+        assertThat(justFits.matches("option62, option1")).isTrue();
+    }
+
+    @Test
+    void matchingIsAutoGradedInEitherNotation() {
+        AnswerMatcher matcher = AnswerMatcher.compile(QuestionType.MATCHING, "A1:B3, A2:B1", null);
+
+        assertThat(matcher).isInstanceOf(AnswerMatchers.PairMapMatcher.class);
+        assertThat(matcher.matches("a2 = b1, A1 -> B3")).isTrue();
+        assertThat(matcher.matches("{\"A1\":\"B3\",\"A2\":\"B1\"}")).isTrue();
+        assertThat(matcher.matches("A1:B1, A2:B3")).isFalse();
+        assertThat(matcher.matches("A1:B3")).isFalse();
+        assertThat(matcher.matches("A1:B3, A2:B1, A3:B2")).isFalse();
+        // An entry without a separator makes the response unparseable
+        assertThat(matcher.matches("A1:B3, A2")).isFalse();
+        assertThat(matcher.matches(null)).isFalse();
+    }
+
+    @Test
+    void matchingScanAgreesWithTheParsedPairMap() {
+        AnswerMatcher matcher = AnswerMatcher.compile(QuestionType.MATCHING, "{\"A1\":\"B3\", \"A2\":\"B1\"}", null);
+        String[] responses = {
+                "A1:B3, A2:B1", " { \"a1\" : \"b3\" , A2 -> B1 , } ", "A1:B1, A2:B1, A1:B3",
+                "A1:B3, A2:B1, A2:", "A1:B3, A2:B1, A9:B1", ",, A2=B1,A1=B3", "", "{}", "A1 B3, A2:B1"};
+
+        for (String response : responses) {
+            Map<String, String> pairs = AnswerMatchers.parsePairs(response);
+            boolean expected = AnswerMatchers.parsePairs("A1:B3, A2:B1").equals(pairs);
+            assertThat(matcher.matches(response)).as(response).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void matchingFallsBackToThePairMapForThirtyTwoOrMoreItems() {
+        String key = IntStream.range(0, Integer.SIZE)
+                .mapToObj(i -> "L" + i + ":R" + i)
+                .collect(Collectors.joining(","));
+        String reversed = IntStream.range(0, Integer.SIZE)
+                .map(i -> Integer.SIZE - 1 - i)
+                .mapToObj(i -> "l" + i + " -> r" + i)
+                .collect(Collectors.joining(","));
+
+        AnswerMatcher matcher = AnswerMatcher.compile(QuestionType.MATCHING, key, null);
+
+        assertThat(matcher.matches(reversed)).isTrue();
+        assertThat(matcher.matches(reversed.replace("r5", "r6"))).isFalse();
+    }
+
+    @Test
+    void unusableKeysAndEssaysNeverMatch() {
+        assertThat(AnswerMatcher.compile(QuestionType.ESSAY, "anything", null)).isSameAs(AnswerMatcher.NEVER);
+        assertThat(AnswerMatcher.compile(QuestionType.MULTIPLE_CHOICE, "  ", CHOICES)).isSameAs(AnswerMatcher.NEVER);
+        assertThat(AnswerMatcher.compile(QuestionType.MULTIPLE_CHOICE, null, CHOICES)).isSameAs(AnswerMatcher.NEVER);
+        assertThat(AnswerMatcher.compile(null, "Paris", CHOICES)).isSameAs(AnswerMatcher.NEVER);
+        assertThat(AnswerMatcher.compile(QuestionType.MATCHING, "A1, A2", null)).isSameAs(AnswerMatcher.NEVER);
+    }
+
+    @Test
+    void cacheRecompilesWhenTheQuestionRevisionChanges() {
+        AnswerMatcherCache cache = new AnswerMatcherCache(10);
+
+        AnswerMatcher first = cache.get(1L, QuestionType.MULTIPLE_CHOICE, "Paris", CHOICES);
+        assertThat(cache.get(1L, QuestionType.MULTIPLE_CHOICE, "Paris", CHOICES)).isSameAs(first);
+
+        AnswerMatcher edited = cache.get(1L, QuestionType.MULTIPLE_CHOICE, "Rome", CHOICES);
+        assertThat(edited).isNotSameAs(first);
+        assertThat(edited.matches("Rome")).isTrue();
+        assertThat(edited.matches("Paris")).isFalse();
+    }
+}
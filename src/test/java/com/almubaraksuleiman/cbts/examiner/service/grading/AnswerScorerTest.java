@@ -0,0 +1,112 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import org.junit.jupiter.api.Test;
+
+import static com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy.ALL_OR_NOTHING;
+import static com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy.NEGATIVE_MARKING;
+import static com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy.PROPORTIONAL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerScorerTest {
+
+    private static final String CHOICES = "A, B, C, D, E";
+    private static final String SELECT_KEY = "A, B, C";
+    private static final String MATCHING_KEY = "1:a, 2:b, 3:c, 4:d";
+
+    private final AnswerScorer scorer = new AnswerScorer(new AnswerMatcherCache(100));
+
+    @Test
+    void multipleSelectCreditUnderEachPolicy() {
+        // Two hits, one distractor
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "A, B, D", PROPORTIONAL)).isEqualTo(1.0);
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "A, B, D", NEGATIVE_MARKING)).isEqualTo(1.0);
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "A, B, D", ALL_OR_NOTHING)).isZero();
+
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "C, A, B", ALL_OR_NOTHING)).isEqualTo(3.0);
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "A", PROPORTIONAL)).isEqualTo(1.0);
+    }
+
+    @Test
+    void multipleSelectFloorsAtZeroOrBoundsAtMinusMax() {
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "D, E", PROPORTIONAL)).isZero();
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "D, E", NEGATIVE_MARKING)).isEqualTo(-2.0);
+        // Three wrong items against a three-item key: exactly -max; a fourth would not go lower
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "D, E, F", NEGATIVE_MARKING)).isEqualTo(-3.0);
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "D, E, F, G", NEGATIVE_MARKING)).isEqualTo(-3.0);
+    }
+
+    @Test
+    void duplicateAndBlankOptionsAreNeitherHitsNorMisses() {
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "A, A, A", PROPORTIONAL)).isEqualTo(1.0);
+        assertThat(score(QuestionType.MULTIPLE_SELECT, SELECT_KEY, "A, , B,", PROPORTIONAL)).isEqualTo(2.0);
+        // Option-set fallback (no choices) counts the same way
+        assertThat(scoreWithChoices(SELECT_KEY, null, "A, A, , B", PROPORTIONAL)).isEqualTo(2.0);
+        assertThat(scoreWithChoices(SELECT_KEY, null, "D, E", NEGATIVE_MARKING)).isEqualTo(-2.0);
+    }
+
+    @Test
+    void matchingCreditPairByPair() {
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 3:d, 4:c", PROPORTIONAL)).isEqualTo(0.0);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 3:c, 4:a", PROPORTIONAL)).isEqualTo(1.5);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 3:c", PROPORTIONAL)).isEqualTo(2.25);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:b, 2:a", NEGATIVE_MARKING)).isEqualTo(-1.5);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:b, 2:c, 3:d, 4:a", NEGATIVE_MARKING)).isEqualTo(-3.0);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 3:c, 4:d", ALL_OR_NOTHING)).isEqualTo(3.0);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 3:c", ALL_OR_NOTHING)).isZero();
+    }
+
+    @Test
+    void matchingUnpairedItemsAndUnparseableResponses() {
+        // "3:" leaves item 3 unpaired; a later entry for an item replaces the earlier one
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:c, 2:b, 3:", PROPORTIONAL)).isEqualTo(1.5);
+        // An item that is not in the key is a miss
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 9:a", PROPORTIONAL)).isEqualTo(0.75);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2:b, 9:a", NEGATIVE_MARKING)).isEqualTo(0.75);
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, "1:a, 2 b", PROPORTIONAL)).isZero();
+        assertThat(score(QuestionType.MATCHING, MATCHING_KEY, null, NEGATIVE_MARKING)).isZero();
+    }
+
+    @Test
+    void singleKeyTypesAreAllOrNothingWhateverThePolicy() {
+        assertThat(score(QuestionType.MULTIPLE_CHOICE, "B", " b ", NEGATIVE_MARKING)).isEqualTo(3.0);
+        assertThat(score(QuestionType.MULTIPLE_CHOICE, "B", "C", NEGATIVE_MARKING)).isZero();
+        assertThat(score(QuestionType.FILL_IN_THE_BLANK, "Paris", "paris", PROPORTIONAL)).isEqualTo(3.0);
+    }
+
+    @Test
+    void essaysKeepTheirManualScore() {
+        GradableAnswer graded = new GradableAnswer(1L, 1L, "text", 2.5, 1L, QuestionType.ESSAY, null, 3.0, null, PROPORTIONAL);
+        GradableAnswer ungraded = new GradableAnswer(2L, 1L, "text", null, 1L, QuestionType.ESSAY, null, 3.0, null, PROPORTIONAL);
+
+        assertThat(scorer.score(graded)).isEqualTo(2.5);
+        assertThat(scorer.score(ungraded)).isZero();
+        assertThat(scorer.isCorrect(graded)).isFalse();
+    }
+
+    @Test
+    void negativeMarkingNeverTakesTheSessionBelowZero() {
+        SessionScore session = new SessionScore();
+        GradableAnswer wrong = new GradableAnswer(1L, 1L, "D, E", null, 1L, QuestionType.MULTIPLE_SELECT,
+                SELECT_KEY, 3.0, CHOICES, NEGATIVE_MARKING);
+        GradableAnswer right = new GradableAnswer(2L, 1L, "B", null, 2L, QuestionType.MULTIPLE_CHOICE,
+                "B", 1.0, CHOICES, NEGATIVE_MARKING);
+
+        session.add(wrong, scorer.score(wrong));
+        session.add(right, scorer.score(right));
+
+        assertThat(session.getTotalScore()).isZero();
+        assertThat(session.percentage()).isZero();
+    }
+
+    private double score(QuestionType type, String key, String response, PartialCreditPolicy policy) {
+        return new AnswerScorer(new AnswerMatcherCache(10)).score(
+                new GradableAnswer(1L, 1L, response, null, 1L, type, key, 3.0, CHOICES, policy));
+    }
+
+    private double scoreWithChoices(String key, String choices, String response, PartialCreditPolicy policy) {
+        return new AnswerScorer(new AnswerMatcherCache(10)).score(
+                new GradableAnswer(1L, 1L, response, null, 1L, QuestionType.MULTIPLE_SELECT, key, 3.0, choices, policy));
+    }
+}
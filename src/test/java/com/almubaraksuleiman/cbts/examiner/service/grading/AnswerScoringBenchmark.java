@@ -0,0 +1,171 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.PartialCreditPolicy;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores a cohort of 1M answers over 200 questions, about half of them correct. With
+ * type=MIXED the questions are MULTIPLE_CHOICE, TRUE_FALSE, FILL_IN_THE_BLANK,
+ * MULTIPLE_SELECT and MATCHING in equal shares; otherwise all are of the given type.
+ *
+ * - legacy: the previous per-answer grading, which split, trimmed and lower-cased the key and
+ *   the response on every answer and did not grade MATCHING
+ * - compiled: {@link AnswerScorer} with the cached matchers, all or nothing
+ * - partialCredit: the same cohort with MULTIPLE_SELECT and MATCHING graded PROPORTIONAL;
+ *   expected to stay within 10% of compiled
+ *
+ * Run with: java -cp target/test-classes:&lt;test classpath&gt; com.almubaraksuleiman.cbts.examiner.service.grading.AnswerScoringBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnswerScoringBenchmark {
+
+    private static final int ANSWERS = 1_000_000;
+    private static final int QUESTIONS = 200;
+
+    private static final QuestionType[] TYPES = {
+            QuestionType.MULTIPLE_CHOICE, QuestionType.TRUE_FALSE, QuestionType.FILL_IN_THE_BLANK,
+            QuestionType.MULTIPLE_SELECT, QuestionType.MATCHING};
+
+    private static final String CHOICES = "Alpha, Bravo, Charlie, Delta, Echo, Foxtrot";
+
+    @Param({"MIXED", "MULTIPLE_CHOICE", "MULTIPLE_SELECT", "MATCHING"})
+    private String type;
+
+    private List<GradableAnswer> answers;
+    private List<GradableAnswer> partialCreditAnswers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        QuestionType[] types = "MIXED".equals(type) ? TYPES : new QuestionType[]{QuestionType.valueOf(type)};
+        answers = cohort(types, PartialCreditPolicy.ALL_OR_NOTHING);
+        partialCreditAnswers = cohort(types, PartialCreditPolicy.PROPORTIONAL);
+    }
+
+    @Benchmark
+    public double legacy() {
+        double total = 0;
+        for (GradableAnswer answer : answers) {
+            total += legacyScore(answer);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double compiled() {
+        return scoreAll(answers);
+    }
+
+    @Benchmark
+    public double partialCredit() {
+        return scoreAll(partialCreditAnswers);
+    }
+
+    private static double scoreAll(List<GradableAnswer> answers) {
+        AnswerScorer scorer = new AnswerScorer(new AnswerMatcherCache(QUESTIONS));
+        double total = 0;
+        for (GradableAnswer answer : answers) {
+            total += scorer.score(answer);
+        }
+        return total;
+    }
+
+    /**
+     * Answers to questions of the given types, graded with the given policy where partial
+     * credit applies.
+     */
+    static List<GradableAnswer> cohort(QuestionType[] types, PartialCreditPolicy policy) {
+        Random random = new Random(42);
+        List<GradableAnswer> answers = new ArrayList<>(ANSWERS);
+        for (int i = 0; i < ANSWERS; i++) {
+            long questionId = i % QUESTIONS;
+            QuestionType type = types[(int) (questionId % types.length)];
+            boolean correct = random.nextBoolean();
+
+            String key;
+            String response;
+            switch (type) {
+                case MULTIPLE_SELECT -> {
+                    key = "Bravo, Delta, Echo";
+                    response = correct ? "echo,bravo , Delta" : "Bravo, Charlie";
+                }
+                case MATCHING -> {
+                    key = "A1:B3, A2:B1, A3:B2";
+                    response = correct ? "A2:B1, A1:B3, A3:B2" : "A1:B3, A2:B2, A3:B1";
+                }
+                case TRUE_FALSE -> {
+                    key = "True";
+                    response = correct ? " true" : "False";
+                }
+                default -> {
+                    key = "Charlie";
+                    response = correct ? "charlie " : "Delta";
+                }
+            }
+
+            PartialCreditPolicy effective = type == QuestionType.MULTIPLE_SELECT || type == QuestionType.MATCHING
+                    ? policy : PartialCreditPolicy.ALL_OR_NOTHING;
+            answers.add(new GradableAnswer((long) i, (long) (i / 50), response, null,
+                    questionId, type, key, 2.0, CHOICES, effective));
+        }
+        return answers;
+    }
+
+    private static double legacyScore(GradableAnswer answer) {
+        if (answer.answer() == null || answer.correctAnswer() == null) return 0.0;
+
+        switch (answer.type()) {
+            case MULTIPLE_CHOICE:
+            case TRUE_FALSE:
+            case FILL_IN_THE_BLANK:
+                return answer.answer().trim().equalsIgnoreCase(answer.correctAnswer().trim()) ? answer.maxMarks() : 0.0;
+
+            case MULTIPLE_SELECT: {
+                List<String> correctAnswers = Arrays.stream(answer.correctAnswer().split(","))
+                        .map(String::trim)
+                        .map(String::toLowerCase)
+                        .toList();
+                List<String> studentAnswers = Arrays.stream(answer.answer().split(","))
+                        .map(String::trim)
+                        .map(String::toLowerCase)
+                        .toList();
+                return correctAnswers.size() == studentAnswers.size() && correctAnswers.containsAll(studentAnswers)
+                        ? answer.maxMarks() : 0.0;
+            }
+
+            default:
+                return 0.0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AnswerScoringBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,203 @@
+package com.almubaraksuleiman.cbts.examiner.service.grading;
+
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import com.almubaraksuleiman.cbts.examiner.service.analytics.TestAnalyticsAccumulator;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerBatchRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamBatchRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
+import com.almubaraksuleiman.cbts.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs regrade jobs on an in-process Redis against a stand-in for the test's graded sessions,
+ * each with one multiple choice answer that was stored with a wrong score of 0.
+ */
+class TestRegradeServiceTest {
+
+    private static final Long TEST_ID = 4L;
+    private static final List<Long> SESSION_IDS = List.of(11L, 12L, 13L, 14L, 15L);
+
+    private final StudentExamRepository studentExamRepository = mock(StudentExamRepository.class);
+    private final StudentAnswerRepository answerRepository = mock(StudentAnswerRepository.class);
+    private final StudentExamBatchRepository examBatchRepository = mock(StudentExamBatchRepository.class);
+
+    /** Session IDs of every chunk written, in order */
+    private final List<List<Long>> writtenChunks = new CopyOnWriteArrayList<>();
+    private Runnable whileWriting = () -> { };
+
+    private EmbeddedRedis redis;
+    private StringRedisTemplate redisTemplate;
+    private final List<TestRegradeService> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        redis = EmbeddedRedis.start();
+        redisTemplate = redis.template();
+
+        when(studentExamRepository.countGradedByTestId(TEST_ID)).thenReturn((long) SESSION_IDS.size());
+        when(studentExamRepository.findGradedSessionIdsAfter(eq(TEST_ID), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(1);
+                    Pageable page = invocation.getArgument(2);
+                    return SESSION_IDS.stream().filter(id -> id > after).limit(page.getPageSize()).toList();
+                });
+        when(answerRepository.findGradingRowsBySessionIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> sessionIds = invocation.getArgument(0);
+            return sessionIds.stream()
+                    .map(sessionId -> new Object[]{sessionId * 10, sessionId, "A", 0.0, 1L,
+                            QuestionType.MULTIPLE_CHOICE, "A", 1.0, "A, B", null, null})
+                    .toList();
+        });
+        doAnswer(invocation -> {
+            List<StudentExamBatchRepository.ResultUpdate> updates = invocation.getArgument(0);
+            whileWriting.run();
+            writtenChunks.add(updates.stream().map(StudentExamBatchRepository.ResultUpdate::sessionId).toList());
+            return null;
+        }).when(examBatchRepository).updateResults(anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(TestRegradeService::shutdown);
+        redis.close();
+    }
+
+    @Test
+    void walksTheGradedSessionsInKeysetChunks() throws Exception {
+        TestRegradeService service = node();
+
+        service.start(TEST_ID);
+        TestRegradeService.RegradeProgress progress = awaitStatus(service, "COMPLETED");
+
+        assertThat(writtenChunks).containsExactly(List.of(11L, 12L), List.of(13L, 14L), List.of(15L));
+        verify(studentExamRepository).findGradedSessionIdsAfter(eq(TEST_ID), eq(0L), any(Pageable.class));
+        verify(studentExamRepository).findGradedSessionIdsAfter(eq(TEST_ID), eq(12L), any(Pageable.class));
+        verify(studentExamRepository).findGradedSessionIdsAfter(eq(TEST_ID), eq(14L), any(Pageable.class));
+        assertThat(progress.totalSessions()).isEqualTo(5);
+        assertThat(progress.processedSessions()).isEqualTo(5);
+        assertThat(progress.changedAnswers()).isEqualTo(5);
+        assertThat(progress.lastSessionId()).isEqualTo(15);
+        assertThat(progress.percentComplete()).isEqualTo(100.0);
+        assertThat(redisTemplate.opsForSet().members("exam:regrade:jobs")).isEmpty();
+    }
+
+    @Test
+    void aJobAlreadyRunningIsNotStartedTwice() {
+        redisTemplate.opsForValue().set("exam:regrade:4:lock", "other-node");
+        redisTemplate.opsForHash().putAll("exam:regrade:4", Map.of("status", "RUNNING", "lastSessionId", "12",
+                "processedSessions", "2", "totalSessions", "5"));
+
+        TestRegradeService.RegradeProgress progress = node().start(TEST_ID);
+
+        assertThat(progress.status()).isEqualTo("RUNNING");
+        assertThat(progress.processedSessions()).isEqualTo(2);
+        verify(answerRepository, after(200).never()).findGradingRowsBySessionIds(anyCollection());
+    }
+
+    @Test
+    void anAbandonedJobResumesFromItsCursor() throws Exception {
+        redisTemplate.opsForHash().putAll("exam:regrade:4", Map.of("status", "RUNNING", "lastSessionId", "12",
+                "processedSessions", "2", "changedAnswers", "2", "totalSessions", "5"));
+        redisTemplate.opsForSet().add("exam:regrade:jobs", TEST_ID.toString());
+        TestRegradeService service = node();
+
+        service.resumeAbandonedJobs();
+        TestRegradeService.RegradeProgress progress = awaitStatus(service, "COMPLETED");
+
+        assertThat(writtenChunks).containsExactly(List.of(13L, 14L), List.of(15L));
+        assertThat(progress.processedSessions()).isEqualTo(5);
+        assertThat(progress.changedAnswers()).isEqualTo(5);
+    }
+
+    @Test
+    void aChunkCommittedAfterTheLockPassedOnIsCountedOnceByTheNewOwner() throws Exception {
+        TestRegradeService first = node();
+        // The first node stalls on its second chunk until its lock has expired
+        whileWriting = () -> {
+            if (writtenChunks.size() == 1) redisTemplate.delete("exam:regrade:4:lock");
+        };
+
+        first.start(TEST_ID);
+        verify(examBatchRepository, after(300).times(2)).updateResults(anyList());
+        TestRegradeService.RegradeProgress stalled = first.getProgress(TEST_ID);
+        assertThat(stalled.status()).isEqualTo("RUNNING");
+        assertThat(stalled.lastSessionId()).isEqualTo(12);
+        assertThat(stalled.processedSessions()).isEqualTo(2);
+
+        whileWriting = () -> { };
+        TestRegradeService second = node();
+        second.resumeAbandonedJobs();
+        TestRegradeService.RegradeProgress progress = awaitStatus(second, "COMPLETED");
+
+        // Sessions 13 and 14 were rescored twice but count once
+        assertThat(writtenChunks).containsExactly(
+                List.of(11L, 12L), List.of(13L, 14L), List.of(13L, 14L), List.of(15L));
+        assertThat(progress.processedSessions()).isEqualTo(5);
+        assertThat(progress.lastSessionId()).isEqualTo(15);
+    }
+
+    @Test
+    void aFailingChunkFailsTheJobAndKeepsTheCursor() throws Exception {
+        whileWriting = () -> {
+            if (writtenChunks.size() == 1) throw new IllegalStateException("deadlock");
+        };
+        TestRegradeService service = node();
+
+        service.start(TEST_ID);
+        TestRegradeService.RegradeProgress progress = awaitStatus(service, "FAILED");
+
+        assertThat(progress.error()).isEqualTo("deadlock");
+        assertThat(progress.lastSessionId()).isEqualTo(12);
+        assertThat(progress.processedSessions()).isEqualTo(2);
+        assertThat(redisTemplate.opsForSet().members("exam:regrade:jobs")).isEmpty();
+    }
+
+    private TestRegradeService node() {
+        TestRegradeService service = new TestRegradeService(redisTemplate, studentExamRepository, answerRepository,
+                mock(StudentAnswerBatchRepository.class), examBatchRepository, new AnswerMatcherCache(100),
+                mock(TestAnalyticsAccumulator.class), mock(PlatformTransactionManager.class), 1, 2);
+        ReflectionTestUtils.setField(service, "chunkSessions", 2);
+        ReflectionTestUtils.setField(service, "lockTtlMs", 60_000L);
+        nodes.add(service);
+        return service;
+    }
+
+    /**
+     * Waits for the job to reach the status and release its lock.
+     */
+    private TestRegradeService.RegradeProgress awaitStatus(TestRegradeService service, String status)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            TestRegradeService.RegradeProgress progress = service.getProgress(TEST_ID);
+            if (status.equals(progress.status()) && !redisTemplate.hasKey("exam:regrade:4:lock")) return progress;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Regrade of test " + TEST_ID + " did not reach " + status);
+    }
+}
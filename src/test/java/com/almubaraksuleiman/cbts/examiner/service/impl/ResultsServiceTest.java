@@ -0,0 +1,37 @@
+package com.almubaraksuleiman.cbts.examiner.service.impl;
+
+import com.almubaraksuleiman.cbts.examiner.SecurityUtils;
+import com.almubaraksuleiman.cbts.examiner.dto.StudentResultsFilter;
+import com.almubaraksuleiman.cbts.examiner.repository.TestRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerRepository;
+import com.almubaraksuleiman.cbts.student.repository.StudentExamRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ResultsServiceTest {
+
+    private final StudentExamRepository studentExamRepository = mock(StudentExamRepository.class);
+    private final ResultsService resultsService = new ResultsService(studentExamRepository,
+            mock(TestRepository.class), mock(SecurityUtils.class), mock(ExamGradingService.class),
+            mock(StudentAnswerRepository.class));
+
+    @Test
+    void anUnknownStatusFilterIsABadRequest() {
+        StudentResultsFilter filter = new StudentResultsFilter();
+        filter.setStatus("finished");
+
+        assertThatThrownBy(() -> resultsService.getStudentExamResults(1L, filter, PageRequest.of(0, 20)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> resultsService.getStudentExamResultsAfter(1L, filter, null, 20))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(studentExamRepository);
+    }
+}
@@ -0,0 +1,62 @@
+package com.almubaraksuleiman.cbts.examiner.service.paper;
+
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExamPaperTest {
+
+    @Test
+    void keepsRowsInOrderColumnWise() {
+        ExamPaper paper = ExamPaper.of(7L, 3L, List.of(
+                new Object[]{11L, QuestionType.MULTIPLE_CHOICE, 2.0, "A,B,C"},
+                new Object[]{12L, QuestionType.ESSAY, 10.0, null}));
+
+        assertThat(paper.getTestId()).isEqualTo(7L);
+        assertThat(paper.getVersion()).isEqualTo(3L);
+        assertThat(paper.size()).isEqualTo(2);
+        assertThat(paper.questionId(0)).isEqualTo(11L);
+        assertThat(paper.type(1)).isEqualTo(QuestionType.ESSAY);
+        assertThat(paper.maxMarks(0)).isEqualTo(2.0);
+        assertThat(paper.maxMarks(1)).isEqualTo(10.0);
+    }
+
+    @Test
+    void splitsChoicesIntoTrimmedOptionsAndKeepsTheRawValue() {
+        ExamPaper paper = ExamPaper.of(1L, 0L, List.<Object[]>of(
+                new Object[]{1L, QuestionType.MULTIPLE_SELECT, 1.0, "Java , Python,  Go"}));
+
+        assertThat(paper.choices(0)).isEqualTo("Java , Python,  Go");
+        assertThat(paper.optionCount(0)).isEqualTo(3);
+        assertThat(paper.option(0, 0)).isEqualTo("Java");
+        assertThat(paper.option(0, 1)).isEqualTo("Python");
+        assertThat(paper.option(0, 2)).isEqualTo("Go");
+    }
+
+    @Test
+    void questionsWithoutChoicesHaveNoOptions() {
+        ExamPaper paper = ExamPaper.of(1L, 0L, List.of(
+                new Object[]{1L, QuestionType.ESSAY, 5.0, null},
+                new Object[]{2L, QuestionType.FILL_IN_THE_BLANK, 1.0, "   "}));
+
+        assertThat(paper.optionCount(0)).isZero();
+        assertThat(paper.optionCount(1)).isZero();
+        assertThat(paper.choices(0)).isNull();
+    }
+
+    @Test
+    void missingMaxMarksDefaultToZero() {
+        ExamPaper paper = ExamPaper.of(1L, 0L, List.<Object[]>of(
+                new Object[]{1L, QuestionType.TRUE_FALSE, null, "True,False"}));
+
+        assertThat(paper.maxMarks(0)).isZero();
+    }
+
+    @Test
+    void emptyTestGivesAnEmptyPaper() {
+        assertThat(ExamPaper.of(1L, 0L, List.of()).size()).isZero();
+    }
+}
@@ -0,0 +1,113 @@
+package com.almubaraksuleiman.cbts.examiner.service.paper;
+
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeededShuffleTest {
+
+    @Test
+    void selectionIsDeterministicPerSeed() {
+        assertThat(SeededShuffle.selectPositions(40, 10, true, 42L))
+                .containsExactly(SeededShuffle.selectPositions(40, 10, true, 42L));
+        assertThat(SeededShuffle.selectPositions(40, 10, true, 42L))
+                .isNotEqualTo(SeededShuffle.selectPositions(40, 10, true, 43L));
+    }
+
+    @Test
+    void selectionPicksDistinctPositionsInsideThePaper() {
+        for (long seed = 0; seed < 200; seed++) {
+            int[] positions = SeededShuffle.selectPositions(30, 12, true, seed);
+
+            assertThat(positions).hasSize(12).doesNotHaveDuplicates();
+            assertThat(IntStream.of(positions).allMatch(position -> position >= 0 && position < 30)).isTrue();
+        }
+    }
+
+    @Test
+    void selectionIsCappedAtThePaperSize() {
+        int[] positions = SeededShuffle.selectPositions(5, 20, true, 7L);
+
+        assertThat(positions).hasSize(5).containsExactlyInAnyOrder(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void selectionWithoutRandomizationKeepsPaperOrder() {
+        assertThat(SeededShuffle.selectPositions(10, 4, false, 99L)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void choiceOrderIsAPermutationOfTheOptions() {
+        String shuffled = SeededShuffle.shuffleChoices("A,B,C,D,E", 5L, 123L);
+
+        assertThat(shuffled.split(",")).containsExactlyInAnyOrder("A", "B", "C", "D", "E");
+    }
+
+    @Test
+    void choiceOrderDependsOnTheQuestionNotItsPosition() {
+        ExamPaper forward = paper(new long[]{1L, 2L}, "A,B,C,D", "W,X,Y,Z");
+        ExamPaper reversed = paper(new long[]{2L, 1L}, "W,X,Y,Z", "A,B,C,D");
+
+        assertThat(SeededShuffle.shuffleChoices(forward, 0, 77L))
+                .isEqualTo(SeededShuffle.shuffleChoices(reversed, 1, 77L));
+    }
+
+    @Test
+    void readPathRederivesTheChoiceOrderStoredAtStart() {
+        SplittableRandom random = new SplittableRandom(2025);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            int optionCount = random.nextInt(7);
+            String choices = optionCount == 0 ? null : String.join(" , ",
+                    IntStream.range(0, optionCount).mapToObj(i -> "opt" + i).toArray(String[]::new));
+            rows.add(new Object[]{id * 13, QuestionType.MULTIPLE_CHOICE, 1.0, choices});
+        }
+        ExamPaper paper = ExamPaper.of(1L, 0L, rows);
+
+        for (int s = 0; s < 100; s++) {
+            long seed = random.nextLong();
+            for (int position : SeededShuffle.selectPositions(paper.size(), 20, true, seed)) {
+                // What startExam stores in legacy mode versus what seeded mode derives on read
+                String atStart = paper.optionCount(position) > 0
+                        ? SeededShuffle.shuffleChoices(paper, position, seed)
+                        : paper.choices(position);
+                String onRead = SeededShuffle.shuffleChoices(paper.choices(position), paper.questionId(position), seed);
+
+                assertThat(onRead).isEqualTo(atStart);
+            }
+        }
+    }
+
+    @Test
+    void differentSeedsSpreadAcrossOrders() {
+        Set<String> orders = new HashSet<>();
+        for (long seed = 0; seed < 500; seed++) {
+            orders.add(SeededShuffle.shuffleChoices("A,B,C,D", 9L, seed));
+        }
+
+        // All 24 permutations of four options should show up
+        assertThat(orders).hasSize(24);
+    }
+
+    @Test
+    void emptyChoicesAreReturnedUnchanged() {
+        assertThat(SeededShuffle.shuffleChoices((String) null, 1L, 1L)).isNull();
+        assertThat(SeededShuffle.shuffleChoices("  ", 1L, 1L)).isEqualTo("  ");
+    }
+
+    private static ExamPaper paper(long[] ids, String... choices) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(new Object[]{ids[i], QuestionType.MULTIPLE_CHOICE, 1.0, choices[i]});
+        }
+        return ExamPaper.of(1L, 0L, rows);
+    }
+}
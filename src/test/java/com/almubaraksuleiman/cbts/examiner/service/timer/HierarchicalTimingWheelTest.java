@@ -0,0 +1,103 @@
+package com.almubaraksuleiman.cbts.examiner.service.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void expiresOnTheTickCoveringTheDeadlineAndNotBefore() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 8, START);
+        assertThat(wheel.add(1L, START + 2500)).isTrue();
+
+        assertThat(advance(wheel, START + 2999)).isEmpty();
+        assertThat(advance(wheel, START + 3000)).containsExactly(Map.entry(1L, START + 2500));
+        assertThat(advance(wheel, START + 10_000)).isEmpty();
+    }
+
+    @Test
+    void deadlineOnATickBoundaryIsNotRoundedUp() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 8, START);
+        wheel.add(1L, START + 3000);
+
+        assertThat(advance(wheel, START + 2999)).isEmpty();
+        assertThat(advance(wheel, START + 3000)).containsKey(1L);
+    }
+
+    @Test
+    void rejectsDeadlinesThatAreAlreadyDue() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 8, START);
+
+        assertThat(wheel.add(1L, START - 5000)).isFalse();
+        assertThat(wheel.add(2L, START)).isFalse();
+        assertThat(wheel.add(3L, START + 1)).isTrue();
+    }
+
+    @Test
+    void cascadesDeadlinesBeyondTheFirstLevelThroughOverflowLevels() {
+        // Level spans: 4s, 16s, 64s
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 4, START);
+        wheel.add(1L, START + 3_000);
+        wheel.add(2L, START + 10_500);
+        wheel.add(3L, START + 50_000);
+
+        Map<Long, Long> expiredAt = new LinkedHashMap<>();
+        for (long now = START; now <= START + 60_000; now += 1000) {
+            long tick = now;
+            wheel.advance(now, (sessionId, deadline) -> expiredAt.put(sessionId, tick));
+        }
+
+        assertThat(expiredAt).containsExactly(
+                Map.entry(1L, START + 3_000),
+                Map.entry(2L, START + 11_000),
+                Map.entry(3L, START + 50_000));
+    }
+
+    @Test
+    void advancingAcrossManyTicksAtOnceExpiresEverythingDue() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 4, START);
+        for (long i = 1; i <= 20; i++) {
+            wheel.add(i, START + i * 3_700);
+        }
+
+        Map<Long, Long> expired = advance(wheel, START + 40_000);
+
+        assertThat(expired).hasSize(10).containsKeys(1L, 5L, 10L);
+        assertThat(advance(wheel, START + 80_000)).hasSize(10).containsKeys(11L, 20L);
+    }
+
+    @Test
+    void readdingASessionKeepsTheLatestDeadlineForTheOwnerToFilter() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1000, 8, START);
+        wheel.add(1L, START + 2000);
+        wheel.add(1L, START + 5000);
+
+        // Both entries surface; ExamDeadlineScheduler discards the one that no longer matches
+        Map<Long, Long> first = advance(wheel, START + 2000);
+        Map<Long, Long> second = advance(wheel, START + 5000);
+
+        assertThat(first).containsExactly(Map.entry(1L, START + 2000));
+        assertThat(second).containsExactly(Map.entry(1L, START + 5000));
+    }
+
+    @Test
+    void rejectsInvalidGeometry() {
+        assertThatThrownBy(() -> new HierarchicalTimingWheel(0, 8, START))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HierarchicalTimingWheel(1000, 1, START))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<Long, Long> advance(HierarchicalTimingWheel wheel, long nowMs) {
+        Map<Long, Long> expired = new LinkedHashMap<>();
+        wheel.advance(nowMs, expired::put);
+        return expired;
+    }
+}
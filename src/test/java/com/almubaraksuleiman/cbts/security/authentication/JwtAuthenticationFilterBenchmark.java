@@ -0,0 +1,118 @@
+package com.almubaraksuleiman.cbts.security.authentication;
+
+import com.almubaraksuleiman.cbts.security.authentication.service.JwtService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request with a bearer token, before and after single-parse
+ * verification with the verified-claims cache.
+ *
+ * - legacyFilter: the previous filter body, which parsed and verified the token three times
+ *   (isTokenValid, extractUsername, parseRole)
+ * - singleParse: one signature check per request, i.e. the cost of a cache miss
+ * - cachedVerify: JwtService.verify for a token that has been seen before
+ * - filter: the whole JwtAuthenticationFilter for a repeat token
+ *
+ * Run with: java -cp target/test-classes:&lt;test classpath&gt; com.almubaraksuleiman.cbts.security.authentication.JwtAuthenticationFilterBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "benchmark_secret_that_is_at_least_32_bytes_long";
+
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private MockHttpServletRequest request;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Outside Spring Boot logback defaults to DEBUG on the console; keep the filter's per-request logs out of the timing
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(JwtAuthenticationFilter.class))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        jwtService = new JwtService(null, null, null, null, SECRET, 900, 100_000);
+        filter = new JwtAuthenticationFilter(jwtService);
+        token = Jwts.builder()
+                .setSubject("student1")
+                .claim("role", "ROLE_STUDENT")
+                .claim(JwtService.STUDENT_ID_CLAIM, 42L)
+                .setIssuedAt(new Date())
+                .setExpiration(Date.from(Instant.now().plusSeconds(3600)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        request = new MockHttpServletRequest("GET", "/api/exams/1/questions");
+        request.addHeader("Authorization", "Bearer " + token);
+        jwtService.verify(token);
+    }
+
+    @Benchmark
+    public Object legacyFilter() {
+        if (!jwtService.isTokenValid(token)) {
+            return null;
+        }
+        String username = jwtService.extractUsername(token);
+        String role = jwtService.parseRole(token);
+        return new UsernamePasswordAuthenticationToken(username, null, List.of(new SimpleGrantedAuthority(role)));
+    }
+
+    @Benchmark
+    public Object singleParse() {
+        return jwtService.parseToken(token).getBody();
+    }
+
+    @Benchmark
+    public Object cachedVerify() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public void filter(Blackhole blackhole) throws Exception {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,167 @@
+package com.almubaraksuleiman.cbts.student.service.impl;
+
+import com.almubaraksuleiman.cbts.examiner.model.Examiner;
+import com.almubaraksuleiman.cbts.examiner.model.Question;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import com.almubaraksuleiman.cbts.student.model.StudentExam;
+import com.almubaraksuleiman.cbts.student.model.StudentExamQuestion;
+import com.almubaraksuleiman.cbts.student.repository.StudentAnswerBatchRepository;
+import jakarta.persistence.EntityManager;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the JDBC statements an autosave sends, independent of the number of answers.
+ * A JDBC batch counts as one statement: it is sent as one executeBatch call.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import({AnswerBulkWriter.class, StudentAnswerBatchRepository.class,
+        AnswerBulkWriterStatementCountTest.QueryCountingDataSource.class})
+class AnswerBulkWriterStatementCountTest {
+
+    private static final int AUTOSAVE_SIZE = 50;
+
+    @Autowired
+    private AnswerBulkWriter answerBulkWriter;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long sessionId;
+    private List<Long> examQuestionIds;
+
+    @BeforeEach
+    void createSession() {
+        Examiner examiner = new Examiner();
+        examiner.setUsername("examiner");
+        examiner.setPassword("hash");
+        examiner.setEmail("examiner@example.com");
+        entityManager.persist(examiner);
+
+        com.almubaraksuleiman.cbts.examiner.model.Test test = com.almubaraksuleiman.cbts.examiner.model.Test.builder()
+                .title("Statement count")
+                .createdBy(examiner)
+                .build();
+        entityManager.persist(test);
+
+        StudentExam exam = StudentExam.builder().studentId(1L).test(test).build();
+        entityManager.persist(exam);
+
+        examQuestionIds = new ArrayList<>();
+        for (int i = 0; i < AUTOSAVE_SIZE; i++) {
+            Question question = Question.builder()
+                    .text("Question " + i)
+                    .type(QuestionType.FILL_IN_THE_BLANK)
+                    .maxMarks(1.0)
+                    .test(test)
+                    .build();
+            entityManager.persist(question);
+
+            StudentExamQuestion examQuestion = StudentExamQuestion.builder()
+                    .studentExam(exam)
+                    .question(question)
+                    .answered(false)
+                    .order(i)
+                    .build();
+            entityManager.persist(examQuestion);
+            examQuestionIds.add(examQuestion.getId());
+        }
+        sessionId = exam.getSessionId();
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void firstAutosaveOfFiftyAnswersSendsFourStatements() {
+        QueryCount count = countStatements(() -> answerBulkWriter.write(Map.of(sessionId, answers(0, AUTOSAVE_SIZE, "a"))));
+
+        // SELECT exam questions, SELECT existing answers, UPDATE batch, INSERT batch
+        assertThat(count.getSelect()).isEqualTo(2);
+        assertThat(count.getTotal()).isEqualTo(4);
+        assertThat(answeredCount()).isEqualTo(AUTOSAVE_SIZE);
+    }
+
+    @Test
+    void repeatedAutosaveOfFiftyAnswersSendsFourStatements() {
+        answerBulkWriter.write(Map.of(sessionId, answers(0, AUTOSAVE_SIZE, "a")));
+
+        QueryCount count = countStatements(() -> answerBulkWriter.write(Map.of(sessionId, answers(0, AUTOSAVE_SIZE, "b"))));
+
+        // SELECT exam questions, SELECT existing answers, two UPDATE batches
+        assertThat(count.getTotal()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM student_answers WHERE answer = 'b'", Integer.class)).isEqualTo(AUTOSAVE_SIZE);
+    }
+
+    @Test
+    void mixedAutosaveSendsFiveStatementsRegardlessOfSize() {
+        answerBulkWriter.write(Map.of(sessionId, answers(0, AUTOSAVE_SIZE / 2, "a")));
+
+        QueryCount full = countStatements(() -> answerBulkWriter.write(Map.of(sessionId, answers(0, AUTOSAVE_SIZE, "b"))));
+        QueryCount small = countStatements(() -> answerBulkWriter.write(Map.of(sessionId, answers(20, 30, "c"))));
+
+        // SELECT, SELECT, question UPDATE batch, answer UPDATE batch, answer INSERT batch
+        assertThat(full.getTotal()).isEqualTo(5);
+        // All ten answers exist by now: no INSERT batch
+        assertThat(small.getTotal()).isEqualTo(4);
+    }
+
+    private Map<Long, String> answers(int from, int to, String answer) {
+        Map<Long, String> answers = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            answers.put(examQuestionIds.get(i), answer);
+        }
+        return answers;
+    }
+
+    private QueryCount countStatements(Runnable autosave) {
+        QueryCountHolder.clear();
+        autosave.run();
+        QueryCount count = QueryCountHolder.getGrandTotal();
+        QueryCountHolder.clear();
+        return count;
+    }
+
+    private int answeredCount() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM student_exam_question WHERE answered = true AND session_id = ?",
+                Integer.class, sessionId);
+    }
+
+    /**
+     * Routes every statement through datasource-proxy's query counter.
+     */
+    static class QueryCountingDataSource implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return ProxyDataSourceBuilder.create(dataSource).countQuery().build();
+            }
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.almubaraksuleiman.cbts.student.service.impl;
+
+import com.almubaraksuleiman.cbts.student.repository.StudentExamQuestionRepository;
+import com.almubaraksuleiman.cbts.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the journal's scripts on an in-process Redis against a stand-in bulk writer.
+ */
+class AnswerWriteBehindJournalTest {
+
+    private static final Long SESSION_ID = 7L;
+    private static final long LOCK_TTL_MS = 30_000;
+
+    private final StudentExamQuestionRepository questionRepository = mock(StudentExamQuestionRepository.class);
+    private final AnswerBulkWriter answerBulkWriter = mock(AnswerBulkWriter.class);
+
+    /** Every batch the writer committed */
+    private final List<Map<Long, Map<Long, String>>> written = new ArrayList<>();
+    private Predicate<Map<Long, Map<Long, String>>> failWrite = batch -> false;
+
+    private EmbeddedRedis redis;
+    private StringRedisTemplate redisTemplate;
+    private AnswerWriteBehindJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        redis = EmbeddedRedis.start();
+        redisTemplate = redis.template();
+        journal = new AnswerWriteBehindJournal(redisTemplate, questionRepository, answerBulkWriter,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "flushBatchSessions", 200);
+        ReflectionTestUtils.setField(journal, "lockTtlMs", LOCK_TTL_MS);
+        ReflectionTestUtils.setField(journal, "maxFlushAttempts", 2);
+
+        when(questionRepository.findQuestionIdsBySessionId(SESSION_ID)).thenReturn(List.of(1L, 2L, 3L));
+        doAnswer(invocation -> {
+            Map<Long, Map<Long, String>> batch = invocation.getArgument(0);
+            if (failWrite.test(batch)) throw new IllegalStateException("write failed");
+            Map<Long, Map<Long, String>> copy = new HashMap<>();
+            batch.forEach((sessionId, answers) -> copy.put(sessionId, new HashMap<>(answers)));
+            written.add(copy);
+            return null;
+        }).when(answerBulkWriter).write(anyMap());
+    }
+
+    @AfterEach
+    void tearDown() {
+        redis.close();
+    }
+
+    @Test
+    void flushWritesTheJournalAndClearsIt() {
+        Map<Long, String> answers = new HashMap<>();
+        answers.put(1L, "A");
+        answers.put(2L, null);
+        journal.append(SESSION_ID, answers);
+
+        journal.flush();
+
+        assertThat(written).containsExactly(Map.of(SESSION_ID, answers));
+        assertThat(journal.pendingAnswers(SESSION_ID)).isEmpty();
+        assertThat(redisTemplate.opsForSet().members("exam:answers:dirty")).isEmpty();
+        assertThat(redisTemplate.hasKey("exam:7:answers:lock")).isFalse();
+    }
+
+    @Test
+    void aClaimLeftByACrashedFlushIsRetriedOnceItsLeaseExpires() {
+        journal.append(SESSION_ID, Map.of(1L, "A"));
+        // A flusher claimed the answers, took the lease and died before writing
+        redisTemplate.opsForValue().set("exam:7:answers:lock", "crashed", Duration.ofMillis(LOCK_TTL_MS));
+        redisTemplate.rename("exam:7:answers", "exam:7:answers:flushing");
+
+        journal.flush();
+        assertThat(written).isEmpty();
+        assertThat(journal.pendingAnswers(SESSION_ID)).containsExactly(entry(1L, "A"));
+
+        redis.advance(Duration.ofMillis(LOCK_TTL_MS + 1));
+        journal.flush();
+
+        assertThat(written).containsExactly(Map.of(SESSION_ID, Map.of(1L, "A")));
+        assertThat(journal.pendingAnswers(SESSION_ID)).isEmpty();
+    }
+
+    @Test
+    void answersJournalledDuringAFailedFlushReplaceTheClaimedOnes() {
+        journal.append(SESSION_ID, Map.of(1L, "old", 2L, "B"));
+        failWrite = batch -> true;
+        journal.flush();
+
+        journal.append(SESSION_ID, Map.of(1L, "new"));
+        assertThat(journal.pendingAnswers(SESSION_ID)).containsOnly(entry(1L, "new"), entry(2L, "B"));
+
+        failWrite = batch -> false;
+        journal.flush();
+
+        assertThat(written).containsExactly(Map.of(SESSION_ID, Map.of(1L, "new", 2L, "B")));
+        assertThat(journal.pendingAnswers(SESSION_ID)).isEmpty();
+    }
+
+    @Test
+    void drainWritesTheLatestAnswerOfEveryQuestion() {
+        journal.append(SESSION_ID, Map.of(1L, "A", 3L, "C"));
+        journal.append(SESSION_ID, Map.of(1L, "B"));
+
+        journal.drain(SESSION_ID);
+
+        assertThat(written).containsExactly(Map.of(SESSION_ID, Map.of(1L, "B", 3L, "C")));
+        assertThat(journal.pendingAnswers(SESSION_ID)).isEmpty();
+    }
+
+    @Test
+    void unwritableAnswersAreDeadLetteredOnceTheSessionReachesMaxAttempts() {
+        journal.append(SESSION_ID, Map.of(1L, "A", 3L, "C"));
+        // Question 3 is removed from the session after its answer was acknowledged
+        when(questionRepository.findQuestionIdsBySessionId(SESSION_ID)).thenReturn(List.of(1L, 2L));
+        failWrite = batch -> batch.get(SESSION_ID).containsKey(3L);
+
+        journal.flush();
+        assertThat(written).isEmpty();
+        assertThat(redisTemplate.opsForHash().get("exam:answers:flush-failures", "7")).isEqualTo("1");
+
+        journal.flush();
+
+        assertThat(written).containsExactly(Map.of(SESSION_ID, Map.of(1L, "A")));
+        assertThat(redisTemplate.<Object, Object>opsForHash().entries("exam:7:answers:dead"))
+                .containsExactly(entry("3", "C"));
+        assertThat(journal.pendingAnswers(SESSION_ID)).isEmpty();
+        assertThat(redisTemplate.opsForHash().hasKey("exam:answers:flush-failures", "7")).isFalse();
+        assertThat(redisTemplate.opsForSet().members("exam:answers:dirty")).isEmpty();
+    }
+
+    @Test
+    void aFailingSessionDoesNotHoldBackTheRestOfTheBatch() {
+        Long otherSessionId = 8L;
+        when(questionRepository.findQuestionIdsBySessionId(otherSessionId)).thenReturn(List.of(4L));
+        journal.append(SESSION_ID, Map.of(1L, "A"));
+        journal.append(otherSessionId, Map.of(4L, "D"));
+        failWrite = batch -> batch.containsKey(SESSION_ID);
+
+        journal.flush();
+
+        assertThat(written).containsExactly(Map.of(otherSessionId, Map.of(4L, "D")));
+        assertThat(journal.pendingAnswers(SESSION_ID)).containsExactly(entry(1L, "A"));
+        assertThat(redisTemplate.opsForSet().members("exam:answers:dirty")).containsExactly("7");
+    }
+
+    @Test
+    void anAnswerToAQuestionOutsideTheSessionIsRejected() {
+        assertThatThrownBy(() -> journal.append(SESSION_ID, Map.of(9L, "X")))
+                .hasMessageContaining("does not belong");
+        assertThat(journal.pendingAnswers(SESSION_ID)).isEmpty();
+    }
+}
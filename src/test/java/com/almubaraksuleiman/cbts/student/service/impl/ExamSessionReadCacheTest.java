@@ -0,0 +1,221 @@
+package com.almubaraksuleiman.cbts.student.service.impl;
+
+import com.almubaraksuleiman.cbts.dto.QuestionDto;
+import com.almubaraksuleiman.cbts.examiner.model.QuestionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exercises the saved-answer overlay against an in-memory stand-in for the Redis hash and
+ * its seed / record scripts.
+ */
+class ExamSessionReadCacheTest {
+
+    private static final Long SESSION_ID = 5L;
+
+    /** Redis key -> hash fields */
+    private final Map<String, Map<Object, Object>> redis = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ExamSessionReadCache cache;
+    private Map<Long, String> savedInDatabase;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries(anyString()))
+                .thenAnswer(invocation -> new HashMap<>(redis.getOrDefault(invocation.<String>getArgument(0), Map.of())));
+        when(redisTemplate.delete(anyString()))
+                .thenAnswer(invocation -> redis.remove(invocation.<String>getArgument(0)) != null);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenAnswer(invocation -> runScript(invocation.getArgument(0), invocation.getArgument(1),
+                        (Object[]) invocation.getRawArguments()[2]));
+
+        cache = new ExamSessionReadCache(redisTemplate, true, 100, 60, 360);
+        savedInDatabase = new HashMap<>(Map.of(101L, "B"));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadsOnceAndOverlaysSavedAnswersOnLaterReads() {
+        List<QuestionDto> first = cache.getQuestions(SESSION_ID, loader());
+        List<QuestionDto> second = cache.getQuestions(SESSION_ID, loader());
+
+        assertThat(loads).hasValue(1);
+        assertThat(first).extracting(QuestionDto::getSavedAnswer).containsExactly("B", null, null);
+        assertThat(second).extracting(QuestionDto::getSavedAnswer).containsExactly("B", null, null);
+    }
+
+    @Test
+    void recordedAnswersShowUpWithoutReloading() {
+        cache.getQuestions(SESSION_ID, loader());
+
+        cache.recordAnswers(SESSION_ID, Map.of(102L, "C", 101L, "D"));
+
+        assertThat(cache.getQuestions(SESSION_ID, loader()))
+                .extracting(QuestionDto::getSavedAnswer).containsExactly("D", "C", null);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void clearedAnswerStaysAnsweredInTheQuestionMap() {
+        cache.getQuestions(SESSION_ID, loader());
+
+        Map<Long, String> cleared = new HashMap<>();
+        cleared.put(103L, null);
+        cache.recordAnswers(SESSION_ID, cleared);
+
+        List<Map<String, Object>> map = cache.getQuestionMap(SESSION_ID, loader());
+        assertThat(map).extracting(entry -> entry.get("answered")).containsExactly(true, false, true);
+        assertThat(map).extracting(entry -> entry.get("displayOrder")).containsExactly(1, 2, 3);
+        assertThat(cache.getQuestions(SESSION_ID, loader()).get(2).getSavedAnswer()).isNull();
+    }
+
+    @Test
+    void cachedTemplatesDoNotCarryTheLoadersSavedAnswer() {
+        cache.getQuestions(SESSION_ID, loader());
+
+        // The answer is changed in Redis only, e.g. by a save on another node
+        cache.recordAnswers(SESSION_ID, Map.of(101L, "A"));
+
+        assertThat(cache.getQuestions(SESSION_ID, loader()).get(0).getSavedAnswer()).isEqualTo("A");
+    }
+
+    @Test
+    void recordingBeforeTheFirstReadIsLeftToSeeding() {
+        cache.recordAnswers(SESSION_ID, Map.of(102L, "C"));
+        savedInDatabase.put(102L, "C");
+
+        assertThat(cache.getQuestions(SESSION_ID, loader()))
+                .extracting(QuestionDto::getSavedAnswer).containsExactly("B", "C", null);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void reloadsWhenTheAnswerStateHasExpired() {
+        cache.getQuestions(SESSION_ID, loader());
+        redis.clear();
+        savedInDatabase.put(103L, "A");
+
+        assertThat(cache.getQuestions(SESSION_ID, loader()))
+                .extracting(QuestionDto::getSavedAnswer).containsExactly("B", null, "A");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictDropsBothLayers() {
+        cache.getQuestions(SESSION_ID, loader());
+
+        cache.evict(SESSION_ID);
+        cache.getQuestions(SESSION_ID, loader());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void answersRecordedInATransactionApplyOnlyAfterCommit() {
+        cache.getQuestions(SESSION_ID, loader());
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.recordAnswers(SESSION_ID, Map.of(102L, "C"));
+        assertThat(cache.getQuestions(SESSION_ID, loader()).get(1).getSavedAnswer()).isNull();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(cache.getQuestions(SESSION_ID, loader()).get(1).getSavedAnswer()).isEqualTo("C");
+    }
+
+    @Test
+    void scopeIsLoadedOnceButAMissingSessionIsNotCached() {
+        AtomicInteger scopeLoads = new AtomicInteger();
+        ExamSessionReadCache.SessionScope scope = new ExamSessionReadCache.SessionScope(7L, Set.of(11L, 12L));
+
+        assertThat(cache.getScope(SESSION_ID, () -> { scopeLoads.incrementAndGet(); return null; })).isNull();
+        assertThat(cache.getScope(SESSION_ID, () -> { scopeLoads.incrementAndGet(); return scope; })).isSameAs(scope);
+        assertThat(cache.getScope(SESSION_ID, () -> { scopeLoads.incrementAndGet(); return null; })).isSameAs(scope);
+        assertThat(scopeLoads).hasValue(2);
+
+        cache.evict(SESSION_ID);
+        assertThat(cache.getScope(SESSION_ID, () -> { scopeLoads.incrementAndGet(); return null; })).isNull();
+        assertThat(scopeLoads).hasValue(3);
+    }
+
+    private Supplier<ExamSessionReadCache.SessionQuestions> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            List<QuestionDto> questions = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                long examQuestionId = 100L + i;
+                questions.add(QuestionDto.builder()
+                        .id(10L + i)
+                        .studentExamQuestionId(examQuestionId)
+                        .type(QuestionType.MULTIPLE_CHOICE)
+                        .questionOrder(i)
+                        .savedAnswer(savedInDatabase.get(examQuestionId))
+                        .build());
+            }
+            return new ExamSessionReadCache.SessionQuestions(questions, new HashMap<>(savedInDatabase));
+        };
+    }
+
+    /**
+     * Mirrors SEED_SCRIPT (HSETNX pairs, mark seeded, return HGETALL) and RECORD_SCRIPT
+     * (HSET pairs only if the hash exists).
+     */
+    private Object runScript(RedisScript<?> script, List<String> keys, Object[] args) {
+        String key = keys.get(0);
+        boolean seeding = script.getScriptAsString().contains("HSETNX");
+        if (!seeding && !redis.containsKey(key)) {
+            return 0L;
+        }
+
+        Map<Object, Object> hash = redis.computeIfAbsent(key, k -> new HashMap<>());
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (seeding) {
+                hash.putIfAbsent(args[i], args[i + 1]);
+            } else {
+                hash.put(args[i], args[i + 1]);
+            }
+        }
+        if (!seeding) {
+            return 1L;
+        }
+
+        hash.put("seeded", "1");
+        List<Object> flat = new ArrayList<>();
+        hash.forEach((field, value) -> {
+            flat.add(field);
+            flat.add(value);
+        });
+        return flat;
+    }
+}
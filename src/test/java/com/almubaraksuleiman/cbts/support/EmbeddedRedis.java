@@ -0,0 +1,203 @@
+package com.almubaraksuleiman.cbts.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fppt.jedismock.RedisServer;
+import com.github.fppt.jedismock.datastructures.Slice;
+import com.github.fppt.jedismock.operations.scripting.Eval;
+import com.github.fppt.jedismock.operations.server.MockExecutor;
+import com.github.fppt.jedismock.server.Response;
+import com.github.fppt.jedismock.server.ServiceOptions;
+import com.github.fppt.jedismock.storage.OperationExecutorState;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process Redis for tests that need real command and Lua script semantics, backed by
+ * jedis-mock and reached through an ordinary Lettuce {@link StringRedisTemplate}.
+ *
+ * jedis-mock runs scripts on LuaJ but lacks Redis' built-in cjson library, so every EVAL gets
+ * a cjson table that follows Redis' encoding (empty tables encode as objects, numbers as
+ * doubles). EVALSHA always answers NOSCRIPT, which makes Spring fall back to EVAL. Key expiry
+ * follows an adjustable clock, see {@link #advance(Duration)}.
+ */
+public final class EmbeddedRedis implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final AdjustableClock clock = new AdjustableClock();
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+    private final StringRedisTemplate template;
+
+    private EmbeddedRedis() throws IOException {
+        server = RedisServer.newRedisServer()
+                .setClock(clock)
+                .setOptions(ServiceOptions.withInterceptor(EmbeddedRedis::execute))
+                .start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        template = new StringRedisTemplate(connectionFactory);
+    }
+
+    public static EmbeddedRedis start() {
+        try {
+            return new EmbeddedRedis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public StringRedisTemplate template() {
+        return template;
+    }
+
+    /**
+     * Moves the server clock forward, expiring keys whose TTL has run out.
+     */
+    public void advance(Duration duration) {
+        clock.now = clock.now.plus(duration);
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+        try {
+            server.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Slice execute(OperationExecutorState state, String command, List<Slice> params) {
+        return switch (command.toLowerCase()) {
+            case "evalsha" -> Response.error("NOSCRIPT No matching script. Please use EVAL.");
+            case "eval" -> evalWithCjson(state, params);
+            default -> MockExecutor.proceed(state, command, params);
+        };
+    }
+
+    private static Slice evalWithCjson(OperationExecutorState state, List<Slice> params) {
+        Eval eval = new Eval(state.base(), params, state);
+        try {
+            Field globals = Eval.class.getDeclaredField("globals");
+            globals.setAccessible(true);
+            ((Globals) globals.get(eval)).set("cjson", cjson());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("jedis-mock no longer exposes its script globals", e);
+        }
+        synchronized (state.lock()) {
+            return eval.response();
+        }
+    }
+
+    private static LuaTable cjson() {
+        LuaTable cjson = new LuaTable();
+        cjson.set("decode", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue json) {
+                try {
+                    return toLua(JSON.readTree(json.checkjstring()));
+                } catch (IOException e) {
+                    return error("cjson.decode: " + e.getMessage());
+                }
+            }
+        });
+        cjson.set("encode", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue value) {
+                return valueOf(toJson(value).toString());
+            }
+        });
+        return cjson;
+    }
+
+    private static LuaValue toLua(JsonNode node) {
+        if (node.isObject()) {
+            LuaTable table = new LuaTable();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                table.set(field.getKey(), toLua(field.getValue()));
+            }
+            return table;
+        }
+        if (node.isArray()) {
+            LuaTable table = new LuaTable();
+            for (int i = 0; i < node.size(); i++) {
+                table.set(i + 1, toLua(node.get(i)));
+            }
+            return table;
+        }
+        if (node.isNumber()) return LuaValue.valueOf(node.asDouble());
+        if (node.isBoolean()) return LuaValue.valueOf(node.asBoolean());
+        if (node.isNull()) return LuaValue.NIL;
+        return LuaValue.valueOf(node.asText());
+    }
+
+    private static JsonNode toJson(LuaValue value) {
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        if (value.istable()) {
+            LuaTable table = value.checktable();
+            int length = table.length();
+            if (length > 0 && table.keyCount() == length) {
+                ArrayNode array = nodes.arrayNode();
+                for (int i = 1; i <= length; i++) {
+                    array.add(toJson(table.get(i)));
+                }
+                return array;
+            }
+            ObjectNode object = nodes.objectNode();
+            for (LuaValue key : table.keys()) {
+                object.set(key.tojstring(), toJson(table.get(key)));
+            }
+            return object;
+        }
+        if (value.isnumber()) {
+            double number = value.todouble();
+            return number == Math.rint(number) && Math.abs(number) < 1e15
+                    ? nodes.numberNode((long) number) : nodes.numberNode(number);
+        }
+        if (value.isboolean()) return nodes.booleanNode(value.toboolean());
+        if (value.isnil()) return nodes.nullNode();
+        return nodes.textNode(value.tojstring());
+    }
+
+    private static final class AdjustableClock extends Clock {
+        private volatile Instant now = Instant.now();
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}